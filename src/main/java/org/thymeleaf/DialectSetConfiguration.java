@@ -40,6 +40,7 @@
 import org.thymeleaf.engine.ITemplateHandler;
 import org.thymeleaf.exceptions.ConfigurationException;
 import org.thymeleaf.expression.ExpressionObjectDefinition;
+import org.thymeleaf.expression.ExpressionObjectSlots;
 import org.thymeleaf.expression.IExpressionObjectFactory;
 import org.thymeleaf.postprocessor.IPostProcessor;
 import org.thymeleaf.preprocessor.IPreProcessor;
@@ -74,6 +75,7 @@ final class DialectSetConfiguration {
     private final Map<String,Object> executionAttributes;
 
     private final AggregateExpressionObjectFactory expressionObjectFactory;
+    private final ExpressionObjectSlots expressionObjectSlots;
 
     private final ElementDefinitions elementDefinitions;
     private final AttributeDefinitions attributeDefinitions;
@@ -324,7 +326,7 @@ public static DialectSetConfiguration build(final Set<DialectConfiguration> dial
                         }
                         try {
                             // Check the empty constructor is present -- we will need to use it for creating new instances
-                            handlerClass.getConstructor(new Class[0]);
+                            handlerClass.getConstructor(new Class<?>[0]);
                         } catch (final NoSuchMethodException e) {
                             throw new ConfigurationException(
                                     "Pre-Processor class " + handlerClass.getName() + " specified for " +
@@ -389,7 +391,7 @@ public static DialectSetConfiguration build(final Set<DialectConfiguration> dial
                         }
                         try {
                             // Check the empty constructor is present -- we will need to use it for creating new instances
-                            handlerClass.getConstructor(new Class[0]);
+                            handlerClass.getConstructor(new Class<?>[0]);
                         } catch (final NoSuchMethodException e) {
                             throw new ConfigurationException(
                                     "Post-Processor class " + handlerClass.getName() + " specified for " +
@@ -442,12 +444,15 @@ public static DialectSetConfiguration build(final Set<DialectConfiguration> dial
         final ElementDefinitions elementDefinitions = new ElementDefinitions(elementProcessorsByTemplateMode);
         final AttributeDefinitions attributeDefinitions = new AttributeDefinitions(elementProcessorsByTemplateMode);
 
+        // Slots for the expression objects are assigned only once, and shared by all the processing contexts
+        final ExpressionObjectSlots expressionObjectSlots =
+                new ExpressionObjectSlots(aggregateExpressionObjectFactory.getObjectDefinitions());
 
 
         return new DialectSetConfiguration(
                 new LinkedHashSet<DialectConfiguration>(dialectConfigurations), dialects,
                 standardDialectPresent, standardDialectPrefix,
-                executionAttributes, aggregateExpressionObjectFactory,
+                executionAttributes, aggregateExpressionObjectFactory, expressionObjectSlots,
                 elementDefinitions, attributeDefinitions,
                 templateBoundariesProcessorsByTemplateMode,
                 cdataSectionProcessorsByTemplateMode, commentProcessorsByTemplateMode, docTypeProcessorsByTemplateMode,
@@ -479,6 +484,7 @@ private DialectSetConfiguration(
             final boolean standardDialectPresent, final String standardDialectPrefix,
             final Map<String, Object> executionAttributes,
             final AggregateExpressionObjectFactory expressionObjectFactory,
+            final ExpressionObjectSlots expressionObjectSlots,
             final ElementDefinitions elementDefinitions, final AttributeDefinitions attributeDefinitions,
             final EnumMap<TemplateMode, Set<ITemplateBoundariesProcessor>> templateBoundariesProcessorsByTemplateMode,
             final EnumMap<TemplateMode, Set<ICDATASectionProcessor>> cdataSectionProcessorsByTemplateMode,
@@ -499,6 +505,7 @@ private DialectSetConfiguration(
         this.standardDialectPrefix = standardDialectPrefix;
         this.executionAttributes = Collections.unmodifiableMap(executionAttributes);
         this.expressionObjectFactory = expressionObjectFactory;
+        this.expressionObjectSlots = expressionObjectSlots;
         this.elementDefinitions = elementDefinitions;
         this.attributeDefinitions = attributeDefinitions;
         this.templateBoundariesProcessorsByTemplateMode = templateBoundariesProcessorsByTemplateMode;
@@ -650,6 +657,11 @@ public IExpressionObjectFactory getExpressionObjectFactory() {
     }
 
 
+    public ExpressionObjectSlots getExpressionObjectSlots() {
+        return this.expressionObjectSlots;
+    }
+
+
 
 
     /*
@@ -666,6 +678,9 @@ static class AggregateExpressionObjectFactory implements IExpressionObjectFactor
         private IExpressionObjectFactory firstExpressionObjectFactory = null;
         private List<IExpressionObjectFactory> expressionObjectFactoryList = null;
 
+        // Merged definitions of all factories, computed only once so that all processing contexts share them
+        private volatile Map<String,ExpressionObjectDefinition> objectDefinitions = null;
+
         AggregateExpressionObjectFactory() {
             super();
         }
@@ -680,6 +695,7 @@ void add(final IExpressionObjectFactory expressionObjectFactory) {
                 this.firstExpressionObjectFactory = null;
             }
             this.expressionObjectFactoryList.add(expressionObjectFactory);
+            this.objectDefinitions = null;
         }
 
         public Map<String,ExpressionObjectDefinition> getObjectDefinitions() {
@@ -689,10 +705,15 @@ public Map<String,ExpressionObjectDefinition> getObjectDefinitions() {
             if (this.expressionObjectFactoryList == null) {
                 return null;
             }
-            final Map<String,ExpressionObjectDefinition> objectDefinitions = new LinkedHashMap<String,ExpressionObjectDefinition>(30);
-            int n = this.expressionObjectFactoryList.size();
-            while (n-- != 0) {
-                objectDefinitions.putAll(this.expressionObjectFactoryList.get(n).getObjectDefinitions());
+            Map<String,ExpressionObjectDefinition> objectDefinitions = this.objectDefinitions;
+            if (objectDefinitions == null) {
+                objectDefinitions = new LinkedHashMap<String,ExpressionObjectDefinition>(30);
+                int n = this.expressionObjectFactoryList.size();
+                while (n-- != 0) {
+                    objectDefinitions.putAll(this.expressionObjectFactoryList.get(n).getObjectDefinitions());
+                }
+                objectDefinitions = Collections.unmodifiableMap(objectDefinitions);
+                this.objectDefinitions = objectDefinitions;
             }
             return objectDefinitions;
         }
@@ -31,8 +31,10 @@
 import org.thymeleaf.dialect.IDialect;
 import org.thymeleaf.engine.AttributeDefinitions;
 import org.thymeleaf.engine.ElementDefinitions;
+import org.thymeleaf.expression.ExpressionObjectSlots;
 import org.thymeleaf.expression.IExpressionObjectFactory;
 import org.thymeleaf.messageresolver.IMessageResolver;
+import org.thymeleaf.metrics.IEngineMetrics;
 import org.thymeleaf.postprocessor.IPostProcessor;
 import org.thymeleaf.preprocessor.IPreProcessor;
 import org.thymeleaf.processor.cdatasection.ICDATASectionProcessor;
@@ -61,6 +63,9 @@ public class EngineConfiguration implements IEngineConfiguration {
     private final Set<ITemplateResolver> templateResolvers;
     private final Set<IMessageResolver> messageResolvers;
     private final ICacheManager cacheManager;
+    private final IEngineMetrics engineMetrics;
+    private final int parserBufferPoolSize;
+    private final int parserBufferSize;
 
 
     public EngineConfiguration(
@@ -68,7 +73,10 @@ public EngineConfiguration(
             final Set<IMessageResolver> messageResolvers,
             final Set<DialectConfiguration> dialectConfigurations,
             final ICacheManager cacheManager,
-            final ITextRepository textRepository) {
+            final ITextRepository textRepository,
+            final int parserBufferPoolSize,
+            final int parserBufferSize,
+            final IEngineMetrics engineMetrics) {
 
         super();
 
@@ -78,7 +86,10 @@ public EngineConfiguration(
         Validate.notNull(messageResolvers, "Message Resolver set cannot be null");
         Validate.notNull(dialectConfigurations, "Dialect configuration set cannot be null");
         // Cache Manager CAN be null
+        // Engine Metrics CAN be null
         Validate.notNull(textRepository, "Text Repository cannot be null");
+        Validate.isTrue(parserBufferPoolSize >= 0, "Parser buffer pool size must be >= 0");
+        Validate.isTrue(parserBufferSize > 0, "Parser buffer size must be > 0");
 
         final List<ITemplateResolver> templateResolversList = new ArrayList<ITemplateResolver>(templateResolvers);
         Collections.sort(templateResolversList, TemplateResolverComparator.INSTANCE);
@@ -89,10 +100,14 @@ public EngineConfiguration(
         this.messageResolvers = Collections.unmodifiableSet(new LinkedHashSet<IMessageResolver>(messageResolversList));
 
         this.cacheManager = cacheManager;
+        this.engineMetrics = engineMetrics;
 
         this.dialectSetConfiguration = DialectSetConfiguration.build(dialectConfigurations);
         this.textRepository = textRepository;
 
+        this.parserBufferPoolSize = parserBufferPoolSize;
+        this.parserBufferSize = parserBufferSize;
+
     }
 
 
@@ -113,6 +128,11 @@ public ICacheManager getCacheManager() {
     }
 
 
+    public IEngineMetrics getEngineMetrics() {
+        return this.engineMetrics;
+    }
+
+
 
 
     public Set<DialectConfiguration> getDialectConfigurations() {
@@ -135,6 +155,14 @@ public ITextRepository getTextRepository() {
         return this.textRepository;
     }
 
+    public int getParserBufferPoolSize() {
+        return this.parserBufferPoolSize;
+    }
+
+    public int getParserBufferSize() {
+        return this.parserBufferSize;
+    }
+
 
     public ElementDefinitions getElementDefinitions() {
         return this.dialectSetConfiguration.getElementDefinitions();
@@ -198,6 +226,10 @@ public IExpressionObjectFactory getExpressionObjectFactory() {
         return this.dialectSetConfiguration.getExpressionObjectFactory();
     }
 
+    public ExpressionObjectSlots getExpressionObjectSlots() {
+        return this.dialectSetConfiguration.getExpressionObjectSlots();
+    }
+
 
 
 
@@ -28,6 +28,7 @@
 import org.thymeleaf.engine.ElementDefinitions;
 import org.thymeleaf.expression.IExpressionObjectFactory;
 import org.thymeleaf.messageresolver.IMessageResolver;
+import org.thymeleaf.metrics.IEngineMetrics;
 import org.thymeleaf.postprocessor.IPostProcessor;
 import org.thymeleaf.preprocessor.IPreProcessor;
 import org.thymeleaf.processor.cdatasection.ICDATASectionProcessor;
@@ -55,6 +56,8 @@ public interface IEngineConfiguration {
 
     public ICacheManager getCacheManager();
 
+    public IEngineMetrics getEngineMetrics();
+
     public Set<DialectConfiguration> getDialectConfigurations();
     public Set<IDialect> getDialects();
     public boolean isStandardDialectPresent();
@@ -62,6 +65,9 @@ public interface IEngineConfiguration {
 
     public ITextRepository getTextRepository();
 
+    public int getParserBufferPoolSize();
+    public int getParserBufferSize();
+
     public ElementDefinitions getElementDefinitions();
     public AttributeDefinitions getAttributeDefinitions();
 
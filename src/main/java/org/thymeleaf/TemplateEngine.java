@@ -44,6 +44,8 @@
 import org.thymeleaf.exceptions.TemplateProcessingException;
 import org.thymeleaf.messageresolver.IMessageResolver;
 import org.thymeleaf.messageresolver.StandardMessageResolver;
+import org.thymeleaf.metrics.IEngineMetrics;
+import org.thymeleaf.metrics.InstrumentedCacheManager;
 import org.thymeleaf.standard.StandardDialect;
 import org.thymeleaf.templatemode.TemplateMode;
 import org.thymeleaf.templateresolver.ITemplateResolver;
@@ -121,6 +123,9 @@
  *       caching (at least) templates, fragments, messages and expressions. By default, a 
  *       {@link StandardCacheManager} instance is used. If a null cache manager is specified by calling
  *       {@link #setCacheManager(ICacheManager)}, no caches will be used throughout the system at all.</li>
+ *   <li>Optionally, an <b>Engine Metrics</b> object (instance of {@link IEngineMetrics}), which will be
+ *       notified of template processing/parsing/resolution times, cache usage, expression evaluations and
+ *       message resolutions. By default, no metrics are collected. See {@link #setEngineMetrics(IEngineMetrics)}.</li>
  * </ul>
  * 
  * <h3>Template Execution</h3>
@@ -214,6 +219,21 @@ public class TemplateEngine implements ITemplateEngine {
      */
     public static final String TIMER_LOGGER_NAME = TemplateEngine.class.getName() + ".TIMER";
 
+    /**
+     * <p>
+     *   Default maximum amount of buffers (of the smallest size) kept in the pool of buffers used by
+     *   template parsers. Value: 40
+     * </p>
+     */
+    public static final int DEFAULT_PARSER_BUFFER_POOL_SIZE = 40;
+
+    /**
+     * <p>
+     *   Default size (in chars) of the buffers initially used by template parsers. Value: 2048
+     * </p>
+     */
+    public static final int DEFAULT_PARSER_BUFFER_SIZE = 2048;
+
     private static final Logger logger = LoggerFactory.getLogger(TemplateEngine.class);
     private static final Logger timerLogger = LoggerFactory.getLogger(TIMER_LOGGER_NAME);
 
@@ -225,6 +245,9 @@ public class TemplateEngine implements ITemplateEngine {
     private final Set<ITemplateResolver> templateResolvers = new LinkedHashSet<ITemplateResolver>(3);
     private final Set<IMessageResolver> messageResolvers = new LinkedHashSet<IMessageResolver>(3);
     private ICacheManager cacheManager = null;
+    private IEngineMetrics engineMetrics = null;
+    private int parserBufferPoolSize = DEFAULT_PARSER_BUFFER_POOL_SIZE;
+    private int parserBufferSize = DEFAULT_PARSER_BUFFER_SIZE;
 
     // TODO Make this configurable!
     private final ITextRepository textRepository = TextRepositories.createLimitedSizeCacheRepository();
@@ -308,8 +331,16 @@ private void initialize() {
                                 "At least one Template Resolver is required.");
                     }
 
+                    // If metrics are enabled, all the caches will be instrumented so that their use is recorded
+                    final ICacheManager configurationCacheManager =
+                            (this.cacheManager != null && this.engineMetrics != null?
+                                    new InstrumentedCacheManager(this.cacheManager, this.engineMetrics) : this.cacheManager);
+
                     this.configuration =
-                            new EngineConfiguration(this.templateResolvers, this.messageResolvers, this.dialectConfigurations, this.cacheManager, this.textRepository);
+                            new EngineConfiguration(
+                                    this.templateResolvers, this.messageResolvers, this.dialectConfigurations,
+                                    configurationCacheManager, this.textRepository,
+                                    this.parserBufferPoolSize, this.parserBufferSize, this.engineMetrics);
                     this.templateManager = new TemplateManager(this.configuration);
 
                     initializeSpecific();
@@ -705,6 +736,133 @@ public void setCacheManager(final ICacheManager cacheManager) {
         this.cacheManager = cacheManager;
     }
 
+
+    /**
+     * <p>
+     *   Returns the object collecting metrics about the execution of the engine, if any.
+     * </p>
+     * <p>
+     *   By default, no metrics object is set (<tt>null</tt>).
+     * </p>
+     *
+     * @return the engine metrics object, or <tt>null</tt> if none has been set.
+     * @since 3.0.0
+     */
+    public IEngineMetrics getEngineMetrics() {
+        if (this.initialized.get()) {
+            return this.configuration.getEngineMetrics();
+        }
+        return this.engineMetrics;
+    }
+
+    /**
+     * <p>
+     *   Sets the object that will collect metrics about the execution of the engine: template processing,
+     *   parsing and resolution times, cache usage, expression evaluations and message resolutions.
+     *   If set to null (the default), no metrics will be collected at all, and no cost will be incurred.
+     * </p>
+     * <p>
+     *   If a metrics object is set, the caches provided by the cache manager will be wrapped into
+     *   {@link org.thymeleaf.metrics.InstrumentedCache} objects, so the cache manager returned by
+     *   {@link #getCacheManager()} after initialization will be an {@link InstrumentedCacheManager}.
+     * </p>
+     * <p>
+     *   This operation can only be executed before processing templates for the first
+     *   time. Once a template is processed, the template engine is considered to be
+     *   <i>initialized</i>, and from then on any attempt to change its configuration
+     *   will result in an exception.
+     * </p>
+     *
+     * @param engineMetrics the engine metrics object to be set.
+     * @since 3.0.0
+     */
+    public void setEngineMetrics(final IEngineMetrics engineMetrics) {
+        // Can be set to null (= no metrics)
+        checkNotInitialized();
+        this.engineMetrics = engineMetrics;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the maximum amount of buffers (of the smallest size) that will be kept in the pool of
+     *   buffers used by template parsers.
+     * </p>
+     * <p>
+     *   By default, {@link #DEFAULT_PARSER_BUFFER_POOL_SIZE}.
+     * </p>
+     *
+     * @return the parser buffer pool size
+     * @since 3.0.0
+     */
+    public int getParserBufferPoolSize() {
+        if (this.initialized.get()) {
+            return this.configuration.getParserBufferPoolSize();
+        }
+        return this.parserBufferPoolSize;
+    }
+
+    /**
+     * <p>
+     *   Sets the maximum amount of buffers (of the smallest size) that will be kept in the pool of
+     *   buffers used by template parsers. Pools of larger buffers will keep proportionally less buffers.
+     * </p>
+     * <p>
+     *   This operation can only be executed before processing templates for the first
+     *   time. Once a template is processed, the template engine is considered to be
+     *   <i>initialized</i>, and from then on any attempt to change its configuration
+     *   will result in an exception.
+     * </p>
+     *
+     * @param parserBufferPoolSize the parser buffer pool size (0 = no pooling).
+     * @since 3.0.0
+     */
+    public void setParserBufferPoolSize(final int parserBufferPoolSize) {
+        Validate.isTrue(parserBufferPoolSize >= 0, "Parser buffer pool size must be >= 0");
+        checkNotInitialized();
+        this.parserBufferPoolSize = parserBufferPoolSize;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the size (in chars) of the buffers initially used by template parsers.
+     * </p>
+     * <p>
+     *   By default, {@link #DEFAULT_PARSER_BUFFER_SIZE}.
+     * </p>
+     *
+     * @return the parser buffer size
+     * @since 3.0.0
+     */
+    public int getParserBufferSize() {
+        if (this.initialized.get()) {
+            return this.configuration.getParserBufferSize();
+        }
+        return this.parserBufferSize;
+    }
+
+    /**
+     * <p>
+     *   Sets the size (in chars) of the buffers initially used by template parsers. Parsers will
+     *   use larger buffers (doubling this size) when needed.
+     * </p>
+     * <p>
+     *   This operation can only be executed before processing templates for the first
+     *   time. Once a template is processed, the template engine is considered to be
+     *   <i>initialized</i>, and from then on any attempt to change its configuration
+     *   will result in an exception.
+     * </p>
+     *
+     * @param parserBufferSize the parser buffer size.
+     * @since 3.0.0
+     */
+    public void setParserBufferSize(final int parserBufferSize) {
+        Validate.isTrue(parserBufferSize > 0, "Parser buffer size must be > 0");
+        checkNotInitialized();
+        this.parserBufferSize = parserBufferSize;
+    }
+
     
     /**
      * <p>
@@ -1117,6 +1275,11 @@ public final void process(
             this.templateManager.processStandaloneTemplate(this.configuration, template, selectors, templateMode, context, writer, true);
 
             final long endNanos = System.nanoTime();
+
+            final IEngineMetrics metrics = this.configuration.getEngineMetrics();
+            if (metrics != null) {
+                metrics.recordTemplateProcessing(template, endNanos - startNanos);
+            }
             
             if (logger.isTraceEnabled()) {
                 if (selectors == null || selectors.length == 0) {
@@ -40,7 +40,7 @@
  * @since 2.0.0 (reimplemented in 3.0.0)
  *
  */
-public abstract class AbstractCacheManager implements ICacheManager {
+public abstract class AbstractCacheManager implements IOutputCacheManager {
 
 
     private volatile ICache<TemplateCacheKey,ParsedTemplateModel> templateCache;
@@ -55,6 +55,9 @@ public abstract class AbstractCacheManager implements ICacheManager {
     private volatile ICache<String,Properties> messageCache;
     private volatile boolean messageCacheInitialized = false;
 
+    private volatile ICache<OutputCacheKey,CachedOutput> outputCache;
+    private volatile boolean outputCacheInitialized = false;
+
     
     protected AbstractCacheManager() {
         super();
@@ -111,6 +114,19 @@ public final ICache<String, Object> getExpressionCache() {
         return this.expressionCache;
     }
 
+
+    public final ICache<OutputCacheKey, CachedOutput> getOutputCache() {
+        if (!this.outputCacheInitialized) {
+            synchronized(this) {
+                if (!this.outputCacheInitialized) {
+                    this.outputCache = initializeOutputCache();
+                    this.outputCacheInitialized = true;
+                }
+            }
+        }
+        return this.outputCache;
+    }
+
     
     public <K, V> ICache<K, V> getSpecificCache(final String name) {
         // No specific caches are used by default
@@ -145,6 +161,11 @@ public void clearAllCaches() {
         if (expressionCacheObj != null) {
             expressionCacheObj.clear();
         }
+
+        final ICache<OutputCacheKey, CachedOutput> outputCacheObj = getOutputCache();
+        if (outputCacheObj != null) {
+            outputCacheObj.clear();
+        }
         
         final List<String> allSpecificCacheNamesObj = getAllSpecificCacheNames();
         if (allSpecificCacheNamesObj != null) {
@@ -166,5 +187,18 @@ public void clearAllCaches() {
     protected abstract ICache<String,Properties> initializeMessageCache();
     
     protected abstract ICache<String,Object> initializeExpressionCache();
+
+    /**
+     * <p>
+     *   Initializes the Output Cache. By default no Output Cache is used (and therefore output caching is
+     *   disabled), so this method returns null.
+     * </p>
+     *
+     * @return the Output Cache, or null if output caching should be disabled.
+     * @since 3.0.0
+     */
+    protected ICache<OutputCacheKey,CachedOutput> initializeOutputCache() {
+        return null;
+    }
     
 }
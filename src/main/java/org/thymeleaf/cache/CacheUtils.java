@@ -0,0 +1,125 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.thymeleaf.util.Validate;
+
+
+/**
+ * <p>
+ *   Utility methods for removing sets of entries from {@link ICache} objects, using the operations in
+ *   {@link ISelectivelyClearableCache} if the cache implements it, or scanning its {@link ICache#keySet()}
+ *   otherwise.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public final class CacheUtils {
+
+
+
+    /**
+     * <p>
+     *   Removes all the entries in the cache that match the specified predicate.
+     * </p>
+     *
+     * @param cache the cache from which entries are to be removed.
+     * @param predicate the predicate that selects the entries to be removed.
+     * @param <K> the type of the cache keys
+     * @param <V> the type of the cache values
+     */
+    public static <K,V> void removeIf(
+            final ICache<K,V> cache, final ICacheEntryPredicate<? super K, ? super V> predicate) {
+
+        Validate.notNull(cache, "Cache cannot be null");
+        Validate.notNull(predicate, "Predicate cannot be null");
+
+        if (cache instanceof ISelectivelyClearableCache<?,?>) {
+            ((ISelectivelyClearableCache<K,V>) cache).removeIf(predicate);
+            return;
+        }
+
+        // We are iterating twice and creating a temporary list just in case the 'keySet' Set is still connected
+        // to the original cache store and we provoke ConcurrentModificationExceptions when removing entries
+        final List<K> keysToBeRemoved = new ArrayList<K>(4);
+        for (final K key : cache.keySet()) {
+            final V value = cache.get(key);
+            // Keys for already-invalid entries (null values) are removed too
+            if (value == null || predicate.matches(key, value)) {
+                keysToBeRemoved.add(key);
+            }
+        }
+        for (final K key : keysToBeRemoved) {
+            cache.clearKey(key);
+        }
+
+    }
+
+
+    /**
+     * <p>
+     *   Removes all the entries in the cache whose keys belong to the specified template (see
+     *   {@link ITemplateOwnedCacheKey}). Keys not implementing {@link ITemplateOwnedCacheKey} are not affected.
+     * </p>
+     *
+     * @param cache the cache from which entries are to be removed.
+     * @param template the name of the template whose entries are to be removed.
+     * @param <K> the type of the cache keys
+     */
+    public static <K> void clearKeysForTemplate(final ICache<K,?> cache, final String template) {
+
+        Validate.notNull(cache, "Cache cannot be null");
+        Validate.notNull(template, "Template cannot be null");
+
+        if (cache instanceof ISelectivelyClearableCache<?,?>) {
+            ((ISelectivelyClearableCache<?,?>) cache).clearKeysForTemplate(template);
+            return;
+        }
+
+        // We are iterating twice and creating a temporary list just in case the 'keySet' Set is still connected
+        // to the original cache store and we provoke ConcurrentModificationExceptions when removing entries
+        final List<K> keysToBeRemoved = new ArrayList<K>(4);
+        for (final K key : cache.keySet()) {
+            if (key instanceof ITemplateOwnedCacheKey &&
+                    template.equals(((ITemplateOwnedCacheKey) key).getOwningTemplate())) {
+                keysToBeRemoved.add(key);
+            }
+        }
+        for (final K key : keysToBeRemoved) {
+            cache.clearKey(key);
+        }
+
+    }
+
+
+
+
+    private CacheUtils() {
+        super();
+    }
+
+
+}
@@ -0,0 +1,120 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.cache;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.thymeleaf.util.IWritableCharSequence;
+import org.thymeleaf.util.Validate;
+
+
+/**
+ * <p>
+ *   Value stored in the Output Cache: the output rendered for an element (including its body), along with
+ *   the validity of the cache entry.
+ * </p>
+ * <p>
+ *   Objects of this class are also {@link IWritableCharSequence}s, so that they can be set as the contents
+ *   of text events, which will then write the cached output directly, without creating any intermediate
+ *   String objects.
+ * </p>
+ * <p>
+ *   Objects of this class are <b>immutable</b>. The output array must never be modified once an object of this
+ *   class has been created with it.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ */
+public final class CachedOutput implements IWritableCharSequence {
+
+    private final char[] output;
+    private final ICacheEntryValidity validity;
+
+
+
+    public CachedOutput(final char[] output, final ICacheEntryValidity validity) {
+        super();
+        Validate.notNull(output, "Output cannot be null");
+        Validate.notNull(validity, "Validity cannot be null");
+        this.output = output;
+        this.validity = validity;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the cached output. This array must not be modified.
+     * </p>
+     *
+     * @return the cached output.
+     */
+    public char[] getOutput() {
+        return this.output;
+    }
+
+
+    public ICacheEntryValidity getValidity() {
+        return this.validity;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the weight of this cached output, used for computing the memory footprint of
+     *   the Output Cache. Expressed as the amount of chars in the output.
+     * </p>
+     *
+     * @return the weight of the cached output.
+     */
+    public int getWeight() {
+        return this.output.length;
+    }
+
+
+
+    public int length() {
+        return this.output.length;
+    }
+
+
+    public char charAt(final int index) {
+        return this.output[index];
+    }
+
+
+    public CharSequence subSequence(final int start, final int end) {
+        return new String(this.output, start, end - start);
+    }
+
+
+    public void write(final Writer writer) throws IOException {
+        writer.write(this.output, 0, this.output.length);
+    }
+
+
+    @Override
+    public String toString() {
+        return new String(this.output);
+    }
+
+}
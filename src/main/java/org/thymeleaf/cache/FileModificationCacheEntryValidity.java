@@ -0,0 +1,154 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.cache;
+
+import java.io.File;
+
+import org.thymeleaf.util.Validate;
+
+/**
+ * <p>
+ *   Implementation of {@link ICacheEntryValidity} for templates resolved from files in the
+ *   filesystem, which considers cache entries valid for as long as the file they were resolved
+ *   from is not modified.
+ * </p>
+ * <p>
+ *   Modifications are detected by comparing the last-modified timestamp and the size of the file
+ *   with the ones it had when this object was created. In order to avoid hitting the filesystem
+ *   each time a cache entry is accessed, these checks will be performed at most once every
+ *   <em>check interval</em>. Once a modification is detected, the entry will be considered
+ *   invalid forever (and therefore evicted from cache and resolved again).
+ * </p>
+ * <p>
+ *   Compared to {@link TTLCacheEntryValidity}, this means unmodified templates will never be
+ *   parsed again, whereas modified ones will be evicted from cache at most <em>check interval</em>
+ *   milliseconds after being modified.
+ * </p>
+ * <p>
+ *   Objects of this class are <b>thread-safe</b>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public class FileModificationCacheEntryValidity
+        implements ICacheEntryValidity {
+
+    private final File file;
+    private final long checkIntervalMs;
+    private final long lastModified;
+    private final long length;
+
+    private volatile long nextCheckTimeInMillis;
+    private volatile boolean modified = false;
+
+
+    /**
+     * <p>
+     *   Creates a new instance of this validity implementation, recording the current
+     *   last-modified timestamp and size of the file.
+     * </p>
+     *
+     * @param file the file the template has been resolved from.
+     * @param checkIntervalMs the minimum amount of milliseconds between two checks on the file.
+     */
+    public FileModificationCacheEntryValidity(final File file, final long checkIntervalMs) {
+        super();
+        Validate.notNull(file, "File cannot be null");
+        Validate.isTrue(checkIntervalMs >= 0L, "Check interval must be >= 0");
+        this.file = file;
+        this.checkIntervalMs = checkIntervalMs;
+        // Note a non-existing file will have 0 as both last-modified and size, so its creation will be detected too
+        this.lastModified = file.lastModified();
+        this.length = file.length();
+        this.nextCheckTimeInMillis = System.currentTimeMillis() + checkIntervalMs;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the file the template has been resolved from.
+     * </p>
+     *
+     * @return the file.
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the minimum amount of milliseconds between two checks on the file.
+     * </p>
+     *
+     * @return the check interval in milliseconds.
+     */
+    public long getCheckIntervalMs() {
+        return this.checkIntervalMs;
+    }
+
+
+    /**
+     * <p>
+     *   Returns true. Templates are always considered cacheable using this
+     *   validity implementation.
+     * </p>
+     *
+     * @return true
+     */
+    public boolean isCacheable() {
+        return true;
+    }
+
+
+    /**
+     * <p>
+     *   Returns whether the template resolution can still be considered valid. This is done
+     *   by checking (at most once every check interval) whether the last-modified timestamp
+     *   or the size of the file have changed since this object was created.
+     * </p>
+     *
+     * @return whether the (cached) template resolution can still be considered valid.
+     */
+    public boolean isCacheStillValid() {
+
+        if (this.modified) {
+            return false;
+        }
+
+        final long currentTimeInMillis = System.currentTimeMillis();
+        if (currentTimeInMillis < this.nextCheckTimeInMillis) {
+            return true;
+        }
+        // Several threads might perform the check at the same time, which is harmless
+        this.nextCheckTimeInMillis = currentTimeInMillis + this.checkIntervalMs;
+
+        if (this.file.lastModified() != this.lastModified || this.file.length() != this.length) {
+            this.modified = true;
+            return false;
+        }
+        return true;
+
+    }
+
+}
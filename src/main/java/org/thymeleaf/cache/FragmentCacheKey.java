@@ -35,7 +35,7 @@
  *
  * @since 3.0.0
  */
-public final class FragmentCacheKey {
+public final class FragmentCacheKey implements ITemplateOwnedCacheKey {
 
     private final String ownerTemplate;
     private final String fragment;
@@ -85,6 +85,10 @@ public String getFragment() {
         return this.fragment;
     }
 
+    public String getOwningTemplate() {
+        return (this.ownerTemplate != null? this.ownerTemplate : this.fragment);
+    }
+
     public int getLineOffset() {
         return this.lineOffset;
     }
@@ -0,0 +1,40 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.cache;
+
+/**
+ * <p>
+ *   Predicate used for selecting the entries to be removed from a cache by means of
+ *   {@link CacheUtils#removeIf(ICache, ICacheEntryPredicate)} or
+ *   {@link ISelectivelyClearableCache#removeIf(ICacheEntryPredicate)}.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ * @param <K> The type of the cache map keys
+ * @param <V> The type of the cache map values
+ */
+public interface ICacheEntryPredicate<K,V> {
+
+    public boolean matches(final K key, final V value);
+
+}
@@ -0,0 +1,59 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.cache;
+
+
+/**
+ * <p>
+ *   Optional interface for {@link ICacheManager} implementations that also provide an Output Cache, used for
+ *   caching the output of elements marked for output caching (e.g. by means of a <tt>th:cache</tt> attribute).
+ * </p>
+ * <p>
+ *   The engine checks whether the configured cache manager implements this interface and, if it doesn't, output
+ *   caching is simply disabled. {@link AbstractCacheManager} (and therefore {@link StandardCacheManager})
+ *   implements it.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public interface IOutputCacheManager extends ICacheManager {
+
+    /**
+     * <p>
+     *   Returns the cache of rendered element outputs.
+     * </p>
+     * <p>
+     *   This cache stores the output produced by the processing of elements (including their bodies)
+     *   marked for output caching (e.g. by means of a <tt>th:cache</tt> attribute), so that later
+     *   executions can directly output them instead of processing these elements again.
+     * </p>
+     * <p>
+     *   Keys identify the element (its template and position), the template mode and locale it was
+     *   processed in, and the result of evaluating the cache key expression specified for it.
+     * </p>
+     *
+     * @return the cache of rendered element outputs (might be null if output caching is disabled).
+     */
+    public ICache<OutputCacheKey,CachedOutput> getOutputCache();
+
+}
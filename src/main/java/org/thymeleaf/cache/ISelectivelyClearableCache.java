@@ -0,0 +1,71 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.cache;
+
+
+/**
+ * <p>
+ *   Optional interface for {@link ICache} implementations able to remove sets of entries efficiently, without
+ *   the engine having to scan all their keys.
+ * </p>
+ * <p>
+ *   The engine checks whether the caches it obtains from the {@link ICacheManager} implement this interface
+ *   and, if they don't, falls back to scanning their {@link ICache#keySet()} (see {@link CacheUtils}). Custom
+ *   cache implementations are therefore not required to implement it.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ * @param <K> the type of the cache keys
+ * @param <V> the type of the cache values
+ */
+public interface ISelectivelyClearableCache<K, V> extends ICache<K, V> {
+
+    /**
+     * <p>
+     *   Removes all the entries in the cache that match the specified predicate.
+     * </p>
+     * <p>
+     *   Implementations should perform this operation incrementally, without copying the set of keys and
+     *   without blocking other threads reading from (or writing to) the cache. Entries added to the cache while
+     *   this operation is being executed might or might not be examined.
+     * </p>
+     *
+     * @param predicate the predicate that selects the entries to be removed.
+     */
+    public void removeIf(final ICacheEntryPredicate<? super K, ? super V> predicate);
+
+    /**
+     * <p>
+     *   Removes all the entries in the cache whose keys belong to the specified template (see
+     *   {@link ITemplateOwnedCacheKey}). Keys not implementing {@link ITemplateOwnedCacheKey} are not affected.
+     * </p>
+     * <p>
+     *   Implementations should keep a secondary index of keys by owning template so that the cost of this
+     *   operation depends only on the amount of entries to be removed, not on the size of the cache.
+     * </p>
+     *
+     * @param template the name of the template whose entries are to be removed.
+     */
+    public void clearKeysForTemplate(final String template);
+
+}
@@ -0,0 +1,46 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.cache;
+
+/**
+ * <p>
+ *   Implemented by cache keys whose entries belong to a specific template, so that caches can index them and
+ *   remove all the entries of a template at once without scanning all their keys (see
+ *   {@link ISelectivelyClearableCache#clearKeysForTemplate(String)}).
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ */
+public interface ITemplateOwnedCacheKey {
+
+    /**
+     * <p>
+     *   Returns the name of the template the entry for this key belongs to: the owner template if the entry
+     *   corresponds to something being processed from inside another template (e.g. an inlining), or the
+     *   template itself if it is standalone.
+     * </p>
+     *
+     * @return the name of the template owning the entry, never null.
+     */
+    public String getOwningTemplate();
+
+}
@@ -0,0 +1,183 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.cache;
+
+import java.util.Locale;
+
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.util.LoggingUtils;
+import org.thymeleaf.util.Validate;
+
+
+/**
+ * <p>
+ *   This class models objects used as keys in the Output Cache.
+ * </p>
+ * <p>
+ *   Output cache entries are identified by the element whose output has been cached (the name of the
+ *   template it belongs to and its position in it), the template mode and locale in which it was processed,
+ *   and the result of evaluating the <em>key expression</em> specified for the element.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ */
+public final class OutputCacheKey implements ITemplateOwnedCacheKey {
+
+    private final String template;
+    private final int line;
+    private final int col;
+    private final TemplateMode templateMode;
+    private final Locale locale;
+    private final String key;
+    private final int h;
+
+
+
+
+    public OutputCacheKey(
+            final String template, final int line, final int col,
+            final TemplateMode templateMode, final Locale locale, final String key) {
+
+        super();
+
+        Validate.notNull(template, "Template cannot be null");
+        Validate.notNull(templateMode, "Template mode cannot be null");
+        // locale can be null
+        // key can be null if the key expression evaluated to null
+
+        this.template = template;
+        this.line = line;
+        this.col = col;
+        this.templateMode = templateMode;
+        this.locale = locale;
+        this.key = key;
+        this.h = computeHashCode();
+
+    }
+
+
+    public String getTemplate() {
+        return this.template;
+    }
+
+    public String getOwningTemplate() {
+        return this.template;
+    }
+
+    public int getLine() {
+        return this.line;
+    }
+
+    public int getCol() {
+        return this.col;
+    }
+
+    public TemplateMode getTemplateMode() {
+        return this.templateMode;
+    }
+
+    public Locale getLocale() {
+        return this.locale;
+    }
+
+    public String getKey() {
+        return this.key;
+    }
+
+
+
+
+    @Override
+    public boolean equals(final Object o) {
+
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof OutputCacheKey)) {
+            return false;
+        }
+
+        final OutputCacheKey that = (OutputCacheKey) o;
+
+        if (this.h != that.h) {
+            return false;
+        }
+        if (this.line != that.line) {
+            return false;
+        }
+        if (this.col != that.col) {
+            return false;
+        }
+        if (this.templateMode != that.templateMode) {
+            return false;
+        }
+        if (!this.template.equals(that.template)) {
+            return false;
+        }
+        if (this.locale != null ? !this.locale.equals(that.locale) : that.locale != null) {
+            return false;
+        }
+        return (this.key != null ? this.key.equals(that.key) : that.key == null);
+
+    }
+
+
+    @Override
+    public int hashCode() {
+        return this.h;
+    }
+
+
+    private int computeHashCode() {
+        int result = this.template.hashCode();
+        result = 31 * result + this.line;
+        result = 31 * result + this.col;
+        result = 31 * result + this.templateMode.hashCode();
+        result = 31 * result + (this.locale != null ? this.locale.hashCode() : 0);
+        result = 31 * result + (this.key != null ? this.key.hashCode() : 0);
+        return result;
+    }
+
+
+
+
+    @Override
+    public String toString() {
+        final StringBuilder strBuilder = new StringBuilder();
+        strBuilder.append(LoggingUtils.loggifyTemplateName(this.template));
+        strBuilder.append('(');
+        strBuilder.append(this.line);
+        strBuilder.append(',');
+        strBuilder.append(this.col);
+        strBuilder.append(')');
+        strBuilder.append("@(");
+        strBuilder.append(this.templateMode);
+        strBuilder.append(';');
+        strBuilder.append(this.locale);
+        strBuilder.append(")[");
+        strBuilder.append(this.key);
+        strBuilder.append(']');
+        return strBuilder.toString();
+    }
+
+}
@@ -20,10 +20,11 @@
 package org.thymeleaf.cache;
 
 import java.lang.ref.SoftReference;
-import java.util.Arrays;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.slf4j.Logger;
 import org.thymeleaf.TemplateEngine;
@@ -41,13 +42,13 @@
  * @param <K> The type of the cache keys
  * @param <V> The type of the cache values
  */
-public final class StandardCache<K, V> implements ICache<K,V> {
+public final class StandardCache<K, V> implements ISelectivelyClearableCache<K,V> {
 
     
     private static final long REPORT_INTERVAL = 300000L; // 5 minutes
     private static final String REPORT_FORMAT = 
             "[THYMELEAF][*][*][*][CACHE_REPORT] %8s elements | %12s puts | %12s gets | %12s hits | %12s misses - [%s]";
-    private volatile long lastExecution = System.currentTimeMillis();
+    private final AtomicLong lastExecution = new AtomicLong(System.currentTimeMillis());
     
     private final String name;
     private final boolean useSoftReferences;
@@ -133,7 +134,7 @@ public StandardCache(final String name, final boolean useSoftReferences,
     
     public void put(final K key, final V value) {
 
-        final CacheEntry<V> entry = new CacheEntry<V>(value, this.useSoftReferences);
+        final CacheEntry<V> entry = new CacheEntry<V>(key, value, this.useSoftReferences);
         
         // newSize will be -1 if traceExecution is false
         final int newSize = this.dataContainer.put(key, entry);
@@ -246,6 +247,35 @@ public void clearKey(final K key) {
         }
         
     }
+
+
+
+    public void removeIf(final ICacheEntryPredicate<? super K, ? super V> predicate) {
+
+        Validate.notNull(predicate, "Predicate cannot be null");
+
+        final int removedCount = this.dataContainer.removeIf(predicate);
+
+        if (this.traceExecution && removedCount > 0) {
+            final Integer newSize = Integer.valueOf(size());
+            this.logger.trace(
+                    "[THYMELEAF][{}][*][{}][CACHE_REMOVE][{}] Removed {} matching cache entries in cache \"{}\". New size is {}.",
+                    new Object[] {TemplateEngine.threadIndex(), this.name, newSize, Integer.valueOf(removedCount), this.name, newSize});
+        }
+
+    }
+
+
+
+    public void clearKeysForTemplate(final String template) {
+
+        Validate.notNull(template, "Template cannot be null");
+
+        for (final K key : this.dataContainer.keysForTemplate(template)) {
+            clearKey(key);
+        }
+
+    }
     
     
     
@@ -273,6 +303,19 @@ public int size() {
         return this.dataContainer.size();
     }
 
+    /**
+     * <p>
+     *   Returns the amount of entries that have been evicted from this cache because its maximum size was
+     *   exceeded. Unlike the rest of the statistics of this cache, this is computed even if tracing is not enabled.
+     * </p>
+     *
+     * @return the eviction count.
+     * @since 3.0.0
+     */
+    public long getEvictionCount() {
+        return this.dataContainer.getEvictionCount();
+    }
+
     
     
     // -----
@@ -286,19 +329,18 @@ private void incrementReportEntity(final AtomicLong entity) {
     private void outputReportIfNeeded() {
         
         final long currentTime = System.currentTimeMillis();
-        if ((currentTime - this.lastExecution) >= REPORT_INTERVAL) { // first check without need to sync
-            synchronized (this) {
-                if ((currentTime - this.lastExecution) >= REPORT_INTERVAL) {
-                    this.logger.trace(
-                            String.format(REPORT_FORMAT,
-                                    Integer.valueOf(size()),
-                                    Long.valueOf(this.putCount.get()),
-                                    Long.valueOf(this.getCount.get()),
-                                    Long.valueOf(this.hitCount.get()),
-                                    Long.valueOf(this.missCount.get()),
-                                    this.name));
-                    this.lastExecution = currentTime;
-                }
+        final long lastExecutionTime = this.lastExecution.get();
+        if ((currentTime - lastExecutionTime) >= REPORT_INTERVAL) {
+            // Only the thread that manages to update the last execution time will output the report
+            if (this.lastExecution.compareAndSet(lastExecutionTime, currentTime)) {
+                this.logger.trace(
+                        String.format(REPORT_FORMAT,
+                                Integer.valueOf(size()),
+                                Long.valueOf(this.putCount.get()),
+                                Long.valueOf(this.getCount.get()),
+                                Long.valueOf(this.hitCount.get()),
+                                Long.valueOf(this.missCount.get()),
+                                this.name));
             }
         }
 
@@ -318,8 +360,15 @@ private void outputReportIfNeeded() {
         private final Logger logger;
         
         private final ConcurrentHashMap<K,CacheEntry<V>> container;
-        private final Object[] fifo;
-        private int fifoPointer;
+        // The FIFO is lock-free: each new entry takes the next slot (computed from an atomic counter) and evicts
+        // the entry previously occupying it. Entries (not keys) are stored so that slots belonging to entries
+        // already removed from the container can be lazily skipped at eviction time instead of being searched for
+        private final AtomicReferenceArray<CacheEntry<V>> fifo;
+        private final AtomicLong fifoCounter;
+        // Keys indexed by owning template (only for keys implementing ITemplateOwnedCacheKey)
+        private final TemplateOwnedKeyIndex<K> templateIndex;
+        // Evictions are always counted (they are not that frequent), so that they can be monitored
+        private final AtomicLong evictionCount;
 
 
         CacheDataContainer(final String name, final int initialCapacity,
@@ -332,12 +381,13 @@ private void outputReportIfNeeded() {
             this.maxSize = maxSize;
             this.sizeLimit = (maxSize >= 0);
             if (this.sizeLimit) {
-                this.fifo = new Object[this.maxSize];
-                Arrays.fill(this.fifo, null);
+                this.fifo = new AtomicReferenceArray<CacheEntry<V>>(this.maxSize);
             } else {
                 this.fifo = null;
             }
-            this.fifoPointer = 0;
+            this.fifoCounter = new AtomicLong(0L);
+            this.templateIndex = new TemplateOwnedKeyIndex<K>();
+            this.evictionCount = new AtomicLong(0L);
             this.traceExecution = traceExecution;
             this.logger = logger;
             
@@ -373,15 +423,14 @@ private int putWithoutTracing(final K key, final CacheEntry<V> value) {
                 // When not in 'trace' mode, will always return -1
                 return -1;
             }
-                    
+
+            this.templateIndex.add(key);
+
             if (this.sizeLimit) {
-                synchronized (this.fifo) {
-                    final Object removedKey = this.fifo[this.fifoPointer]; 
-                    if (removedKey != null) {
-                        this.container.remove(removedKey);
-                    }
-                    this.fifo[this.fifoPointer] = key;
-                    this.fifoPointer = (this.fifoPointer + 1) % this.maxSize;
+                final CacheEntry<V> evicted = this.fifo.getAndSet(nextFifoSlot(), value);
+                if (evicted != null && this.container.remove(evicted.key, evicted)) {
+                    this.templateIndex.remove(evicted.key);
+                    this.evictionCount.incrementAndGet();
                 }
             }
             
@@ -389,29 +438,33 @@ private int putWithoutTracing(final K key, final CacheEntry<V> value) {
             
         }
 
-        private synchronized int putWithTracing(final K key, final CacheEntry<V> value) {
+        private int putWithTracing(final K key, final CacheEntry<V> value) {
 
             final CacheEntry<V> existing = this.container.putIfAbsent(key, value);
             if (existing == null) {
+                this.templateIndex.add(key);
                 if (this.sizeLimit) {
-                    final Object removedKey = this.fifo[this.fifoPointer]; 
-                    if (removedKey != null) {
-                        final CacheEntry<V> removed = this.container.remove(removedKey);
-                        if (removed != null) {
-                            final Integer newSize = Integer.valueOf(this.container.size());
-                            this.logger.trace(
-                                    "[THYMELEAF][{}][{}][CACHE_REMOVE][{}] Max size exceeded for cache \"{}\". Removing entry for key \"{}\". New size is {}.", 
-                                    new Object[] {TemplateEngine.threadIndex(), this.name, newSize, this.name, removedKey, newSize});
-                        }
+                    final CacheEntry<V> evicted = this.fifo.getAndSet(nextFifoSlot(), value);
+                    if (evicted != null && this.container.remove(evicted.key, evicted)) {
+                        this.templateIndex.remove(evicted.key);
+                        this.evictionCount.incrementAndGet();
+                        final Integer newSize = Integer.valueOf(this.container.size());
+                        this.logger.trace(
+                                "[THYMELEAF][{}][{}][CACHE_REMOVE][{}] Max size exceeded for cache \"{}\". Removing entry for key \"{}\". New size is {}.", 
+                                new Object[] {TemplateEngine.threadIndex(), this.name, newSize, this.name, evicted.key, newSize});
                     }
-                    this.fifo[this.fifoPointer] = key;
-                    this.fifoPointer = (this.fifoPointer + 1) % this.maxSize;
                 }
             }
             return this.container.size();
             
         }
 
+
+        private int nextFifoSlot() {
+            return (int) (this.fifoCounter.getAndIncrement() % this.maxSize);
+        }
+
+
         
         public int remove(final K key) {
             if (this.traceExecution) {
@@ -422,49 +475,73 @@ public int remove(final K key) {
 
         
         private int removeWithoutTracing(final K key) {
-            // FIFO is also updated to avoid 'removed' keys remaining at FIFO (which could end up reducing cache size to 1)
+            // FIFO is not updated: the slot of the removed entry will be skipped when its turn for eviction comes
             final CacheEntry<V> removed = this.container.remove(key);
             if (removed != null) {
-                if (this.sizeLimit && key != null) {
-                    for (int i = 0; i < this.maxSize; i++) {
-                        if (key.equals(this.fifo[i])) {
-                            this.fifo[i] = null;
-                            break;
-                        }
-                    }
-                }
+                this.templateIndex.remove(key);
             }
             return -1;
         }
 
         
-        private synchronized int removeWithTracing(final K key) {
-            // FIFO is also updated to avoid 'removed' keys remaining at FIFO (which could end up reducing cache size to 1)
+        private int removeWithTracing(final K key) {
+            // FIFO is not updated: the slot of the removed entry will be skipped when its turn for eviction comes
             final CacheEntry<V> removed = this.container.remove(key);
             if (removed == null) {
                 // When tracing is active, this means nothing was removed
                 return -1;
             }
-            if (this.sizeLimit && key != null) {
-                for (int i = 0; i < this.maxSize; i++) {
-                    if (key.equals(this.fifo[i])) {
-                        this.fifo[i] = null;
-                        break;
-                    }
+            this.templateIndex.remove(key);
+            return this.container.size();
+        }
+
+
+        public int removeIf(final ICacheEntryPredicate<? super K, ? super V> predicate) {
+
+            // ConcurrentHashMap iterators are weakly consistent: they never throw ConcurrentModificationException
+            // and do not lock the map, so other threads can keep on using the cache while we iterate
+            int removedCount = 0;
+            for (final Map.Entry<K,CacheEntry<V>> mapEntry : this.container.entrySet()) {
+                final K key = mapEntry.getKey();
+                final CacheEntry<V> entry = mapEntry.getValue();
+                final V value = entry.cachedValueReference.get();
+                // Entries whose values have been reclaimed by the GC (soft references) are removed too
+                if ((value == null || predicate.matches(key, value)) && this.container.remove(key, entry)) {
+                    this.templateIndex.remove(key);
+                    removedCount++;
                 }
             }
-            return this.container.size();
+
+            return removedCount;
+
+        }
+
+
+        public Set<K> keysForTemplate(final String template) {
+            return this.templateIndex.removeAll(template);
         }
 
 
         public void clear() {
             this.container.clear();
+            this.templateIndex.clear();
+            if (this.sizeLimit) {
+                // Stale slots would be skipped anyway, but releasing them avoids retaining the cleared values
+                for (int i = 0; i < this.maxSize; i++) {
+                    this.fifo.set(i, null);
+                }
+            }
         }
         
         
         public int size() {
             return this.container.size();
         }
+
+
+        public long getEvictionCount() {
+            return this.evictionCount.get();
+        }
         
     }
 
@@ -473,6 +550,8 @@ public int size() {
 
     static final class CacheEntry<V> {
 
+        // Needed for removing the entry from the container when its FIFO slot is reused
+        private final Object key;
         private final SoftReference<V> cachedValueReference;
         private final long creationTimeInMillis;
         
@@ -483,10 +562,11 @@ public int size() {
         private final V cachedValueAnchor;
         
 
-        CacheEntry(final V cachedValue, final boolean useSoftReferences) {
+        CacheEntry(final Object key, final V cachedValue, final boolean useSoftReferences) {
 
             super();
 
+            this.key = key;
             this.cachedValueReference = new SoftReference<V>(cachedValue);
             this.cachedValueAnchor = (!useSoftReferences? cachedValue : null);
             this.creationTimeInMillis = System.currentTimeMillis();
@@ -61,6 +61,13 @@
  *       which will be applied on each entry upon retrieval from cache in order to ensure
  *       it is still valid and can be used.
  * </ul>
+ * <p>
+ *   The only exception is the <i>output cache</i>, which is implemented by a {@link StandardOutputCache}
+ *   and is limited by <i>maximum weight</i> (in chars) instead of size. Its maximum weight can be set to
+ *   <tt>-1</tt> (no limit) or <tt>0</tt> (not used) in the same way as the maximum size of the rest of
+ *   the caches. Soft references are never used for it, and validity is checked for each entry using
+ *   its own {@link ICacheEntryValidity}.
+ * </p>
  *
  * @author Daniel Fern&aacute;ndez
  *
@@ -195,6 +202,27 @@ public class StandardCacheManager extends AbstractCacheManager {
      */
     public static final ICacheEntryValidityChecker<String,Object> DEFAULT_EXPRESSION_CACHE_VALIDITY_CHECKER = null;
 
+
+    /**
+     * Default output cache name: "OUTPUT_CACHE"
+     */
+    public static final String DEFAULT_OUTPUT_CACHE_NAME = "OUTPUT_CACHE";
+
+    /**
+     * Default output cache initial size: 20
+     */
+    public static final int DEFAULT_OUTPUT_CACHE_INITIAL_SIZE = 20;
+
+    /**
+     * Default output cache maximum weight: 2097152 chars (4MB)
+     */
+    public static final long DEFAULT_OUTPUT_CACHE_MAX_WEIGHT = 2097152L;
+
+    /**
+     * Default output cache logger name: null (default behaviour = org.thymeleaf.TemplateEngine.cache.OUTPUT_CACHE)
+     */
+    public static final String DEFAULT_OUTPUT_CACHE_LOGGER_NAME = null;
+
     
     
     
@@ -225,6 +253,11 @@ public class StandardCacheManager extends AbstractCacheManager {
     private boolean expressionCacheUseSoftReferences = DEFAULT_EXPRESSION_CACHE_USE_SOFT_REFERENCES;
     private String expressionCacheLoggerName = DEFAULT_EXPRESSION_CACHE_LOGGER_NAME;
     private ICacheEntryValidityChecker<String,Object> expressionCacheValidityChecker = DEFAULT_EXPRESSION_CACHE_VALIDITY_CHECKER;
+
+    private String outputCacheName = DEFAULT_OUTPUT_CACHE_NAME;
+    private int outputCacheInitialSize = DEFAULT_OUTPUT_CACHE_INITIAL_SIZE;
+    private long outputCacheMaxWeight = DEFAULT_OUTPUT_CACHE_MAX_WEIGHT;
+    private String outputCacheLoggerName = DEFAULT_OUTPUT_CACHE_LOGGER_NAME;
     
     
     
@@ -283,6 +316,17 @@ protected final ICache<String, Object> initializeExpressionCache() {
                 getExpressionCacheInitialSize(), maxSize, 
                 getExpressionCacheValidityChecker(), getExpressionCacheLogger());
     }
+
+
+    @Override
+    protected final ICache<OutputCacheKey, CachedOutput> initializeOutputCache() {
+        final long maxWeight = getOutputCacheMaxWeight();
+        if (maxWeight == 0L) {
+            return null;
+        }
+        return new StandardOutputCache(
+                getOutputCacheName(), getOutputCacheInitialSize(), maxWeight, getOutputCacheLogger());
+    }
     
     
     
@@ -426,6 +470,33 @@ public final Logger getExpressionCacheLogger() {
 
 
 
+
+    public String getOutputCacheName() {
+        return this.outputCacheName;
+    }
+
+    public int getOutputCacheInitialSize() {
+        return this.outputCacheInitialSize;
+    }
+
+    public long getOutputCacheMaxWeight() {
+        return this.outputCacheMaxWeight;
+    }
+
+    public String getOutputCacheLoggerName() {
+        return this.outputCacheLoggerName;
+    }
+
+    public final Logger getOutputCacheLogger() {
+        final String loggerName = getOutputCacheLoggerName();
+        if (loggerName != null) {
+            return LoggerFactory.getLogger(loggerName);
+        }
+        return LoggerFactory.getLogger(TemplateEngine.class.getName() + ".cache." + getOutputCacheName());
+    }
+
+
+
     
     
     public void setTemplateCacheName(final String templateCacheName) {
@@ -530,6 +601,24 @@ public void setExpressionCacheValidityChecker(final ICacheEntryValidityChecker<S
         this.expressionCacheValidityChecker = expressionCacheValidityChecker;
     }
 
+
+
+    public void setOutputCacheName(final String outputCacheName) {
+        this.outputCacheName = outputCacheName;
+    }
+
+    public void setOutputCacheInitialSize(final int outputCacheInitialSize) {
+        this.outputCacheInitialSize = outputCacheInitialSize;
+    }
+
+    public void setOutputCacheMaxWeight(final long outputCacheMaxWeight) {
+        this.outputCacheMaxWeight = outputCacheMaxWeight;
+    }
+
+    public void setOutputCacheLoggerName(final String outputCacheLoggerName) {
+        this.outputCacheLoggerName = outputCacheLoggerName;
+    }
+
     
     
     
@@ -0,0 +1,467 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.util.Validate;
+
+
+/**
+ * <p>
+ *   Standard implementation of the Output Cache (see {@link IOutputCacheManager#getOutputCache()}).
+ * </p>
+ * <p>
+ *   Unlike {@link StandardCache}, which limits the <em>amount</em> of entries, this cache limits
+ *   the total <em>weight</em> of its entries (see {@link CachedOutput#getWeight()}), so that
+ *   its memory footprint is kept under control no matter the size of the outputs being cached.
+ *   When the maximum weight is exceeded, the oldest entries are evicted. Outputs weighing more than
+ *   the maximum weight are never cached.
+ * </p>
+ * <p>
+ *   Each entry is checked for validity by means of its own {@link ICacheEntryValidity} upon retrieval.
+ * </p>
+ * <p>
+ *   Hit, miss, put and eviction counts are always computed, and can be obtained at any moment.
+ * </p>
+ * <p>
+ *   Objects of this class are <b>thread-safe</b>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ */
+public final class StandardOutputCache implements ISelectivelyClearableCache<OutputCacheKey,CachedOutput> {
+
+    // Minimum amount of stale FIFO nodes that will trigger a sweep of the FIFO, so that small caches are not swept
+    // every few removals
+    private static final int MIN_STALE_FIFO_NODES_FOR_SWEEP = 64;
+
+    private final String name;
+    private final long maxWeight;
+
+    private final ConcurrentHashMap<OutputCacheKey,Entry> container;
+    // Insertion order, used for eviction. Removing an entry does not remove its node from the FIFO (that would mean
+    // scanning it): the node just becomes stale, and is skipped when polled for eviction. Stale nodes are counted
+    // so that the FIFO can be swept once they outnumber the live entries, which keeps removals amortized O(1).
+    private final ConcurrentLinkedQueue<FifoNode> fifo;
+    private final AtomicInteger staleFifoNodes;
+    private final AtomicBoolean sweepingFifo;
+    private final AtomicLong weight;
+    // Keys indexed by the template they belong to
+    private final TemplateOwnedKeyIndex<OutputCacheKey> templateIndex;
+
+    private final boolean traceExecution;
+    private final Logger logger;
+
+    private final AtomicLong putCount;
+    private final AtomicLong hitCount;
+    private final AtomicLong missCount;
+    private final AtomicLong evictionCount;
+
+
+
+
+    /**
+     * <p>
+     *   Creates a new instance of the output cache.
+     * </p>
+     *
+     * @param name the name of the cache.
+     * @param initialCapacity the initial capacity (in entries) of the cache.
+     * @param maxWeight the maximum weight (in chars) of the cache, or -1 for no limit.
+     * @param logger the logger to be used for tracing cache operations (can be null).
+     */
+    public StandardOutputCache(final String name, final int initialCapacity, final long maxWeight, final Logger logger) {
+
+        super();
+
+        Validate.notEmpty(name, "Name cannot be null or empty");
+        Validate.isTrue(initialCapacity > 0, "Initial capacity must be > 0");
+        Validate.isTrue(maxWeight == -1L || maxWeight > 0L, "Cache max weight must be either -1 (no limit) or > 0");
+
+        this.name = name;
+        this.maxWeight = maxWeight;
+
+        this.container = new ConcurrentHashMap<OutputCacheKey, Entry>(initialCapacity);
+        this.fifo = new ConcurrentLinkedQueue<FifoNode>();
+        this.staleFifoNodes = new AtomicInteger(0);
+        this.sweepingFifo = new AtomicBoolean(false);
+        this.weight = new AtomicLong(0L);
+        this.templateIndex = new TemplateOwnedKeyIndex<OutputCacheKey>();
+
+        this.logger = logger;
+        this.traceExecution = (logger != null && logger.isTraceEnabled());
+
+        this.putCount = new AtomicLong(0L);
+        this.hitCount = new AtomicLong(0L);
+        this.missCount = new AtomicLong(0L);
+        this.evictionCount = new AtomicLong(0L);
+
+        if (this.logger != null) {
+            if (this.maxWeight < 0L) {
+                this.logger.trace("[THYMELEAF][CACHE_INITIALIZE] Initializing cache {}.", this.name);
+            } else {
+                this.logger.trace("[THYMELEAF][CACHE_INITIALIZE] Initializing cache {}. Max weight: {}.",
+                        this.name, Long.valueOf(this.maxWeight));
+            }
+        }
+
+    }
+
+
+
+
+    public void put(final OutputCacheKey key, final CachedOutput value) {
+
+        Validate.notNull(key, "Key cannot be null");
+        Validate.notNull(value, "Value cannot be null");
+
+        final int entryWeight = value.getWeight();
+        if (this.maxWeight >= 0L && entryWeight > this.maxWeight) {
+            // Would evict the whole cache and still not fit: just don't cache it
+            if (this.traceExecution) {
+                this.logger.trace(
+                        "[THYMELEAF][{}][{}][CACHE_ADD] Not adding cache entry in cache \"{}\" for key \"{}\": weight {} exceeds max weight.",
+                        new Object[] {TemplateEngine.threadIndex(), this.name, this.name, key, Integer.valueOf(entryWeight)});
+            }
+            return;
+        }
+
+        final Entry entry = new Entry(key, value);
+        final Entry existing = this.container.put(key, entry);
+        this.fifo.offer(entry.fifoNode);
+        if (existing == null) {
+            this.templateIndex.add(key);
+            this.weight.addAndGet(entryWeight);
+        } else {
+            // The node of the replaced entry is now stale
+            this.weight.addAndGet(entryWeight - existing.value.getWeight());
+            markFifoNodeStale();
+        }
+        this.putCount.incrementAndGet();
+
+        if (this.traceExecution) {
+            this.logger.trace(
+                    "[THYMELEAF][{}][{}][CACHE_ADD][{}] Adding cache entry in cache \"{}\" for key \"{}\". New weight is {}.",
+                    new Object[] {TemplateEngine.threadIndex(), this.name, Integer.valueOf(size()), this.name, key, Long.valueOf(this.weight.get())});
+        }
+
+        if (this.maxWeight >= 0L) {
+            evictIfNeeded();
+        }
+
+    }
+
+
+    private void evictIfNeeded() {
+        while (this.weight.get() > this.maxWeight) {
+            final FifoNode node = this.fifo.poll();
+            if (node == null) {
+                return;
+            }
+            final OutputCacheKey evictedKey = node.key;
+            final Entry evicted = this.container.get(evictedKey);
+            if (evicted == null || evicted.fifoNode != node) {
+                // Stale node: its entry was already removed or replaced
+                unmarkFifoNodeStale();
+                continue;
+            }
+            if (removeFromContainer(evictedKey, evicted)) {
+                this.evictionCount.incrementAndGet();
+                if (this.traceExecution) {
+                    this.logger.trace(
+                            "[THYMELEAF][{}][{}][CACHE_REMOVE][{}] Max weight exceeded for cache \"{}\". Removing entry for key \"{}\". New weight is {}.",
+                            new Object[] {TemplateEngine.threadIndex(), this.name, Integer.valueOf(size()), this.name, evictedKey, Long.valueOf(this.weight.get())});
+                }
+            }
+        }
+    }
+
+
+
+    public CachedOutput get(final OutputCacheKey key) {
+        return get(key, null);
+    }
+
+
+
+    public CachedOutput get(
+            final OutputCacheKey key, final ICacheEntryValidityChecker<? super OutputCacheKey, ? super CachedOutput> validityChecker) {
+
+        final Entry entry = this.container.get(key);
+
+        if (entry == null) {
+            this.missCount.incrementAndGet();
+            if (this.traceExecution) {
+                this.logger.trace(
+                        "[THYMELEAF][{}][{}][CACHE_MISS] Cache miss in cache \"{}\" for key \"{}\".",
+                        new Object[] {TemplateEngine.threadIndex(), this.name, this.name, key});
+            }
+            return null;
+        }
+
+        final CachedOutput value = entry.value;
+        if (!value.getValidity().isCacheStillValid() ||
+                (validityChecker != null && !validityChecker.checkIsValueStillValid(key, value, entry.creationTimeInMillis))) {
+            removeEntry(key, entry);
+            this.missCount.incrementAndGet();
+            if (this.traceExecution) {
+                this.logger.trace(
+                        "[THYMELEAF][{}][{}][CACHE_REMOVE][{}] Removing cache entry in cache \"{}\" (Entry \"{}\" is not valid anymore). New weight is {}.",
+                        new Object[] {TemplateEngine.threadIndex(), this.name, Integer.valueOf(size()), this.name, key, Long.valueOf(this.weight.get())});
+                this.logger.trace(
+                        "[THYMELEAF][{}][{}][CACHE_MISS] Cache miss in cache \"{}\" for key \"{}\".",
+                        new Object[] {TemplateEngine.threadIndex(), this.name, this.name, key});
+            }
+            return null;
+        }
+
+        this.hitCount.incrementAndGet();
+        if (this.traceExecution) {
+            this.logger.trace(
+                    "[THYMELEAF][{}][{}][CACHE_HIT] Cache hit in cache \"{}\" for key \"{}\".",
+                    new Object[] {TemplateEngine.threadIndex(), this.name, this.name, key});
+        }
+
+        return value;
+
+    }
+
+
+    private boolean removeEntry(final OutputCacheKey key, final Entry entry) {
+        if (removeFromContainer(key, entry)) {
+            markFifoNodeStale();
+            return true;
+        }
+        return false;
+    }
+
+
+    private boolean removeFromContainer(final OutputCacheKey key, final Entry entry) {
+        // Only the thread that actually removes the entry will update the weight
+        if (this.container.remove(key, entry)) {
+            this.weight.addAndGet(-entry.value.getWeight());
+            this.templateIndex.remove(key);
+            return true;
+        }
+        return false;
+    }
+
+
+
+    private void markFifoNodeStale() {
+        if (this.staleFifoNodes.incrementAndGet() > Math.max(MIN_STALE_FIFO_NODES_FOR_SWEEP, this.container.size())) {
+            sweepFifo();
+        }
+    }
+
+
+    private void unmarkFifoNodeStale() {
+        // The counter is only a hint for triggering sweeps, so races here would only make sweeps a bit early or late
+        if (this.staleFifoNodes.get() > 0) {
+            this.staleFifoNodes.decrementAndGet();
+        }
+    }
+
+
+    private void sweepFifo() {
+        // Only one thread sweeps at a time, the rest will simply go on
+        if (!this.sweepingFifo.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.staleFifoNodes.set(0);
+            final Iterator<FifoNode> fifoIterator = this.fifo.iterator();
+            while (fifoIterator.hasNext()) {
+                final FifoNode node = fifoIterator.next();
+                final Entry entry = this.container.get(node.key);
+                if (entry == null || entry.fifoNode != node) {
+                    fifoIterator.remove();
+                }
+            }
+        } finally {
+            this.sweepingFifo.set(false);
+        }
+    }
+
+
+
+    public void clear() {
+
+        this.container.clear();
+        this.fifo.clear();
+        this.staleFifoNodes.set(0);
+        this.templateIndex.clear();
+        this.weight.set(0L);
+
+        if (this.traceExecution) {
+            this.logger.trace(
+                    "[THYMELEAF][{}][*][{}][CACHE_REMOVE][0] Removing ALL cache entries in cache \"{}\". New size is 0.",
+                    new Object[] {TemplateEngine.threadIndex(), this.name, this.name});
+        }
+
+    }
+
+
+
+    public void clearKey(final OutputCacheKey key) {
+
+        final Entry entry = this.container.get(key);
+        if (entry == null) {
+            return;
+        }
+        removeEntry(key, entry);
+
+        if (this.traceExecution) {
+            this.logger.trace(
+                    "[THYMELEAF][{}][*][{}][CACHE_REMOVE][{}] Removed cache entry in cache \"{}\" for key \"{}\". New weight is {}.",
+                    new Object[] {TemplateEngine.threadIndex(), this.name, Integer.valueOf(size()), this.name, key, Long.valueOf(this.weight.get())});
+        }
+
+    }
+
+
+
+    public Set<OutputCacheKey> keySet() {
+        return this.container.keySet();
+    }
+
+
+
+    public void removeIf(final ICacheEntryPredicate<? super OutputCacheKey, ? super CachedOutput> predicate) {
+
+        Validate.notNull(predicate, "Predicate cannot be null");
+
+        // ConcurrentHashMap iterators are weakly consistent: they never throw ConcurrentModificationException
+        // and do not lock the map, so other threads can keep on using the cache while we iterate
+        int removedCount = 0;
+        for (final Map.Entry<OutputCacheKey,Entry> mapEntry : this.container.entrySet()) {
+            final OutputCacheKey key = mapEntry.getKey();
+            final Entry entry = mapEntry.getValue();
+            if (predicate.matches(key, entry.value) && removeEntry(key, entry)) {
+                removedCount++;
+            }
+        }
+
+        if (this.traceExecution && removedCount > 0) {
+            this.logger.trace(
+                    "[THYMELEAF][{}][*][{}][CACHE_REMOVE][{}] Removed {} matching cache entries in cache \"{}\". New weight is {}.",
+                    new Object[] {TemplateEngine.threadIndex(), this.name, Integer.valueOf(size()), Integer.valueOf(removedCount), this.name, Long.valueOf(this.weight.get())});
+        }
+
+    }
+
+
+
+    public void clearKeysForTemplate(final String template) {
+
+        Validate.notNull(template, "Template cannot be null");
+
+        for (final OutputCacheKey key : this.templateIndex.removeAll(template)) {
+            clearKey(key);
+        }
+
+    }
+
+
+
+
+    public String getName() {
+        return this.name;
+    }
+
+    public boolean hasMaxWeight() {
+        return (this.maxWeight > 0L);
+    }
+
+    public long getMaxWeight() {
+        return this.maxWeight;
+    }
+
+    public long getWeight() {
+        return this.weight.get();
+    }
+
+    public int size() {
+        return this.container.size();
+    }
+
+    public long getPutCount() {
+        return this.putCount.get();
+    }
+
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return this.evictionCount.get();
+    }
+
+
+
+
+    private static final class Entry {
+
+        final CachedOutput value;
+        final long creationTimeInMillis;
+        // Each entry has its own node (even if for the same key) so that stale nodes can be told apart
+        final FifoNode fifoNode;
+
+        Entry(final OutputCacheKey key, final CachedOutput value) {
+            super();
+            this.value = value;
+            this.fifoNode = new FifoNode(key);
+            this.creationTimeInMillis = System.currentTimeMillis();
+        }
+
+    }
+
+
+
+
+    private static final class FifoNode {
+
+        final OutputCacheKey key;
+
+        FifoNode(final OutputCacheKey key) {
+            super();
+            this.key = key;
+        }
+
+    }
+
+
+}
@@ -35,7 +35,7 @@
  *
  * @since 3.0.0
  */
-public final class TemplateCacheKey {
+public final class TemplateCacheKey implements ITemplateOwnedCacheKey {
 
     private final String ownerTemplate;
     private final String template;
@@ -85,6 +85,10 @@ public String getTemplate() {
         return this.template;
     }
 
+    public String getOwningTemplate() {
+        return (this.ownerTemplate != null? this.ownerTemplate : this.template);
+    }
+
     public int getLineOffset() {
         return this.lineOffset;
     }
@@ -0,0 +1,141 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.cache;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * <p>
+ *   Secondary index of the keys of a cache, organized by the template their entries belong to (see
+ *   {@link ITemplateOwnedCacheKey}), so that all the entries of a template can be removed without scanning
+ *   the whole cache. Keys not implementing {@link ITemplateOwnedCacheKey} are simply not indexed.
+ * </p>
+ * <p>
+ *   Caches must add keys to this index when entries are added, and remove them when entries are removed for
+ *   any reason (including eviction and invalidation).
+ * </p>
+ * <p>
+ *   Objects of this class are <b>thread-safe</b>, and never block.
+ * </p>
+ *
+ * @param <K> the type of the cache keys.
+ *
+ * @author Daniel Fern&aacute;ndez
+ * @since 3.0.0
+ *
+ */
+final class TemplateOwnedKeyIndex<K> {
+
+    // Values in the key maps are used as sets (Boolean.TRUE is always the value)
+    private final ConcurrentHashMap<String,ConcurrentHashMap<K,Boolean>> keysByTemplate;
+
+
+
+    TemplateOwnedKeyIndex() {
+        super();
+        this.keysByTemplate = new ConcurrentHashMap<String, ConcurrentHashMap<K, Boolean>>(20, 0.75f, 4);
+    }
+
+
+
+    void add(final K key) {
+
+        if (!(key instanceof ITemplateOwnedCacheKey)) {
+            return;
+        }
+        final String template = ((ITemplateOwnedCacheKey) key).getOwningTemplate();
+
+        while (true) {
+
+            ConcurrentHashMap<K,Boolean> keys = this.keysByTemplate.get(template);
+            if (keys == null) {
+                final ConcurrentHashMap<K,Boolean> newKeys = new ConcurrentHashMap<K, Boolean>(4, 0.75f, 2);
+                keys = this.keysByTemplate.putIfAbsent(template, newKeys);
+                if (keys == null) {
+                    keys = newKeys;
+                }
+            }
+
+            keys.put(key, Boolean.TRUE);
+
+            if (this.keysByTemplate.get(template) == keys) {
+                return;
+            }
+
+            // The keys of this template were detached from the index at the same time we were adding this one,
+            // so we have to try again in order not to lose it
+
+        }
+
+    }
+
+
+
+    void remove(final Object key) {
+
+        if (!(key instanceof ITemplateOwnedCacheKey)) {
+            return;
+        }
+        final String template = ((ITemplateOwnedCacheKey) key).getOwningTemplate();
+
+        final ConcurrentHashMap<K,Boolean> keys = this.keysByTemplate.get(template);
+        if (keys == null) {
+            return;
+        }
+        keys.remove(key);
+        if (keys.isEmpty() && this.keysByTemplate.remove(template, keys)) {
+            // A key might have been added between the check and the detaching, in which case it has to be
+            // put back into the index (additions happening after the detaching will retry by themselves)
+            for (final K addedKey : keys.keySet()) {
+                add(addedKey);
+            }
+        }
+
+    }
+
+
+
+    /**
+     * <p>
+     *   Detaches (and returns) the keys of all the entries belonging to the specified template.
+     * </p>
+     *
+     * @param template the template name.
+     * @return the keys, never null.
+     */
+    Set<K> removeAll(final String template) {
+        final ConcurrentHashMap<K,Boolean> keys = this.keysByTemplate.remove(template);
+        if (keys == null) {
+            return Collections.emptySet();
+        }
+        return keys.keySet();
+    }
+
+
+
+    void clear() {
+        this.keysByTemplate.clear();
+    }
+
+
+}
@@ -25,7 +25,9 @@
 import java.util.Map;
 import java.util.Set;
 
+import org.thymeleaf.EngineConfiguration;
 import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.expression.ExpressionObjectSlots;
 import org.thymeleaf.expression.ExpressionObjects;
 import org.thymeleaf.expression.IExpressionObjects;
 import org.thymeleaf.util.Validate;
@@ -85,7 +87,14 @@ public final IEngineConfiguration getConfiguration() {
 
     public IExpressionObjects getExpressionObjects() {
         if (this.expressionObjects == null) {
-            this.expressionObjects = new ExpressionObjects(this, this.configuration.getExpressionObjectFactory());
+            // Slots are shared by all the contexts of the same configuration, if it is able to provide them
+            final ExpressionObjectSlots slots =
+                    (this.configuration instanceof EngineConfiguration?
+                            ((EngineConfiguration) this.configuration).getExpressionObjectSlots() : null);
+            this.expressionObjects =
+                    (slots != null?
+                            new ExpressionObjects(this, this.configuration.getExpressionObjectFactory(), slots) :
+                            new ExpressionObjects(this, this.configuration.getExpressionObjectFactory()));
         }
         return this.expressionObjects;
     }
@@ -112,7 +121,7 @@ private static IVariablesMap buildVariablesMap(final IContext context) {
         if (variableNames == null || variableNames.isEmpty()) {
             if (context instanceof IWebContext) {
                 final IWebContext webContext = (IWebContext)context;
-                return new WebVariablesMap(webContext.getRequest(), webContext.getResponse(), webContext.getServletContext(), webContext.getLocale(), Collections.EMPTY_MAP);
+                return new WebVariablesMap(webContext.getRequest(), webContext.getResponse(), webContext.getServletContext(), webContext.getLocale(), Collections.EMPTY_MAP, isLiveServletAccess(webContext));
             }
             return new VariablesMap(context.getLocale(), Collections.EMPTY_MAP);
         }
@@ -123,7 +132,7 @@ private static IVariablesMap buildVariablesMap(final IContext context) {
         }
         if (context instanceof IWebContext) {
             final IWebContext webContext = (IWebContext)context;
-            return new WebVariablesMap(webContext.getRequest(), webContext.getResponse(), webContext.getServletContext(), webContext.getLocale(), variables);
+            return new WebVariablesMap(webContext.getRequest(), webContext.getResponse(), webContext.getServletContext(), webContext.getLocale(), variables, isLiveServletAccess(webContext));
         }
 
         return new VariablesMap(context.getLocale(), variables);
@@ -131,4 +140,9 @@ private static IVariablesMap buildVariablesMap(final IContext context) {
     }
 
 
+    private static boolean isLiveServletAccess(final IWebContext webContext) {
+        return (webContext instanceof WebContext && ((WebContext)webContext).isLiveServletAccess());
+    }
+
+
 }
@@ -108,9 +108,17 @@ public Locale getLocale() {
     public boolean containsVariable(final String name) {
         int n = this.index + 1;
         while (n-- != 0) {
-            if (this.maps[n] != null && this.maps[n].containsKey(name)) {
-                // The most modern entry we find for this key could be a removal --> false
-                return (this.maps[n].get(name) != NON_EXISTING);
+            final HashMap<String,Object> map = this.maps[n];
+            if (map != null) {
+                final Object result = map.get(name);
+                if (result != null) {
+                    // The most modern entry we find for this key could be a removal --> false
+                    return (result != NON_EXISTING);
+                }
+                if (map.containsKey(name)) {
+                    // Only needed for telling null values from non-existing keys
+                    return true;
+                }
             }
         }
         return false;
@@ -118,14 +126,23 @@ public boolean containsVariable(final String name) {
 
 
     public Object getVariable(final String key) {
+        /*
+         * Variable names coming from parsed expressions and local variable definitions are interned, so that
+         * most of the times they are the same String objects as the keys in these maps (also when those keys
+         * are String literals in Java code), and the comparisons performed by HashMap are identity-based.
+         * Besides, we perform only one lookup per level unless the value found is null.
+         */
         int n = this.index + 1;
         while (n-- != 0) {
-            if (this.maps[n] != null && this.maps[n].containsKey(key)) {
-                final Object result = this.maps[n].get(key);
-                if (result == NON_EXISTING) {
+            final HashMap<String,Object> map = this.maps[n];
+            if (map != null) {
+                final Object result = map.get(key);
+                if (result != null) {
+                    return (result == NON_EXISTING? null : result);
+                }
+                if (map.containsKey(key)) {
                     return null;
                 }
-                return result;
             }
         }
         return null;
@@ -194,12 +211,15 @@ public void remove(final String key) {
     public boolean isVariableLocal(final String name) {
         int n = this.index + 1;
         while (n-- > 1) { // variables at n == 0 are not local!
-            if (this.maps[n] != null && this.maps[n].containsKey(name)) {
-                final Object result = this.maps[n].get(name);
-                if (result == NON_EXISTING) {
-                    return false; // We return false for "non existing"
+            final HashMap<String,Object> map = this.maps[n];
+            if (map != null) {
+                final Object result = map.get(name);
+                if (result != null) {
+                    return (result != NON_EXISTING); // We return false for "non existing"
+                }
+                if (map.containsKey(name)) {
+                    return true;
                 }
-                return true;
             }
         }
         return false; // We return false for "non existing"
@@ -40,6 +40,8 @@ public final class WebContext extends AbstractContext implements IWebContext {
     private final HttpServletResponse response;
     private final ServletContext servletContext;
 
+    private boolean liveServletAccess = false;
+
 
     public WebContext(final HttpServletRequest request, final HttpServletResponse response,
                       final ServletContext servletContext) {
@@ -81,4 +83,39 @@ public HttpServletResponse getResponse() {
     public ServletContext getServletContext() {
         return this.servletContext;
     }
+
+
+    /**
+     * <p>
+     *   Returns whether session attributes, servlet context attributes and request parameters will be accessed
+     *   <em>live</em> during template execution, i.e. queried to the Servlet API objects each time they are
+     *   read from an expression.
+     * </p>
+     * <p>
+     *   By default (<tt>false</tt>) each of these values is queried only the first time it is read during a
+     *   template execution, and then reused for the rest of that execution.
+     * </p>
+     *
+     * @return <tt>true</tt> if servlet objects will be accessed live, <tt>false</tt> if not (default).
+     * @since 3.0.0
+     */
+    public boolean isLiveServletAccess() {
+        return this.liveServletAccess;
+    }
+
+
+    /**
+     * <p>
+     *   Sets whether session attributes, servlet context attributes and request parameters should be accessed
+     *   <em>live</em> during template execution. This is only needed if these values might be modified during
+     *   template execution (e.g. session attributes being set by a processor) and such modifications need to
+     *   be seen by the rest of the template.
+     * </p>
+     *
+     * @param liveServletAccess whether servlet objects should be accessed live (default: <tt>false</tt>).
+     * @since 3.0.0
+     */
+    public void setLiveServletAccess(final boolean liveServletAccess) {
+        this.liveServletAccess = liveServletAccess;
+    }
 }
@@ -25,6 +25,7 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -93,7 +94,7 @@
     WebVariablesMap(
             final HttpServletRequest request, final HttpServletResponse response,
             final ServletContext servletContext,
-            final Locale locale, final Map<String, Object> variables) {
+            final Locale locale, final Map<String, Object> variables, final boolean liveServletAccess) {
 
         super();
 
@@ -110,9 +111,10 @@
         this.servletContext = servletContext;
 
         this.requestAttributesVariablesMap = new RequestAttributesVariablesMap(this.request, this.locale, variables);
-        this.requestParametersVariablesMap = new RequestParametersMap(this.request);
-        this.applicationAttributesVariablesMap = new ServletContextAttributesMap(this.servletContext);
-        this.sessionAttributesVariablesMap = (this.session == null ? null : new SessionAttributesMap(this.session));
+        this.requestParametersVariablesMap = new RequestParametersMap(this.request, !liveServletAccess);
+        this.applicationAttributesVariablesMap = new ServletContextAttributesMap(this.servletContext, !liveServletAccess);
+        this.sessionAttributesVariablesMap =
+                (this.session == null ? null : new SessionAttributesMap(this.session, !liveServletAccess));
 
     }
 
@@ -281,30 +283,58 @@ public String toString() {
 
 
 
-    private static final class SessionAttributesMap extends NoOpMapImpl {
+    /*
+     * Session and servlet context attributes are accessed through container structures that are usually
+     * synchronized, and which would otherwise be enumerated/queried again for each evaluated expression (e.g.
+     * ${session.user} inside an iteration). Unless strict (live) access is required, these maps will therefore
+     * keep a copy of each attribute the first time it is read (and of the attribute names the first time these
+     * are enumerated), which is safe given each WebVariablesMap instance lives only during a single template
+     * execution.
+     */
+    private abstract static class ServletAttributesMap extends NoOpMapImpl {
 
-        private final HttpSession session;
+        private final boolean cacheAttributes;
+        private Map<String,Object> attributeCache = null;
+        private List<String> attributeNames = null;
 
-        SessionAttributesMap(final HttpSession session) {
+        ServletAttributesMap(final boolean cacheAttributes) {
             super();
-            this.session = session;
+            this.cacheAttributes = cacheAttributes;
+        }
+
+
+        protected abstract Enumeration<String> getAttributeNames();
+
+        protected abstract Object getAttribute(final String name);
+
+
+        private List<String> attributeNames() {
+            if (this.attributeNames != null) {
+                return this.attributeNames;
+            }
+            final List<String> attributeNames = new ArrayList<String>(5);
+            final Enumeration<String> attributeNamesEnum = getAttributeNames();
+            while (attributeNamesEnum.hasMoreElements()) {
+                attributeNames.add(attributeNamesEnum.nextElement());
+            }
+            if (this.cacheAttributes) {
+                this.attributeNames = attributeNames;
+            }
+            return attributeNames;
         }
 
 
         @Override
         public int size() {
-            int size = 0;
-            final Enumeration<String> attributeNames = this.session.getAttributeNames();
-            while (attributeNames.hasMoreElements()) {
-                size++;
-            }
-            return size;
+            return attributeNames().size();
         }
 
         @Override
         public boolean isEmpty() {
-            final Enumeration<String> attributeNames = this.session.getAttributeNames();
-            return attributeNames.hasMoreElements();
+            if (this.cacheAttributes) {
+                return attributeNames().isEmpty();
+            }
+            return !getAttributeNames().hasMoreElements();
         }
 
         @Override
@@ -325,37 +355,43 @@ public boolean containsValue(final Object value) {
 
         @Override
         public Object get(final Object key) {
-            return this.session.getAttribute(key != null? key.toString() : null);
+            if (!this.cacheAttributes || key == null) {
+                return getAttribute(key != null? key.toString() : null);
+            }
+            final String name = key.toString();
+            if (this.attributeCache == null) {
+                this.attributeCache = new HashMap<String, Object>(10, 1.0f);
+            }
+            Object value = this.attributeCache.get(name);
+            if (value == null && !this.attributeCache.containsKey(name)) {
+                value = getAttribute(name);
+                this.attributeCache.put(name, value);
+            }
+            return value;
         }
 
         @Override
         public Set<String> keySet() {
-            final Set<String> keySet = new LinkedHashSet<String>(5);
-            final Enumeration<String> attributeNames = this.session.getAttributeNames();
-            while (attributeNames.hasMoreElements()) {
-                keySet.add(attributeNames.nextElement());
-            }
-            return keySet;
+            return new LinkedHashSet<String>(attributeNames());
         }
 
         @Override
         public Collection<Object> values() {
-            final List<Object> values = new ArrayList<Object>(5);
-            final Enumeration<String> attributeNames = this.session.getAttributeNames();
-            while (attributeNames.hasMoreElements()) {
-                values.add(this.session.getAttribute(attributeNames.nextElement()));
+            final List<String> attributeNames = attributeNames();
+            final List<Object> values = new ArrayList<Object>(attributeNames.size());
+            for (final String attributeName : attributeNames) {
+                values.add(get(attributeName));
             }
             return values;
         }
 
         @Override
-        public Set<Entry<String,Object>> entrySet() {
-            final Set<Entry<String,Object>> entrySet = new LinkedHashSet<Entry<String, Object>>(5);
-            final Enumeration<String> attributeNames = this.session.getAttributeNames();
-            while (attributeNames.hasMoreElements()) {
-                final String key = attributeNames.nextElement();
-                final Object value = this.session.getAttribute(key);
-                entrySet.add(new MapEntry(key, value));
+        public Set<Map.Entry<String,Object>> entrySet() {
+            final List<String> attributeNames = attributeNames();
+            final Set<Map.Entry<String,Object>> entrySet =
+                    new LinkedHashSet<Map.Entry<String, Object>>(attributeNames.size() + 1, 1.0f);
+            for (final String attributeName : attributeNames) {
+                entrySet.add(new MapEntry(attributeName, get(attributeName)));
             }
             return entrySet;
         }
@@ -365,83 +401,47 @@ public Set<Entry<String,Object>> entrySet() {
 
 
 
-    private static final class ServletContextAttributesMap extends NoOpMapImpl {
+    private static final class SessionAttributesMap extends ServletAttributesMap {
 
-        private final ServletContext servletContext;
+        private final HttpSession session;
 
-        ServletContextAttributesMap(final ServletContext servletContext) {
-            super();
-            this.servletContext = servletContext;
+        SessionAttributesMap(final HttpSession session, final boolean cacheAttributes) {
+            super(cacheAttributes);
+            this.session = session;
         }
 
-
         @Override
-        public int size() {
-            int size = 0;
-            final Enumeration<String> attributeNames = this.servletContext.getAttributeNames();
-            while (attributeNames.hasMoreElements()) {
-                size++;
-            }
-            return size;
+        protected Enumeration<String> getAttributeNames() {
+            return this.session.getAttributeNames();
         }
 
         @Override
-        public boolean isEmpty() {
-            final Enumeration<String> attributeNames = this.servletContext.getAttributeNames();
-            return attributeNames.hasMoreElements();
+        protected Object getAttribute(final String name) {
+            return this.session.getAttribute(name);
         }
 
-        @Override
-        public boolean containsKey(final Object key) {
-            // Even if not completely correct to return 'true' for entries that might not exist, this is needed
-            // in order to avoid Spring's MapAccessor throwing an exception when trying to access an element
-            // that doesn't exist -- in the case of request parameters, session and servletContext attributes most
-            // developers would expect null to be returned in such case, and that's what this 'true' will cause.
-            return true;
-        }
+    }
 
-        @Override
-        public boolean containsValue(final Object value) {
-            // It wouldn't be consistent to have an 'ad hoc' implementation of #containsKey() but a 100% correct
-            // implementation of #containsValue(), so we are leaving this as unsupported.
-            throw new UnsupportedOperationException("Map does not support #containsValue()");
-        }
 
-        @Override
-        public Object get(final Object key) {
-            return this.servletContext.getAttribute(key != null? key.toString() : null);
-        }
 
-        @Override
-        public Set<String> keySet() {
-            final Set<String> keySet = new LinkedHashSet<String>(5);
-            final Enumeration<String> attributeNames = this.servletContext.getAttributeNames();
-            while (attributeNames.hasMoreElements()) {
-                keySet.add(attributeNames.nextElement());
-            }
-            return keySet;
+
+    private static final class ServletContextAttributesMap extends ServletAttributesMap {
+
+        private final ServletContext servletContext;
+
+        ServletContextAttributesMap(final ServletContext servletContext, final boolean cacheAttributes) {
+            super(cacheAttributes);
+            this.servletContext = servletContext;
         }
 
         @Override
-        public Collection<Object> values() {
-            final List<Object> values = new ArrayList<Object>(5);
-            final Enumeration<String> attributeNames = this.servletContext.getAttributeNames();
-            while (attributeNames.hasMoreElements()) {
-                values.add(this.servletContext.getAttribute(attributeNames.nextElement()));
-            }
-            return values;
+        protected Enumeration<String> getAttributeNames() {
+            return this.servletContext.getAttributeNames();
         }
 
         @Override
-        public Set<Map.Entry<String,Object>> entrySet() {
-            final Set<Map.Entry<String,Object>> entrySet = new LinkedHashSet<Map.Entry<String, Object>>(5);
-            final Enumeration<String> attributeNames = this.servletContext.getAttributeNames();
-            while (attributeNames.hasMoreElements()) {
-                final String key = attributeNames.nextElement();
-                final Object value = this.servletContext.getAttribute(key);
-                entrySet.add(new MapEntry(key, value));
-            }
-            return entrySet;
+        protected Object getAttribute(final String name) {
+            return this.servletContext.getAttribute(name);
         }
 
     }
@@ -452,21 +452,39 @@ public Set<Map.Entry<String,Object>> entrySet() {
     private static final class RequestParametersMap extends NoOpMapImpl {
 
         private final HttpServletRequest request;
+        private final boolean cacheParameters;
+        private Map<String,Object> parameterMap = null;
+        private Map<String,Object> parameterValuesCache = null;
 
-        RequestParametersMap(final HttpServletRequest request) {
+        RequestParametersMap(final HttpServletRequest request, final boolean cacheParameters) {
             super();
             this.request = request;
+            this.cacheParameters = cacheParameters;
+        }
+
+
+        private Map<String,Object> parameterMap() {
+            if (this.parameterMap != null) {
+                return this.parameterMap;
+            }
+            final Map<String,Object> parameterMap = this.request.getParameterMap();
+            if (this.cacheParameters) {
+                // Request parameters are not modified during template execution, but the map returned by the
+                // container might be computed on each call and/or guarded by locks, so we will keep it
+                this.parameterMap = parameterMap;
+            }
+            return parameterMap;
         }
 
 
         @Override
         public int size() {
-            return this.request.getParameterMap().size();
+            return parameterMap().size();
         }
 
         @Override
         public boolean isEmpty() {
-            return this.request.getParameterMap().isEmpty();
+            return parameterMap().isEmpty();
         }
 
         @Override
@@ -487,7 +505,23 @@ public boolean containsValue(final Object value) {
 
         @Override
         public Object get(final Object key) {
-            final String[] parameterValues = this.request.getParameterValues(key != null? key.toString() : null);
+            if (!this.cacheParameters || key == null) {
+                return computeParameterValues(key != null? key.toString() : null);
+            }
+            final String name = key.toString();
+            if (this.parameterValuesCache == null) {
+                this.parameterValuesCache = new HashMap<String, Object>(10, 1.0f);
+            }
+            Object value = this.parameterValuesCache.get(name);
+            if (value == null && !this.parameterValuesCache.containsKey(name)) {
+                value = computeParameterValues(name);
+                this.parameterValuesCache.put(name, value);
+            }
+            return value;
+        }
+
+        private Object computeParameterValues(final String name) {
+            final String[] parameterValues = this.request.getParameterValues(name);
             if (parameterValues == null) {
                 return null;
             }
@@ -496,17 +530,17 @@ public Object get(final Object key) {
 
         @Override
         public Set<String> keySet() {
-            return this.request.getParameterMap().keySet();
+            return parameterMap().keySet();
         }
 
         @Override
         public Collection<Object> values() {
-            return this.request.getParameterMap().values();
+            return parameterMap().values();
         }
 
         @Override
         public Set<Map.Entry<String,Object>> entrySet() {
-            return this.request.getParameterMap().entrySet();
+            return parameterMap().entrySet();
         }
 
     }
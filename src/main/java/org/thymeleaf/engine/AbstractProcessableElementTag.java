@@ -49,6 +49,9 @@
     protected IElementProcessor[] associatedProcessors = null;
     protected int associatedProcessorsSize = 0;
     protected int associatedProcessorsAttributesVersion = Integer.MIN_VALUE; // This ensures a recompute will be performed immediately
+    // When true, the associatedProcessors array might be shared with other tags (e.g. clones of a frozen, cached tag)
+    // and therefore must never be modified, but replaced
+    private boolean associatedProcessorsShared = false;
 
 
 
@@ -118,6 +121,18 @@ public final boolean hasAssociatedProcessors() {
     }
 
 
+    /*
+     * Checks whether processors have already been computed for the current attributes and none were found. Unlike
+     * hasAssociatedProcessors(), this never recomputes (i.e. modifies) the tag, so it can be safely called on events
+     * shared among executions, like those of cached templates.
+     */
+    final boolean hasPrecomputedNoAssociatedProcessors() {
+        return this.associatedProcessorsAttributesVersion != Integer.MIN_VALUE &&
+                this.elementAttributes.version == this.associatedProcessorsAttributesVersion &&
+                this.associatedProcessorsSize == 0;
+    }
+
+
     public final List<IElementProcessor> getAssociatedProcessorsInOrder() {
         if (this.associatedProcessorsAttributesVersion == Integer.MIN_VALUE || this.elementAttributes.version != this.associatedProcessorsAttributesVersion) {
             recomputeProcessors();
@@ -141,6 +156,7 @@ final void recomputeProcessors() {
         // Something has changed (usually the processors associated with the attributes) so we need to recompute
 
         this.associatedProcessorsSize = 0;
+        unshareAssociatedProcessors();
 
         if (this.elementDefinition.hasAssociatedProcessors) {
             addAssociatedProcessors(this.elementDefinition.associatedProcessors, this.elementDefinition.associatedProcessors.length);
@@ -184,6 +200,27 @@ final void recomputeProcessors() {
     }
 
 
+    /*
+     * Computes the processors associated with this tag (if needed) and freezes them so that clones of this tag
+     * will share the same processor array instead of copying it, until their attributes change. This is meant to
+     * be called only once a tag is known to be immutable (e.g. it belongs to a parsed, cacheable template) and
+     * before it is made available to other threads.
+     */
+    final void freezeAssociatedProcessors() {
+        precomputeAssociatedProcessors();
+        this.associatedProcessorsShared = true;
+    }
+
+
+    private void unshareAssociatedProcessors() {
+        if (this.associatedProcessorsShared) {
+            // A new array will be created when the first processor is added
+            this.associatedProcessors = null;
+            this.associatedProcessorsShared = false;
+        }
+    }
+
+
     // We will use this method in the recomputing code instead of adding the new processors directly in order to take
     // care of the length of the array (in case it has to be grown)
     private void addAssociatedProcessor(final IElementProcessor elementProcessor) {
@@ -246,8 +283,16 @@ protected final void resetAsCloneOfProcessableElementTag(final AbstractProcessab
             this.elementAttributes.resetAsCloneOf(original.elementAttributes); // not the same as cloning the ElementAttributes object, because we want
         }
         this.associatedProcessorsSize = 0;
-        if (original.associatedProcessorsSize > 0) {
-            addAssociatedProcessors(original.associatedProcessors, original.associatedProcessorsSize);
+        if (original.associatedProcessorsShared) {
+            // The original is frozen, so its processors will never change: just share them
+            this.associatedProcessors = original.associatedProcessors;
+            this.associatedProcessorsSize = original.associatedProcessorsSize;
+            this.associatedProcessorsShared = true;
+        } else {
+            unshareAssociatedProcessors();
+            if (original.associatedProcessorsSize > 0) {
+                addAssociatedProcessors(original.associatedProcessors, original.associatedProcessorsSize);
+            }
         }
         this.associatedProcessorsAttributesVersion = original.associatedProcessorsAttributesVersion;
     }
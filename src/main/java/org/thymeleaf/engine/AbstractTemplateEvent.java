@@ -37,6 +37,13 @@ abstract class AbstractTemplateEvent implements ITemplateEvent {
     private int line;
     private int col;
 
+    /*
+     * Only set on the reusable buffers used by event queues that contain immutable events (e.g. those of cached
+     * parsed models), pointing to the immutable event this buffer is currently a copy of. This allows the engine
+     * to share such events instead of cloning the buffers when gathering model (e.g. for iteration).
+     */
+    private IEngineTemplateEvent immutableSource = null;
+
 
     /*
      * Object of this class can contain their data both as a String and as a char[] buffer. The buffer will only
@@ -82,6 +89,7 @@ protected void resetTemplateEvent(
         this.templateName = templateName;
         this.line = line;
         this.col = col;
+        this.immutableSource = null;
     }
 
 
@@ -106,6 +114,21 @@ protected final void resetAsCloneOfTemplateEvent(final AbstractTemplateEvent ori
         this.templateName = original.templateName;
         this.line = original.line;
         this.col = original.col;
+        this.immutableSource = null;
+    }
+
+
+
+    final void setImmutableSource(final IEngineTemplateEvent immutableSource) {
+        this.immutableSource = immutableSource;
+    }
+
+
+    static IEngineTemplateEvent immutableSourceOf(final ITemplateEvent event) {
+        if (event instanceof AbstractTemplateEvent) {
+            return ((AbstractTemplateEvent) event).immutableSource;
+        }
+        return null;
     }
 
 
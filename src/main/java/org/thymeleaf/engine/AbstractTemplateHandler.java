@@ -104,6 +104,16 @@ public void setProcessingContext(final ITemplateProcessingContext processingCont
     }
 
 
+    /*
+     * Used by the engine when handler instances are pooled for reuse, so that they do not keep references to the
+     * processing context (and therefore to the user's context) or to the rest of the chain while in the pool.
+     */
+    void releaseProcessingContext() {
+        this.next = null;
+        this.processingContext = null;
+    }
+
+
     /**
      * <p>
      *   Return the next handler in the chain, so that events can be delegated to it.
@@ -28,8 +28,7 @@
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.thymeleaf.exceptions.ConfigurationException;
 import org.thymeleaf.processor.element.IElementProcessor;
@@ -473,7 +472,8 @@ public TextAttributeDefinition forCSSName(final char[] attributeName, final int
      * This repository class is thread-safe. The reason for this is that it not only contains the
      * standard attributes, but will also contain new instances of AttributeDefinition created during processing (created
      * when asking the repository for them when they do not exist yet). As any thread can create a new attribute,
-     * this has to be lock-protected.
+     * this has to be thread-safe. Given new attributes are very rare once the most common ones have been used, the
+     * repository is copy-on-write: reads are lock-free, and only writes are serialized by means of a lock.
      */
     static final class AttributeDefinitionRepository {
 
@@ -485,12 +485,10 @@ static final class AttributeDefinitionRepository {
         private final List<String> standardRepositoryNames; // read-only, no sync needed
         private final List<AttributeDefinition> standardRepository; // read-only, no sync needed
 
-        private final List<String> repositoryNames;  // read-write, sync will be needed
-        private final List<AttributeDefinition> repository;  // read-write, sync will be needed
+        // read-write, copy-on-write: lists in a published snapshot are never modified
+        private volatile AttributeDefinitionRepositorySnapshot repositorySnapshot;
 
-        private final ReadWriteLock lock = new ReentrantReadWriteLock(true);
-        private final Lock readLock = this.lock.readLock();
-        private final Lock writeLock = this.lock.writeLock();
+        private final Lock writeLock = new ReentrantLock();
 
 
         AttributeDefinitionRepository(final TemplateMode templateMode, final Map<TemplateMode, Set<IElementProcessor>> elementProcessorsByTemplateMode) {
@@ -503,8 +501,8 @@ static final class AttributeDefinitionRepository {
             this.standardRepositoryNames = (templateMode == TemplateMode.HTML ? new ArrayList<String>(150) : null);
             this.standardRepository = (templateMode == TemplateMode.HTML ? new ArrayList<AttributeDefinition>(150) : null);
 
-            this.repositoryNames = new ArrayList<String>(500);
-            this.repository = new ArrayList<AttributeDefinition>(500);
+            this.repositorySnapshot =
+                    new AttributeDefinitionRepositorySnapshot(new ArrayList<String>(500), new ArrayList<AttributeDefinition>(500));
 
         }
 
@@ -527,23 +525,14 @@ AttributeDefinition getAttribute(final char[] text, final int offset, final int
 
             /*
              * We did not find it in the repository of standard elements, so let's try in the read+write one,
-             * which does require synchronization through a readwrite lock.
+             * which does not require synchronization for reading because it is copy-on-write.
              */
 
-            this.readLock.lock();
-            try {
-
-                /*
-                 * First look for the element in the namespaced repository
-                 */
-                index = binarySearch(this.templateMode.isCaseSensitive(), this.repositoryNames, text, offset, len);
+            final AttributeDefinitionRepositorySnapshot snapshot = this.repositorySnapshot;
+            index = binarySearch(this.templateMode.isCaseSensitive(), snapshot.names, text, offset, len);
 
-                if (index >= 0) {
-                    return this.repository.get(index);
-                }
-
-            } finally {
-                this.readLock.unlock();
+            if (index >= 0) {
+                return snapshot.definitions.get(index);
             }
 
 
@@ -578,23 +567,14 @@ AttributeDefinition getAttribute(final String completeAttributeName) {
 
             /*
              * We did not find it in the repository of standard elements, so let's try in the read+write one,
-             * which does require synchronization through a readwrite lock.
+             * which does not require synchronization for reading because it is copy-on-write.
              */
 
-            this.readLock.lock();
-            try {
-
-                /*
-                 * First look for the element in the namespaced repository
-                 */
-                index = binarySearch(this.templateMode.isCaseSensitive(), this.repositoryNames, completeAttributeName);
-
-                if (index >= 0) {
-                    return this.repository.get(index);
-                }
+            final AttributeDefinitionRepositorySnapshot snapshot = this.repositorySnapshot;
+            index = binarySearch(this.templateMode.isCaseSensitive(), snapshot.names, completeAttributeName);
 
-            } finally {
-                this.readLock.unlock();
+            if (index >= 0) {
+                return snapshot.definitions.get(index);
             }
 
 
@@ -629,23 +609,14 @@ AttributeDefinition getAttribute(final String prefix, final String attributeName
 
             /*
              * We did not find it in the repository of standard elements, so let's try in the read+write one,
-             * which does require synchronization through a readwrite lock.
+             * which does not require synchronization for reading because it is copy-on-write.
              */
 
-            this.readLock.lock();
-            try {
-
-                /*
-                 * First look for the element in the namespaced repository
-                 */
-                index = binarySearch(this.templateMode.isCaseSensitive(), this.repositoryNames, prefix, attributeName);
-
-                if (index >= 0) {
-                    return this.repository.get(index);
-                }
+            final AttributeDefinitionRepositorySnapshot snapshot = this.repositorySnapshot;
+            index = binarySearch(this.templateMode.isCaseSensitive(), snapshot.names, prefix, attributeName);
 
-            } finally {
-                this.readLock.unlock();
+            if (index >= 0) {
+                return snapshot.definitions.get(index);
             }
 
 
@@ -664,10 +635,14 @@ AttributeDefinition getAttribute(final String prefix, final String attributeName
 
         private AttributeDefinition storeAttribute(final char[] text, final int offset, final int len) {
 
-            int index = binarySearch(this.templateMode.isCaseSensitive(), this.repositoryNames, text, offset, len);
+            // Working copies, to be published as a new snapshot once modified
+            final List<String> repositoryNames = new ArrayList<String>(this.repositorySnapshot.names);
+            final List<AttributeDefinition> repository = new ArrayList<AttributeDefinition>(this.repositorySnapshot.definitions);
+
+            int index = binarySearch(this.templateMode.isCaseSensitive(), repositoryNames, text, offset, len);
             if (index >= 0) {
                 // It was already added while we were waiting for the lock!
-                return this.repository.get(index);
+                return repository.get(index);
             }
 
             final Set<IElementProcessor> elementProcessors = this.elementProcessorsByTemplateMode.get(this.templateMode);
@@ -688,14 +663,16 @@ private AttributeDefinition storeAttribute(final char[] text, final int offset,
 
             for (final String completeAttributeName : completeAttributeNames) {
 
-                index = binarySearch(this.templateMode.isCaseSensitive(), this.repositoryNames, completeAttributeName);
+                index = binarySearch(this.templateMode.isCaseSensitive(), repositoryNames, completeAttributeName);
 
                 // binary Search returned (-(insertion point) - 1)
-                this.repositoryNames.add(((index + 1) * -1), completeAttributeName);
-                this.repository.add(((index + 1) * -1), attributeDefinition);
+                repositoryNames.add(((index + 1) * -1), completeAttributeName);
+                repository.add(((index + 1) * -1), attributeDefinition);
 
             }
 
+            this.repositorySnapshot = new AttributeDefinitionRepositorySnapshot(repositoryNames, repository);
+
             return attributeDefinition;
 
         }
@@ -703,10 +680,14 @@ private AttributeDefinition storeAttribute(final char[] text, final int offset,
 
         private AttributeDefinition storeAttribute(final String attributeName) {
 
-            int index = binarySearch(this.templateMode.isCaseSensitive(), this.repositoryNames, attributeName);
+            // Working copies, to be published as a new snapshot once modified
+            final List<String> repositoryNames = new ArrayList<String>(this.repositorySnapshot.names);
+            final List<AttributeDefinition> repository = new ArrayList<AttributeDefinition>(this.repositorySnapshot.definitions);
+
+            int index = binarySearch(this.templateMode.isCaseSensitive(), repositoryNames, attributeName);
             if (index >= 0) {
                 // It was already added while we were waiting for the lock!
-                return this.repository.get(index);
+                return repository.get(index);
             }
 
             final Set<IElementProcessor> elementProcessors = this.elementProcessorsByTemplateMode.get(this.templateMode);
@@ -727,14 +708,16 @@ private AttributeDefinition storeAttribute(final String attributeName) {
 
             for (final String completeAttributeName : completeAttributeNames) {
 
-                index = binarySearch(this.templateMode.isCaseSensitive(), this.repositoryNames, completeAttributeName);
+                index = binarySearch(this.templateMode.isCaseSensitive(), repositoryNames, completeAttributeName);
 
                 // binary Search returned (-(insertion point) - 1)
-                this.repositoryNames.add(((index + 1) * -1), completeAttributeName);
-                this.repository.add(((index + 1) * -1), attributeDefinition);
+                repositoryNames.add(((index + 1) * -1), completeAttributeName);
+                repository.add(((index + 1) * -1), attributeDefinition);
 
             }
 
+            this.repositorySnapshot = new AttributeDefinitionRepositorySnapshot(repositoryNames, repository);
+
             return attributeDefinition;
 
         }
@@ -742,10 +725,14 @@ private AttributeDefinition storeAttribute(final String attributeName) {
 
         private AttributeDefinition storeAttribute(final String prefix, final String attributeName) {
 
-            int index = binarySearch(this.templateMode.isCaseSensitive(), this.repositoryNames, prefix, attributeName);
+            // Working copies, to be published as a new snapshot once modified
+            final List<String> repositoryNames = new ArrayList<String>(this.repositorySnapshot.names);
+            final List<AttributeDefinition> repository = new ArrayList<AttributeDefinition>(this.repositorySnapshot.definitions);
+
+            int index = binarySearch(this.templateMode.isCaseSensitive(), repositoryNames, prefix, attributeName);
             if (index >= 0) {
                 // It was already added while we were waiting for the lock!
-                return this.repository.get(index);
+                return repository.get(index);
             }
 
             final Set<IElementProcessor> elementProcessors = this.elementProcessorsByTemplateMode.get(this.templateMode);
@@ -766,14 +753,16 @@ private AttributeDefinition storeAttribute(final String prefix, final String att
 
             for (final String completeAttributeName : completeAttributeNames) {
 
-                index = binarySearch(this.templateMode.isCaseSensitive(), this.repositoryNames, completeAttributeName);
+                index = binarySearch(this.templateMode.isCaseSensitive(), repositoryNames, completeAttributeName);
 
                 // binary Search returned (-(insertion point) - 1)
-                this.repositoryNames.add(((index + 1) * -1), completeAttributeName);
-                this.repository.add(((index + 1) * -1), attributeDefinition);
+                repositoryNames.add(((index + 1) * -1), completeAttributeName);
+                repository.add(((index + 1) * -1), attributeDefinition);
 
             }
 
+            this.repositorySnapshot = new AttributeDefinitionRepositorySnapshot(repositoryNames, repository);
+
             return attributeDefinition;
 
         }
@@ -781,6 +770,10 @@ private AttributeDefinition storeAttribute(final String prefix, final String att
 
         private AttributeDefinition storeStandardAttribute(final AttributeDefinition attributeDefinition) {
 
+            // Working copies, to be published as a new snapshot once modified
+            final List<String> repositoryNames = new ArrayList<String>(this.repositorySnapshot.names);
+            final List<AttributeDefinition> repository = new ArrayList<AttributeDefinition>(this.repositorySnapshot.definitions);
+
             // This method will only be called from within the AttributeDefinitions class itself, during initialization of
             // standard elements.
 
@@ -795,14 +788,16 @@ private AttributeDefinition storeStandardAttribute(final AttributeDefinition att
                 this.standardRepositoryNames.add(((index + 1) * -1), completeAttributeName);
                 this.standardRepository.add(((index + 1) * -1), attributeDefinition);
 
-                index = binarySearch(this.templateMode.isCaseSensitive(), this.repositoryNames, completeAttributeName);
+                index = binarySearch(this.templateMode.isCaseSensitive(), repositoryNames, completeAttributeName);
 
                 // binary Search returned (-(insertion point) - 1)
-                this.repositoryNames.add(((index + 1) * -1), completeAttributeName);
-                this.repository.add(((index + 1) * -1), attributeDefinition);
+                repositoryNames.add(((index + 1) * -1), completeAttributeName);
+                repository.add(((index + 1) * -1), attributeDefinition);
 
             }
 
+            this.repositorySnapshot = new AttributeDefinitionRepositorySnapshot(repositoryNames, repository);
+
             return attributeDefinition;
 
         }
@@ -961,4 +956,21 @@ private static int binarySearch(final boolean caseSensitive,
 
 
 
+    /*
+     * Immutable snapshot of the names and definitions in the read+write part of the repository. Both lists are
+     * always replaced together, so that indexes in the names list always match the definitions list.
+     */
+    private static final class AttributeDefinitionRepositorySnapshot {
+
+        final List<String> names;
+        final List<AttributeDefinition> definitions;
+
+        AttributeDefinitionRepositorySnapshot(final List<String> names, final List<AttributeDefinition> definitions) {
+            super();
+            this.names = names;
+            this.definitions = definitions;
+        }
+
+    }
+
 }
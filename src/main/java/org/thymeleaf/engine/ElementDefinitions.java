@@ -26,8 +26,7 @@
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.thymeleaf.exceptions.ConfigurationException;
 import org.thymeleaf.processor.element.IElementProcessor;
@@ -569,7 +568,8 @@ public TextElementDefinition forCSSName(final char[] elementName, final int elem
      * This repository class is thread-safe. The reason for this is that it not only contains the
      * standard elements, but will also contain new instances of ElementDefinition created during processing (created
      * when asking the repository for them when they do not exist yet). As any thread can create a new element,
-     * this has to be lock-protected.
+     * this has to be thread-safe. Given new elements are very rare once the most common ones have been used, the
+     * repository is copy-on-write: reads are lock-free, and only writes are serialized by means of a lock.
      */
     static final class ElementDefinitionRepository {
 
@@ -581,12 +581,10 @@ static final class ElementDefinitionRepository {
         private final List<String> standardRepositoryNames; // read-only, no sync needed
         private final List<ElementDefinition> standardRepository; // read-only, no sync needed
 
-        private final List<String> repositoryNames;  // read-write, sync will be needed
-        private final List<ElementDefinition> repository;  // read-write, sync will be needed
+        // read-write, copy-on-write: lists in a published snapshot are never modified
+        private volatile ElementDefinitionRepositorySnapshot repositorySnapshot;
 
-        private final ReadWriteLock lock = new ReentrantReadWriteLock(true);
-        private final Lock readLock = this.lock.readLock();
-        private final Lock writeLock = this.lock.writeLock();
+        private final Lock writeLock = new ReentrantLock();
 
 
         ElementDefinitionRepository(final TemplateMode templateMode, final Map<TemplateMode, Set<IElementProcessor>> elementProcessorsByTemplateMode) {
@@ -599,8 +597,8 @@ static final class ElementDefinitionRepository {
             this.standardRepositoryNames = (templateMode == TemplateMode.HTML ? new ArrayList<String>(150) : null);
             this.standardRepository = (templateMode == TemplateMode.HTML ? new ArrayList<ElementDefinition>(150) : null);
 
-            this.repositoryNames = new ArrayList<String>(150);
-            this.repository = new ArrayList<ElementDefinition>(150);
+            this.repositorySnapshot =
+                    new ElementDefinitionRepositorySnapshot(new ArrayList<String>(150), new ArrayList<ElementDefinition>(150));
 
         }
 
@@ -624,23 +622,14 @@ ElementDefinition getElement(final char[] text, final int offset, final int len)
 
             /*
              * We did not find it in the repository of standard elements, so let's try in the read+write one,
-             * which does require synchronization through a readwrite lock.
+             * which does not require synchronization for reading because it is copy-on-write.
              */
 
-            this.readLock.lock();
-            try {
-
-                /*
-                 * First look for the element in the namespaced repository
-                 */
-                index = binarySearch(this.templateMode.isCaseSensitive(), this.repositoryNames, text, offset, len);
-
-                if (index >= 0) {
-                    return this.repository.get(index);
-                }
+            final ElementDefinitionRepositorySnapshot snapshot = this.repositorySnapshot;
+            index = binarySearch(this.templateMode.isCaseSensitive(), snapshot.names, text, offset, len);
 
-            } finally {
-                this.readLock.unlock();
+            if (index >= 0) {
+                return snapshot.definitions.get(index);
             }
 
 
@@ -675,23 +664,14 @@ ElementDefinition getElement(final String completeElementName) {
 
             /*
              * We did not find it in the repository of standard elements, so let's try in the read+write one,
-             * which does require synchronization through a readwrite lock.
+             * which does not require synchronization for reading because it is copy-on-write.
              */
 
-            this.readLock.lock();
-            try {
+            final ElementDefinitionRepositorySnapshot snapshot = this.repositorySnapshot;
+            index = binarySearch(this.templateMode.isCaseSensitive(), snapshot.names, completeElementName);
 
-                /*
-                 * First look for the element in the namespaced repository
-                 */
-                index = binarySearch(this.templateMode.isCaseSensitive(), this.repositoryNames, completeElementName);
-
-                if (index >= 0) {
-                    return this.repository.get(index);
-                }
-
-            } finally {
-                this.readLock.unlock();
+            if (index >= 0) {
+                return snapshot.definitions.get(index);
             }
 
 
@@ -726,23 +706,14 @@ ElementDefinition getElement(final String prefix, final String elementName) {
 
             /*
              * We did not find it in the repository of standard elements, so let's try in the read+write one,
-             * which does require synchronization through a readwrite lock.
+             * which does not require synchronization for reading because it is copy-on-write.
              */
 
-            this.readLock.lock();
-            try {
-
-                /*
-                 * First look for the element in the namespaced repository
-                 */
-                index = binarySearch(this.templateMode.isCaseSensitive(), this.repositoryNames, prefix, elementName);
-
-                if (index >= 0) {
-                    return this.repository.get(index);
-                }
+            final ElementDefinitionRepositorySnapshot snapshot = this.repositorySnapshot;
+            index = binarySearch(this.templateMode.isCaseSensitive(), snapshot.names, prefix, elementName);
 
-            } finally {
-                this.readLock.unlock();
+            if (index >= 0) {
+                return snapshot.definitions.get(index);
             }
 
 
@@ -761,10 +732,14 @@ ElementDefinition getElement(final String prefix, final String elementName) {
 
         private ElementDefinition storeElement(final char[] text, final int offset, final int len) {
 
-            int index = binarySearch(this.templateMode.isCaseSensitive(), this.repositoryNames, text, offset, len);
+            // Working copies, to be published as a new snapshot once modified
+            final List<String> repositoryNames = new ArrayList<String>(this.repositorySnapshot.names);
+            final List<ElementDefinition> repository = new ArrayList<ElementDefinition>(this.repositorySnapshot.definitions);
+
+            int index = binarySearch(this.templateMode.isCaseSensitive(), repositoryNames, text, offset, len);
             if (index >= 0) {
                 // It was already added while we were waiting for the lock!
-                return this.repository.get(index);
+                return repository.get(index);
             }
 
             final Set<IElementProcessor> elementProcessors = this.elementProcessorsByTemplateMode.get(this.templateMode);
@@ -785,14 +760,16 @@ private ElementDefinition storeElement(final char[] text, final int offset, fina
 
             for (final String completeElementName : completeElementNames) {
 
-                index = binarySearch(this.templateMode.isCaseSensitive(), this.repositoryNames, completeElementName);
+                index = binarySearch(this.templateMode.isCaseSensitive(), repositoryNames, completeElementName);
 
                 // binary Search returned (-(insertion point) - 1)
-                this.repositoryNames.add(((index + 1) * -1), completeElementName);
-                this.repository.add(((index + 1) * -1), elementDefinition);
+                repositoryNames.add(((index + 1) * -1), completeElementName);
+                repository.add(((index + 1) * -1), elementDefinition);
 
             }
 
+            this.repositorySnapshot = new ElementDefinitionRepositorySnapshot(repositoryNames, repository);
+
             return elementDefinition;
 
         }
@@ -800,10 +777,14 @@ private ElementDefinition storeElement(final char[] text, final int offset, fina
 
         private ElementDefinition storeElement(final String text) {
 
-            int index = binarySearch(this.templateMode.isCaseSensitive(), this.repositoryNames, text);
+            // Working copies, to be published as a new snapshot once modified
+            final List<String> repositoryNames = new ArrayList<String>(this.repositorySnapshot.names);
+            final List<ElementDefinition> repository = new ArrayList<ElementDefinition>(this.repositorySnapshot.definitions);
+
+            int index = binarySearch(this.templateMode.isCaseSensitive(), repositoryNames, text);
             if (index >= 0) {
                 // It was already added while we were waiting for the lock!
-                return this.repository.get(index);
+                return repository.get(index);
             }
 
             final Set<IElementProcessor> elementProcessors = this.elementProcessorsByTemplateMode.get(this.templateMode);
@@ -824,14 +805,16 @@ private ElementDefinition storeElement(final String text) {
 
             for (final String completeElementName : completeElementNames) {
 
-                index = binarySearch(this.templateMode.isCaseSensitive(), this.repositoryNames, completeElementName);
+                index = binarySearch(this.templateMode.isCaseSensitive(), repositoryNames, completeElementName);
 
                 // binary Search returned (-(insertion point) - 1)
-                this.repositoryNames.add(((index + 1) * -1), completeElementName);
-                this.repository.add(((index + 1) * -1), elementDefinition);
+                repositoryNames.add(((index + 1) * -1), completeElementName);
+                repository.add(((index + 1) * -1), elementDefinition);
 
             }
 
+            this.repositorySnapshot = new ElementDefinitionRepositorySnapshot(repositoryNames, repository);
+
             return elementDefinition;
 
         }
@@ -839,10 +822,14 @@ private ElementDefinition storeElement(final String text) {
 
         private ElementDefinition storeElement(final String prefix, final String elementName) {
 
-            int index = binarySearch(this.templateMode.isCaseSensitive(), this.repositoryNames, prefix, elementName);
+            // Working copies, to be published as a new snapshot once modified
+            final List<String> repositoryNames = new ArrayList<String>(this.repositorySnapshot.names);
+            final List<ElementDefinition> repository = new ArrayList<ElementDefinition>(this.repositorySnapshot.definitions);
+
+            int index = binarySearch(this.templateMode.isCaseSensitive(), repositoryNames, prefix, elementName);
             if (index >= 0) {
                 // It was already added while we were waiting for the lock!
-                return this.repository.get(index);
+                return repository.get(index);
             }
 
             final Set<IElementProcessor> elementProcessors = this.elementProcessorsByTemplateMode.get(this.templateMode);
@@ -863,14 +850,16 @@ private ElementDefinition storeElement(final String prefix, final String element
 
             for (final String completeElementName : completeElementNames) {
 
-                index = binarySearch(this.templateMode.isCaseSensitive(), this.repositoryNames, completeElementName);
+                index = binarySearch(this.templateMode.isCaseSensitive(), repositoryNames, completeElementName);
 
                 // binary Search returned (-(insertion point) - 1)
-                this.repositoryNames.add(((index + 1) * -1), completeElementName);
-                this.repository.add(((index + 1) * -1), elementDefinition);
+                repositoryNames.add(((index + 1) * -1), completeElementName);
+                repository.add(((index + 1) * -1), elementDefinition);
 
             }
 
+            this.repositorySnapshot = new ElementDefinitionRepositorySnapshot(repositoryNames, repository);
+
             return elementDefinition;
 
         }
@@ -878,6 +867,10 @@ private ElementDefinition storeElement(final String prefix, final String element
 
         private ElementDefinition storeStandardElement(final ElementDefinition elementDefinition) {
 
+            // Working copies, to be published as a new snapshot once modified
+            final List<String> repositoryNames = new ArrayList<String>(this.repositorySnapshot.names);
+            final List<ElementDefinition> repository = new ArrayList<ElementDefinition>(this.repositorySnapshot.definitions);
+
             // This method will only be called from within the ElementDefinitions class itself, during initialization of
             // standard elements.
 
@@ -892,14 +885,16 @@ private ElementDefinition storeStandardElement(final ElementDefinition elementDe
                 this.standardRepositoryNames.add(((index + 1) * -1), completeElementName);
                 this.standardRepository.add(((index + 1) * -1), elementDefinition);
 
-                index = binarySearch(this.templateMode.isCaseSensitive(), this.repositoryNames, completeElementName);
+                index = binarySearch(this.templateMode.isCaseSensitive(), repositoryNames, completeElementName);
 
                 // binary Search returned (-(insertion point) - 1)
-                this.repositoryNames.add(((index + 1) * -1), completeElementName);
-                this.repository.add(((index + 1) * -1), elementDefinition);
+                repositoryNames.add(((index + 1) * -1), completeElementName);
+                repository.add(((index + 1) * -1), elementDefinition);
 
             }
 
+            this.repositorySnapshot = new ElementDefinitionRepositorySnapshot(repositoryNames, repository);
+
             return elementDefinition;
 
         }
@@ -1075,4 +1070,23 @@ private static final class HTMLElementDefinitionSpec {
         
     }
 
+
+
+    /*
+     * Immutable snapshot of the names and definitions in the read+write part of the repository. Both lists are
+     * always replaced together, so that indexes in the names list always match the definitions list.
+     */
+    private static final class ElementDefinitionRepositorySnapshot {
+
+        final List<String> names;
+        final List<ElementDefinition> definitions;
+
+        ElementDefinitionRepositorySnapshot(final List<String> names, final List<ElementDefinition> definitions) {
+            super();
+            this.names = names;
+            this.definitions = definitions;
+        }
+
+    }
+
 }
@@ -39,7 +39,7 @@ final class ElementTagStructureHandler implements IElementTagStructureHandler {
 
 
     boolean setBodyText;
-    String setBodyTextValue;
+    CharSequence setBodyTextValue;
     boolean setBodyTextProcessable;
 
     boolean setBodyModel;
@@ -97,7 +97,7 @@ final class ElementTagStructureHandler implements IElementTagStructureHandler {
 
 
 
-    public void setBody(final String text, final boolean processable) {
+    public void setBody(final CharSequence text, final boolean processable) {
         resetAllButLocalVariables();
         Validate.notNull(text, "Text cannot be null");
         this.setBodyText = true;
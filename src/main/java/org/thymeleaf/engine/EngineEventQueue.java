@@ -65,6 +65,8 @@ final class EngineEventQueue {
     private StandaloneElementTag standaloneElementTagBuffer = null;
     private CloseElementTag closeElementTagBuffer = null;
 
+    private boolean immutableEvents = false;
+
 
 
     EngineEventQueue(final IEngineConfiguration configuration, final TemplateMode templateMode) {
@@ -90,6 +92,18 @@ final class EngineEventQueue {
 
 
 
+    /*
+     * Signals that the events in this queue are immutable (i.e. will never be modified while they are referenced
+     * from this queue), so that the buffers used for firing them can point to them and the engine can share
+     * them instead of cloning these buffers.
+     */
+    void setImmutableEvents(final boolean immutableEvents) {
+        this.immutableEvents = immutableEvents;
+    }
+
+
+
+
     int size() {
         return this.queueSize;
     }
@@ -226,41 +240,11 @@ void process(final ITemplateHandler handler, final boolean reset) {
             return;
         }
 
-        IEngineTemplateEvent event;
         int n = this.queueSize;
         int i = 0;
 
         while (n-- != 0) {
-
-            event = this.queue[i++];
-
-            if (event instanceof Text) {
-                handler.handleText(bufferize((Text) event));
-            } else if (event instanceof OpenElementTag) {
-                handler.handleOpenElement(bufferize((OpenElementTag) event));
-            } else if (event instanceof CloseElementTag) {
-                handler.handleCloseElement(bufferize((CloseElementTag) event));
-            } else if (event instanceof StandaloneElementTag) {
-                handler.handleStandaloneElement(bufferize((StandaloneElementTag) event));
-            } else if (event instanceof DocType) {
-                handler.handleDocType(bufferize((DocType) event));
-            } else if (event instanceof Comment) {
-                handler.handleComment(bufferize((Comment) event));
-            } else if (event instanceof CDATASection) {
-                handler.handleCDATASection(bufferize((CDATASection) event));
-            } else if (event instanceof XMLDeclaration) {
-                handler.handleXMLDeclaration(bufferize((XMLDeclaration) event));
-            } else if (event instanceof ProcessingInstruction) {
-                handler.handleProcessingInstruction(bufferize((ProcessingInstruction) event));
-            } else if (event instanceof TemplateStart) {
-                handler.handleTemplateStart(bufferize((TemplateStart) event));
-            } else if (event instanceof TemplateEnd) {
-                handler.handleTemplateEnd(bufferize((TemplateEnd) event));
-            } else {
-                throw new TemplateProcessingException(
-                        "Cannot handle in queue event of type: " + event.getClass().getName());
-            }
-
+            fireEvent(handler, this.queue[i++], true);
         }
 
         if (reset) {
@@ -271,11 +255,63 @@ void process(final ITemplateHandler handler, final boolean reset) {
 
 
 
+    /*
+     * Fires a single event. Events should only be fired without being bufferized if it is known that they will
+     * not be modified during processing (e.g. because there are no processors for them).
+     */
+    void processEvent(final ITemplateHandler handler, final int pos, final boolean bufferize) {
+
+        if (pos < 0 || pos >= this.queueSize) {
+            throw new IndexOutOfBoundsException("Requested position " + pos + " of event queue with size " + this.queueSize);
+        }
+
+        fireEvent(handler, this.queue[pos], bufferize);
+
+    }
+
+
+
+    private void fireEvent(final ITemplateHandler handler, final IEngineTemplateEvent event, final boolean bufferize) {
+
+        if (event instanceof Text) {
+            handler.handleText(bufferize? bufferize((Text) event) : (Text) event);
+        } else if (event instanceof OpenElementTag) {
+            handler.handleOpenElement(bufferize? bufferize((OpenElementTag) event) : (OpenElementTag) event);
+        } else if (event instanceof CloseElementTag) {
+            handler.handleCloseElement(bufferize? bufferize((CloseElementTag) event) : (CloseElementTag) event);
+        } else if (event instanceof StandaloneElementTag) {
+            handler.handleStandaloneElement(bufferize? bufferize((StandaloneElementTag) event) : (StandaloneElementTag) event);
+        } else if (event instanceof DocType) {
+            handler.handleDocType(bufferize? bufferize((DocType) event) : (DocType) event);
+        } else if (event instanceof Comment) {
+            handler.handleComment(bufferize? bufferize((Comment) event) : (Comment) event);
+        } else if (event instanceof CDATASection) {
+            handler.handleCDATASection(bufferize? bufferize((CDATASection) event) : (CDATASection) event);
+        } else if (event instanceof XMLDeclaration) {
+            handler.handleXMLDeclaration(bufferize? bufferize((XMLDeclaration) event) : (XMLDeclaration) event);
+        } else if (event instanceof ProcessingInstruction) {
+            handler.handleProcessingInstruction(bufferize? bufferize((ProcessingInstruction) event) : (ProcessingInstruction) event);
+        } else if (event instanceof TemplateStart) {
+            handler.handleTemplateStart(bufferize? bufferize((TemplateStart) event) : (TemplateStart) event);
+        } else if (event instanceof TemplateEnd) {
+            handler.handleTemplateEnd(bufferize? bufferize((TemplateEnd) event) : (TemplateEnd) event);
+        } else {
+            throw new TemplateProcessingException(
+                    "Cannot handle in queue event of type: " + event.getClass().getName());
+        }
+
+    }
+
+
+
     Text bufferize(final Text event) {
         if (this.textBuffer == null) {
             this.textBuffer = new Text(this.configuration.getTextRepository());
         }
         this.textBuffer.resetAsCloneOf(event);
+        if (this.immutableEvents) {
+            this.textBuffer.setImmutableSource(event);
+        }
         return this.textBuffer;
     }
 
@@ -286,6 +322,9 @@ CDATASection bufferize(final CDATASection event) {
             this.cdataSectionBuffer = new CDATASection(this.configuration.getTextRepository());
         }
         this.cdataSectionBuffer.resetAsCloneOf(event);
+        if (this.immutableEvents) {
+            this.cdataSectionBuffer.setImmutableSource(event);
+        }
         return this.cdataSectionBuffer;
     }
 
@@ -296,6 +335,9 @@ Comment bufferize(final Comment event) {
             this.commentBuffer = new Comment(this.configuration.getTextRepository());
         }
         this.commentBuffer.resetAsCloneOf(event);
+        if (this.immutableEvents) {
+            this.commentBuffer.setImmutableSource(event);
+        }
         return this.commentBuffer;
     }
 
@@ -306,6 +348,9 @@ DocType bufferize(final DocType event) {
             this.docTypeBuffer = new DocType(this.configuration.getTextRepository());
         }
         this.docTypeBuffer.resetAsCloneOf(event);
+        if (this.immutableEvents) {
+            this.docTypeBuffer.setImmutableSource(event);
+        }
         return this.docTypeBuffer;
     }
 
@@ -316,6 +361,9 @@ ProcessingInstruction bufferize(final ProcessingInstruction event) {
             this.processingInstructionBuffer = new ProcessingInstruction(this.configuration.getTextRepository());
         }
         this.processingInstructionBuffer.resetAsCloneOf(event);
+        if (this.immutableEvents) {
+            this.processingInstructionBuffer.setImmutableSource(event);
+        }
         return this.processingInstructionBuffer;
     }
 
@@ -326,6 +374,9 @@ XMLDeclaration bufferize(final XMLDeclaration event) {
             this.xmlDeclarationBuffer = new XMLDeclaration(this.configuration.getTextRepository());
         }
         this.xmlDeclarationBuffer.resetAsCloneOf(event);
+        if (this.immutableEvents) {
+            this.xmlDeclarationBuffer.setImmutableSource(event);
+        }
         return this.xmlDeclarationBuffer;
     }
 
@@ -337,6 +388,9 @@ StandaloneElementTag bufferize(final StandaloneElementTag event) {
                     new StandaloneElementTag(this.templateMode, this.configuration.getElementDefinitions(), this.configuration.getAttributeDefinitions());
         }
         this.standaloneElementTagBuffer.resetAsCloneOf(event);
+        if (this.immutableEvents) {
+            this.standaloneElementTagBuffer.setImmutableSource(event);
+        }
         return this.standaloneElementTagBuffer;
     }
 
@@ -348,6 +402,9 @@ OpenElementTag bufferize(final OpenElementTag event) {
                     new OpenElementTag(this.templateMode, this.configuration.getElementDefinitions(), this.configuration.getAttributeDefinitions());
         }
         this.openElementTagBuffer.resetAsCloneOf(event);
+        if (this.immutableEvents) {
+            this.openElementTagBuffer.setImmutableSource(event);
+        }
         return this.openElementTagBuffer;
     }
 
@@ -359,6 +416,9 @@ CloseElementTag bufferize(final CloseElementTag event) {
                     new CloseElementTag(this.templateMode, this.configuration.getElementDefinitions());
         }
         this.closeElementTagBuffer.resetAsCloneOf(event);
+        if (this.immutableEvents) {
+            this.closeElementTagBuffer.setImmutableSource(event);
+        }
         return this.closeElementTagBuffer;
     }
 
@@ -391,6 +451,30 @@ void reset() {
     }
 
 
+    /*
+     * Resets this queue and also drops all the references it keeps to events (queued events and the buffers used
+     * for firing them), so that nothing from the last processed template is retained while it is not being used.
+     * Buffers will be created again when needed.
+     */
+    void clear() {
+        this.queueSize = 0;
+        if (this.queue != null) {
+            Arrays.fill(this.queue, null);
+        }
+        this.templateStartBuffer = null;
+        this.templateEndBuffer = null;
+        this.textBuffer = null;
+        this.commentBuffer = null;
+        this.cdataSectionBuffer = null;
+        this.docTypeBuffer = null;
+        this.processingInstructionBuffer = null;
+        this.xmlDeclarationBuffer = null;
+        this.openElementTagBuffer = null;
+        this.standaloneElementTagBuffer = null;
+        this.closeElementTagBuffer = null;
+    }
+
+
 
     EngineEventQueue cloneEventQueue(final boolean cloneEvents, final boolean cloneEventArray) {
 
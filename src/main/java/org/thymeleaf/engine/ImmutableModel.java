@@ -129,6 +129,28 @@ final Model getInternalModel() {
 
 
 
+    // Meant to be called once the model has been completely built and before it is shared (e.g. cached), so that
+    // the processors associated with its tags are computed only once and then shared by all the clones of these tags
+    final void freezeEvents() {
+        final EngineEventQueue queue = this.model.getEventQueue();
+        final int queueSize = queue.size();
+        for (int i = 0; i < queueSize; i++) {
+            final IEngineTemplateEvent event = queue.get(i);
+            if (event instanceof AbstractProcessableElementTag) {
+                ((AbstractProcessableElementTag) event).freezeAssociatedProcessors();
+            }
+        }
+    }
+
+
+    // Processing an immutable model lets the engine know its events can be shared (e.g. when gathering the
+    // body of an iteration) instead of being cloned
+    final void process(final ITemplateHandler templateHandler) {
+        this.model.process(templateHandler, true);
+    }
+
+
+
     public final IModel cloneModel() {
         return new Model(this);
     }
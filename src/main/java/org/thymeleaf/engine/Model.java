@@ -165,6 +165,12 @@ EngineEventQueue getEventQueue() {
 
 
     void process(final ITemplateHandler templateHandler) {
+        process(templateHandler, false);
+    }
+
+
+
+    void process(final ITemplateHandler templateHandler, final boolean immutableEvents) {
 
         // Queued events themselves will not be cloned, our events will remain as the master ones,
         // and the new EngineEventQueue will use its own buffers.
@@ -173,6 +179,7 @@ void process(final ITemplateHandler templateHandler) {
         // can be modified during processing. So not queuing the queue and therefore not creating a new ser of buffers
         // could result in pretty bad interactions between template executions...
         final EngineEventQueue eventQueue = this.queue.cloneEventQueue(false, false);
+        eventQueue.setImmutableEvents(immutableEvents);
 
         // Process the new, cloned queue
         // NOTE It is VERY important that 'reset' is here set to FALSE, because we will be sharing the actual
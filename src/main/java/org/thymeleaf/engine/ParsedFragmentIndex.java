@@ -0,0 +1,376 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.model.IElementAttributes;
+import org.thymeleaf.templatemode.TemplateMode;
+
+
+/**
+ * <p>
+ *   Index of the element boundaries (including <tt>th:fragment</tt>, <tt>th:ref</tt> and <tt>id</tt> values) of a
+ *   complete, parsed markup template, which allows serving fragment selections for simple selectors directly from
+ *   the already-parsed (and cached) complete template, instead of parsing the template again for each selector.
+ * </p>
+ * <p>
+ *   Fragment models selected by means of an index will share (not clone) the events of the indexed model, which
+ *   is safe given both models are immutable.
+ * </p>
+ * <p>
+ *   Only simple selectors are served from the index: element names / fragment references (e.g. <tt>header</tt>)
+ *   and ids (e.g. <tt>#main</tt>), always with the same semantics as the markup selectors applied at parse time.
+ *   For any other selector, {@link #select(String)} will return <tt>null</tt> and the template will have to be
+ *   parsed applying the selector.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ * @since 3.0.0
+ *
+ */
+final class ParsedFragmentIndex {
+
+    private static final String[] NO_ATTRIBUTE_NAMES = new String[0];
+
+    private final IEngineConfiguration configuration;
+    private final TemplateMode templateMode;
+    private final ParsedFragmentModel model;
+    private final boolean html;
+
+    private final String[] fragmentAttributeNames;
+    private final String[] refAttributeNames;
+
+    // Will be null if the model could not be indexed (e.g. unbalanced markup), in which case nothing will be served
+    private final List<IndexedElement> elements;
+
+
+
+
+    static ParsedFragmentIndex compute(final ParsedFragmentModel model) {
+        return new ParsedFragmentIndex(model);
+    }
+
+
+
+
+    private ParsedFragmentIndex(final ParsedFragmentModel model) {
+
+        super();
+
+        this.configuration = model.getConfiguration();
+        this.templateMode = model.getTemplateMode();
+        this.model = model;
+        this.html = (this.templateMode == TemplateMode.HTML);
+
+        /*
+         * Compute the names of the attributes that will be considered fragment references, in exactly the same
+         * way the markup reference resolver used at the parsers does.
+         */
+        final String standardDialectPrefix = this.configuration.getStandardDialectPrefix();
+        if (standardDialectPrefix == null) {
+            this.fragmentAttributeNames = NO_ATTRIBUTE_NAMES;
+            this.refAttributeNames = NO_ATTRIBUTE_NAMES;
+        } else if (standardDialectPrefix.length() == 0) {
+            this.fragmentAttributeNames = (this.html? new String[] { "fragment", "data-fragment" } : new String[] { "fragment" });
+            this.refAttributeNames = (this.html? new String[] { "ref", "data-ref" } : new String[] { "ref" });
+        } else {
+            final String prefix = (this.html? standardDialectPrefix.toLowerCase() : standardDialectPrefix);
+            this.fragmentAttributeNames =
+                    (this.html?
+                            new String[] { prefix + ":fragment", "data-" + prefix + "-fragment" } :
+                            new String[] { prefix + ":fragment" });
+            this.refAttributeNames =
+                    (this.html?
+                            new String[] { prefix + ":ref", "data-" + prefix + "-ref" } :
+                            new String[] { prefix + ":ref" });
+        }
+
+        final String[] inlineAttributeNames =
+                (standardDialectPrefix != null?
+                        AttributeNames.forName(this.templateMode, standardDialectPrefix, "inline").getCompleteAttributeNames() :
+                        NO_ATTRIBUTE_NAMES);
+
+        this.elements =
+                (this.templateMode != null && this.templateMode.isMarkup()?
+                        indexElements(model.getInternalModel().getEventQueue(), inlineAttributeNames) : null);
+
+    }
+
+
+
+
+    private List<IndexedElement> indexElements(
+            final EngineEventQueue queue, final String[] inlineAttributeNames) {
+
+        final List<IndexedElement> elements = new ArrayList<IndexedElement>(20);
+        final List<IndexedElement> openElements = new ArrayList<IndexedElement>(10);
+
+        final int queueSize = queue.size();
+        for (int i = 0; i < queueSize; i++) {
+
+            final IEngineTemplateEvent event = queue.get(i);
+
+            if (event instanceof OpenElementTag || event instanceof StandaloneElementTag) {
+
+                final AbstractProcessableElementTag tag = (AbstractProcessableElementTag) event;
+                final IndexedElement parent = (openElements.isEmpty()? null : openElements.get(openElements.size() - 1));
+
+                // Inlining of output expressions depends on the th:inline attributes of the ancestors of each element,
+                // which would not be seen if the element were parsed with a selector. So we will not serve elements
+                // with such ancestors from the index.
+                final boolean inlineInAncestors = (parent != null && (parent.inlineInAncestors || parent.hasInline));
+
+                final IndexedElement element =
+                        new IndexedElement(i, tag, hasAnyAttribute(tag.getAttributes(), inlineAttributeNames), inlineInAncestors);
+                elements.add(element);
+
+                if (event instanceof OpenElementTag) {
+                    openElements.add(element);
+                } else {
+                    element.end = i;
+                }
+
+            } else if (event instanceof CloseElementTag) {
+
+                if (((CloseElementTag) event).isUnmatched() || openElements.isEmpty()) {
+                    // Cannot be indexed: we cannot reliably compute element boundaries
+                    return null;
+                }
+                openElements.remove(openElements.size() - 1).end = i;
+
+            }
+
+        }
+
+        if (!openElements.isEmpty()) {
+            // Cannot be indexed: we cannot reliably compute element boundaries
+            return null;
+        }
+
+        return elements;
+
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Select the fragment corresponding to the specified selector from the indexed model.
+     * </p>
+     *
+     * @param selector the selector.
+     * @return the selected fragment, or <tt>null</tt> if the selector cannot be served from the index.
+     */
+    ParsedFragmentModel select(final String selector) {
+
+        if (this.elements == null || selector == null) {
+            return null;
+        }
+
+        if (!isIndexableSelector(selector)) {
+            return null;
+        }
+
+        final String trimmedSelector = selector.trim();
+
+        final boolean idSelector = (trimmedSelector.charAt(0) == '#');
+        final String name = (idSelector? trimmedSelector.substring(1) : trimmedSelector);
+
+        final ParsedFragmentModel selected =
+                new ParsedFragmentModel(this.configuration, this.templateMode, this.model.getValidity());
+        final EngineEventQueue sourceQueue = this.model.getInternalModel().getEventQueue();
+        final EngineEventQueue selectedQueue = selected.getInternalModel().getEventQueue();
+
+        int lastSelectedEnd = -1;
+        for (final IndexedElement element : this.elements) {
+
+            if (element.start <= lastSelectedEnd) {
+                // Already included as a part of a previously selected block
+                continue;
+            }
+
+            final boolean matches = (idSelector? element.matchesId(name) : element.matchesNameOrReference(name));
+            if (!matches) {
+                continue;
+            }
+
+            if (element.inlineInAncestors) {
+                // Cannot be served from the index (see above)
+                return null;
+            }
+
+            for (int i = element.start; i <= element.end; i++) {
+                // Events are not cloned: they are shared with the (immutable) indexed model
+                selectedQueue.add(sourceQueue.get(i), false);
+            }
+            lastSelectedEnd = element.end;
+
+        }
+
+        return selected;
+
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Checks whether the specified selector is simple enough to be served from an index, i.e. whether it is
+     *   an element name / fragment reference or an id.
+     * </p>
+     *
+     * @param selector the selector.
+     * @return <tt>true</tt> if the selector can be served from an index, <tt>false</tt> if not.
+     */
+    static boolean isIndexableSelector(final String selector) {
+        if (selector == null) {
+            return false;
+        }
+        final String trimmedSelector = selector.trim();
+        final int selectorLen = trimmedSelector.length();
+        final int nameStart = (selectorLen > 0 && trimmedSelector.charAt(0) == '#'? 1 : 0);
+        if (selectorLen - nameStart == 0) {
+            return false;
+        }
+        for (int i = nameStart; i < selectorLen; i++) {
+            final char c = trimmedSelector.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static boolean hasAnyAttribute(final IElementAttributes attributes, final String[] completeNames) {
+        for (int i = 0; i < completeNames.length; i++) {
+            if (attributes.hasAttribute(completeNames[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+
+
+    private final class IndexedElement {
+
+        final int start;
+        int end = -1;
+
+        final boolean hasInline;
+        final boolean inlineInAncestors;
+
+        private final String elementName;
+        private final String id;
+        private final String[] fragmentValues;
+        private final String[] refValues;
+
+
+        IndexedElement(
+                final int start, final AbstractProcessableElementTag tag,
+                final boolean hasInline, final boolean inlineInAncestors) {
+
+            super();
+
+            this.start = start;
+            this.hasInline = hasInline;
+            this.inlineInAncestors = inlineInAncestors;
+
+            final IElementAttributes attributes = tag.getAttributes();
+
+            this.elementName = tag.getElementName();
+            this.id = attributes.getValue("id");
+            this.fragmentValues = computeValues(attributes, ParsedFragmentIndex.this.fragmentAttributeNames);
+            this.refValues = computeValues(attributes, ParsedFragmentIndex.this.refAttributeNames);
+
+        }
+
+
+        boolean matchesId(final String name) {
+            return name.equals(this.id);
+        }
+
+
+        boolean matchesNameOrReference(final String name) {
+
+            if (ParsedFragmentIndex.this.html? name.equalsIgnoreCase(this.elementName) : name.equals(this.elementName)) {
+                return true;
+            }
+
+            if (this.refValues != null) {
+                for (int i = 0; i < this.refValues.length; i++) {
+                    if (name.equals(this.refValues[i])) {
+                        return true;
+                    }
+                }
+            }
+
+            if (this.fragmentValues != null) {
+                for (int i = 0; i < this.fragmentValues.length; i++) {
+                    final String fragmentValue = this.fragmentValues[i];
+                    if (fragmentValue.startsWith(name)) {
+                        // Same conditions as the reference resolver: fragment='x', fragment^='x(', fragment^='x ('
+                        final int nameLen = name.length();
+                        if (fragmentValue.length() == nameLen) {
+                            return true;
+                        }
+                        final char c = fragmentValue.charAt(nameLen);
+                        if (c == '(' ||
+                                (c == ' ' && fragmentValue.length() > nameLen + 1 && fragmentValue.charAt(nameLen + 1) == '(')) {
+                            return true;
+                        }
+                    }
+                }
+            }
+
+            return false;
+
+        }
+
+
+        private String[] computeValues(final IElementAttributes attributes, final String[] completeNames) {
+            String[] values = null;
+            for (int i = 0; i < completeNames.length; i++) {
+                final String value = attributes.getValue(completeNames[i]);
+                if (value != null) {
+                    if (values == null) {
+                        values = new String[] { value };
+                    } else {
+                        final String[] newValues = new String[values.length + 1];
+                        System.arraycopy(values, 0, newValues, 0, values.length);
+                        newValues[values.length] = value;
+                        values = newValues;
+                    }
+                }
+            }
+            return values;
+        }
+
+    }
+
+
+}
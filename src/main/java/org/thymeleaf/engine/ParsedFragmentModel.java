@@ -33,6 +33,7 @@
 public final class ParsedFragmentModel extends ImmutableModel {
 
     private final ICacheEntryValidity validity;
+    private volatile ParsedFragmentIndex index = null;
 
 
     // Package-protected constructor, because we don't want anyone creating these objects from outside the engine.
@@ -51,5 +52,19 @@ public final ICacheEntryValidity getValidity() {
         return this.validity;
     }
 
+
+    /*
+     * Lazily computes the index of this (complete, cached) model so that fragment selections on it can be
+     * served without parsing the template again. Concurrent computation is harmless, as indexes are immutable.
+     */
+    ParsedFragmentIndex getIndex() {
+        ParsedFragmentIndex idx = this.index;
+        if (idx == null) {
+            idx = ParsedFragmentIndex.compute(this);
+            this.index = idx;
+        }
+        return idx;
+    }
+
     
 }
\ No newline at end of file
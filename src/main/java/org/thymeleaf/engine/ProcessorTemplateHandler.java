@@ -49,6 +49,8 @@
 import org.thymeleaf.model.ITemplateStart;
 import org.thymeleaf.model.IText;
 import org.thymeleaf.model.IXMLDeclaration;
+import org.thymeleaf.postprocessor.IPostProcessor;
+import org.thymeleaf.preprocessor.IPreProcessor;
 import org.thymeleaf.processor.cdatasection.ICDATASectionProcessor;
 import org.thymeleaf.processor.comment.ICommentProcessor;
 import org.thymeleaf.processor.doctype.IDocTypeProcessor;
@@ -60,6 +62,7 @@
 import org.thymeleaf.processor.text.ITextProcessor;
 import org.thymeleaf.processor.xmldeclaration.IXMLDeclarationProcessor;
 import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.util.EvaluationUtils;
 import org.thymeleaf.util.StringUtils;
 import org.thymeleaf.util.Validate;
 
@@ -128,7 +131,7 @@ public final class ProcessorTemplateHandler extends AbstractTemplateHandler {
 
     private boolean[] allowedNonElementStructuresByModelLevel;
     private int[] allowedElementCountByModelLevel;
-    private LevelArray skipCloseTagLevels = new LevelArray(5);
+    private final LevelArray skipCloseTagLevels = new LevelArray(5);
 
     // We will have just one (reusable) instance of the element processor iterator, which will take into account the
     // fact that the processors applicable to an element might change during the execution of other processors, because
@@ -164,6 +167,8 @@ public final class ProcessorTemplateHandler extends AbstractTemplateHandler {
     private SuspensionSpec suspensionSpec; // Will be initialized once we have the processing context
     private boolean gatheringIteration = false;
     private IterationSpec iterationSpec = null;
+    private boolean shareImmutableEvents = false;
+    private boolean fireStaticEventsUnbuffered = false;
     private boolean gatheringElementModel = false;
     private ElementModelSpec elementModelSpec = null;
 
@@ -224,11 +229,26 @@ public ProcessorTemplateHandler() {
 
 
 
+    /**
+     * <p>
+     *   Sets the processing context, resetting all the processing state of this handler.
+     * </p>
+     * <p>
+     *   Instances of this handler can be reused for several template executions (one at a time) by simply
+     *   setting a new processing context. If the engine configuration and template mode are the same ones used
+     *   in the previous execution, all the buffers and processor arrays computed for that execution will be reused.
+     * </p>
+     *
+     * @param processingContext the processing context.
+     */
     @Override
     public void setProcessingContext(final ITemplateProcessingContext processingContext) {
 
         super.setProcessingContext(processingContext);
 
+        final IEngineConfiguration previousConfiguration = this.configuration;
+        final TemplateMode previousTemplateMode = this.templateMode;
+
         this.processingContext = processingContext;
         Validate.notNull(this.processingContext, "Processing Context cannot be null");
         Validate.notNull(this.processingContext.getTemplateMode(), "Template Mode returned by Processing Context cannot be null");
@@ -241,6 +261,20 @@ public void setProcessingContext(final ITemplateProcessingContext processingCont
 
         this.templateMode = this.processingContext.getTemplateMode(); // Just a way to avoid doing the call each time
 
+        // Immutable events (e.g. those of cached parsed templates) can be shared instead of cloned when gathering
+        // iterations, but only if no pre-processors exist, as these could modify the events before they reach us
+        final Set<IPreProcessor> preProcessors = this.configuration.getPreProcessors(this.templateMode);
+        this.shareImmutableEvents = (preProcessors == null || preProcessors.isEmpty());
+
+        // Static events in iteration bodies (i.e. events no processor will be applied to) can be fired without copying
+        // them into buffers, but only if no post-processors exist, as these could modify the events after us
+        final Set<IPostProcessor> postProcessors = this.configuration.getPostProcessors(this.templateMode);
+        this.fireStaticEventsUnbuffered = (postProcessors == null || postProcessors.isEmpty());
+
+        // Reset all the processing state, in case this handler is being reused
+        resetProcessingState();
+
+        this.variablesMap = null;
         final IVariablesMap variablesMap = processingContext.getVariables();
         Validate.notNull(variablesMap, "Variables Map returned by Processing Context cannot be null");
         if (variablesMap instanceof ILocalVariableAwareVariablesMap) {
@@ -251,6 +285,25 @@ public void setProcessingContext(final ITemplateProcessingContext processingCont
                         "includes iteration, target selection and inlining)");
         }
 
+        if (this.textBuffer != null &&
+                previousConfiguration == this.configuration && previousTemplateMode == this.templateMode) {
+            // This handler is being reused for the same configuration and template mode, so all buffers and
+            // processor arrays are still valid and there is no need to create them again
+            this.modelBuffer.reset();
+            this.suspensionSpec.reset();
+            this.iterationSpec.reset();
+            this.elementModelSpec.reset();
+            return;
+        }
+
+        // Buffers depending on the configuration and template mode that might have been created by a previous execution
+        this.eventQueues = null;
+        this.iterationArtifacts = null;
+        this.elementModelArtifacts = null;
+        this.standaloneOpenTagBuffers = null;
+        this.standaloneCloseTagBuffers = null;
+        this.standaloneTextBuffers = null;
+
         // Buffer used for text-shaped body replacement in tags (very common operation)
         this.textBuffer = new Text(this.configuration.getTextRepository());
 
@@ -293,6 +346,104 @@ public void setProcessingContext(final ITemplateProcessingContext processingCont
 
 
 
+    private void resetProcessingState() {
+
+        this.modelLevel = 0;
+        Arrays.fill(this.allowedElementCountByModelLevel, Integer.MAX_VALUE);
+        Arrays.fill(this.allowedNonElementStructuresByModelLevel, true);
+        this.skipCloseTagLevels.clear();
+
+        this.handlerExecLevel = -1;
+
+        this.suspended = false;
+        this.gatheringIteration = false;
+        this.gatheringElementModel = false;
+
+        this.iterationArtifactsIndex = 0;
+        this.elementModelArtifactsIndex = 0;
+        this.standaloneTagBuffersIndex = 0;
+
+        this.elementProcessorIterator.reset();
+
+        this.lastTextEvent = null;
+
+    }
+
+
+
+
+    /*
+     * Called by the engine before returning this handler to a pool, so that no references to the last processed
+     * template (and its context) are kept while this handler is not being used. Buffers are kept for reuse, but
+     * emptied of any events, texts or values they might still be pointing to.
+     */
+    void release() {
+
+        releaseProcessingContext();
+
+        this.processingContext = null;
+        this.variablesMap = null;
+
+        resetProcessingState();
+
+        this.elementTagStructureHandler.reset();
+        this.elementModelStructureHandler.reset();
+        this.templateStructureHandler.reset();
+        this.cdataSectionStructureHandler.reset();
+        this.commentStructureHandler.reset();
+        this.docTypeStructureHandler.reset();
+        this.processingInstructionStructureHandler.reset();
+        this.textStructureHandler.reset();
+        this.xmlDeclarationStructureHandler.reset();
+
+        if (this.modelBuffer == null) {
+            // Never used, so nothing else to be released
+            return;
+        }
+
+        this.textBuffer.setText("");
+        this.modelBuffer.getEventQueue().clear();
+
+        this.suspensionSpec.reset();
+        this.suspensionSpec.suspendedQueue.clear();
+        this.iterationSpec.reset();
+        this.iterationSpec.iterationQueue.clear();
+        this.elementModelSpec.reset();
+        this.elementModelSpec.modelQueue.clear();
+
+        if (this.eventQueues != null) {
+            for (int i = 0; i < this.eventQueues.length; i++) {
+                if (this.eventQueues[i] != null) {
+                    this.eventQueues[i].clear();
+                }
+            }
+        }
+        if (this.iterationArtifacts != null) {
+            for (int i = 0; i < this.iterationArtifacts.length; i++) {
+                if (this.iterationArtifacts[i] != null) {
+                    this.iterationArtifacts[i].clear();
+                }
+            }
+        }
+        if (this.elementModelArtifacts != null) {
+            for (int i = 0; i < this.elementModelArtifacts.length; i++) {
+                if (this.elementModelArtifacts[i] != null) {
+                    this.elementModelArtifacts[i].modelQueue.clear();
+                }
+            }
+        }
+        if (this.standaloneOpenTagBuffers != null) {
+            // These will be created again when needed
+            Arrays.fill(this.standaloneOpenTagBuffers, null);
+            Arrays.fill(this.standaloneCloseTagBuffers, null);
+            Arrays.fill(this.standaloneTextBuffers, null);
+        }
+
+    }
+
+
+
+
     private void increaseModelLevel() {
 
         this.modelLevel++;
@@ -622,7 +773,11 @@ public void handleText(final IText itext) {
          * CHECK WHETHER WE ARE IN THE MIDDLE OF AN ITERATION and we just need to cache this to the queue (for now)
          */
         if (this.gatheringIteration && this.modelLevel >= this.iterationSpec.fromModelLevel) {
-            this.iterationSpec.iterationQueue.add(Text.asEngineText(this.configuration, itext, true), false);
+            final IEngineTemplateEvent sharedEvent = sharedImmutableEvent(itext);
+            this.iterationSpec.iterationQueue.add(
+                    (sharedEvent != null?
+                            sharedEvent :
+                            Text.asEngineText(this.configuration, itext, true)), false);
             return;
         }
 
@@ -734,7 +889,11 @@ public void handleComment(final IComment icomment) {
          * CHECK WHETHER WE ARE IN THE MIDDLE OF AN ITERATION and we just need to cache this to the queue (for now)
          */
         if (this.gatheringIteration && this.modelLevel >= this.iterationSpec.fromModelLevel) {
-            this.iterationSpec.iterationQueue.add(Comment.asEngineComment(this.configuration, icomment, true), false);
+            final IEngineTemplateEvent sharedEvent = sharedImmutableEvent(icomment);
+            this.iterationSpec.iterationQueue.add(
+                    (sharedEvent != null?
+                            sharedEvent :
+                            Comment.asEngineComment(this.configuration, icomment, true)), false);
             return;
         }
 
@@ -845,7 +1004,11 @@ public void handleCDATASection(final ICDATASection icdataSection) {
          * CHECK WHETHER WE ARE IN THE MIDDLE OF AN ITERATION and we just need to cache this to the queue (for now)
          */
         if (this.gatheringIteration && this.modelLevel >= this.iterationSpec.fromModelLevel) {
-            this.iterationSpec.iterationQueue.add(CDATASection.asEngineCDATASection(this.configuration, icdataSection, true), false);
+            final IEngineTemplateEvent sharedEvent = sharedImmutableEvent(icdataSection);
+            this.iterationSpec.iterationQueue.add(
+                    (sharedEvent != null?
+                            sharedEvent :
+                            CDATASection.asEngineCDATASection(this.configuration, icdataSection, true)), false);
             return;
         }
 
@@ -958,9 +1121,11 @@ public void handleStandaloneElement(final IStandaloneElementTag istandaloneEleme
          * CHECK WHETHER WE ARE IN THE MIDDLE OF AN ITERATION and we just need to cache this to the queue (for now)
          */
         if (this.gatheringIteration && this.modelLevel >= this.iterationSpec.fromModelLevel) {
+            final IEngineTemplateEvent sharedEvent = sharedImmutableEvent(istandaloneElementTag);
             this.iterationSpec.iterationQueue.add(
-                    StandaloneElementTag.asEngineStandaloneElementTag(
-                            this.templateMode, this.configuration, istandaloneElementTag, true), false);
+                    (sharedEvent != null?
+                            sharedEvent :
+                            StandaloneElementTag.asEngineStandaloneElementTag( this.templateMode, this.configuration, istandaloneElementTag, true)), false);
             return;
         }
 
@@ -1485,8 +1650,11 @@ public void handleOpenElement(final IOpenElementTag iopenElementTag) {
          * CHECK WHETHER WE ARE IN THE MIDDLE OF AN ITERATION and we just need to cache this to the queue (for now)
          */
         if (this.gatheringIteration && this.modelLevel >= this.iterationSpec.fromModelLevel) {
+            final IEngineTemplateEvent sharedEvent = sharedImmutableEvent(iopenElementTag);
             this.iterationSpec.iterationQueue.add(
-                    OpenElementTag.asEngineOpenElementTag(this.templateMode, this.configuration, iopenElementTag, true), false);
+                    (sharedEvent != null?
+                            sharedEvent :
+                            OpenElementTag.asEngineOpenElementTag(this.templateMode, this.configuration, iopenElementTag, true)), false);
             increaseModelLevel();
             return;
         }
@@ -1996,8 +2164,11 @@ public void handleCloseElement(final ICloseElementTag icloseElementTag) {
          * CHECK WHETHER WE ARE IN THE MIDDLE OF AN ITERATION and we just need to cache this to the queue (for now)
          */
         if (this.gatheringIteration && this.modelLevel >= this.iterationSpec.fromModelLevel) {
+            final IEngineTemplateEvent sharedEvent = sharedImmutableEvent(icloseElementTag);
             this.iterationSpec.iterationQueue.add(
-                    CloseElementTag.asEngineCloseElementTag(this.templateMode, this.configuration, icloseElementTag, true), false);
+                    (sharedEvent != null?
+                            sharedEvent :
+                            CloseElementTag.asEngineCloseElementTag(this.templateMode, this.configuration, icloseElementTag, true)), false);
             return;
         }
 
@@ -2021,8 +2192,11 @@ public void handleCloseElement(final ICloseElementTag icloseElementTag) {
         if (this.gatheringIteration && this.modelLevel + 1 == this.iterationSpec.fromModelLevel) {
 
             // Add the last tag: the closing one
+            final IEngineTemplateEvent sharedEvent = sharedImmutableEvent(icloseElementTag);
             this.iterationSpec.iterationQueue.add(
-                    CloseElementTag.asEngineCloseElementTag(this.templateMode, this.configuration, icloseElementTag, true), false);
+                    (sharedEvent != null?
+                            sharedEvent :
+                            CloseElementTag.asEngineCloseElementTag(this.templateMode, this.configuration, icloseElementTag, true)), false);
 
             // Process the queue by iterating it
             processIteration();
@@ -2104,8 +2278,11 @@ private void handleUnmatchedCloseElement(final ICloseElementTag icloseElementTag
          * CHECK WHETHER WE ARE IN THE MIDDLE OF AN ITERATION and we just need to cache this to the queue (for now)
          */
         if (this.gatheringIteration && this.modelLevel >= this.iterationSpec.fromModelLevel) {
+            final IEngineTemplateEvent sharedEvent = sharedImmutableEvent(icloseElementTag);
             this.iterationSpec.iterationQueue.add(
-                    CloseElementTag.asEngineCloseElementTag(this.templateMode, this.configuration, icloseElementTag, true), false);
+                    (sharedEvent != null?
+                            sharedEvent :
+                            CloseElementTag.asEngineCloseElementTag(this.templateMode, this.configuration, icloseElementTag, true)), false);
             return;
         }
 
@@ -2157,7 +2334,11 @@ public void handleDocType(final IDocType idocType) {
          * CHECK WHETHER WE ARE IN THE MIDDLE OF AN ITERATION and we just need to cache this to the queue (for now)
          */
         if (this.gatheringIteration && this.modelLevel >= this.iterationSpec.fromModelLevel) {
-            this.iterationSpec.iterationQueue.add(DocType.asEngineDocType(this.configuration, idocType, true), false);
+            final IEngineTemplateEvent sharedEvent = sharedImmutableEvent(idocType);
+            this.iterationSpec.iterationQueue.add(
+                    (sharedEvent != null?
+                            sharedEvent :
+                            DocType.asEngineDocType(this.configuration, idocType, true)), false);
             return;
         }
 
@@ -2270,8 +2451,11 @@ public void handleXMLDeclaration(final IXMLDeclaration ixmlDeclaration) {
          * CHECK WHETHER WE ARE IN THE MIDDLE OF AN ITERATION and we just need to cache this to the queue (for now)
          */
         if (this.gatheringIteration && this.modelLevel >= this.iterationSpec.fromModelLevel) {
+            final IEngineTemplateEvent sharedEvent = sharedImmutableEvent(ixmlDeclaration);
             this.iterationSpec.iterationQueue.add(
-                    XMLDeclaration.asEngineXMLDeclaration(this.configuration, ixmlDeclaration, true), false);
+                    (sharedEvent != null?
+                            sharedEvent :
+                            XMLDeclaration.asEngineXMLDeclaration(this.configuration, ixmlDeclaration, true)), false);
             return;
         }
 
@@ -2384,8 +2568,11 @@ public void handleProcessingInstruction(final IProcessingInstruction iprocessing
 
         // Check whether we are in the middle of an iteration and we just need to cache this to the queue (for now)
         if (this.gatheringIteration && this.modelLevel >= this.iterationSpec.fromModelLevel) {
+            final IEngineTemplateEvent sharedEvent = sharedImmutableEvent(iprocessingInstruction);
             this.iterationSpec.iterationQueue.add(
-                    ProcessingInstruction.asEngineProcessingInstruction(this.configuration, iprocessingInstruction, true), false);
+                    (sharedEvent != null?
+                            sharedEvent :
+                            ProcessingInstruction.asEngineProcessingInstruction(this.configuration, iprocessingInstruction, true)), false);
             return;
         }
 
@@ -2522,12 +2709,14 @@ private void processIteration() {
          */
 
         final Text precedingWhitespace = this.iterationSpec.precedingWhitespace;
-        final String iterVariableName = this.iterationSpec.iterVariableName;
+        // Variable names are interned so that lookups from (also interned) expression names compare by identity
+        final String iterVariableName = this.iterationSpec.iterVariableName.intern();
         String iterStatusVariableName = this.iterationSpec.iterStatusVariableName;
         if (StringUtils.isEmptyOrWhitespace(iterStatusVariableName)) {
             // If no name has been specified for the status variable, we will use the same as the iter var + "Stat"
             iterStatusVariableName = iterVariableName + DEFAULT_STATUS_VAR_SUFFIX;
         }
+        iterStatusVariableName = iterStatusVariableName.intern();
         final Object iteratedObject = this.iterationSpec.iteratedObject;
 
         /*
@@ -2541,6 +2730,12 @@ private void processIteration() {
          */
         prepareIterationEvents(this.configuration, this.templateMode, this.iterationSpec, iterArtifacts);
 
+        /*
+         * Compute the plan for executing the iteration queue, i.e. which events are static (no processors will be
+         * applied to them) and therefore can be fired without copying them into buffers for each iteration
+         */
+        computeIterationPlan(iterArtifacts);
+
         /*
          * Depending on the class of the iterated object, we will iterate it in one way or another. And also we
          * might have a "size" value for the stat variable or not.
@@ -2606,7 +2801,7 @@ private void processIteration() {
             prepareIterationQueueForIteration(iterArtifacts, status.index, !iterHasNext);
 
             // Execute the queue itself
-            iterArtifacts.iterationQueue.process(this, false);
+            processIterationQueue(iterArtifacts);
 
             this.variablesMap.decreaseLevel();
 
@@ -2615,6 +2810,7 @@ private void processIteration() {
             // we start iterating, and we want to avoid a double whitespace before the first iteration
             if (status.index == 0 && precedingWhitespace != null) {
                 iterArtifacts.iterationQueue.insert(0, precedingWhitespace, false);
+                computeIterationPlan(iterArtifacts);
             }
 
             status.index++;
@@ -2635,6 +2831,74 @@ private void processIteration() {
 
 
 
+    private void computeIterationPlan(final IterationArtifacts iterArtifacts) {
+
+        final EngineEventQueue queue = iterArtifacts.iterationQueue;
+        final int queueSize = queue.size();
+
+        if (iterArtifacts.staticEvents.length < queueSize) {
+            iterArtifacts.staticEvents = new boolean[Math.max(queueSize, iterArtifacts.staticEvents.length * 2)];
+        }
+
+        for (int i = 0; i < queueSize; i++) {
+            iterArtifacts.staticEvents[i] = (this.fireStaticEventsUnbuffered && isStaticEvent(queue.get(i)));
+        }
+
+    }
+
+
+    private boolean isStaticEvent(final IEngineTemplateEvent event) {
+        if (event instanceof OpenElementTag) {
+            return ((OpenElementTag) event).hasPrecomputedNoAssociatedProcessors();
+        }
+        if (event instanceof CloseElementTag) {
+            return true;
+        }
+        if (event instanceof StandaloneElementTag) {
+            return ((StandaloneElementTag) event).hasPrecomputedNoAssociatedProcessors();
+        }
+        if (event instanceof Text) {
+            return !this.hasTextProcessors;
+        }
+        if (event instanceof Comment) {
+            return !this.hasCommentProcessors;
+        }
+        if (event instanceof CDATASection) {
+            return !this.hasCDATASectionProcessors;
+        }
+        if (event instanceof DocType) {
+            return !this.hasDocTypeProcessors;
+        }
+        if (event instanceof XMLDeclaration) {
+            return !this.hasXMLDeclarationProcessors;
+        }
+        if (event instanceof ProcessingInstruction) {
+            return !this.hasProcessingInstructionProcessors;
+        }
+        return false;
+    }
+
+
+    private void processIterationQueue(final IterationArtifacts iterArtifacts) {
+
+        final EngineEventQueue queue = iterArtifacts.iterationQueue;
+        final boolean[] staticEvents = iterArtifacts.staticEvents;
+        final int queueSize = queue.size();
+
+        for (int i = 0; i < queueSize; i++) {
+            // Static events are fired directly unless we are suspended (the event could then be processed anyway)
+            // or gathering a nested iteration (which can share the event only if it comes in a buffer)
+            final boolean bufferize = (!staticEvents[i] || this.suspended || this.gatheringIteration);
+            queue.processEvent(this, i, bufferize);
+        }
+
+    }
+
+
+
+
+
+
     private void processElementModel() {
 
         /*
@@ -2681,6 +2945,16 @@ private void processElementModel() {
 
 
 
+    private IEngineTemplateEvent sharedImmutableEvent(final ITemplateEvent event) {
+        // If the event is a buffer fired from a queue of immutable events, we will be able to add the original
+        // event to the iteration queue instead of a clone of the buffer. Iteration queues never modify their
+        // events (see prepareIterationEvents), so no copy is needed.
+        return (this.shareImmutableEvents? AbstractTemplateEvent.immutableSourceOf(event) : null);
+    }
+
+
+
+
     private static Integer computeIteratedObjectSize(final Object iteratedObject) {
         if (iteratedObject == null) {
             return Integer.valueOf(0);
@@ -2715,25 +2989,8 @@ private static Iterator<?> computeIteratedObjectIterator(final Object iteratedOb
             return ((Map<?,?>)iteratedObject).entrySet().iterator();
         }
         if (iteratedObject.getClass().isArray()) {
-            return new Iterator<Object>() {
-
-                protected final Object array = iteratedObject;
-                protected final int length = Array.getLength(this.array);
-                private int i = 0;
-
-                public boolean hasNext() {
-                    return this.i < this.length;
-                }
-
-                public Object next() {
-                    return Array.get(this.array, i++);
-                }
-
-                public void remove() {
-                    throw new UnsupportedOperationException("Cannot remove from an array iterator");
-                }
-
-            };
+            // Arrays are iterated through a list view, avoiding both copies and reflective access to elements
+            return EvaluationUtils.evaluateAsList(iteratedObject).iterator();
         }
         if (iteratedObject instanceof Iterable<?>) {
             return ((Iterable<?>)iteratedObject).iterator();
@@ -2886,6 +3143,19 @@ private static void prepareIterationEvents(
         // At this point, we are sure that we will want to perform modifications on the first/last whitespaces
         iterArtifacts.performBodyFirstLastSwitch = true;
 
+        // The first/last body events will be modified for each iteration, but they might be shared with an immutable
+        // (e.g. cached) model, so we will replace them with copies owned by the iteration artifacts
+        final EngineEventQueue iterationQueue = iterArtifacts.iterationQueue;
+        iterArtifacts.iterationFirstBodyEvent.resetAsCloneOf(firstTextBodyEvent);
+        iterationQueue.remove(1);
+        iterationQueue.insert(1, iterArtifacts.iterationFirstBodyEvent, false);
+        if (firstBodyEvent != lastBodyEvent) {
+            final int lastBodyEventPos = iterationQueue.size() - 2;
+            iterArtifacts.iterationLastBodyEvent.resetAsCloneOf(lastTextBodyEvent);
+            iterationQueue.remove(lastBodyEventPos);
+            iterationQueue.insert(lastBodyEventPos, iterArtifacts.iterationLastBodyEvent, false);
+        }
+
         if (firstBodyEvent == lastBodyEvent) {
             // If the first and the last event are actually the same, we need to take better care of how we manage whitespace
             final CharSequence textFor0 = lastTextBodyEvent.subSequence(0, lastBodyEventCutPoint);
@@ -2977,6 +3247,10 @@ void add(final int level) {
 
         }
 
+        void clear() {
+            this.size = 0;
+        }
+
         boolean matchAndPop(final int level) {
             if (this.size > 0 && this.array[this.size - 1] == level) {
                 this.size--;
@@ -3019,25 +3293,47 @@ void reset() {
     private static final class IterationArtifacts {
 
         boolean performBodyFirstLastSwitch = false;
+        boolean[] staticEvents;
+        final Text iterationFirstBodyEvent;
         final Text iterationFirstBodyEventIter0;
         final Text iterationFirstBodyEventIterN;
         final EngineEventQueue iterationQueue;
         final Text iterationLastBodyEventIterN;
         final Text iterationLastBodyEventIterMax;
+        final Text iterationLastBodyEvent;
         final EngineEventQueue suspendedQueue;
         final ElementProcessorIterator suspendedElementProcessorIterator;
 
         IterationArtifacts(final TemplateMode templateMode, final IEngineConfiguration configuration) {
             super();
+            this.iterationFirstBodyEvent = new Text(configuration.getTextRepository());
             this.iterationFirstBodyEventIter0 = new Text(configuration.getTextRepository());
             this.iterationFirstBodyEventIterN = new Text(configuration.getTextRepository());
             this.iterationQueue = new EngineEventQueue(configuration, templateMode, 50);
+            // Iterated events are either immutable or owned by these artifacts (and not modified while an iteration
+            // nested inside them is being gathered), so they can be shared by nested iterations
+            this.iterationQueue.setImmutableEvents(true);
+            this.staticEvents = new boolean[50];
             this.iterationLastBodyEventIterN = new Text(configuration.getTextRepository());
             this.iterationLastBodyEventIterMax = new Text(configuration.getTextRepository());
+            this.iterationLastBodyEvent = new Text(configuration.getTextRepository());
             this.suspendedQueue = new EngineEventQueue(configuration, templateMode, 5);
             this.suspendedElementProcessorIterator = new ElementProcessorIterator();
         }
 
+        void clear() {
+            this.performBodyFirstLastSwitch = false;
+            this.iterationFirstBodyEvent.setText("");
+            this.iterationFirstBodyEventIter0.setText("");
+            this.iterationFirstBodyEventIterN.setText("");
+            this.iterationQueue.clear();
+            this.iterationLastBodyEventIterN.setText("");
+            this.iterationLastBodyEventIterMax.setText("");
+            this.iterationLastBodyEvent.setText("");
+            this.suspendedQueue.clear();
+            this.suspendedElementProcessorIterator.reset();
+        }
+
     }
 
 
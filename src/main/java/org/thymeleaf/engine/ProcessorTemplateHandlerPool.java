@@ -0,0 +1,120 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import java.util.EnumMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.thymeleaf.context.ITemplateProcessingContext;
+import org.thymeleaf.templatemode.TemplateMode;
+
+
+/**
+ * <p>
+ *   Pool of {@link ProcessorTemplateHandler} instances, organized by template mode, so that the buffers and
+ *   processor arrays created by these handlers can be reused among template executions instead of being
+ *   created again for each of them.
+ * </p>
+ * <p>
+ *   Handlers are acquired for a single template execution and then released. Nested executions (e.g. those
+ *   started from processors) will simply acquire a different handler. If the pool is empty, a new handler will
+ *   be created, and if it is full, released handlers will be discarded.
+ * </p>
+ * <p>
+ *   Objects of this class are <b>thread-safe</b>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ * @since 3.0.0
+ *
+ */
+final class ProcessorTemplateHandlerPool {
+
+    private final int maxPooledHandlersPerTemplateMode;
+    private final EnumMap<TemplateMode,ConcurrentLinkedQueue<ProcessorTemplateHandler>> handlersByTemplateMode;
+    private final EnumMap<TemplateMode,AtomicInteger> handlerCountsByTemplateMode;
+
+
+
+    ProcessorTemplateHandlerPool(final int maxPooledHandlersPerTemplateMode) {
+
+        super();
+
+        this.maxPooledHandlersPerTemplateMode = maxPooledHandlersPerTemplateMode;
+
+        // These maps are completely initialized here and never modified afterwards, so they are safe to be read
+        // concurrently
+        this.handlersByTemplateMode =
+                new EnumMap<TemplateMode, ConcurrentLinkedQueue<ProcessorTemplateHandler>>(TemplateMode.class);
+        this.handlerCountsByTemplateMode = new EnumMap<TemplateMode, AtomicInteger>(TemplateMode.class);
+        for (final TemplateMode templateMode : TemplateMode.values()) {
+            this.handlersByTemplateMode.put(templateMode, new ConcurrentLinkedQueue<ProcessorTemplateHandler>());
+            this.handlerCountsByTemplateMode.put(templateMode, new AtomicInteger(0));
+        }
+
+    }
+
+
+
+    ProcessorTemplateHandler acquire(final ITemplateProcessingContext processingContext) {
+
+        final TemplateMode templateMode = processingContext.getTemplateMode();
+
+        ProcessorTemplateHandler handler = null;
+        if (templateMode != null) {
+            handler = this.handlersByTemplateMode.get(templateMode).poll();
+            if (handler != null) {
+                this.handlerCountsByTemplateMode.get(templateMode).decrementAndGet();
+            }
+        }
+
+        if (handler == null) {
+            handler = new ProcessorTemplateHandler();
+        }
+
+        handler.setProcessingContext(processingContext);
+        return handler;
+
+    }
+
+
+
+    void release(final ProcessorTemplateHandler handler, final TemplateMode templateMode) {
+
+        handler.release();
+
+        if (templateMode == null) {
+            return;
+        }
+
+        final AtomicInteger handlerCount = this.handlerCountsByTemplateMode.get(templateMode);
+        if (handlerCount.incrementAndGet() > this.maxPooledHandlersPerTemplateMode) {
+            // Pool is full, just let this handler be garbage collected
+            handlerCount.decrementAndGet();
+            return;
+        }
+
+        this.handlersByTemplateMode.get(templateMode).offer(handler);
+
+    }
+
+
+}
@@ -0,0 +1,223 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * <p>
+ *   Graph of the dependencies among templates created by fragment insertion (<tt>th:insert</tt>,
+ *   <tt>th:include</tt>, <tt>th:replace</tt>), recorded as templates are processed.
+ * </p>
+ * <p>
+ *   The graph is stored in both directions: for each template, the set of templates that directly insert fragments
+ *   from it (its <em>dependents</em>), and the set of templates it directly inserts fragments from (its
+ *   <em>dependencies</em>). This allows computing all the templates affected by a modification in a template, or
+ *   all the templates whose modification would affect a template, in a time proportional to the size of the result,
+ *   without examining the rest of the graph.
+ * </p>
+ * <p>
+ *   The dependencies of a template are removed when its caches are cleared (see {@link #removeTemplate(String)}),
+ *   and recorded again if it is processed afterwards. Until then, a dependency that no longer exists (because the
+ *   dependent template was modified) will only cause unneeded (but harmless) invalidations.
+ * </p>
+ * <p>
+ *   Objects of this class are <b>thread-safe</b>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ * @since 3.0.0
+ *
+ */
+final class TemplateDependencyGraph {
+
+    // Values in these maps are used as sets (Boolean.TRUE is always the value)
+    private final ConcurrentHashMap<String,ConcurrentHashMap<String,Boolean>> dependentsByTemplate;
+    private final ConcurrentHashMap<String,ConcurrentHashMap<String,Boolean>> dependenciesByTemplate;
+
+
+
+    TemplateDependencyGraph() {
+        super();
+        this.dependentsByTemplate = new ConcurrentHashMap<String, ConcurrentHashMap<String, Boolean>>(20, 0.75f, 4);
+        this.dependenciesByTemplate = new ConcurrentHashMap<String, ConcurrentHashMap<String, Boolean>>(20, 0.75f, 4);
+    }
+
+
+
+    /**
+     * <p>
+     *   Records that <tt>template</tt> depends on <tt>dependency</tt>, i.e. that it inserts fragments from it.
+     * </p>
+     * <p>
+     *   This is called for every fragment insertion executed, so the usual case (the dependency is already known)
+     *   performs no writes at all.
+     * </p>
+     *
+     * @param template the dependent template.
+     * @param dependency the template it depends on.
+     */
+    void addDependency(final String template, final String dependency) {
+
+        if (template.equals(dependency)) {
+            return;
+        }
+
+        addEdge(this.dependentsByTemplate, dependency, template);
+        addEdge(this.dependenciesByTemplate, template, dependency);
+
+    }
+
+
+    private static void addEdge(
+            final ConcurrentHashMap<String,ConcurrentHashMap<String,Boolean>> edges, final String from, final String to) {
+
+        ConcurrentHashMap<String,Boolean> targets = edges.get(from);
+        if (targets == null) {
+            final ConcurrentHashMap<String,Boolean> newTargets = new ConcurrentHashMap<String, Boolean>(4, 0.75f, 2);
+            targets = edges.putIfAbsent(from, newTargets);
+            if (targets == null) {
+                targets = newTargets;
+            }
+        }
+
+        if (!targets.containsKey(to)) {
+            targets.put(to, Boolean.TRUE);
+        }
+
+    }
+
+
+
+    /**
+     * <p>
+     *   Computes all the templates that depend, directly or indirectly, on the specified template. The specified
+     *   template itself is not included in the result.
+     * </p>
+     *
+     * @param template the template.
+     * @return the (direct and indirect) dependents of the template, never null.
+     */
+    Set<String> computeDependents(final String template) {
+        return computeReachable(this.dependentsByTemplate, template);
+    }
+
+
+
+    /**
+     * <p>
+     *   Computes all the templates the specified template depends on, directly or indirectly. The specified
+     *   template itself is not included in the result.
+     * </p>
+     *
+     * @param template the template.
+     * @return the (direct and indirect) dependencies of the template, never null.
+     */
+    Set<String> computeDependencies(final String template) {
+        return computeReachable(this.dependenciesByTemplate, template);
+    }
+
+
+
+    private static Set<String> computeReachable(
+            final ConcurrentHashMap<String,ConcurrentHashMap<String,Boolean>> edges, final String template) {
+
+        final ConcurrentHashMap<String,Boolean> direct = edges.get(template);
+        if (direct == null || direct.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        final Set<String> reachable = new LinkedHashSet<String>(8);
+        final List<String> pending = new ArrayList<String>(direct.keySet());
+
+        // Breadth-first traversal. Cycles (e.g. two templates inserting fragments from each other) are possible,
+        // so already visited templates are skipped.
+        int i = 0;
+        while (i < pending.size()) {
+            final String next = pending.get(i++);
+            if (next.equals(template) || !reachable.add(next)) {
+                continue;
+            }
+            final ConcurrentHashMap<String,Boolean> nextTargets = edges.get(next);
+            if (nextTargets != null) {
+                pending.addAll(nextTargets.keySet());
+            }
+        }
+
+        return reachable;
+
+    }
+
+
+
+    /**
+     * <p>
+     *   Removes all the dependencies of the specified template, and also all the dependencies other templates had
+     *   on it.
+     * </p>
+     * <p>
+     *   Sets belonging to other templates are not removed even if they become empty, so that a concurrent
+     *   {@link #addDependency(String, String)} never adds an edge to a set that is no longer in the graph.
+     * </p>
+     *
+     * @param template the template.
+     */
+    void removeTemplate(final String template) {
+
+        final ConcurrentHashMap<String,Boolean> dependents = this.dependentsByTemplate.remove(template);
+        if (dependents != null) {
+            for (final String dependent : dependents.keySet()) {
+                removeEdge(this.dependenciesByTemplate, dependent, template);
+            }
+        }
+
+        final ConcurrentHashMap<String,Boolean> dependencies = this.dependenciesByTemplate.remove(template);
+        if (dependencies != null) {
+            for (final String dependency : dependencies.keySet()) {
+                removeEdge(this.dependentsByTemplate, dependency, template);
+            }
+        }
+
+    }
+
+
+    private static void removeEdge(
+            final ConcurrentHashMap<String,ConcurrentHashMap<String,Boolean>> edges, final String from, final String to) {
+        final ConcurrentHashMap<String,Boolean> targets = edges.get(from);
+        if (targets != null) {
+            targets.remove(to);
+        }
+    }
+
+
+
+    void clear() {
+        this.dependentsByTemplate.clear();
+        this.dependenciesByTemplate.clear();
+    }
+
+
+}
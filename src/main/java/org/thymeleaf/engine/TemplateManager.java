@@ -22,25 +22,36 @@
 import java.io.Writer;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.thymeleaf.IEngineConfiguration;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.cache.AlwaysValidCacheEntryValidity;
+import org.thymeleaf.cache.CacheUtils;
+import org.thymeleaf.cache.CachedOutput;
+import org.thymeleaf.cache.FileModificationCacheEntryValidity;
 import org.thymeleaf.cache.FragmentCacheKey;
 import org.thymeleaf.cache.ICache;
+import org.thymeleaf.cache.ICacheEntryPredicate;
 import org.thymeleaf.cache.ICacheEntryValidity;
+import org.thymeleaf.cache.ICacheEntryValidityChecker;
 import org.thymeleaf.cache.ICacheManager;
+import org.thymeleaf.cache.IOutputCacheManager;
 import org.thymeleaf.cache.NonCacheableCacheEntryValidity;
+import org.thymeleaf.cache.OutputCacheKey;
+import org.thymeleaf.cache.StandardCache;
 import org.thymeleaf.cache.TemplateCacheKey;
 import org.thymeleaf.context.IContext;
 import org.thymeleaf.context.ITemplateProcessingContext;
 import org.thymeleaf.context.TemplateProcessingContext;
 import org.thymeleaf.exceptions.TemplateInputException;
 import org.thymeleaf.exceptions.TemplateProcessingException;
+import org.thymeleaf.metrics.IEngineMetrics;
+import org.thymeleaf.metrics.InstrumentedCache;
+import org.thymeleaf.model.IModel;
 import org.thymeleaf.postprocessor.IPostProcessor;
 import org.thymeleaf.preprocessor.IPreProcessor;
 import org.thymeleaf.resource.IResource;
@@ -49,6 +60,7 @@
 import org.thymeleaf.templatemode.TemplateMode;
 import org.thymeleaf.templateparser.ITemplateParser;
 import org.thymeleaf.templateparser.ParsableArtifactType;
+import org.thymeleaf.templateparser.ParserBufferPool;
 import org.thymeleaf.templateparser.markup.HTMLTemplateParser;
 import org.thymeleaf.templateparser.markup.XMLTemplateParser;
 import org.thymeleaf.templateparser.text.CSSTemplateParser;
@@ -72,12 +84,21 @@ public final class TemplateManager {
 
     private static final Logger logger = LoggerFactory.getLogger(TemplateManager.class);
 
-    private static final int DEFAULT_PARSER_POOL_SIZE = 40;
-    private static final int DEFAULT_PARSER_BLOCK_SIZE = 2048;
+
+    private static final int DEFAULT_PROCESSOR_HANDLER_POOL_SIZE = 20;
+
+    private static final String RESOLUTION_MISS_CACHE_NAME = "RESOLUTION_MISS_CACHE";
+    private static final int RESOLUTION_MISS_CACHE_INITIAL_SIZE = 20;
+    private static final int RESOLUTION_MISS_CACHE_MAX_SIZE = 500;
+    // Misses are never kept longer than this, even if the resolution is valid forever: templates might appear later
+    // (e.g. uploaded files, new rows in a database) and these should be found without manually clearing the caches
+    private static final long RESOLUTION_MISS_CACHE_TTL_MS = 60000L;
 
     private static final Set<ITemplateResolver> STRING_TEMPLATE_RESOLVER_SET =
             Collections.singleton((ITemplateResolver)new StringTemplateResolver());
 
+    private final ParserBufferPool textParserBufferPool;
+
     private final ITemplateParser htmlParser;
     private final ITemplateParser xmlParser;
     private final ITemplateParser textParser;
@@ -87,6 +108,25 @@ public final class TemplateManager {
 
     private final ICache<TemplateCacheKey,ParsedTemplateModel> templateCache; // might be null! (= no cache)
     private final ICache<FragmentCacheKey,ParsedFragmentModel> fragmentCache; // might be null! (= no cache)
+    private final ICache<OutputCacheKey,CachedOutput> outputCache; // might be null! (= no cache)
+
+    // Templates inserting fragments from other templates, so that invalidations can cascade to them
+    private final TemplateDependencyGraph dependencyGraph;
+
+    // Validities of the cached templates whose files are checked for modifications, by template name. Once a
+    // modification is detected, all the caches for the template (and its dependents) are cleared, not only the
+    // entry that happened to be accessed.
+    private final ConcurrentHashMap<String,FileModificationCacheEntryValidity> modificationCheckedValidities;
+
+    private final IEngineMetrics metrics; // might be null! (= no metrics)
+
+    // Processor handlers are reused among executions in order to avoid the creation of their buffers each time
+    private final ProcessorTemplateHandlerPool processorHandlerPool;
+
+    // Template resolutions for which the resource could not be found. These are cached (only if caching is enabled
+    // and the resolution is cacheable) so that missing templates, or template resolvers placed in the chain before
+    // the one that effectively resolves a template, do not cost any I/O once their negative result is known.
+    private final ICache<ResolutionMissKey,TemplateResolution> resolutionMissCache; // might be null! (= no cache)
 
 
 
@@ -104,25 +144,54 @@ public TemplateManager(final IEngineConfiguration configuration) {
         super();
         
         Validate.notNull(configuration, "Configuration object cannot be null");
-        
+
+        this.metrics = configuration.getEngineMetrics();
+
         final ICacheManager cacheManager = configuration.getCacheManager();
         if (cacheManager == null) {
             this.templateCache = null;
             this.fragmentCache = null;
+            this.outputCache = null;
+            this.resolutionMissCache = null;
         } else {
             this.templateCache = cacheManager.getTemplateCache();
             this.fragmentCache = cacheManager.getFragmentCache();
+            this.outputCache =
+                    (cacheManager instanceof IOutputCacheManager? ((IOutputCacheManager) cacheManager).getOutputCache() : null);
+            final ICache<ResolutionMissKey,TemplateResolution> missCache =
+                    new StandardCache<ResolutionMissKey,TemplateResolution>(
+                            RESOLUTION_MISS_CACHE_NAME, false,
+                            RESOLUTION_MISS_CACHE_INITIAL_SIZE, RESOLUTION_MISS_CACHE_MAX_SIZE,
+                            ResolutionMissValidityChecker.INSTANCE, null);
+            if (this.metrics != null) {
+                this.metrics.registerCache(RESOLUTION_MISS_CACHE_NAME, missCache);
+                this.resolutionMissCache =
+                        new InstrumentedCache<ResolutionMissKey,TemplateResolution>(RESOLUTION_MISS_CACHE_NAME, missCache, this.metrics);
+            } else {
+                this.resolutionMissCache = missCache;
+            }
         }
 
+        this.dependencyGraph = new TemplateDependencyGraph();
+        this.modificationCheckedValidities = new ConcurrentHashMap<String, FileModificationCacheEntryValidity>(20, 0.75f, 4);
+
+        this.processorHandlerPool = new ProcessorTemplateHandlerPool(DEFAULT_PROCESSOR_HANDLER_POOL_SIZE);
+
         final boolean standardDialectPresent = configuration.isStandardDialectPresent();
         final String standardDialectPrefix = configuration.getStandardDialectPrefix();
 
+        final int parserBufferPoolSize = configuration.getParserBufferPoolSize();
+        final int parserBufferSize = configuration.getParserBufferSize();
+
+        // All the text parsers share the same pool of buffers. Markup parsers (AttoParser) manage their own pools.
+        this.textParserBufferPool = new ParserBufferPool(parserBufferPoolSize, parserBufferSize);
+
         // TODO Make these parser implementations configurable: one parser per template mode, then make default implementations extensible/configurable (e.g. AttoParser config)
-        this.htmlParser = new HTMLTemplateParser(DEFAULT_PARSER_POOL_SIZE,DEFAULT_PARSER_BLOCK_SIZE);
-        this.xmlParser = new XMLTemplateParser(DEFAULT_PARSER_POOL_SIZE, DEFAULT_PARSER_BLOCK_SIZE);
-        this.textParser = new TextTemplateParser(DEFAULT_PARSER_POOL_SIZE, DEFAULT_PARSER_BLOCK_SIZE, standardDialectPresent, standardDialectPrefix);
-        this.javascriptParser = new JavaScriptTemplateParser(DEFAULT_PARSER_POOL_SIZE, DEFAULT_PARSER_BLOCK_SIZE, standardDialectPresent, standardDialectPrefix);
-        this.cssParser = new CSSTemplateParser(DEFAULT_PARSER_POOL_SIZE, DEFAULT_PARSER_BLOCK_SIZE, standardDialectPresent, standardDialectPrefix);
+        this.htmlParser = new HTMLTemplateParser(parserBufferPoolSize, parserBufferSize);
+        this.xmlParser = new XMLTemplateParser(parserBufferPoolSize, parserBufferSize);
+        this.textParser = new TextTemplateParser(this.textParserBufferPool, standardDialectPresent, standardDialectPrefix);
+        this.javascriptParser = new JavaScriptTemplateParser(this.textParserBufferPool, standardDialectPresent, standardDialectPrefix);
+        this.cssParser = new CSSTemplateParser(this.textParserBufferPool, standardDialectPresent, standardDialectPrefix);
 
     }
     
@@ -132,7 +201,22 @@ public TemplateManager(final IEngineConfiguration configuration) {
     
     /**
      * <p>
-     *   Clears all the template-related caches (both template cache and fragment cache).
+     *   Returns the pool of buffers shared by the parsers of textual template modes (TEXT, JAVASCRIPT and CSS),
+     *   mainly in order to allow monitoring its hit/miss counts.
+     * </p>
+     *
+     * @return the pool of buffers used by textual template parsers.
+     */
+    public ParserBufferPool getTextParserBufferPool() {
+        return this.textParserBufferPool;
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Clears all the template-related caches (template cache, fragment cache and output cache).
      * </p>
      */
     public void clearCaches() {
@@ -142,13 +226,32 @@ public void clearCaches() {
         if (this.fragmentCache != null) {
             this.fragmentCache.clear();
         }
+        if (this.outputCache != null) {
+            this.outputCache.clear();
+        }
+        this.dependencyGraph.clear();
+        this.modificationCheckedValidities.clear();
+        if (this.resolutionMissCache != null) {
+            this.resolutionMissCache.clear();
+        }
     }
 
     
     /**
      * <p>
      *   Clears any existing entries for template of the specified
-     *   name at the template cache.
+     *   name at the template, fragment and output caches.
+     * </p>
+     * <p>
+     *   The cached outputs of the templates that insert fragments from this template (directly or indirectly, as
+     *   recorded by {@link #registerTemplateDependency(String, ICacheEntryValidity, String)}) are also cleared, as
+     *   they might contain the output of such fragments. Their parsed templates and fragments do not need to be
+     *   cleared because fragments are inserted at processing time, not at parsing time.
+     * </p>
+     * <p>
+     *   For caches implementing {@link org.thymeleaf.cache.ISelectivelyClearableCache} (like the standard ones),
+     *   cache entries are located by means of indexes, so the cost of this operation does not depend on the size
+     *   of the caches, only on the amount of entries to be cleared. Other caches are cleared by scanning their keys.
      * </p>
      * 
      * @param template the name of the template whose entries have to be cleared.
@@ -156,50 +259,119 @@ public void clearCaches() {
     public void clearCachesFor(final String template) {
         Validate.notNull(template, "Cannot specify null template");
         if (this.templateCache != null) {
-            final Set<TemplateCacheKey> keysToBeRemoved = new HashSet<TemplateCacheKey>(4);
-            final Set<TemplateCacheKey> templateCacheKeys = this.templateCache.keySet();
-            // We are iterating twice and creating a temporary set just in case the 'keySet' Set is still connected
-            // to the original cache store and we provoke ConcurrentModificationExceptions when removing entries
-            for (final TemplateCacheKey templateCacheKey : templateCacheKeys) {
-                final String ownerTemplate = templateCacheKey.getOwnerTemplate();
-                if (ownerTemplate != null) {
-                    // It's not a standalone template, so we are interested on the owner template
-                    if (ownerTemplate.equals(template)) {
-                        keysToBeRemoved.add(templateCacheKey);
-                    }
-                } else {
-                    if (templateCacheKey.getTemplate().equals(template)) {
-                        keysToBeRemoved.add(templateCacheKey);
-                    }
-                }
-            }
-            for (final TemplateCacheKey keyToBeRemoved : keysToBeRemoved) {
-                this.templateCache.clearKey(keyToBeRemoved);
-            }
+            CacheUtils.clearKeysForTemplate(this.templateCache, template);
         }
         if (this.fragmentCache != null) {
-            // We will be removing all entries at the fragment cache related to this template
-            final Set<FragmentCacheKey> keysToBeRemoved = new HashSet<FragmentCacheKey>(4);
-            final Set<FragmentCacheKey> fragmentCacheKeys = this.fragmentCache.keySet();
-            // We are iterating twice and creating a temporary set just in case the 'keySet' Set is still connected
-            // to the original cache store and we provoke ConcurrentModificationExceptions when removing entries
-            for (final FragmentCacheKey fragmentCacheKey : fragmentCacheKeys) {
-                final String ownerTemplate = fragmentCacheKey.getOwnerTemplate();
-                if (ownerTemplate != null) {
-                    // It's not a standalone template, so we are interested on the owner template
-                    if (ownerTemplate.equals(template)) {
-                        keysToBeRemoved.add(fragmentCacheKey);
-                    }
-                } else {
-                    if (fragmentCacheKey.getFragment().equals(template)) {
-                        keysToBeRemoved.add(fragmentCacheKey);
-                    }
-                }
+            CacheUtils.clearKeysForTemplate(this.fragmentCache, template);
+        }
+        if (this.outputCache != null) {
+            // We will be removing all the cached outputs of elements belonging to this template, and also to the
+            // templates that (maybe indirectly) insert fragments from it.
+            CacheUtils.clearKeysForTemplate(this.outputCache, template);
+            for (final String dependent : this.dependencyGraph.computeDependents(template)) {
+                CacheUtils.clearKeysForTemplate(this.outputCache, dependent);
             }
-            for (final FragmentCacheKey keyToBeRemoved : keysToBeRemoved) {
-                this.fragmentCache.clearKey(keyToBeRemoved);
+        }
+        // Once the outputs are cleared, the dependencies of (and on) this template are not needed anymore. They will
+        // be registered again if it is processed again.
+        this.dependencyGraph.removeTemplate(template);
+        if (this.resolutionMissCache != null) {
+            CacheUtils.removeIf(this.resolutionMissCache, new ResolutionMissTemplatePredicate(template));
+        }
+    }
+
+
+    /*
+     * If the file of the specified template is checked for modifications (see FileModificationCacheEntryValidity)
+     * and it has been modified, clears all the caches for the template. Only the thread detecting the modification
+     * will perform the clearing.
+     */
+    private void checkForModification(final String template) {
+        final FileModificationCacheEntryValidity validity = this.modificationCheckedValidities.get(template);
+        if (validity != null && !validity.isCacheStillValid() &&
+                this.modificationCheckedValidities.remove(template, validity)) {
+            clearCachesFor(template);
+        }
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Registers that a template depends on another one because it inserts fragments from it (e.g. by means of
+     *   <tt>th:insert</tt> or <tt>th:replace</tt>), so that clearing the caches for the latter (see
+     *   {@link #clearCachesFor(String)}) also clears the cached outputs of the former.
+     * </p>
+     * <p>
+     *   Dependencies are only recorded if there is an output cache and the template being processed is cacheable,
+     *   because otherwise no output containing the inserted fragments could ever be cached.
+     * </p>
+     * <p>
+     *   This method is meant to be called by fragment insertion processors each time they are executed, and it
+     *   is very cheap when the dependency is already known.
+     * </p>
+     *
+     * @param template the name of the template that inserts the fragment.
+     * @param templateValidity the cache validity of the template being processed.
+     * @param dependency the name of the template the inserted fragment belongs to.
+     */
+    public void registerTemplateDependency(
+            final String template, final ICacheEntryValidity templateValidity, final String dependency) {
+        Validate.notNull(template, "Template cannot be null");
+        Validate.notNull(templateValidity, "Template validity cannot be null");
+        Validate.notNull(dependency, "Dependency cannot be null");
+        if (this.outputCache == null || !templateValidity.isCacheable()) {
+            // No output will be cached, so nothing will ever need to be invalidated
+            return;
+        }
+        this.dependencyGraph.addDependency(template, dependency);
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Returns the cached output for the specified key, if it exists in the output cache.
+     * </p>
+     *
+     * @param key the output cache key.
+     * @return the cached output, or <tt>null</tt> if there is none (or if there is no output cache).
+     */
+    public CachedOutput getCachedOutput(final OutputCacheKey key) {
+        Validate.notNull(key, "Key cannot be null");
+        if (this.outputCache == null) {
+            return null;
+        }
+        if (!this.modificationCheckedValidities.isEmpty()) {
+            // The cached output might contain fragments from other templates, which will not be accessed (and
+            // therefore checked for modifications) if the cached output is used, so we need to check them here
+            final String template = key.getOwningTemplate();
+            checkForModification(template);
+            for (final String dependency : this.dependencyGraph.computeDependencies(template)) {
+                checkForModification(dependency);
             }
         }
+        return this.outputCache.get(key);
+    }
+
+
+    /**
+     * <p>
+     *   Puts the specified output into the output cache, if it exists.
+     * </p>
+     *
+     * @param key the output cache key.
+     * @param output the output to be cached.
+     */
+    public void putCachedOutput(final OutputCacheKey key, final CachedOutput output) {
+        Validate.notNull(key, "Key cannot be null");
+        Validate.notNull(output, "Output cannot be null");
+        if (this.outputCache == null) {
+            return;
+        }
+        this.outputCache.put(key, output);
     }
 
 
@@ -207,6 +379,7 @@ public void clearCachesFor(final String template) {
 
 
 
+
     /*
      * -------------
      * PARSE methods
@@ -287,6 +460,7 @@ private ParsedTemplateModel parseTemplate(
          * First look at the cache - it might be already cached
          */
         if (useCache && this.templateCache != null) {
+            checkForModification(ownerTemplate != null? ownerTemplate : template);
             final ParsedTemplateModel cached =  this.templateCache.get(cacheKey);
             if (cached != null) {
                 return cached;
@@ -306,7 +480,7 @@ private ParsedTemplateModel parseTemplate(
          * Resolve the template, obtain the IResource and its metadata (TemplateResolution)
          */
         final Resolution resolution =
-                resolve(configuration, templateResolvers, template, templateMode, context);
+                resolve(configuration, templateResolvers, template, templateMode, context, useCache);
 
 
         /*
@@ -326,6 +500,7 @@ private ParsedTemplateModel parseTemplate(
                 lineOffset, colOffset,
                 resolution.templateResolution.getTemplateMode(),
                 builderHandler);
+        parsedTemplate.freezeEvents();
 
 
         /*
@@ -412,6 +587,7 @@ private ParsedFragmentModel parseFragment(
          * First look at the cache - it might be already cached
          */
         if (useCache && this.fragmentCache != null) {
+            checkForModification(ownerTemplate != null? ownerTemplate : fragment);
             final ParsedFragmentModel cached =  this.fragmentCache.get(cacheKey);
             if (cached != null) {
                 return cached;
@@ -419,6 +595,24 @@ private ParsedFragmentModel parseFragment(
         }
 
 
+        /*
+         * If a single, simple selector has been specified, try to serve it from the (cached) complete template
+         */
+        if (ownerTemplate == null && useCache && this.fragmentCache != null &&
+                selectors != null && selectors.length == 1 && ParsedFragmentIndex.isIndexableSelector(selectors[0]) &&
+                (templateMode == null || templateMode.isMarkup())) {
+            final ParsedFragmentModel parsedTemplate =
+                    parseFragment(configuration, null, fragment, null, lineOffset, colOffset, templateMode, context, true);
+            final ParsedFragmentModel indexedFragment = parsedTemplate.getIndex().select(selectors[0]);
+            if (indexedFragment != null) {
+                if (indexedFragment.getValidity().isCacheable()) {
+                    this.fragmentCache.put(cacheKey, indexedFragment);
+                }
+                return indexedFragment;
+            }
+        }
+
+
         final IResource computedResource;
         final TemplateMode computedTemplateMode;
         final ICacheEntryValidity computedCacheEntryValidity;
@@ -450,7 +644,7 @@ private ParsedFragmentModel parseFragment(
              * Resolve the template, obtain the IResource and its metadata (TemplateResolution)
              */
             final Resolution resolution =
-                    resolve(configuration, configuration.getTemplateResolvers(), fragment, templateMode, context);
+                    resolve(configuration, configuration.getTemplateResolvers(), fragment, templateMode, context, useCache);
 
             /*
              * Assign the values
@@ -478,6 +672,7 @@ private ParsedFragmentModel parseFragment(
                 lineOffset, colOffset,
                 computedTemplateMode,
                 builderHandler);
+        parsedFragment.freezeEvents();
 
 
         /*
@@ -572,6 +767,47 @@ public void processNestedTemplate(
     }
 
 
+    /**
+     * <p>
+     *   Processes a model belonging to the template currently being processed, using its processing context
+     *   (including local variables and inlining configuration), and writes its output to the specified writer.
+     * </p>
+     * <p>
+     *   This allows processors to capture the output of the normal processing of a piece of the template (e.g. for
+     *   output caching) without having to serialize it to markup and parse it again. Post-processors are not
+     *   applied to this output, as they will be applied to whatever is finally inserted into the template.
+     * </p>
+     *
+     * @param processingContext the processing context of the template being processed.
+     * @param model the model to be processed.
+     * @param writer the writer the output will be written to.
+     */
+    public void processModel(
+            final ITemplateProcessingContext processingContext,
+            final IModel model,
+            final Writer writer) {
+
+        Validate.notNull(processingContext, "Processing Context cannot be null");
+        Validate.notNull(model, "Model cannot be null");
+        Validate.notNull(writer, "Writer cannot be null");
+
+        final ProcessorTemplateHandler processorHandler = this.processorHandlerPool.acquire(processingContext);
+        try {
+
+            final OutputTemplateHandler outputHandler = new OutputTemplateHandler(writer);
+            outputHandler.setProcessingContext(processingContext);
+            processorHandler.setNext(outputHandler);
+
+            // Events are cloned, the same way they are when the result of a model processor is processed
+            new Model(model).process(processorHandler);
+
+        } finally {
+            this.processorHandlerPool.release(processorHandler, processingContext.getTemplateMode());
+        }
+
+    }
+
+
     private void processTemplate(
             final IEngineConfiguration configuration,
             final String ownerTemplate, final String template, final String[] selectors,
@@ -591,6 +827,7 @@ private void processTemplate(
          */
         if (useCache && this.templateCache != null) {
 
+            checkForModification(ownerTemplate != null? ownerTemplate : template);
             final ParsedTemplateModel cached =  this.templateCache.get(cacheKey);
 
             if (cached != null) {
@@ -600,10 +837,18 @@ private void processTemplate(
                             new TemplateProcessingContext(configuration, this, cached.getTemplateResolution(), context);
 
                 // Create the handler chain to process the data
-                final ITemplateHandler processingHandlerChain = createTemplateProcessingHandlerChain(processingContext, writer);
+                final ProcessorTemplateHandler processorHandler = this.processorHandlerPool.acquire(processingContext);
+                try {
+
+                    final ITemplateHandler processingHandlerChain =
+                            createTemplateProcessingHandlerChain(processingContext, processorHandler, writer);
 
-                // Process the cached template itself
-                processParsedModel(cached, processingHandlerChain);
+                    // Process the cached template itself
+                    processParsedModel(cached, processingHandlerChain);
+
+                } finally {
+                    this.processorHandlerPool.release(processorHandler, processingContext.getTemplateMode());
+                }
 
                 return;
 
@@ -624,7 +869,7 @@ private void processTemplate(
          * Resolve the template, obtain the IResource and its metadata (TemplateResolution)
          */
         final Resolution resolution =
-                resolve(configuration, templateResolvers, template, templateMode, context);
+                resolve(configuration, templateResolvers, template, templateMode, context, useCache);
 
 
         /*
@@ -637,8 +882,32 @@ private void processTemplate(
         /*
          * Create the handler chain to process the data
          */
-        final ITemplateHandler processingHandlerChain = createTemplateProcessingHandlerChain(processingContext, writer);
+        final ProcessorTemplateHandler processorHandler = this.processorHandlerPool.acquire(processingContext);
+        try {
+
+            final ITemplateHandler processingHandlerChain =
+                    createTemplateProcessingHandlerChain(processingContext, processorHandler, writer);
 
+            processResolvedTemplate(
+                    ownerTemplate, selectors, lineOffset, colOffset,
+                    resolution, processingContext, processingHandlerChain,
+                    cacheKey, useCache);
+
+        } finally {
+            this.processorHandlerPool.release(processorHandler, processingContext.getTemplateMode());
+        }
+
+    }
+
+
+    private void processResolvedTemplate(
+            final String ownerTemplate, final String[] selectors,
+            final int lineOffset, final int colOffset,
+            final Resolution resolution,
+            final ITemplateProcessingContext processingContext,
+            final ITemplateHandler processingHandlerChain,
+            final TemplateCacheKey cacheKey,
+            final boolean useCache) {
 
         /*
          * If the resolved template is cacheable, so we will first read it as an object, cache it, and then process it
@@ -655,6 +924,7 @@ private void processTemplate(
                     lineOffset, colOffset,
                     processingContext.getTemplateMode(),
                     builderHandler);
+            parsedTemplate.freezeEvents();
             // Put the new template into cache
             this.templateCache.put(cacheKey, parsedTemplate);
             // Process the read (+cached) template itself
@@ -687,12 +957,13 @@ private void processTemplate(
 
 
 
-    private static Resolution resolve(
+    private Resolution resolve(
             final IEngineConfiguration configuration,
             final Set<ITemplateResolver> templateResolvers,
             final String template,
             final TemplateMode templateMode,
-            final IContext context) {
+            final IContext context,
+            final boolean useCache) {
 
         TemplateResolution templateResolution = null;
         IResource templateResource = null;
@@ -715,16 +986,40 @@ private static Resolution resolve(
                 final String resourceName = templateResolution.getResourceName();
                 final IResourceResolver resourceResolver = templateResolution.getResourceResolver();
 
+                final ResolutionMissKey missKey =
+                        (useCache && this.resolutionMissCache != null && templateResolution.getValidity().isCacheable()?
+                                new ResolutionMissKey(templateResolver, resourceName) : null);
+
+                if (missKey != null && this.resolutionMissCache.get(missKey) != null) {
+                    if (logger.isTraceEnabled()) {
+                        logger.trace(
+                                "[THYMELEAF][{}] Template \"{}\" is known not to be resolvable as resource \"{}\" with resource resolver \"{}\"",
+                                new Object[] {TemplateEngine.threadIndex(), LoggingUtils.loggifyTemplateName(template), LoggingUtils.loggifyTemplateName(resourceName), resourceResolver.getName()});
+                    }
+                    templateResource = null;
+                    continue;
+                }
+
                 if (logger.isTraceEnabled()) {
                     logger.trace(
                             "[THYMELEAF][{}] Trying to resolve template \"{}\" as resource \"{}\" with resource resolver \"{}\"",
                             new Object[] {TemplateEngine.threadIndex(), LoggingUtils.loggifyTemplateName(template), LoggingUtils.loggifyTemplateName(resourceName), resourceResolver.getName()});
                 }
 
+                final long startNanos = (this.metrics != null? System.nanoTime() : 0L);
+
                 templateResource =
                         resourceResolver.resolveResource(configuration, context, resourceName, templateResolution.getCharacterEncoding());
 
+                if (this.metrics != null) {
+                    this.metrics.recordTemplateResolution(
+                            resourceResolver.getName(), resourceName, (templateResource != null), System.nanoTime() - startNanos);
+                }
+
                 if (templateResource == null) {
+                    if (missKey != null) {
+                        this.resolutionMissCache.put(missKey, templateResolution);
+                    }
                     if (logger.isTraceEnabled()) {
                         logger.trace(
                                 "[THYMELEAF][{}] Template \"{}\" could not be resolved as resource \"{}\" with resource resolver \"{}\"",
@@ -758,6 +1053,11 @@ private static Resolution resolve(
                     "any of the configured Template Resolvers");
         }
 
+        if (useCache && templateResolution.getValidity() instanceof FileModificationCacheEntryValidity) {
+            // Any previous validity for this template is replaced, as entries created from now on will use this one
+            this.modificationCheckedValidities.put(template, (FileModificationCacheEntryValidity) templateResolution.getValidity());
+        }
+
         return new Resolution(templateResolution, templateResource);
 
     }
@@ -786,6 +1086,12 @@ private void processResolvedResource(
             }
         }
 
+        // Only the parsing of standalone templates into models is timed (nested templates are only small
+        // pieces of their owner templates, and otherwise parsing time would also include processing time)
+        final boolean timeParsing =
+                (this.metrics != null && ownerTemplate == null && templateHandler instanceof ModelBuilderTemplateHandler);
+        final long startNanos = (timeParsing? System.nanoTime() : 0L);
+
         /*
          * Handler chain is in place - now we must use it for calling the parser and initiate the processing
          */
@@ -825,6 +1131,10 @@ private void processResolvedResource(
                 "with unsupported template mode: " + templateMode);
         }
 
+        if (timeParsing) {
+            this.metrics.recordTemplateParsing(resource.getName(), System.nanoTime() - startNanos);
+        }
+
         if (logger.isTraceEnabled()) {
             if (templateHandler instanceof ModelBuilderTemplateHandler) {
                 if (selectors != null) {
@@ -849,7 +1159,7 @@ private static void processParsedModel(final ParsedTemplateModel template, final
             logger.trace("[THYMELEAF][{}] Starting processing of template \"{}\"", TemplateEngine.threadIndex(), LoggingUtils.loggifyTemplateName(template.getTemplateResolution().getTemplateName()));
         }
 
-        template.getInternalModel().process(templateHandler);
+        template.process(templateHandler);
 
         if (logger.isTraceEnabled()) {
             logger.trace("[THYMELEAF][{}] Finished processing of template \"{}\"", TemplateEngine.threadIndex(), LoggingUtils.loggifyTemplateName(template.getTemplateResolution().getTemplateName()));
@@ -862,7 +1172,9 @@ private static void processParsedModel(final ParsedTemplateModel template, final
 
 
     private static ITemplateHandler createTemplateProcessingHandlerChain(
-            final ITemplateProcessingContext processingContext, final Writer writer) {
+            final ITemplateProcessingContext processingContext,
+            final ProcessorTemplateHandler processorHandler,
+            final Writer writer) {
 
         final IEngineConfiguration configuration = processingContext.getConfiguration();
 
@@ -901,10 +1213,8 @@ private static ITemplateHandler createTemplateProcessingHandlerChain(
 
 
         /*
-         * Initialize and add to the chain te Processor Handler itself, the central piece of the chain
+         * Add to the chain the Processor Handler itself, the central piece of the chain (already initialized)
          */
-        final ProcessorTemplateHandler processorHandler = new ProcessorTemplateHandler();
-        processorHandler.setProcessingContext(processingContext);
         if (firstHandler == null) {
             firstHandler = processorHandler;
             lastHandler = processorHandler;
@@ -975,4 +1285,99 @@ public Resolution(final TemplateResolution templateResolution, final IResource r
     }
 
 
+
+
+    /*
+     * Resolution misses are keyed by template resolver and resource name (and not by template name) so that
+     * template resolvers computing resource names from the context are correctly handled.
+     */
+    private static final class ResolutionMissKey {
+
+        private final ITemplateResolver templateResolver;
+        private final String resourceName;
+        private final int h;
+
+        ResolutionMissKey(final ITemplateResolver templateResolver, final String resourceName) {
+            super();
+            this.templateResolver = templateResolver;
+            this.resourceName = resourceName;
+            this.h = 31 * templateResolver.hashCode() + resourceName.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ResolutionMissKey)) {
+                return false;
+            }
+            final ResolutionMissKey that = (ResolutionMissKey) o;
+            return this.templateResolver == that.templateResolver && this.resourceName.equals(that.resourceName);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.h;
+        }
+
+        @Override
+        public String toString() {
+            return this.templateResolver.getName() + ":" + this.resourceName;
+        }
+
+    }
+
+
+
+
+    /*
+     * Selects the resolution misses for a specific template name, so that they can be removed when the caches
+     * for that template are cleared.
+     */
+    private static final class ResolutionMissTemplatePredicate
+            implements ICacheEntryPredicate<ResolutionMissKey,TemplateResolution> {
+
+        private final String template;
+
+        ResolutionMissTemplatePredicate(final String template) {
+            super();
+            this.template = template;
+        }
+
+        public boolean matches(final ResolutionMissKey key, final TemplateResolution value) {
+            return value.getTemplateName().equals(this.template);
+        }
+
+    }
+
+
+
+
+    /*
+     * Resolution misses remain valid for as long as the validity of the resolution (as configured at the
+     * template resolver, e.g. by means of a TTL) says so, but never longer than RESOLUTION_MISS_CACHE_TTL_MS.
+     */
+    private static final class ResolutionMissValidityChecker
+            implements ICacheEntryValidityChecker<ResolutionMissKey,TemplateResolution> {
+
+        private static final long serialVersionUID = 4306129783719516315L;
+
+        static final ResolutionMissValidityChecker INSTANCE = new ResolutionMissValidityChecker();
+
+        private ResolutionMissValidityChecker() {
+            super();
+        }
+
+        public boolean checkIsValueStillValid(
+                final ResolutionMissKey key, final TemplateResolution value, final long entryCreationTimestamp) {
+            if (System.currentTimeMillis() - entryCreationTimestamp >= RESOLUTION_MISS_CACHE_TTL_MS) {
+                return false;
+            }
+            return value.getValidity().isCacheStillValid();
+        }
+
+    }
+
+
 }
@@ -26,7 +26,7 @@
 import org.thymeleaf.model.IModelVisitor;
 import org.thymeleaf.model.IText;
 import org.thymeleaf.text.ITextRepository;
-import org.thymeleaf.util.AggregateCharSequence;
+import org.thymeleaf.util.IWritableCharSequence;
 import org.thymeleaf.util.Validate;
 
 /**
@@ -100,7 +100,12 @@ public String getText() {
 
 
     public int length() {
-        return this.length;
+        if (this.buffer != null) {
+            return this.length;
+        }
+        // Length is not computed in advance when not using a buffer, so that sequences that compute their
+        // contents lazily (e.g. escaped output) are not forced to do so unless strictly needed.
+        return this.text.length();
     }
 
 
@@ -168,7 +173,7 @@ public void setText(final CharSequence text) {
 
         this.text = text;
 
-        this.length = text.length();
+        this.length = -1; // Will be delegated to the text itself
 
         this.buffer = null;
         this.offset = -1;
@@ -192,10 +197,10 @@ public void write(final Writer writer) throws IOException {
             // resources than writing String objects
             writer.write(this.buffer, this.offset, this.length);
         } else {
-            if (this.text instanceof AggregateCharSequence) {
-                // In the special case we are using an AggregateCharSequence, we will avoid creating a String
-                // for the whole content
-                ((AggregateCharSequence)this.text).write(writer);
+            if (this.text instanceof IWritableCharSequence) {
+                // In the special case we are using a writable sequence (e.g. an aggregate or lazily-escaped
+                // sequence), we will avoid creating a String for the whole content
+                ((IWritableCharSequence)this.text).write(writer);
             } else {
                 writer.write(this.text.toString());
             }
@@ -219,8 +224,14 @@ void resetAsCloneOf(final Text original) {
         super.resetAsCloneOfTemplateEvent(original);
         this.buffer = null;
         this.offset = -1;
-        this.text = original.getText(); // Need to call the method in order to force computing -- no buffer cloning!
-        this.length = this.text.length();
+        if (original.buffer == null && original.text instanceof IWritableCharSequence) {
+            // Writable sequences are not mutable, so they can be shared among clones. This avoids forcing
+            // the computation of lazy sequences (e.g. escaped output) just because the event is being cloned.
+            this.text = original.text;
+        } else {
+            this.text = original.getText(); // Need to call the method in order to force computing -- no buffer cloning!
+        }
+        this.length = -1;
         this.whitespace = original.whitespace;
 
     }
@@ -241,7 +252,7 @@ static Text asEngineText(
         newInstance.buffer = null;
         newInstance.offset = -1;
         newInstance.text = text.getText();
-        newInstance.length = newInstance.text.length();
+        newInstance.length = -1;
         newInstance.whitespace = null;
         newInstance.resetTemplateEvent(text.getTemplateName(), text.getLine(), text.getCol());
         return newInstance;
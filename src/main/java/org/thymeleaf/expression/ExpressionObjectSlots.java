@@ -0,0 +1,131 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.expression;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * <p>
+ *   Assignment of numeric <em>slots</em> to the expression objects defined by an {@link IExpressionObjectFactory},
+ *   so that the expression objects of a processing context ({@link ExpressionObjects}) can be stored in an
+ *   array and accessed by index instead of by name.
+ * </p>
+ * <p>
+ *   Slots only depend on the expression object definitions, so they are assigned only once per engine
+ *   configuration (see {@link org.thymeleaf.EngineConfiguration#getExpressionObjectSlots()}) and shared by all
+ *   its processing contexts. Expression evaluators can therefore obtain the slot for an expression object name
+ *   once (e.g. when the expression is parsed) and then use it for every evaluation, as long as the slots object
+ *   stays the same.
+ * </p>
+ * <p>
+ *   Objects of this class are <b>immutable</b>, and therefore <b>thread-safe</b>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public final class ExpressionObjectSlots {
+
+    private final Map<String,ExpressionObjectDefinition> definitions;
+    private final Map<String,Integer> slotsByName;
+    private final String[] names;
+    private final boolean[] cacheable;
+
+
+
+    /**
+     * <p>
+     *   Assigns slots to the expression objects with the specified definitions. Normally called only once, when
+     *   the engine configuration is built.
+     * </p>
+     *
+     * @param definitions the expression object definitions (can be null).
+     */
+    public ExpressionObjectSlots(final Map<String,ExpressionObjectDefinition> definitions) {
+
+        super();
+
+        this.definitions = definitions;
+
+        final int size = (definitions == null? 0 : definitions.size());
+        this.slotsByName = new HashMap<String, Integer>(size + 1, 1.0f);
+        this.names = new String[size];
+        this.cacheable = new boolean[size];
+
+        if (definitions != null) {
+            int slot = 0;
+            for (final Map.Entry<String,ExpressionObjectDefinition> definitionEntry : definitions.entrySet()) {
+                this.slotsByName.put(definitionEntry.getKey(), Integer.valueOf(slot));
+                this.names[slot] = definitionEntry.getKey();
+                this.cacheable[slot] = definitionEntry.getValue().isCacheable();
+                slot++;
+            }
+        }
+
+    }
+
+
+
+    Map<String,ExpressionObjectDefinition> getDefinitions() {
+        return this.definitions;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of slots (i.e. of defined expression objects).
+     * </p>
+     *
+     * @return the amount of slots.
+     */
+    public int size() {
+        return this.names.length;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the slot assigned to the expression object with the specified name.
+     * </p>
+     *
+     * @param name the name of the expression object.
+     * @return the slot, or <tt>-1</tt> if no expression object is defined with such name.
+     */
+    public int getSlot(final String name) {
+        final Integer slot = this.slotsByName.get(name);
+        return (slot == null? -1 : slot.intValue());
+    }
+
+
+    String getName(final int slot) {
+        return this.names[slot];
+    }
+
+
+    boolean isCacheable(final int slot) {
+        return this.cacheable[slot];
+    }
+
+
+}
@@ -19,7 +19,7 @@
  */
 package org.thymeleaf.expression;
 
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
@@ -38,26 +38,32 @@
  */
 public class ExpressionObjects implements IExpressionObjects {
 
-    /*
-     * Making room for 3 expression objects should be enough for most cases, given these maps will be
-     * created for each IProcessingContext (i.e. for each template processing request)
-     */
-    private static final int EXPRESSION_OBJECT_MAP_DEFAULT_SIZE = 3;
+    // Marks cached objects that were built as null, so that they are not built again
+    private static final Object NULL_OBJECT = new Object();
 
     private final IProcessingContext processingContext;
     private final IExpressionObjectFactory expressionObjectFactory;
-    private final Map<String,ExpressionObjectDefinition> expressionObjectDefinitions;
+    private final ExpressionObjectSlots slots;
 
-    private Map<String,Object> objects;
+    // Cached objects, indexed by slot. Created only when the first cacheable object is built.
+    private Object[] objects;
 
 
 
     public ExpressionObjects(
             final IProcessingContext processingContext, final IExpressionObjectFactory expressionObjectFactory) {
+        this(processingContext, expressionObjectFactory,
+                new ExpressionObjectSlots(expressionObjectFactory.getObjectDefinitions()));
+    }
+
+
+    public ExpressionObjects(
+            final IProcessingContext processingContext, final IExpressionObjectFactory expressionObjectFactory,
+            final ExpressionObjectSlots slots) {
         super();
         this.processingContext = processingContext;
         this.expressionObjectFactory = expressionObjectFactory;
-        this.expressionObjectDefinitions = this.expressionObjectFactory.getObjectDefinitions();
+        this.slots = slots;
     }
 
 
@@ -65,52 +71,84 @@ public ExpressionObjects(
 
 
     public int size() {
-        return this.expressionObjectDefinitions.size();
+        return this.slots.size();
     }
 
 
     public boolean containsObject(final String name) {
-        return this.expressionObjectDefinitions.containsKey(name);
+        return this.slots.getSlot(name) >= 0;
     }
 
 
     public Set<String> getObjectNames() {
-        return this.expressionObjectDefinitions.keySet();
+        final Map<String,ExpressionObjectDefinition> definitions = this.slots.getDefinitions();
+        return (definitions == null? Collections.<String>emptySet() : definitions.keySet());
+    }
+
+
+    /**
+     * <p>
+     *   Returns the slots assigned to the expression objects, which can be used for accessing the objects
+     *   by means of {@link #getObject(int)}.
+     * </p>
+     *
+     * @return the slots.
+     */
+    public ExpressionObjectSlots getSlots() {
+        return this.slots;
     }
 
 
     public Object getObject(final String name) {
+        final int slot = this.slots.getSlot(name);
+        if (slot < 0) {
+            return null;
+        }
+        return getObject(slot);
+    }
+
+
+    /**
+     * <p>
+     *   Returns the expression object assigned to the specified slot (see {@link #getSlots()}).
+     * </p>
+     *
+     * @param slot the slot.
+     * @return the expression object.
+     */
+    public Object getObject(final int slot) {
 
         /*
          * First, a quick attempt to resolve from the object cache
          */
-        if (this.objects != null && this.objects.containsKey(name)) {
-            return this.objects.get(name);
+        if (this.objects != null) {
+            final Object object = this.objects[slot];
+            if (object != null) {
+                return (object == NULL_OBJECT? null : object);
+            }
         }
 
         /*
          * If the object is not cacheable, we will simply ask the factory and return
          */
-        final ExpressionObjectDefinition definition = this.expressionObjectDefinitions.get(name);
-        if (definition == null) {
-            return null;
-        } else if (!definition.isCacheable()) {
+        final String name = this.slots.getName(slot);
+        if (!this.slots.isCacheable(slot)) {
             return this.expressionObjectFactory.buildObject(this.processingContext, name);
         }
 
         /*
-         * The object is cacheable, so we will need to use the objects map in order to perform such caching, and
+         * The object is cacheable, so we will need to use the objects array in order to perform such caching, and
          * first of all we must ensure it (the cache) exists
          */
         if (this.objects == null) {
-            this.objects = new HashMap<String, Object>(EXPRESSION_OBJECT_MAP_DEFAULT_SIZE);
+            this.objects = new Object[this.slots.size()];
         }
 
         /*
          * We really need to use the factory to create the object and then cache it
          */
         final Object object = this.expressionObjectFactory.buildObject(this.processingContext, name);
-        this.objects.put(name, object);
+        this.objects[slot] = (object == null? NULL_OBJECT : object);
         return object;
 
     }
@@ -0,0 +1,143 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.metrics;
+
+import org.thymeleaf.cache.ICache;
+
+
+/**
+ * <p>
+ *   Interface to be implemented by all the objects collecting metrics about the execution of the template engine
+ *   (see {@link org.thymeleaf.TemplateEngine#setEngineMetrics(IEngineMetrics)}).
+ * </p>
+ * <p>
+ *   Metrics are pushed to implementations of this interface by the engine as they are produced, with the only
+ *   exception of cache sizes and evictions, which implementations can query at any moment from the caches
+ *   registered by means of {@link #registerCache(String, ICache)}.
+ * </p>
+ * <p>
+ *   No metrics will be collected at all (and no cost will be incurred, not even the measuring of times) if no
+ *   implementation of this interface is set into the template engine, which is the default.
+ * </p>
+ * <p>
+ *   Implementations of this interface should be <b>thread-safe</b>, and as fast as possible, because their
+ *   methods will be called very often (e.g. once per expression evaluated).
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public interface IEngineMetrics {
+
+    /**
+     * <p>
+     *   Records the complete processing (parsing, processing and output) of a template called from the
+     *   template engine.
+     * </p>
+     *
+     * @param template the template name.
+     * @param nanos the processing time, in nanoseconds.
+     */
+    public void recordTemplateProcessing(final String template, final long nanos);
+
+    /**
+     * <p>
+     *   Records the parsing of a template (or fragment) into a model, as it is done before caching it.
+     * </p>
+     *
+     * @param template the template name.
+     * @param nanos the parsing time, in nanoseconds.
+     */
+    public void recordTemplateParsing(final String template, final long nanos);
+
+    /**
+     * <p>
+     *   Records an attempt to resolve the resource of a template with a resource resolver.
+     * </p>
+     *
+     * @param resourceResolverName the name of the resource resolver.
+     * @param resourceName the name of the resource.
+     * @param resolved whether the resource was found or not.
+     * @param nanos the resolution time, in nanoseconds.
+     */
+    public void recordTemplateResolution(
+            final String resourceResolverName, final String resourceName, final boolean resolved, final long nanos);
+
+    /**
+     * <p>
+     *   Registers a cache used by the engine, so that its size and evictions can be queried.
+     * </p>
+     *
+     * @param cacheName the name of the cache.
+     * @param cache the cache.
+     */
+    public void registerCache(final String cacheName, final ICache<?,?> cache);
+
+    /**
+     * <p>
+     *   Records a lookup in a cache.
+     * </p>
+     *
+     * @param cacheName the name of the cache.
+     * @param hit whether a (valid) entry was found or not.
+     */
+    public void recordCacheGet(final String cacheName, final boolean hit);
+
+    /**
+     * <p>
+     *   Records the insertion of an entry into a cache.
+     * </p>
+     *
+     * @param cacheName the name of the cache.
+     */
+    public void recordCachePut(final String cacheName);
+
+    /**
+     * <p>
+     *   Records the evaluation of a (complete, not nested) expression.
+     * </p>
+     *
+     * @param expressionClass the class of the expression, which determines its kind.
+     */
+    public void recordExpressionEvaluation(final Class<?> expressionClass);
+
+    /**
+     * <p>
+     *   Records the evaluation of a variable expression by OGNL, after a faster mechanism of the variable
+     *   expression evaluator (e.g. compiled expressions, or OGNL shortcuts) turned out not to be applicable to
+     *   the objects involved.
+     * </p>
+     *
+     * @param evaluatorClass the class of the variable expression evaluator.
+     */
+    public void recordExpressionEvaluationFallback(final Class<?> evaluatorClass);
+
+    /**
+     * <p>
+     *   Records the resolution of an externalized/internationalized message from a template.
+     * </p>
+     *
+     * @param resolved whether the message could be resolved by any of the message resolvers or not.
+     */
+    public void recordMessageResolution(final boolean resolved);
+
+}
@@ -0,0 +1,403 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.metrics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.thymeleaf.cache.ICache;
+import org.thymeleaf.cache.StandardCache;
+import org.thymeleaf.cache.StandardOutputCache;
+
+
+/**
+ * <p>
+ *   Simple implementation of {@link IEngineMetrics} that keeps all metrics in memory, meant mainly as a
+ *   reference implementation and for tests (or for very simple monitoring needs). Production systems will
+ *   normally implement {@link IEngineMetrics} as an adapter to their monitoring library of choice.
+ * </p>
+ * <p>
+ *   Times are kept in {@link Timer} objects, which compute an approximate histogram by means of power-of-two
+ *   buckets. Cache sizes and evictions are computed from the registered caches when requested.
+ * </p>
+ * <p>
+ *   Objects of this class are <b>thread-safe</b>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public class InMemoryEngineMetrics implements IEngineMetrics {
+
+    private final ConcurrentHashMap<String,Timer> templateProcessingTimers = new ConcurrentHashMap<String, Timer>(20);
+    private final ConcurrentHashMap<String,Timer> templateParsingTimers = new ConcurrentHashMap<String, Timer>(20);
+    private final ConcurrentHashMap<String,Timer> templateResolutionTimers = new ConcurrentHashMap<String, Timer>(4);
+
+    private final ConcurrentHashMap<String,ICache<?,?>> caches = new ConcurrentHashMap<String, ICache<?, ?>>(8);
+    private final ConcurrentHashMap<String,AtomicLong> cacheHitCounts = new ConcurrentHashMap<String, AtomicLong>(8);
+    private final ConcurrentHashMap<String,AtomicLong> cacheMissCounts = new ConcurrentHashMap<String, AtomicLong>(8);
+    private final ConcurrentHashMap<String,AtomicLong> cachePutCounts = new ConcurrentHashMap<String, AtomicLong>(8);
+
+    private final ConcurrentHashMap<Class<?>,AtomicLong> expressionEvaluationCounts =
+            new ConcurrentHashMap<Class<?>, AtomicLong>(20);
+    private final ConcurrentHashMap<Class<?>,AtomicLong> expressionEvaluationFallbackCounts =
+            new ConcurrentHashMap<Class<?>, AtomicLong>(4);
+
+    private final AtomicLong resolvedMessageCount = new AtomicLong(0L);
+    private final AtomicLong unresolvedMessageCount = new AtomicLong(0L);
+
+
+
+    public InMemoryEngineMetrics() {
+        super();
+    }
+
+
+
+
+    public void recordTemplateProcessing(final String template, final long nanos) {
+        timer(this.templateProcessingTimers, template).record(nanos);
+    }
+
+    public void recordTemplateParsing(final String template, final long nanos) {
+        timer(this.templateParsingTimers, template).record(nanos);
+    }
+
+    public void recordTemplateResolution(
+            final String resourceResolverName, final String resourceName, final boolean resolved, final long nanos) {
+        // Resolution latency is tracked by resource resolver: resource names are too many to be meaningful here
+        timer(this.templateResolutionTimers, resourceResolverName).record(nanos);
+    }
+
+    public void registerCache(final String cacheName, final ICache<?, ?> cache) {
+        this.caches.put(cacheName, cache);
+    }
+
+    public void recordCacheGet(final String cacheName, final boolean hit) {
+        counter((hit? this.cacheHitCounts : this.cacheMissCounts), cacheName).incrementAndGet();
+    }
+
+    public void recordCachePut(final String cacheName) {
+        counter(this.cachePutCounts, cacheName).incrementAndGet();
+    }
+
+    public void recordExpressionEvaluation(final Class<?> expressionClass) {
+        counter(this.expressionEvaluationCounts, expressionClass).incrementAndGet();
+    }
+
+    public void recordExpressionEvaluationFallback(final Class<?> evaluatorClass) {
+        counter(this.expressionEvaluationFallbackCounts, evaluatorClass).incrementAndGet();
+    }
+
+    public void recordMessageResolution(final boolean resolved) {
+        (resolved? this.resolvedMessageCount : this.unresolvedMessageCount).incrementAndGet();
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Returns the timer for the complete processing of a template.
+     * </p>
+     *
+     * @param template the template name.
+     * @return the timer, or <tt>null</tt> if the template has not been processed.
+     */
+    public Timer getTemplateProcessingTimer(final String template) {
+        return this.templateProcessingTimers.get(template);
+    }
+
+    public Map<String,Timer> getTemplateProcessingTimers() {
+        return Collections.unmodifiableMap(this.templateProcessingTimers);
+    }
+
+    /**
+     * <p>
+     *   Returns the timer for the parsing of a template.
+     * </p>
+     *
+     * @param template the template name.
+     * @return the timer, or <tt>null</tt> if the template has not been parsed.
+     */
+    public Timer getTemplateParsingTimer(final String template) {
+        return this.templateParsingTimers.get(template);
+    }
+
+    public Map<String,Timer> getTemplateParsingTimers() {
+        return Collections.unmodifiableMap(this.templateParsingTimers);
+    }
+
+    /**
+     * <p>
+     *   Returns the timer for the resolution of resources by a resource resolver.
+     * </p>
+     *
+     * @param resourceResolverName the resource resolver name.
+     * @return the timer, or <tt>null</tt> if the resource resolver has not been used.
+     */
+    public Timer getTemplateResolutionTimer(final String resourceResolverName) {
+        return this.templateResolutionTimers.get(resourceResolverName);
+    }
+
+    public Map<String,Timer> getTemplateResolutionTimers() {
+        return Collections.unmodifiableMap(this.templateResolutionTimers);
+    }
+
+
+    public Map<String,ICache<?,?>> getCaches() {
+        return Collections.unmodifiableMap(this.caches);
+    }
+
+    public long getCacheHitCount(final String cacheName) {
+        return count(this.cacheHitCounts, cacheName);
+    }
+
+    public long getCacheMissCount(final String cacheName) {
+        return count(this.cacheMissCounts, cacheName);
+    }
+
+    public long getCachePutCount(final String cacheName) {
+        return count(this.cachePutCounts, cacheName);
+    }
+
+    /**
+     * <p>
+     *   Returns the current size of a registered cache.
+     * </p>
+     *
+     * @param cacheName the cache name.
+     * @return the amount of entries in the cache, or -1 if the cache is not registered.
+     */
+    public int getCacheSize(final String cacheName) {
+        final ICache<?,?> cache = this.caches.get(cacheName);
+        if (cache == null) {
+            return -1;
+        }
+        if (cache instanceof StandardCache<?,?>) {
+            return ((StandardCache<?,?>) cache).size();
+        }
+        if (cache instanceof StandardOutputCache) {
+            return ((StandardOutputCache) cache).size();
+        }
+        return cache.keySet().size();
+    }
+
+    /**
+     * <p>
+     *   Returns the amount of entries evicted from a registered cache because of its size limits.
+     * </p>
+     *
+     * @param cacheName the cache name.
+     * @return the eviction count, or -1 if the cache is not registered or does not provide this information.
+     */
+    public long getCacheEvictionCount(final String cacheName) {
+        final ICache<?,?> cache = this.caches.get(cacheName);
+        if (cache instanceof StandardCache<?,?>) {
+            return ((StandardCache<?,?>) cache).getEvictionCount();
+        }
+        if (cache instanceof StandardOutputCache) {
+            return ((StandardOutputCache) cache).getEvictionCount();
+        }
+        return -1L;
+    }
+
+
+    public long getExpressionEvaluationCount(final Class<?> expressionClass) {
+        return count(this.expressionEvaluationCounts, expressionClass);
+    }
+
+    public Map<Class<?>,Long> getExpressionEvaluationCounts() {
+        final Map<Class<?>,Long> counts = new HashMap<Class<?>, Long>(this.expressionEvaluationCounts.size() + 2, 1.0f);
+        for (final Map.Entry<Class<?>,AtomicLong> countEntry : this.expressionEvaluationCounts.entrySet()) {
+            counts.put(countEntry.getKey(), Long.valueOf(countEntry.getValue().get()));
+        }
+        return counts;
+    }
+
+    public long getExpressionEvaluationFallbackCount(final Class<?> evaluatorClass) {
+        return count(this.expressionEvaluationFallbackCounts, evaluatorClass);
+    }
+
+
+    public long getResolvedMessageCount() {
+        return this.resolvedMessageCount.get();
+    }
+
+    public long getUnresolvedMessageCount() {
+        return this.unresolvedMessageCount.get();
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Resets all metrics. Registered caches are kept.
+     * </p>
+     */
+    public void reset() {
+        this.templateProcessingTimers.clear();
+        this.templateParsingTimers.clear();
+        this.templateResolutionTimers.clear();
+        this.cacheHitCounts.clear();
+        this.cacheMissCounts.clear();
+        this.cachePutCounts.clear();
+        this.expressionEvaluationCounts.clear();
+        this.expressionEvaluationFallbackCounts.clear();
+        this.resolvedMessageCount.set(0L);
+        this.unresolvedMessageCount.set(0L);
+    }
+
+
+
+
+    private static Timer timer(final ConcurrentHashMap<String,Timer> timers, final String name) {
+        final Timer timer = timers.get(name);
+        if (timer != null) {
+            return timer;
+        }
+        final Timer newTimer = new Timer();
+        final Timer existingTimer = timers.putIfAbsent(name, newTimer);
+        return (existingTimer != null? existingTimer : newTimer);
+    }
+
+
+    private static <K> AtomicLong counter(final ConcurrentHashMap<K,AtomicLong> counters, final K name) {
+        final AtomicLong counter = counters.get(name);
+        if (counter != null) {
+            return counter;
+        }
+        final AtomicLong newCounter = new AtomicLong(0L);
+        final AtomicLong existingCounter = counters.putIfAbsent(name, newCounter);
+        return (existingCounter != null? existingCounter : newCounter);
+    }
+
+
+    private static <K> long count(final ConcurrentHashMap<K,AtomicLong> counters, final K name) {
+        final AtomicLong counter = counters.get(name);
+        return (counter == null? 0L : counter.get());
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Records times (in nanoseconds), computing their count, total and maximum, along with an approximate
+     *   histogram of their distribution: bucket <tt>i</tt> counts the times <tt>t</tt> for which
+     *   <tt>2<sup>i</sup> &lt;= t &lt; 2<sup>i+1</sup></tt> (bucket 0 also includes zero).
+     * </p>
+     * <p>
+     *   Objects of this class are <b>thread-safe</b>.
+     * </p>
+     */
+    public static final class Timer {
+
+        private static final int BUCKETS = 64;
+
+        private final AtomicLong count = new AtomicLong(0L);
+        private final AtomicLong totalNanos = new AtomicLong(0L);
+        private final AtomicLong maxNanos = new AtomicLong(0L);
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+
+        Timer() {
+            super();
+        }
+
+
+        void record(final long nanos) {
+            final long value = (nanos < 0L? 0L : nanos);
+            this.count.incrementAndGet();
+            this.totalNanos.addAndGet(value);
+            long max = this.maxNanos.get();
+            while (value > max && !this.maxNanos.compareAndSet(max, value)) {
+                max = this.maxNanos.get();
+            }
+            this.buckets.incrementAndGet(value == 0L? 0 : (63 - Long.numberOfLeadingZeros(value)));
+        }
+
+
+        public long getCount() {
+            return this.count.get();
+        }
+
+        public long getTotalNanos() {
+            return this.totalNanos.get();
+        }
+
+        public long getMaxNanos() {
+            return this.maxNanos.get();
+        }
+
+        public long getMeanNanos() {
+            final long currentCount = this.count.get();
+            return (currentCount == 0L? 0L : this.totalNanos.get() / currentCount);
+        }
+
+        public long[] getBucketCounts() {
+            final long[] bucketCounts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                bucketCounts[i] = this.buckets.get(i);
+            }
+            return bucketCounts;
+        }
+
+        /**
+         * <p>
+         *   Returns an approximation (upper bound) of the specified percentile of the recorded times, computed
+         *   from the histogram buckets.
+         * </p>
+         *
+         * @param percentile the percentile, between 0 and 100.
+         * @return the approximate percentile, in nanoseconds.
+         */
+        public long getPercentileNanos(final double percentile) {
+            final long[] bucketCounts = getBucketCounts();
+            long total = 0L;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += bucketCounts[i];
+            }
+            if (total == 0L) {
+                return 0L;
+            }
+            final long target = (long) Math.ceil(total * (Math.max(0.0d, Math.min(100.0d, percentile)) / 100.0d));
+            long accumulated = 0L;
+            for (int i = 0; i < BUCKETS; i++) {
+                accumulated += bucketCounts[i];
+                if (accumulated >= target && accumulated > 0L) {
+                    final long bucketUpperBound = (i >= 62? Long.MAX_VALUE : (1L << (i + 1)) - 1L);
+                    return Math.min(bucketUpperBound, this.maxNanos.get());
+                }
+            }
+            return this.maxNanos.get();
+        }
+
+    }
+
+
+}
@@ -0,0 +1,125 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.metrics;
+
+import java.util.Set;
+
+import org.thymeleaf.cache.CacheUtils;
+import org.thymeleaf.cache.ICache;
+import org.thymeleaf.cache.ICacheEntryPredicate;
+import org.thymeleaf.cache.ICacheEntryValidityChecker;
+import org.thymeleaf.cache.ISelectivelyClearableCache;
+import org.thymeleaf.util.Validate;
+
+
+/**
+ * <p>
+ *   Implementation of {@link ICache} that wraps another cache, recording lookups (hits and misses) and
+ *   insertions into an {@link IEngineMetrics} object.
+ * </p>
+ * <p>
+ *   Selective removal operations (see {@link ISelectivelyClearableCache}) are delegated to the wrapped cache
+ *   if it supports them, and performed by scanning its keys otherwise.
+ * </p>
+ * <p>
+ *   Instances of this class are created by the engine itself when metrics are enabled, and should not be
+ *   normally created directly.
+ * </p>
+ * <p>
+ *   Objects of this class are <b>thread-safe</b> as long as the wrapped cache is.
+ * </p>
+ *
+ * @param <K> The type of the cache keys
+ * @param <V> The type of the cache values
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public final class InstrumentedCache<K,V> implements ISelectivelyClearableCache<K,V> {
+
+    private final String name;
+    private final ICache<K,V> cache;
+    private final IEngineMetrics metrics;
+
+
+
+    public InstrumentedCache(final String name, final ICache<K,V> cache, final IEngineMetrics metrics) {
+        super();
+        Validate.notNull(name, "Name cannot be null");
+        Validate.notNull(cache, "Cache cannot be null");
+        Validate.notNull(metrics, "Metrics cannot be null");
+        this.name = name;
+        this.cache = cache;
+        this.metrics = metrics;
+    }
+
+
+
+    public String getName() {
+        return this.name;
+    }
+
+    public ICache<K,V> getCache() {
+        return this.cache;
+    }
+
+
+
+    public void put(final K key, final V value) {
+        this.cache.put(key, value);
+        this.metrics.recordCachePut(this.name);
+    }
+
+    public V get(final K key) {
+        final V value = this.cache.get(key);
+        this.metrics.recordCacheGet(this.name, (value != null));
+        return value;
+    }
+
+    public V get(final K key, final ICacheEntryValidityChecker<? super K, ? super V> validityChecker) {
+        final V value = this.cache.get(key, validityChecker);
+        this.metrics.recordCacheGet(this.name, (value != null));
+        return value;
+    }
+
+    public void clear() {
+        this.cache.clear();
+    }
+
+    public void clearKey(final K key) {
+        this.cache.clearKey(key);
+    }
+
+    public Set<K> keySet() {
+        return this.cache.keySet();
+    }
+
+    public void removeIf(final ICacheEntryPredicate<? super K, ? super V> predicate) {
+        CacheUtils.removeIf(this.cache, predicate);
+    }
+
+    public void clearKeysForTemplate(final String template) {
+        CacheUtils.clearKeysForTemplate(this.cache, template);
+    }
+
+
+}
@@ -0,0 +1,194 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.metrics;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.thymeleaf.cache.CachedOutput;
+import org.thymeleaf.cache.FragmentCacheKey;
+import org.thymeleaf.cache.ICache;
+import org.thymeleaf.cache.ICacheManager;
+import org.thymeleaf.cache.IOutputCacheManager;
+import org.thymeleaf.cache.OutputCacheKey;
+import org.thymeleaf.cache.StandardCacheManager;
+import org.thymeleaf.cache.TemplateCacheKey;
+import org.thymeleaf.engine.ParsedFragmentModel;
+import org.thymeleaf.engine.ParsedTemplateModel;
+import org.thymeleaf.util.Validate;
+
+
+/**
+ * <p>
+ *   Implementation of {@link ICacheManager} (and {@link IOutputCacheManager}) that wraps another cache manager, so that all the caches it
+ *   returns are wrapped into {@link InstrumentedCache} objects that record their use into an
+ *   {@link IEngineMetrics} object. Each cache is registered into the metrics object (see
+ *   {@link IEngineMetrics#registerCache(String, ICache)}) the first time it is wrapped.
+ * </p>
+ * <p>
+ *   The predefined caches are named after the default names used by {@link StandardCacheManager}
+ *   (e.g. {@link StandardCacheManager#DEFAULT_TEMPLATE_CACHE_NAME}), and specific caches are named with the
+ *   name they are requested with.
+ * </p>
+ * <p>
+ *   Instances of this class are created by the engine itself when metrics are enabled, and should not be
+ *   normally created directly.
+ * </p>
+ * <p>
+ *   Objects of this class are <b>thread-safe</b> as long as the wrapped cache manager is.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public final class InstrumentedCacheManager implements IOutputCacheManager {
+
+    private final ICacheManager cacheManager;
+    private final IEngineMetrics metrics;
+
+    // Wrappers are created lazily (as the wrapped cache manager might create its caches lazily too), and
+    // re-created if the wrapped cache manager happens to return a different cache object
+    private volatile InstrumentedCache<TemplateCacheKey,ParsedTemplateModel> templateCache = null;
+    private volatile InstrumentedCache<FragmentCacheKey,ParsedFragmentModel> fragmentCache = null;
+    private volatile InstrumentedCache<String,Properties> messageCache = null;
+    private volatile InstrumentedCache<String,Object> expressionCache = null;
+    private volatile InstrumentedCache<OutputCacheKey,CachedOutput> outputCache = null;
+    private final ConcurrentHashMap<String,InstrumentedCache<?,?>> specificCaches =
+            new ConcurrentHashMap<String, InstrumentedCache<?, ?>>(4);
+
+
+
+    public InstrumentedCacheManager(final ICacheManager cacheManager, final IEngineMetrics metrics) {
+        super();
+        Validate.notNull(cacheManager, "Cache manager cannot be null");
+        Validate.notNull(metrics, "Metrics cannot be null");
+        this.cacheManager = cacheManager;
+        this.metrics = metrics;
+    }
+
+
+
+    public ICacheManager getCacheManager() {
+        return this.cacheManager;
+    }
+
+
+
+    public ICache<TemplateCacheKey, ParsedTemplateModel> getTemplateCache() {
+        final ICache<TemplateCacheKey,ParsedTemplateModel> cache = this.cacheManager.getTemplateCache();
+        InstrumentedCache<TemplateCacheKey,ParsedTemplateModel> instrumentedCache = this.templateCache;
+        if (cache == null || (instrumentedCache != null && instrumentedCache.getCache() == cache)) {
+            return (cache == null? null : instrumentedCache);
+        }
+        instrumentedCache = instrument(StandardCacheManager.DEFAULT_TEMPLATE_CACHE_NAME, cache);
+        this.templateCache = instrumentedCache;
+        return instrumentedCache;
+    }
+
+
+    public ICache<FragmentCacheKey, ParsedFragmentModel> getFragmentCache() {
+        final ICache<FragmentCacheKey,ParsedFragmentModel> cache = this.cacheManager.getFragmentCache();
+        InstrumentedCache<FragmentCacheKey,ParsedFragmentModel> instrumentedCache = this.fragmentCache;
+        if (cache == null || (instrumentedCache != null && instrumentedCache.getCache() == cache)) {
+            return (cache == null? null : instrumentedCache);
+        }
+        instrumentedCache = instrument(StandardCacheManager.DEFAULT_FRAGMENT_CACHE_NAME, cache);
+        this.fragmentCache = instrumentedCache;
+        return instrumentedCache;
+    }
+
+
+    public ICache<String, Properties> getMessageCache() {
+        final ICache<String,Properties> cache = this.cacheManager.getMessageCache();
+        InstrumentedCache<String,Properties> instrumentedCache = this.messageCache;
+        if (cache == null || (instrumentedCache != null && instrumentedCache.getCache() == cache)) {
+            return (cache == null? null : instrumentedCache);
+        }
+        instrumentedCache = instrument(StandardCacheManager.DEFAULT_MESSAGE_CACHE_NAME, cache);
+        this.messageCache = instrumentedCache;
+        return instrumentedCache;
+    }
+
+
+    public ICache<String, Object> getExpressionCache() {
+        final ICache<String,Object> cache = this.cacheManager.getExpressionCache();
+        InstrumentedCache<String,Object> instrumentedCache = this.expressionCache;
+        if (cache == null || (instrumentedCache != null && instrumentedCache.getCache() == cache)) {
+            return (cache == null? null : instrumentedCache);
+        }
+        instrumentedCache = instrument(StandardCacheManager.DEFAULT_EXPRESSION_CACHE_NAME, cache);
+        this.expressionCache = instrumentedCache;
+        return instrumentedCache;
+    }
+
+
+    public ICache<OutputCacheKey, CachedOutput> getOutputCache() {
+        if (!(this.cacheManager instanceof IOutputCacheManager)) {
+            // The wrapped cache manager provides no output cache, so output caching is disabled
+            return null;
+        }
+        final ICache<OutputCacheKey,CachedOutput> cache = ((IOutputCacheManager) this.cacheManager).getOutputCache();
+        InstrumentedCache<OutputCacheKey,CachedOutput> instrumentedCache = this.outputCache;
+        if (cache == null || (instrumentedCache != null && instrumentedCache.getCache() == cache)) {
+            return (cache == null? null : instrumentedCache);
+        }
+        instrumentedCache = instrument(StandardCacheManager.DEFAULT_OUTPUT_CACHE_NAME, cache);
+        this.outputCache = instrumentedCache;
+        return instrumentedCache;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    public <K, V> ICache<K, V> getSpecificCache(final String name) {
+        final ICache<K,V> cache = this.cacheManager.getSpecificCache(name);
+        if (cache == null) {
+            return null;
+        }
+        InstrumentedCache<K,V> instrumentedCache = (InstrumentedCache<K,V>) this.specificCaches.get(name);
+        if (instrumentedCache != null && instrumentedCache.getCache() == cache) {
+            return instrumentedCache;
+        }
+        instrumentedCache = instrument(name, cache);
+        this.specificCaches.put(name, instrumentedCache);
+        return instrumentedCache;
+    }
+
+
+    public List<String> getAllSpecificCacheNames() {
+        return this.cacheManager.getAllSpecificCacheNames();
+    }
+
+
+    public void clearAllCaches() {
+        this.cacheManager.clearAllCaches();
+    }
+
+
+
+    private <K,V> InstrumentedCache<K,V> instrument(final String name, final ICache<K,V> cache) {
+        this.metrics.registerCache(name, cache);
+        return new InstrumentedCache<K,V>(name, cache, this.metrics);
+    }
+
+
+}
@@ -40,7 +40,7 @@ public interface IElementTagStructureHandler {
 
     public void setInliner(final IInliner inliner);
 
-    public void setBody(final String text, final boolean processable);
+    public void setBody(final CharSequence text, final boolean processable);
     public void setBody(final IModel model, final boolean processable);
 
     public void insertBefore(final IModel model); // cannot be processable
@@ -0,0 +1,163 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.resourceresolver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import org.thymeleaf.util.StringUtils;
+
+/**
+ * <p>
+ *   Utility methods for decoding resource contents read by means of NIO buffers. Malformed or
+ *   unmappable input is replaced in the same way a {@link java.io.InputStreamReader} would do.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+final class CharsetDecodingUtils {
+
+
+    static Charset computeCharset(final String characterEncoding) {
+        return (!StringUtils.isEmptyOrWhitespace(characterEncoding)?
+                    Charset.forName(characterEncoding) : Charset.defaultCharset());
+    }
+
+
+    static char[] decode(final ByteBuffer bytes, final Charset charset) throws CharacterCodingException {
+
+        final CharsetDecoder decoder = createDecoder(charset);
+
+        CharBuffer chars = CharBuffer.allocate(computeInitialCapacity(bytes.remaining(), decoder));
+
+        boolean endOfInput = false;
+        while (true) {
+            final CoderResult result =
+                    (!endOfInput? decoder.decode(bytes, chars, true) : decoder.flush(chars));
+            if (result.isOverflow()) {
+                chars = grow(chars);
+            } else if (result.isUnderflow()) {
+                if (endOfInput) {
+                    return toArray(chars);
+                }
+                endOfInput = true;
+            } else {
+                result.throwException();
+            }
+        }
+
+    }
+
+
+    /*
+     * Reads the channel until its end, decoding its contents as they are read. The byte buffer is only used as
+     * a (reusable) window on the channel contents, so it can be of any size. The size hint is only used for
+     * sizing the char buffer the contents are decoded into.
+     */
+    static char[] decode(
+            final ReadableByteChannel channel, final long sizeHint, final Charset charset, final ByteBuffer buffer)
+            throws IOException {
+
+        final CharsetDecoder decoder = createDecoder(charset);
+
+        CharBuffer chars = CharBuffer.allocate(computeInitialCapacity(sizeHint, decoder));
+
+        buffer.clear();
+
+        CoderResult result;
+        boolean endOfInput = false;
+        while (!endOfInput) {
+            endOfInput = (channel.read(buffer) < 0);
+            buffer.flip();
+            while ((result = decoder.decode(buffer, chars, endOfInput)).isOverflow()) {
+                chars = grow(chars);
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+            // Any bytes not consumed yet (e.g. an incomplete multi-byte sequence) are moved to the start
+            buffer.compact();
+        }
+
+        while ((result = decoder.flush(chars)).isOverflow()) {
+            chars = grow(chars);
+        }
+
+        return toArray(chars);
+
+    }
+
+
+    private static CharsetDecoder createDecoder(final Charset charset) {
+        return charset.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+
+    private static int computeInitialCapacity(final long byteCount, final CharsetDecoder decoder) {
+        // For most encodings (e.g. UTF-8, ISO-8859-1) this will be exactly the maximum size needed, so no
+        // reallocations will be performed
+        final long estimatedSize = (long) Math.ceil(byteCount * (double) decoder.maxCharsPerByte());
+        return (int) Math.min(Math.max(estimatedSize, 16L), Integer.MAX_VALUE - 8);
+    }
+
+
+    /*
+     * The char buffer is sized for the worst case (see computeInitialCapacity), and the resulting array will be kept
+     * by the resource (and maybe by the template cache), so it is trimmed to the decoded length unless it fits exactly.
+     */
+    private static char[] toArray(final CharBuffer chars) {
+        final char[] array = chars.array();
+        if (chars.arrayOffset() == 0 && chars.position() == array.length) {
+            return array;
+        }
+        final char[] trimmed = new char[chars.position()];
+        System.arraycopy(array, chars.arrayOffset(), trimmed, 0, trimmed.length);
+        return trimmed;
+    }
+
+
+    private static CharBuffer grow(final CharBuffer chars) {
+        final int newCapacity = (int) Math.min(2L * chars.capacity() + 1L, Integer.MAX_VALUE - 8);
+        final CharBuffer newChars = CharBuffer.allocate(newCapacity);
+        chars.flip();
+        newChars.put(chars);
+        return newChars;
+    }
+
+
+
+
+    private CharsetDecodingUtils() {
+        super();
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.resourceresolver;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.exceptions.TemplateInputException;
+import org.thymeleaf.resource.CharArrayResource;
+import org.thymeleaf.resource.IResource;
+import org.thymeleaf.util.Validate;
+
+/**
+ * <p>
+ *   Implementation of {@link IResourceResolver} that resolves resources as files in the filesystem
+ *   (same as {@link FileResourceResolver}), but reads them by means of NIO channels and decodes their
+ *   contents in bulk into a <tt>char[]</tt>, which is returned as a {@link CharArrayResource}.
+ * </p>
+ * <p>
+ *   This avoids the creation of the chain of {@link java.io.InputStream} and {@link java.io.Reader} objects
+ *   (and the intermediate buffers and copies they imply) that would be needed for reading the file,
+ *   and allows the template parsers to work directly on the decoded contents.
+ * </p>
+ * <p>
+ *   Files are read into a small byte buffer taken from a pool kept by each instance of this class, and decoded
+ *   as they are read. Files are never memory-mapped, as mapped regions cannot be explicitly released and would
+ *   keep the files open (and, on some platforms, locked) until garbage collected. Note that, given the contents
+ *   of the file are completely decoded into memory, files must not be bigger than {@link Integer#MAX_VALUE} bytes.
+ * </p>
+ * <p>
+ *   Malformed or unmappable input will be replaced in the same way a {@link java.io.InputStreamReader}
+ *   would do. If no character encoding is specified, the platform's default will be used.
+ * </p>
+ * <p>
+ *   Files that do not exist or cannot be opened for reading are not resolved (<tt>null</tt> is returned), but
+ *   any other error while reading a file is raised as a {@link TemplateInputException}.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public final class NIOFileResourceResolver
+        implements IResourceResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(NIOFileResourceResolver.class);
+
+    public static final String NAME = "NIO_FILE";
+
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final int MAX_POOLED_READ_BUFFERS = 10;
+
+    private final ConcurrentLinkedQueue<ByteBuffer> readBuffers = new ConcurrentLinkedQueue<ByteBuffer>();
+    private final AtomicInteger readBufferCount = new AtomicInteger(0);
+
+
+
+    public NIOFileResourceResolver() {
+        super();
+    }
+
+
+    public String getName() {
+        return NAME;
+    }
+
+
+
+    public IResource resolveResource(
+            final IEngineConfiguration configuration, final IContext context,
+            final String resource, final String characterEncoding) {
+
+        Validate.notNull(resource, "Resource cannot be null");
+
+        final File resourceFile = new File(resource);
+        if (!resourceFile.isFile()) {
+            return null;
+        }
+
+        final FileInputStream inputStream;
+        try {
+            inputStream = new FileInputStream(resourceFile);
+        } catch (final FileNotFoundException e) {
+            // The file does not exist anymore or cannot be read, so it cannot be resolved by this resolver
+            showException(resource, e);
+            return null;
+        }
+
+        try {
+
+            final Charset charset = CharsetDecodingUtils.computeCharset(characterEncoding);
+
+            final FileChannel channel = inputStream.getChannel();
+
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new TemplateInputException(
+                        "File \"" + resource + "\" is too big (" + size + " bytes) to be read into memory. " +
+                        "Maximum size is " + Integer.MAX_VALUE + " bytes");
+            }
+
+            final ByteBuffer readBuffer = acquireReadBuffer();
+            final char[] chars;
+            try {
+                chars = CharsetDecodingUtils.decode(channel, size, charset, readBuffer);
+            } finally {
+                releaseReadBuffer(readBuffer);
+            }
+
+            return new CharArrayResource(resource, chars);
+
+        } catch (final IOException e) {
+            throw new TemplateInputException("Exception reading resource: " + resource, e);
+        } catch (final IllegalArgumentException e) {
+            // Thrown by Charset.forName for illegal or unsupported character encodings
+            throw new TemplateInputException("Exception reading resource: " + resource, e);
+        } finally {
+            try {
+                inputStream.close();
+            } catch (final Throwable ignored) {
+                // ignored
+            }
+        }
+
+    }
+
+
+
+
+    private ByteBuffer acquireReadBuffer() {
+        final ByteBuffer readBuffer = this.readBuffers.poll();
+        if (readBuffer != null) {
+            this.readBufferCount.decrementAndGet();
+            return readBuffer;
+        }
+        return ByteBuffer.allocate(READ_BUFFER_SIZE);
+    }
+
+
+    private void releaseReadBuffer(final ByteBuffer readBuffer) {
+        if (this.readBufferCount.incrementAndGet() > MAX_POOLED_READ_BUFFERS) {
+            // Pool is full, just let the buffer be garbage collected
+            this.readBufferCount.decrementAndGet();
+            return;
+        }
+        this.readBuffers.offer(readBuffer);
+    }
+
+
+
+
+    private static void showException(final String resourceName, final Throwable t) {
+        if (logger.isTraceEnabled()) {
+            logger.trace(
+                    String.format(
+                            "[THYMELEAF][%s] Resource \"%s\" could not be resolved. This can be normal as " +
+                                    "maybe this resource is not intended to be resolved by this resolver. " +
+                                    "Exception is provided for tracing purposes: ",
+                            TemplateEngine.threadIndex(), resourceName),
+                    t);
+        }
+    }
+
+
+}
@@ -0,0 +1,229 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.resourceresolver;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.thymeleaf.exceptions.TemplateInputException;
+import org.thymeleaf.util.Validate;
+
+/**
+ * <p>
+ *   Indexed, in-memory representation of a <em>template bundle</em>: a single file containing the
+ *   contents of a set of resources (templates, message <tt>.properties</tt> files, etc.) built at
+ *   build time by means of a {@link TemplateBundleWriter}.
+ * </p>
+ * <p>
+ *   Bundles are read completely at load time (bundles loaded from a file are memory-mapped), and
+ *   then their entries can be looked up by name in constant time, without any further I/O, classpath
+ *   lookups or decompression.
+ * </p>
+ * <p>
+ *   Bundles are meant to be used by means of a {@link TemplateBundleResourceResolver}, usually through
+ *   a {@link org.thymeleaf.templateresolver.TemplateBundleTemplateResolver}.
+ * </p>
+ * <p>
+ *   Objects of this class are <b>immutable</b> and <b>thread-safe</b>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public final class TemplateBundle {
+
+    static final byte[] MAGIC = new byte[] { 'T', 'H', 'B', 'U', 'N', 'D', 'L', 'E' };
+    static final int VERSION = 1;
+
+    private final ByteBuffer data;
+    private final Map<String,int[]> index;
+
+
+
+    /**
+     * <p>
+     *   Loads a template bundle from a file. The file will be memory-mapped.
+     * </p>
+     *
+     * @param file the bundle file.
+     * @return the loaded bundle.
+     */
+    public static TemplateBundle load(final File file) {
+
+        Validate.notNull(file, "Bundle file cannot be null");
+
+        try {
+            final FileInputStream inputStream = new FileInputStream(file);
+            try {
+                final FileChannel channel = inputStream.getChannel();
+                // The mapping will remain valid after the channel is closed
+                return new TemplateBundle(channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size()));
+            } finally {
+                try {
+                    inputStream.close();
+                } catch (final Throwable ignored) {
+                    // ignored
+                }
+            }
+        } catch (final IOException e) {
+            throw new TemplateInputException("Could not load template bundle from file \"" + file + "\"", e);
+        }
+
+    }
+
+
+    /**
+     * <p>
+     *   Loads a template bundle from an input stream (e.g. a bundle living in the classpath). The
+     *   whole stream will be read into memory, but not closed.
+     * </p>
+     *
+     * @param inputStream the input stream to read the bundle from.
+     * @return the loaded bundle.
+     */
+    public static TemplateBundle load(final InputStream inputStream) {
+
+        Validate.notNull(inputStream, "Input stream cannot be null");
+
+        try {
+            final ByteArrayOutputStream contents = new ByteArrayOutputStream(65536);
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                contents.write(buffer, 0, read);
+            }
+            return new TemplateBundle(ByteBuffer.wrap(contents.toByteArray()));
+        } catch (final IOException e) {
+            throw new TemplateInputException("Could not load template bundle from input stream", e);
+        }
+
+    }
+
+
+
+
+    private TemplateBundle(final ByteBuffer bundle) throws IOException {
+
+        super();
+
+        final byte[] magic = new byte[MAGIC.length];
+        if (bundle.remaining() < MAGIC.length + 8) {
+            throw new IOException("Invalid template bundle: bad header");
+        }
+        bundle.get(magic);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (magic[i] != MAGIC[i]) {
+                throw new IOException("Invalid template bundle: bad header");
+            }
+        }
+        final int version = bundle.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported template bundle version: " + version);
+        }
+
+        final int indexLen = bundle.getInt();
+        if (indexLen < 0 || indexLen > bundle.remaining()) {
+            throw new IOException("Invalid template bundle: bad index size");
+        }
+        final byte[] indexBytes = new byte[indexLen];
+        bundle.get(indexBytes);
+
+        this.data = bundle.slice();
+        final int dataLen = this.data.remaining();
+
+        final DataInputStream indexStream = new DataInputStream(new ByteArrayInputStream(indexBytes));
+        final int entryCount = indexStream.readInt();
+        final Map<String,int[]> entries = new HashMap<String, int[]>(entryCount * 2 + 1, 1.0f);
+        for (int i = 0; i < entryCount; i++) {
+            final String name = indexStream.readUTF();
+            final int offset = indexStream.readInt();
+            final int len = indexStream.readInt();
+            if (offset < 0 || len < 0 || offset > dataLen - len) {
+                throw new IOException("Invalid template bundle: bad bounds for entry \"" + name + "\"");
+            }
+            entries.put(name, new int[] { offset, len });
+        }
+        this.index = Collections.unmodifiableMap(entries);
+
+    }
+
+
+
+    /**
+     * <p>
+     *   Returns the names of all the entries contained in this bundle.
+     * </p>
+     *
+     * @return the entry names.
+     */
+    public Set<String> getEntryNames() {
+        return this.index.keySet();
+    }
+
+
+    /**
+     * <p>
+     *   Checks whether this bundle contains an entry with the specified name.
+     * </p>
+     *
+     * @param name the entry name.
+     * @return <tt>true</tt> if the entry exists, <tt>false</tt> if not.
+     */
+    public boolean containsEntry(final String name) {
+        return this.index.containsKey(name);
+    }
+
+
+    /**
+     * <p>
+     *   Returns the (binary) contents of an entry as a read-only buffer, which can be freely consumed
+     *   by the caller.
+     * </p>
+     *
+     * @param name the entry name.
+     * @return the entry contents, or <tt>null</tt> if the entry does not exist.
+     */
+    public ByteBuffer getEntry(final String name) {
+        final int[] bounds = this.index.get(name);
+        if (bounds == null) {
+            return null;
+        }
+        // The data buffer itself is never modified, so each caller works on its own view of it
+        final ByteBuffer entry = this.data.asReadOnlyBuffer();
+        entry.position(bounds[0]);
+        entry.limit(bounds[0] + bounds[1]);
+        return entry.slice();
+    }
+
+
+}
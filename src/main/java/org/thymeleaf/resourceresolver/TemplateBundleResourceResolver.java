@@ -0,0 +1,124 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.resourceresolver;
+
+import java.nio.ByteBuffer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.resource.CharArrayResource;
+import org.thymeleaf.resource.IResource;
+import org.thymeleaf.util.Validate;
+
+/**
+ * <p>
+ *   Implementation of {@link IResourceResolver} that resolves resources as entries of a
+ *   {@link TemplateBundle}, decoding them into a {@link CharArrayResource}.
+ * </p>
+ * <p>
+ *   Resource lookups are performed in constant time on the in-memory index of the bundle, and
+ *   will not perform any I/O operations. This applies both to templates and to the message
+ *   <tt>.properties</tt> files that might be contained in the bundle.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public final class TemplateBundleResourceResolver
+        implements IResourceResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(TemplateBundleResourceResolver.class);
+
+    public static final String NAME = "TEMPLATE_BUNDLE";
+
+    private final TemplateBundle bundle;
+
+
+    public TemplateBundleResourceResolver(final TemplateBundle bundle) {
+        super();
+        Validate.notNull(bundle, "Template bundle cannot be null");
+        this.bundle = bundle;
+    }
+
+
+    public String getName() {
+        return NAME;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the template bundle resources are resolved from.
+     * </p>
+     *
+     * @return the template bundle.
+     */
+    public TemplateBundle getBundle() {
+        return this.bundle;
+    }
+
+
+    public IResource resolveResource(
+            final IEngineConfiguration configuration, final IContext context,
+            final String resource, final String characterEncoding) {
+
+        Validate.notNull(resource, "Resource cannot be null");
+
+        final ByteBuffer entry = this.bundle.getEntry(resource);
+        if (entry == null) {
+            return null;
+        }
+
+        try {
+
+            final char[] chars =
+                    CharsetDecodingUtils.decode(entry, CharsetDecodingUtils.computeCharset(characterEncoding));
+
+            return new CharArrayResource(resource, chars);
+
+        } catch (final Throwable t) {
+            showException(resource, t);
+            return null;
+        }
+
+    }
+
+
+
+
+    private static void showException(final String resourceName, final Throwable t) {
+        if (logger.isTraceEnabled()) {
+            logger.trace(
+                    String.format(
+                            "[THYMELEAF][%s] Resource \"%s\" could not be resolved. This can be normal as " +
+                                    "maybe this resource is not intended to be resolved by this resolver. " +
+                                    "Exception is provided for tracing purposes: ",
+                            TemplateEngine.threadIndex(), resourceName),
+                    t);
+        }
+    }
+
+
+}
@@ -0,0 +1,174 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.resourceresolver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.thymeleaf.util.Validate;
+
+/**
+ * <p>
+ *   Builder of <em>template bundles</em> (see {@link TemplateBundle}), meant to be used at build
+ *   time in order to pack a set of resources (templates, message <tt>.properties</tt> files, etc.)
+ *   into a single file.
+ * </p>
+ * <p>
+ *   Entry contents are stored as raw bytes, so they will be decoded at resolution time using the
+ *   character encoding established at the template resolver.
+ * </p>
+ * <p>
+ *   Objects of this class are <b>not thread-safe</b>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public final class TemplateBundleWriter {
+
+    // Sorted so that the same set of entries always produces the same bundle
+    private final Map<String,byte[]> entries = new TreeMap<String, byte[]>();
+
+
+
+    public TemplateBundleWriter() {
+        super();
+    }
+
+
+
+    /**
+     * <p>
+     *   Adds an entry to the bundle. If an entry with the same name already exists, it is replaced.
+     * </p>
+     *
+     * @param name the entry name (the resource name it will be resolved by).
+     * @param content the entry contents.
+     */
+    public void addEntry(final String name, final byte[] content) {
+        Validate.notNull(name, "Entry name cannot be null");
+        Validate.notNull(content, "Entry content cannot be null");
+        this.entries.put(name, content);
+    }
+
+
+    /**
+     * <p>
+     *   Adds all the files contained (recursively) in a directory, naming each entry after the path
+     *   of the file relative to the directory, using <tt>/</tt> as separator and prefixed with the
+     *   specified name prefix (e.g. <tt>/WEB-INF/templates/</tt>).
+     * </p>
+     *
+     * @param directory the directory to be added.
+     * @param namePrefix the prefix to be applied to entry names (can be null).
+     * @throws IOException if any of the files cannot be read.
+     */
+    public void addDirectory(final File directory, final String namePrefix) throws IOException {
+        Validate.notNull(directory, "Directory cannot be null");
+        Validate.isTrue(directory.isDirectory(), "\"" + directory + "\" is not a directory");
+        addDirectoryContents(directory, (namePrefix == null? "" : namePrefix));
+    }
+
+
+    private void addDirectoryContents(final File directory, final String namePrefix) throws IOException {
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Could not list contents of directory \"" + directory + "\"");
+        }
+        Arrays.sort(files);
+        for (final File file : files) {
+            if (file.isDirectory()) {
+                addDirectoryContents(file, namePrefix + file.getName() + "/");
+            } else {
+                addEntry(namePrefix + file.getName(), readFile(file));
+            }
+        }
+    }
+
+
+    private static byte[] readFile(final File file) throws IOException {
+        final InputStream inputStream = new FileInputStream(file);
+        try {
+            final ByteArrayOutputStream contents = new ByteArrayOutputStream((int) Math.max(file.length(), 16L));
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                contents.write(buffer, 0, read);
+            }
+            return contents.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+
+
+    /**
+     * <p>
+     *   Writes the bundle to an output stream, which will be flushed but not closed.
+     * </p>
+     *
+     * @param outputStream the output stream.
+     * @throws IOException if the bundle cannot be written.
+     */
+    public void write(final OutputStream outputStream) throws IOException {
+
+        Validate.notNull(outputStream, "Output stream cannot be null");
+
+        final ByteArrayOutputStream indexBytes = new ByteArrayOutputStream(this.entries.size() * 64 + 4);
+        final DataOutputStream index = new DataOutputStream(indexBytes);
+        index.writeInt(this.entries.size());
+        long offset = 0L;
+        for (final Map.Entry<String,byte[]> entry : this.entries.entrySet()) {
+            final int len = entry.getValue().length;
+            if (offset + len > Integer.MAX_VALUE) {
+                throw new IOException("Template bundle is too big: maximum size is " + Integer.MAX_VALUE + " bytes");
+            }
+            index.writeUTF(entry.getKey());
+            index.writeInt((int) offset);
+            index.writeInt(len);
+            offset += len;
+        }
+        index.flush();
+
+        final DataOutputStream output = new DataOutputStream(outputStream);
+        output.write(TemplateBundle.MAGIC);
+        output.writeInt(TemplateBundle.VERSION);
+        output.writeInt(indexBytes.size());
+        indexBytes.writeTo(output);
+        for (final byte[] content : this.entries.values()) {
+            output.write(content);
+        }
+        output.flush();
+
+    }
+
+
+}
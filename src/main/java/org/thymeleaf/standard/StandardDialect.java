@@ -45,6 +45,7 @@
 import org.thymeleaf.standard.processor.StandardAttrappendTagProcessor;
 import org.thymeleaf.standard.processor.StandardAttrprependTagProcessor;
 import org.thymeleaf.standard.processor.StandardBlockTagProcessor;
+import org.thymeleaf.standard.processor.StandardCacheModelProcessor;
 import org.thymeleaf.standard.processor.StandardCaseTagProcessor;
 import org.thymeleaf.standard.processor.StandardClassappendTagProcessor;
 import org.thymeleaf.standard.processor.StandardConditionalCommentProcessor;
@@ -170,6 +171,10 @@ public IStandardVariableExpressionEvaluator getVariableExpressionEvaluator() {
      *   Dialect, this will be a SpringEL-based implementation.
      * </p>
      * <p>
+     *   A {@link org.thymeleaf.standard.expression.CompiledVariableExpressionEvaluator} can also be set here,
+     *   which compiles the most common expressions and uses OGNL only for the rest of them.
+     * </p>
+     * <p>
      *   This method has no effect once the Template Engine has been initialized.
      * </p>
      * <p>
@@ -346,6 +351,7 @@ public static Set<IProcessor> createStandardProcessorsSet(final IProcessorDialec
         processors.add(new StandardAttrTagProcessor(dialect, TemplateMode.HTML, dialectPrefix));
         processors.add(new StandardAttrappendTagProcessor(dialect, TemplateMode.HTML, dialectPrefix));
         processors.add(new StandardAttrprependTagProcessor(dialect, TemplateMode.HTML, dialectPrefix));
+        processors.add(new StandardCacheModelProcessor(dialect, TemplateMode.HTML, dialectPrefix));
         processors.add(new StandardCaseTagProcessor(dialect, TemplateMode.HTML, dialectPrefix));
         processors.add(new StandardClassappendTagProcessor(dialect, dialectPrefix));
         for (final String attrName : StandardConditionalFixedValueTagProcessor.ATTR_NAMES) {
@@ -431,6 +437,7 @@ public static Set<IProcessor> createStandardProcessorsSet(final IProcessorDialec
         processors.add(new StandardAttrTagProcessor(dialect, TemplateMode.XML, dialectPrefix));
         processors.add(new StandardAttrappendTagProcessor(dialect, TemplateMode.XML, dialectPrefix));
         processors.add(new StandardAttrprependTagProcessor(dialect, TemplateMode.XML, dialectPrefix));
+        processors.add(new StandardCacheModelProcessor(dialect, TemplateMode.XML, dialectPrefix));
         processors.add(new StandardCaseTagProcessor(dialect, TemplateMode.XML, dialectPrefix));
         processors.add(new StandardEachTagProcessor(dialect, TemplateMode.XML, dialectPrefix));
         processors.add(new StandardFragmentTagProcessor(dialect, TemplateMode.XML, dialectPrefix));
@@ -97,6 +97,11 @@ static Object executeAddition(final IProcessingContext processingContext,
             rightValue = "null";
         }
 
+        final BigDecimal fastResult = NumberOperationUtils.add(leftValue, rightValue);
+        if (fastResult != null) {
+            return fastResult;
+        }
+
         final BigDecimal leftNumberValue = EvaluationUtils.evaluateAsNumber(leftValue);
         final BigDecimal rightNumberValue = EvaluationUtils.evaluateAsNumber(rightValue);
         if (leftNumberValue != null && rightNumberValue != null) {
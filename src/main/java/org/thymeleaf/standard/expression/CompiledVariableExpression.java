@@ -0,0 +1,1178 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.standard.expression;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import ognl.ArrayPropertyAccessor;
+import ognl.ListPropertyAccessor;
+import ognl.MapPropertyAccessor;
+import ognl.ObjectMethodAccessor;
+import ognl.ObjectPropertyAccessor;
+import ognl.OgnlContext;
+import ognl.OgnlException;
+import ognl.OgnlRuntime;
+import ognl.SetPropertyAccessor;
+import org.thymeleaf.context.IProcessingContext;
+import org.thymeleaf.context.IVariablesMap;
+import org.thymeleaf.expression.ExpressionObjectSlots;
+import org.thymeleaf.expression.ExpressionObjects;
+import org.thymeleaf.expression.IExpressionObjects;
+
+/**
+ * <p>
+ *   Variable expression compiled into a tree of nodes, used by {@link CompiledVariableExpressionEvaluator}.
+ * </p>
+ * <p>
+ *   Only a subset of the OGNL syntax can be compiled: chains of property accesses (<tt>a.b.c</tt>), indexed
+ *   accesses using literals or other chains as indexes (<tt>a['b']</tt>, <tt>a[0]</tt>, <tt>a[b.c]</tt>) and
+ *   method calls using literals or other chains as arguments (<tt>a.b('c', d.e)</tt>), starting either at a
+ *   variable or at an expression object (<tt>#strings.isEmpty(a)</tt>). Any other expression will not be
+ *   compiled, and {@link #compile(String)} will return <tt>null</tt>.
+ * </p>
+ * <p>
+ *   The semantics of OGNL's standard property and method accessors are replicated. Each node keeps an
+ *   inline cache of the accessor resolved for the last target class it has seen, so that no introspection is
+ *   needed while the class of the target objects stays the same. Whenever a node finds a target object it cannot
+ *   deal with in exactly the same way OGNL would (e.g. because of a custom OGNL property accessor, an overloaded
+ *   method or the need of type conversions), evaluation returns {@link #NOT_APPLICABLE} and the expression will
+ *   have to be evaluated by OGNL.
+ * </p>
+ * <p>
+ *   Evaluating the whole expression again with OGNL is only safe as long as no methods (including property read
+ *   methods) have been invoked yet, as these could have side effects. So once any method has been invoked during
+ *   an evaluation, {@link #NOT_APPLICABLE} is never returned: nodes that cannot deal with their target objects
+ *   will instead ask OGNL's runtime to perform their own step only (property access or method call) on the
+ *   objects already obtained, exactly as OGNL's own AST nodes would.
+ * </p>
+ * <p>
+ *   Objects of this class are <b>thread-safe</b>: inline caches are immutable objects which are simply replaced
+ *   when a new target class is found.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+final class CompiledVariableExpression {
+
+    static final Object NOT_APPLICABLE = new Object();
+
+    private static final Object[] NO_PARAMS = new Object[0];
+    private static final Node[] NO_NODES = new Node[0];
+
+    private static final String[] RESERVED_WORDS =
+            new String[] {
+                    "true", "false", "null", "new", "instanceof", "in", "not", "and", "or",
+                    "eq", "neq", "lt", "lte", "gt", "gte", "bor", "xor", "band", "shl", "shr", "ushr" };
+
+    private final Node node;
+
+
+
+
+    static CompiledVariableExpression compile(final String expression) {
+        final Parser parser = new Parser(expression);
+        final Node node = parser.parseChain();
+        if (node == null || !parser.isFinished()) {
+            return null;
+        }
+        return new CompiledVariableExpression(node);
+    }
+
+
+    private CompiledVariableExpression(final Node node) {
+        super();
+        this.node = node;
+    }
+
+
+
+
+    Object evaluate(
+            final IProcessingContext processingContext, final Object root, final boolean restrictVariableAccess)
+            throws Exception {
+        return this.node.evaluate(new Evaluation(processingContext, root, restrictVariableAccess), root);
+    }
+
+
+
+
+
+
+
+    /*
+     * Kinds of targets, depending on the OGNL property accessor that would be applied to them
+     */
+    private static final int KIND_UNSUPPORTED = 0;
+    private static final int KIND_VARIABLES_MAP = 1;
+    private static final int KIND_OBJECT = 2;
+    private static final int KIND_MAP = 3;
+    private static final int KIND_LIST = 4;
+    private static final int KIND_SET = 5;
+    private static final int KIND_ARRAY = 6;
+
+
+    private static int computeTargetKind(final Class<?> targetClass) throws OgnlException {
+
+        if (Class.class.equals(targetClass)) {
+            // OGNL gives a special treatment to Class objects as targets (static access)
+            return KIND_UNSUPPORTED;
+        }
+
+        // We ask OGNL which property accessor it would use, and only go on if it is one we know how to replicate.
+        final Class<?> accessorClass = OgnlRuntime.getPropertyAccessor(targetClass).getClass();
+        if (OGNLVariablesMapPropertyAccessor.class.equals(accessorClass)) {
+            return KIND_VARIABLES_MAP;
+        }
+        if (ObjectPropertyAccessor.class.equals(accessorClass)) {
+            return KIND_OBJECT;
+        }
+        if (MapPropertyAccessor.class.equals(accessorClass)) {
+            return KIND_MAP;
+        }
+        if (ListPropertyAccessor.class.equals(accessorClass)) {
+            return KIND_LIST;
+        }
+        if (SetPropertyAccessor.class.equals(accessorClass)) {
+            return KIND_SET;
+        }
+        if (ArrayPropertyAccessor.class.equals(accessorClass)) {
+            return KIND_ARRAY;
+        }
+        return KIND_UNSUPPORTED;
+
+    }
+
+
+    private static Object getVariable(
+            final Object target, final String variableName, final boolean restrictVariableAccess)
+            throws OgnlException {
+
+        if (restrictVariableAccess &&
+                OGNLVariablesMapPropertyAccessor.REQUEST_PARAMETERS_RESTRICTED_VARIABLE_NAME.equals(variableName)) {
+            throw new OgnlException(
+                    "Access to variable \"" + variableName + "\" is forbidden in this context. Note some restrictions apply to " +
+                    "variable access. For example, accessing request parameters is forbidden in preprocessing and " +
+                    "unescaped expressions, and also in fragment inclusion specifications.");
+        }
+
+        if ("execInfo".equals(variableName)) {
+            // The deprecated translation of 'execInfo' into an expression object is left to OGNL
+            return NOT_APPLICABLE;
+        }
+
+        return ((IVariablesMap) target).getVariable(variableName);
+
+    }
+
+
+    private static Method findReadMethod(final Class<?> targetClass, final String propertyName) {
+
+        final BeanInfo beanInfo;
+        try {
+            beanInfo = Introspector.getBeanInfo(targetClass);
+        } catch (final IntrospectionException e) {
+            return null;
+        }
+
+        final PropertyDescriptor[] propertyDescriptors = beanInfo.getPropertyDescriptors();
+        if (propertyDescriptors != null) {
+            for (final PropertyDescriptor propertyDescriptor : propertyDescriptors) {
+                if (propertyDescriptor.getName().equals(propertyName)) {
+                    final Method readMethod = propertyDescriptor.getReadMethod();
+                    return (readMethod == null? null : findPublicMethod(readMethod));
+                }
+            }
+        }
+        return null;
+
+    }
+
+
+    /*
+     * Methods obtained by reflection might be declared at non-public classes (e.g. the implementation classes
+     * of the java.util.Collections wrappers), which would make them fail when invoked. In such cases, we will look
+     * for the same method at the public superclasses and interfaces of the declaring class.
+     */
+    private static Method findPublicMethod(final Method method) {
+        final Class<?> declaringClass = method.getDeclaringClass();
+        if (Modifier.isPublic(declaringClass.getModifiers())) {
+            return method;
+        }
+        return findPublicMethod(declaringClass, method.getName(), method.getParameterTypes());
+    }
+
+
+    private static Method findPublicMethod(final Class<?> type, final String name, final Class<?>[] parameterTypes) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            if (current != type && Modifier.isPublic(current.getModifiers())) {
+                final Method method = findDeclaredPublicMethod(current, name, parameterTypes);
+                if (method != null) {
+                    return method;
+                }
+            }
+            for (final Class<?> interfaceType : current.getInterfaces()) {
+                final Method method =
+                        (Modifier.isPublic(interfaceType.getModifiers())?
+                                findDeclaredPublicMethod(interfaceType, name, parameterTypes) :
+                                findPublicMethod(interfaceType, name, parameterTypes));
+                if (method != null) {
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+
+
+    private static Method findDeclaredPublicMethod(final Class<?> type, final String name, final Class<?>[] parameterTypes) {
+        for (final Method method : type.getMethods()) {
+            if (method.getName().equals(name) && Arrays.equals(method.getParameterTypes(), parameterTypes)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+
+    /*
+     * State of a single evaluation of an expression. Keeps track of whether any methods have already been
+     * invoked, in which case nodes must not return NOT_APPLICABLE (evaluating the whole expression again with
+     * OGNL would invoke those methods again) but perform their step by means of OGNL's runtime instead.
+     */
+    private static final class Evaluation {
+
+        final IProcessingContext processingContext;
+        final boolean restrictVariableAccess;
+        private final Object root;
+        private boolean methodsInvoked = false;
+        private OgnlContext ognlContext = null;
+
+        Evaluation(
+                final IProcessingContext processingContext, final Object root, final boolean restrictVariableAccess) {
+            super();
+            this.processingContext = processingContext;
+            this.root = root;
+            this.restrictVariableAccess = restrictVariableAccess;
+        }
+
+
+        Object invoke(final Method method, final Object target, final Object[] parameters) throws Exception {
+            final Object result;
+            try {
+                result = method.invoke(target, parameters);
+            } catch (final IllegalAccessException e) {
+                // Nothing has been executed: let OGNL deal with this its own way
+                return NOT_APPLICABLE;
+            } catch (final InvocationTargetException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                throw e;
+            }
+            this.methodsInvoked = true;
+            return result;
+        }
+
+
+        /*
+         * Same as ognl.ASTProperty, once methods have been invoked (NOT_APPLICABLE otherwise)
+         */
+        Object getPropertyByOgnl(final Object target, final Object property) throws OgnlException {
+            if (!this.methodsInvoked) {
+                return NOT_APPLICABLE;
+            }
+            final OgnlContext context = getOgnlContext();
+            final Object result = OgnlRuntime.getProperty(context, target, property);
+            if (result == null) {
+                return OgnlRuntime.getNullHandler(
+                        OgnlRuntime.getTargetClass(target)).nullPropertyValue(context, target, property);
+            }
+            return result;
+        }
+
+
+        /*
+         * Same as ognl.ASTMethod, once methods have been invoked (NOT_APPLICABLE otherwise)
+         */
+        Object callMethodByOgnl(final Object target, final String name, final Object[] parameters)
+                throws OgnlException {
+            if (!this.methodsInvoked) {
+                return NOT_APPLICABLE;
+            }
+            final OgnlContext context = getOgnlContext();
+            final Object result = OgnlRuntime.callMethod(context, target, name, parameters);
+            if (result == null) {
+                return OgnlRuntime.getNullHandler(
+                        OgnlRuntime.getTargetClass(target)).nullMethodResult(context, target, name, parameters);
+            }
+            return result;
+        }
+
+
+        /*
+         * Same as ognl.ASTVarRef, once methods have been invoked (NOT_APPLICABLE otherwise)
+         */
+        Object getContextVariableByOgnl(final String name) {
+            if (!this.methodsInvoked) {
+                return NOT_APPLICABLE;
+            }
+            return getOgnlContext().get(name);
+        }
+
+
+        private OgnlContext getOgnlContext() {
+            if (this.ognlContext == null) {
+                this.ognlContext =
+                        new OgnlContext(
+                                OGNLVariableExpressionEvaluator.createContextVariablesMap(
+                                        this.processingContext, this.restrictVariableAccess));
+                this.ognlContext.setRoot(this.root);
+            }
+            return this.ognlContext;
+        }
+
+    }
+
+
+
+
+
+
+
+    private abstract static class Node {
+
+        abstract Object evaluate(final Evaluation evaluation, final Object root) throws Exception;
+
+    }
+
+
+
+
+    private static final class RootNode extends Node {
+
+        static final RootNode INSTANCE = new RootNode();
+
+        @Override
+        Object evaluate(final Evaluation evaluation, final Object root) {
+            return root;
+        }
+
+    }
+
+
+
+
+    private static final class LiteralNode extends Node {
+
+        private final Object value;
+
+        LiteralNode(final Object value) {
+            super();
+            this.value = value;
+        }
+
+        @Override
+        Object evaluate(final Evaluation evaluation, final Object root) {
+            return this.value;
+        }
+
+    }
+
+
+
+
+    private static final class ExpressionObjectNode extends Node {
+
+        private final String name;
+
+        // Inline cache: slot of the expression object for the last slot assignment seen
+        private volatile ExpressionObjectSlot slot = null;
+
+        ExpressionObjectNode(final String name) {
+            super();
+            this.name = name;
+        }
+
+        @Override
+        Object evaluate(final Evaluation evaluation, final Object root) {
+
+            final IExpressionObjects expressionObjects = evaluation.processingContext.getExpressionObjects();
+
+            if (expressionObjects instanceof ExpressionObjects) {
+                // Expression objects can be accessed by slot, avoiding lookups by name
+                final ExpressionObjects slottedExpressionObjects = (ExpressionObjects) expressionObjects;
+                final ExpressionObjectSlots slots = slottedExpressionObjects.getSlots();
+                ExpressionObjectSlot slot = this.slot;
+                if (slot == null || slot.slots != slots) {
+                    slot = new ExpressionObjectSlot(slots, slots.getSlot(this.name));
+                    this.slot = slot;
+                }
+                if (slot.slot < 0) {
+                    // Might be one of OGNL's own context variables
+                    return evaluation.getContextVariableByOgnl(this.name);
+                }
+                return slottedExpressionObjects.getObject(slot.slot);
+            }
+
+            if (expressionObjects == null || !expressionObjects.containsObject(this.name)) {
+                // Might be one of OGNL's own context variables
+                return evaluation.getContextVariableByOgnl(this.name);
+            }
+            return expressionObjects.getObject(this.name);
+
+        }
+
+    }
+
+
+    private static final class ExpressionObjectSlot {
+
+        final ExpressionObjectSlots slots;
+        final int slot;
+
+        ExpressionObjectSlot(final ExpressionObjectSlots slots, final int slot) {
+            super();
+            this.slots = slots;
+            this.slot = slot;
+        }
+
+    }
+
+
+
+
+    private static final class PropertyNode extends Node {
+
+        private static final int OP_UNSUPPORTED = 0;
+        private static final int OP_VARIABLE = 1;
+        private static final int OP_READ_METHOD = 2;
+        private static final int OP_MAP_GET = 3;
+        private static final int OP_MAP_SIZE = 4;
+        private static final int OP_MAP_KEYS = 5;
+        private static final int OP_MAP_VALUES = 6;
+        private static final int OP_MAP_IS_EMPTY = 7;
+        private static final int OP_COLLECTION_SIZE = 8;
+        private static final int OP_COLLECTION_ITERATOR = 9;
+        private static final int OP_COLLECTION_IS_EMPTY = 10;
+        private static final int OP_ARRAY_LENGTH = 11;
+
+        private final Node source;
+        private final String name;
+        private final boolean indexed;
+
+        // Inline cache: accessor resolved for the last target class seen
+        private volatile PropertyAccess access = null;
+
+
+        PropertyNode(final Node source, final String name, final boolean indexed) {
+            super();
+            this.source = source;
+            // Interned, so that variables maps can compare property names by identity (see VariablesMap)
+            this.name = name.intern();
+            this.indexed = indexed;
+        }
+
+
+        @Override
+        Object evaluate(final Evaluation evaluation, final Object root) throws Exception {
+
+            final Object target = this.source.evaluate(evaluation, root);
+            if (target == NOT_APPLICABLE) {
+                return NOT_APPLICABLE;
+            }
+            if (target == null) {
+                // Same as OGNL does in these cases
+                throw new OgnlException("source is null for getProperty(null, \"" + this.name + "\")");
+            }
+
+            PropertyAccess access = this.access;
+            if (access == null || access.targetClass != target.getClass()) {
+                access = resolveAccess(target.getClass());
+                this.access = access;
+            }
+
+            final Object value;
+            switch (access.operation) {
+                case OP_VARIABLE:
+                    value = getVariable(target, this.name, evaluation.restrictVariableAccess);
+                    break;
+                case OP_READ_METHOD:
+                    value = evaluation.invoke(access.readMethod, target, NO_PARAMS);
+                    break;
+                case OP_MAP_GET:
+                    return ((Map<?,?>) target).get(this.name);
+                case OP_MAP_SIZE:
+                    return Integer.valueOf(((Map<?,?>) target).size());
+                case OP_MAP_KEYS:
+                    return ((Map<?,?>) target).keySet();
+                case OP_MAP_VALUES:
+                    return ((Map<?,?>) target).values();
+                case OP_MAP_IS_EMPTY:
+                    return Boolean.valueOf(((Map<?,?>) target).isEmpty());
+                case OP_COLLECTION_SIZE:
+                    return Integer.valueOf(((Collection<?>) target).size());
+                case OP_COLLECTION_ITERATOR:
+                    return ((Collection<?>) target).iterator();
+                case OP_COLLECTION_IS_EMPTY:
+                    return Boolean.valueOf(((Collection<?>) target).isEmpty());
+                case OP_ARRAY_LENGTH:
+                    return Integer.valueOf(Array.getLength(target));
+                default:
+                    value = NOT_APPLICABLE;
+            }
+
+            if (value == NOT_APPLICABLE) {
+                return evaluation.getPropertyByOgnl(target, this.name);
+            }
+            return value;
+
+        }
+
+
+        private PropertyAccess resolveAccess(final Class<?> targetClass) throws OgnlException {
+
+            final int kind = computeTargetKind(targetClass);
+            final String name = this.name;
+
+            switch (kind) {
+                case KIND_VARIABLES_MAP:
+                    return new PropertyAccess(targetClass, OP_VARIABLE, null);
+                case KIND_MAP:
+                    // Same as ognl.MapPropertyAccessor: special names are not considered for indexed access
+                    if (!this.indexed) {
+                        if (name.equals("size")) {
+                            return new PropertyAccess(targetClass, OP_MAP_SIZE, null);
+                        }
+                        if (name.equals("keys") || name.equals("keySet")) {
+                            return new PropertyAccess(targetClass, OP_MAP_KEYS, null);
+                        }
+                        if (name.equals("values")) {
+                            return new PropertyAccess(targetClass, OP_MAP_VALUES, null);
+                        }
+                        if (name.equals("isEmpty")) {
+                            return new PropertyAccess(targetClass, OP_MAP_IS_EMPTY, null);
+                        }
+                    }
+                    return new PropertyAccess(targetClass, OP_MAP_GET, null);
+                case KIND_LIST:
+                case KIND_SET:
+                    if (name.equals("size")) {
+                        return new PropertyAccess(targetClass, OP_COLLECTION_SIZE, null);
+                    }
+                    if (name.equals("iterator")) {
+                        return new PropertyAccess(targetClass, OP_COLLECTION_ITERATOR, null);
+                    }
+                    if (name.equals("isEmpty") || (kind == KIND_LIST && name.equals("empty"))) {
+                        return new PropertyAccess(targetClass, OP_COLLECTION_IS_EMPTY, null);
+                    }
+                    return resolveReadMethodAccess(targetClass);
+                case KIND_ARRAY:
+                    if (name.equals("length")) {
+                        return new PropertyAccess(targetClass, OP_ARRAY_LENGTH, null);
+                    }
+                    return resolveReadMethodAccess(targetClass);
+                case KIND_OBJECT:
+                    return resolveReadMethodAccess(targetClass);
+                default:
+                    return new PropertyAccess(targetClass, OP_UNSUPPORTED, null);
+            }
+
+        }
+
+
+        private PropertyAccess resolveReadMethodAccess(final Class<?> targetClass) {
+            final Method readMethod = findReadMethod(targetClass, this.name);
+            if (readMethod == null) {
+                // Not a bean property (maybe a public field?) - better let OGNL decide what to do
+                return new PropertyAccess(targetClass, OP_UNSUPPORTED, null);
+            }
+            return new PropertyAccess(targetClass, OP_READ_METHOD, readMethod);
+        }
+
+    }
+
+
+    private static final class PropertyAccess {
+
+        final Class<?> targetClass;
+        final int operation;
+        final Method readMethod;
+
+        PropertyAccess(final Class<?> targetClass, final int operation, final Method readMethod) {
+            super();
+            this.targetClass = targetClass;
+            this.operation = operation;
+            this.readMethod = readMethod;
+        }
+
+    }
+
+
+
+
+    /*
+     * Indexed access by means of an index that is not a text literal (text literals are compiled as properties).
+     */
+    private static final class IndexNode extends Node {
+
+        private final Node source;
+        private final Node index;
+
+        // Inline cache: kind of the last target class seen
+        private volatile IndexAccess access = null;
+
+
+        IndexNode(final Node source, final Node index) {
+            super();
+            this.source = source;
+            this.index = index;
+        }
+
+
+        @Override
+        Object evaluate(final Evaluation evaluation, final Object root) throws Exception {
+
+            final Object target = this.source.evaluate(evaluation, root);
+            if (target == NOT_APPLICABLE) {
+                return NOT_APPLICABLE;
+            }
+
+            // Same as OGNL, indexes are evaluated on the root object
+            final Object indexValue = this.index.evaluate(evaluation, root);
+            if (indexValue == NOT_APPLICABLE) {
+                return NOT_APPLICABLE;
+            }
+
+            if (target == null) {
+                // Same as OGNL does in these cases
+                throw new OgnlException("source is null for getProperty(null, \"" + indexValue + "\")");
+            }
+
+            IndexAccess access = this.access;
+            if (access == null || access.targetClass != target.getClass()) {
+                access = new IndexAccess(target.getClass(), computeTargetKind(target.getClass()));
+                this.access = access;
+            }
+
+            switch (access.kind) {
+                case KIND_VARIABLES_MAP:
+                    if (indexValue instanceof String) {
+                        final Object value = getVariable(target, (String) indexValue, evaluation.restrictVariableAccess);
+                        if (value != NOT_APPLICABLE) {
+                            return value;
+                        }
+                    }
+                    break;
+                case KIND_MAP:
+                    return ((Map<?,?>) target).get(indexValue);
+                case KIND_LIST:
+                    if (indexValue instanceof Number) {
+                        return ((List<?>) target).get(((Number) indexValue).intValue());
+                    }
+                    break;
+                case KIND_ARRAY:
+                    if (indexValue instanceof Number) {
+                        return Array.get(target, ((Number) indexValue).intValue());
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            return evaluation.getPropertyByOgnl(target, indexValue);
+
+        }
+
+    }
+
+
+    private static final class IndexAccess {
+
+        final Class<?> targetClass;
+        final int kind;
+
+        IndexAccess(final Class<?> targetClass, final int kind) {
+            super();
+            this.targetClass = targetClass;
+            this.kind = kind;
+        }
+
+    }
+
+
+
+
+    private static final class MethodNode extends Node {
+
+        private final Node source;
+        private final String name;
+        private final Node[] arguments;
+
+        // Inline cache: candidate methods for the last target class seen
+        private volatile MethodAccess access = null;
+
+
+        MethodNode(final Node source, final String name, final Node[] arguments) {
+            super();
+            this.source = source;
+            this.name = name;
+            this.arguments = arguments;
+        }
+
+
+        @Override
+        Object evaluate(final Evaluation evaluation, final Object root) throws Exception {
+
+            final Object target = this.source.evaluate(evaluation, root);
+            if (target == NOT_APPLICABLE) {
+                return NOT_APPLICABLE;
+            }
+
+            // Calls on null targets are left to OGNL (null handlers)
+            Method[] candidates = null;
+            if (target != null) {
+                MethodAccess access = this.access;
+                if (access == null || access.targetClass != target.getClass()) {
+                    access = resolveAccess(target.getClass());
+                    this.access = access;
+                }
+                candidates = access.candidates;
+            }
+
+            if (candidates == null && !evaluation.methodsInvoked) {
+                // Bail out before evaluating the arguments, which might invoke methods
+                return NOT_APPLICABLE;
+            }
+
+            final Object[] parameters;
+            if (this.arguments.length == 0) {
+                parameters = NO_PARAMS;
+            } else {
+                parameters = new Object[this.arguments.length];
+                for (int i = 0; i < this.arguments.length; i++) {
+                    // Same as OGNL, arguments are evaluated on the root object
+                    final Object parameter = this.arguments[i].evaluate(evaluation, root);
+                    if (parameter == NOT_APPLICABLE) {
+                        return NOT_APPLICABLE;
+                    }
+                    parameters[i] = parameter;
+                }
+            }
+
+            final Method method = (candidates == null? null : selectMethod(candidates, parameters));
+            if (method != null) {
+                final Object result = evaluation.invoke(method, target, parameters);
+                if (result != NOT_APPLICABLE) {
+                    return result;
+                }
+            }
+
+            return evaluation.callMethodByOgnl(target, this.name, parameters);
+
+        }
+
+
+        private static Method selectMethod(final Method[] candidates, final Object[] parameters) {
+            Method method = null;
+            for (final Method candidate : candidates) {
+                if (areParametersCompatible(candidate.getParameterTypes(), parameters)) {
+                    if (method != null) {
+                        // Ambiguous: OGNL would choose the most specific one
+                        return null;
+                    }
+                    method = candidate;
+                }
+            }
+            // If null, OGNL would try type conversions
+            return method;
+        }
+
+
+        private MethodAccess resolveAccess(final Class<?> targetClass) throws OgnlException {
+
+            if (Class.class.equals(targetClass) ||
+                    !ObjectMethodAccessor.class.equals(OgnlRuntime.getMethodAccessor(targetClass).getClass())) {
+                return new MethodAccess(targetClass, null);
+            }
+
+            final List<Method> candidates = new ArrayList<Method>(2);
+            for (final Method method : targetClass.getMethods()) {
+                if (method.isBridge() || !method.getName().equals(this.name) ||
+                        method.getParameterTypes().length != this.arguments.length) {
+                    continue;
+                }
+                final Method publicMethod = findPublicMethod(method);
+                if (method.isVarArgs() || publicMethod == null) {
+                    return new MethodAccess(targetClass, null);
+                }
+                if (!candidates.contains(publicMethod)) {
+                    candidates.add(publicMethod);
+                }
+            }
+
+            if (candidates.isEmpty()) {
+                return new MethodAccess(targetClass, null);
+            }
+            return new MethodAccess(targetClass, candidates.toArray(new Method[candidates.size()]));
+
+        }
+
+
+        private static boolean areParametersCompatible(final Class<?>[] parameterTypes, final Object[] parameters) {
+            for (int i = 0; i < parameterTypes.length; i++) {
+                final Class<?> parameterType = parameterTypes[i];
+                final Object parameter = parameters[i];
+                if (parameterType.isPrimitive()) {
+                    // OGNL considers only the exact wrapper class compatible without conversion
+                    if (parameter == null || parameter.getClass() != getPrimitiveWrapperClass(parameterType)) {
+                        return false;
+                    }
+                } else if (parameter != null && !parameterType.isInstance(parameter)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+
+        private static Class<?> getPrimitiveWrapperClass(final Class<?> primitiveClass) {
+            if (primitiveClass == Integer.TYPE) {
+                return Integer.class;
+            }
+            if (primitiveClass == Boolean.TYPE) {
+                return Boolean.class;
+            }
+            if (primitiveClass == Long.TYPE) {
+                return Long.class;
+            }
+            if (primitiveClass == Double.TYPE) {
+                return Double.class;
+            }
+            if (primitiveClass == Character.TYPE) {
+                return Character.class;
+            }
+            if (primitiveClass == Float.TYPE) {
+                return Float.class;
+            }
+            if (primitiveClass == Short.TYPE) {
+                return Short.class;
+            }
+            if (primitiveClass == Byte.TYPE) {
+                return Byte.class;
+            }
+            return Void.class;
+        }
+
+    }
+
+
+    private static final class MethodAccess {
+
+        final Class<?> targetClass;
+        final Method[] candidates; // null if the method cannot be called without OGNL
+
+        MethodAccess(final Class<?> targetClass, final Method[] candidates) {
+            super();
+            this.targetClass = targetClass;
+            this.candidates = candidates;
+        }
+
+    }
+
+
+
+
+
+
+
+    /*
+     * Grammar of the compilable subset:
+     *
+     *     chain    := ( '#' ident | ident ) ( '.' ident [ '(' [ argument ( ',' argument )* ] ')' ] | '[' argument ']' )*
+     *     argument := integer | 'text' | "text" | true | false | null | chain
+     *
+     * Whitespace is allowed between tokens. Anything else (operators, escapes in text literals, one-char
+     * single-quoted literals -which OGNL considers chars-, reserved words as identifiers...) makes the
+     * expression not compilable.
+     */
+    private static final class Parser {
+
+        private final String input;
+        private final int len;
+        private int pos;
+
+
+        Parser(final String input) {
+            super();
+            this.input = input;
+            this.len = input.length();
+            this.pos = 0;
+        }
+
+
+        boolean isFinished() {
+            skipWhitespace();
+            return this.pos == this.len;
+        }
+
+
+        Node parseChain() {
+
+            skipWhitespace();
+            if (this.pos == this.len) {
+                return null;
+            }
+
+            Node node;
+            if (this.input.charAt(this.pos) == '#') {
+                this.pos++;
+                final String name = parseName();
+                if (name == null || isOgnlContextKey(name)) {
+                    return null;
+                }
+                node = new ExpressionObjectNode(name);
+            } else {
+                final String name = parseName();
+                if (name == null || peekNonWhitespace() == '(') {
+                    return null;
+                }
+                node = new PropertyNode(RootNode.INSTANCE, name, false);
+            }
+
+            while (true) {
+
+                final char c = peekNonWhitespace();
+
+                if (c == '.') {
+
+                    this.pos++;
+                    skipWhitespace();
+                    final String name = parseName();
+                    if (name == null) {
+                        return null;
+                    }
+                    if (peekNonWhitespace() == '(') {
+                        this.pos++;
+                        final Node[] arguments = parseArguments();
+                        if (arguments == null) {
+                            return null;
+                        }
+                        node = new MethodNode(node, name, arguments);
+                    } else {
+                        node = new PropertyNode(node, name, false);
+                    }
+
+                } else if (c == '[') {
+
+                    this.pos++;
+                    final Node index = parseArgument();
+                    if (index == null || peekNonWhitespace() != ']') {
+                        return null;
+                    }
+                    this.pos++;
+                    if (index instanceof LiteralNode) {
+                        final Object indexValue = ((LiteralNode) index).value;
+                        if (indexValue instanceof String) {
+                            node = new PropertyNode(node, (String) indexValue, true);
+                        } else if (indexValue instanceof Integer) {
+                            node = new IndexNode(node, index);
+                        } else {
+                            return null;
+                        }
+                    } else {
+                        node = new IndexNode(node, index);
+                    }
+
+                } else {
+                    return node;
+                }
+
+            }
+
+        }
+
+
+        private Node[] parseArguments() {
+            if (peekNonWhitespace() == ')') {
+                this.pos++;
+                return NO_NODES;
+            }
+            final List<Node> arguments = new ArrayList<Node>(3);
+            while (true) {
+                final Node argument = parseArgument();
+                if (argument == null) {
+                    return null;
+                }
+                arguments.add(argument);
+                final char c = peekNonWhitespace();
+                this.pos++;
+                if (c == ')') {
+                    return arguments.toArray(new Node[arguments.size()]);
+                }
+                if (c != ',') {
+                    return null;
+                }
+            }
+        }
+
+
+        private Node parseArgument() {
+
+            final char c = peekNonWhitespace();
+
+            if (c >= '0' && c <= '9') {
+                return parseIntegerLiteral();
+            }
+            if (c == '\'' || c == '"') {
+                return parseTextLiteral(c);
+            }
+
+            final int start = this.pos;
+            final String name = parseIdentifier();
+            if (name != null) {
+                if (name.equals("true")) {
+                    return new LiteralNode(Boolean.TRUE);
+                }
+                if (name.equals("false")) {
+                    return new LiteralNode(Boolean.FALSE);
+                }
+                if (name.equals("null")) {
+                    return new LiteralNode(null);
+                }
+            }
+            this.pos = start;
+            return parseChain();
+
+        }
+
+
+        private Node parseIntegerLiteral() {
+            final int start = this.pos;
+            while (this.pos < this.len && isDigit(this.input.charAt(this.pos))) {
+                this.pos++;
+            }
+            final int digits = this.pos - start;
+            if (this.pos < this.len) {
+                final char c = this.input.charAt(this.pos);
+                if (c == '.' || Character.isJavaIdentifierPart(c)) {
+                    // Decimals, exponents, type suffixes...
+                    return null;
+                }
+            }
+            if (digits > 9 || (digits > 1 && this.input.charAt(start) == '0')) {
+                // Longs or octal literals
+                return null;
+            }
+            return new LiteralNode(Integer.valueOf(this.input.substring(start, this.pos)));
+        }
+
+
+        private Node parseTextLiteral(final char quote) {
+            final int start = ++this.pos;
+            while (this.pos < this.len) {
+                final char c = this.input.charAt(this.pos);
+                if (c == '\\') {
+                    return null;
+                }
+                if (c == quote) {
+                    final String text = this.input.substring(start, this.pos);
+                    this.pos++;
+                    if (quote == '\'' && text.length() <= 1) {
+                        // OGNL would consider this a char literal
+                        return null;
+                    }
+                    return new LiteralNode(text);
+                }
+                this.pos++;
+            }
+            return null;
+        }
+
+
+        private String parseIdentifier() {
+            final int start = this.pos;
+            if (this.pos == this.len || !Character.isJavaIdentifierStart(this.input.charAt(this.pos))) {
+                return null;
+            }
+            this.pos++;
+            while (this.pos < this.len && Character.isJavaIdentifierPart(this.input.charAt(this.pos))) {
+                this.pos++;
+            }
+            return this.input.substring(start, this.pos);
+        }
+
+
+        private String parseName() {
+            final String identifier = parseIdentifier();
+            if (identifier == null) {
+                return null;
+            }
+            for (final String reservedWord : RESERVED_WORDS) {
+                if (reservedWord.equalsIgnoreCase(identifier)) {
+                    return null;
+                }
+            }
+            return identifier;
+        }
+
+
+        private char peekNonWhitespace() {
+            skipWhitespace();
+            return (this.pos < this.len? this.input.charAt(this.pos) : (char) 0);
+        }
+
+
+        private void skipWhitespace() {
+            while (this.pos < this.len && Character.isWhitespace(this.input.charAt(this.pos))) {
+                this.pos++;
+            }
+        }
+
+
+        private static boolean isOgnlContextKey(final String name) {
+            // These are resolved by OgnlContext itself, before looking into the expression objects
+            return name.equals("root") || name.equals("this") || name.equals("context") || name.charAt(0) == '_';
+        }
+
+
+        private static boolean isDigit(final char c) {
+            return c >= '0' && c <= '9';
+        }
+
+    }
+
+
+}
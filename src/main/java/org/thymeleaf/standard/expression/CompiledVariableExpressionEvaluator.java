@@ -0,0 +1,154 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.standard.expression;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.IProcessingContext;
+import org.thymeleaf.context.IVariablesMap;
+import org.thymeleaf.exceptions.TemplateProcessingException;
+import org.thymeleaf.metrics.IEngineMetrics;
+
+/**
+ * <p>
+ *   Variable expression evaluator that compiles the most common expressions (chains of properties, indexed
+ *   accesses and method calls, see {@link CompiledVariableExpression}) into trees of nodes with inline caches,
+ *   which are then evaluated without any kind of per-evaluation context being created.
+ * </p>
+ * <p>
+ *   Expressions using any other syntax, and also those that find (during evaluation) objects that cannot be
+ *   dealt with exactly as OGNL would, are evaluated by means of an {@link OGNLVariableExpressionEvaluator}, so
+ *   results are always the same as if OGNL had been used for all expressions. Methods are never invoked twice
+ *   because of this: once a method has been invoked during an evaluation, any remaining steps that cannot be
+ *   compiled are performed by OGNL on the objects already obtained, instead of the whole expression being
+ *   evaluated again.
+ * </p>
+ * <p>
+ *   This evaluator can be set into the Standard Dialect by means of
+ *   {@link org.thymeleaf.standard.StandardDialect#setVariableExpressionEvaluator(IStandardVariableExpressionEvaluator)}.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public final class CompiledVariableExpressionEvaluator
+        implements IStandardVariableExpressionEvaluator {
+
+
+    private static final Logger logger = LoggerFactory.getLogger(CompiledVariableExpressionEvaluator.class);
+
+    // Same as with OGNLVariableExpressionEvaluator, we use a prefix in order to separate the entries coming
+    // from this evaluator from those of the rest of expression parsing mechanisms.
+    private static final String COMPILED_CACHE_PREFIX = "cmpl|";
+
+    // Cached for expressions that cannot be compiled, so that we don't try again
+    private static final Object NOT_COMPILABLE = new Object();
+
+
+    private final OGNLVariableExpressionEvaluator ognlEvaluator;
+
+
+
+
+    public CompiledVariableExpressionEvaluator() {
+        super();
+        // This will also register the OGNL property accessor for variables maps, which the compiled
+        // expressions will check in order to determine how they can access each object
+        this.ognlEvaluator = new OGNLVariableExpressionEvaluator(true);
+    }
+
+
+
+
+    public Object evaluate(
+            final IProcessingContext processingContext, final String expression,
+            final StandardExpressionExecutionContext expContext, final boolean useSelectionAsRoot) {
+
+        if (logger.isTraceEnabled()) {
+            logger.trace("[THYMELEAF][{}] Compiled expression: evaluating expression \"{}\" on target", TemplateEngine.threadIndex(), expression);
+        }
+
+        final IEngineConfiguration configuration = processingContext.getConfiguration();
+
+        Object compiledExpression = ExpressionCache.getFromCache(configuration, expression, COMPILED_CACHE_PREFIX);
+        if (compiledExpression == null) {
+            compiledExpression = CompiledVariableExpression.compile(expression);
+            if (compiledExpression == null) {
+                compiledExpression = NOT_COMPILABLE;
+            }
+            ExpressionCache.putIntoCache(configuration, expression, compiledExpression, COMPILED_CACHE_PREFIX);
+        }
+
+        if (compiledExpression == NOT_COMPILABLE) {
+            return this.ognlEvaluator.evaluate(processingContext, expression, expContext, useSelectionAsRoot);
+        }
+
+        // The root object on which we will evaluate expressions will depend on whether a selection target is
+        // active or not...
+        final IVariablesMap variablesMap = processingContext.getVariables();
+        final Object evaluationRoot =
+                (useSelectionAsRoot && variablesMap.hasSelectionTarget()? variablesMap.getSelectionTarget() : variablesMap);
+
+        final Object result;
+        try {
+            result =
+                    ((CompiledVariableExpression) compiledExpression).evaluate(
+                            processingContext, evaluationRoot, expContext.getRestrictVariableAccess());
+        } catch (final Exception e) {
+            throw new TemplateProcessingException(
+                    "Exception evaluating expression: \"" + expression + "\"", e);
+        }
+
+        if (result == CompiledVariableExpression.NOT_APPLICABLE) {
+            // Some of the objects found during evaluation cannot be dealt with the same way OGNL would (and no methods
+            // have been invoked yet, so evaluating again is safe). Note we keep the compiled expression cached, as it
+            // might be applicable to other objects in future evaluations.
+            final IEngineMetrics metrics = configuration.getEngineMetrics();
+            if (metrics != null) {
+                metrics.recordExpressionEvaluationFallback(CompiledVariableExpressionEvaluator.class);
+            }
+            return this.ognlEvaluator.evaluate(processingContext, expression, expContext, useSelectionAsRoot);
+        }
+
+        if (!expContext.getPerformTypeConversion()) {
+            return result;
+        }
+
+        final IStandardConversionService conversionService =
+                StandardExpressions.getConversionService(configuration);
+
+        return conversionService.convert(processingContext, result, String.class);
+
+    }
+
+
+
+
+    @Override
+    public String toString() {
+        return "Compiled (with OGNL fallback)";
+    }
+
+
+}
@@ -82,6 +82,11 @@ static Object executeDivision(final IProcessingContext processingContext,
             rightValue = "null";
         }
 
+        final BigDecimal fastResult = NumberOperationUtils.divide(leftValue, rightValue);
+        if (fastResult != null) {
+            return fastResult;
+        }
+
         final BigDecimal leftNumberValue = EvaluationUtils.evaluateAsNumber(leftValue);
         final BigDecimal rightNumberValue = EvaluationUtils.evaluateAsNumber(rightValue);
         if (leftNumberValue != null && rightNumberValue != null) {
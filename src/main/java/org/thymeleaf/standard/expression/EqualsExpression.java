@@ -75,10 +75,15 @@ static Object executeEquals(final IProcessingContext processingContext,
         
         Boolean result = null;
 
-        final BigDecimal leftNumberValue = EvaluationUtils.evaluateAsNumber(leftValue);
-        final BigDecimal rightNumberValue = EvaluationUtils.evaluateAsNumber(rightValue);
-        
-        if (leftNumberValue != null && rightNumberValue != null) {
+        final int fastComparison = NumberOperationUtils.compare(leftValue, rightValue);
+        final boolean fastCompared = (fastComparison != NumberOperationUtils.NOT_COMPARABLE);
+
+        final BigDecimal leftNumberValue = (fastCompared? null : EvaluationUtils.evaluateAsNumber(leftValue));
+        final BigDecimal rightNumberValue = (fastCompared? null : EvaluationUtils.evaluateAsNumber(rightValue));
+
+        if (fastCompared) {
+            result = Boolean.valueOf(fastComparison == 0);
+        } else if (leftNumberValue != null && rightNumberValue != null) {
             result = Boolean.valueOf(leftNumberValue.compareTo(rightNumberValue) == 0);
         } else {
             if (leftValue instanceof Character) {
@@ -23,6 +23,7 @@
 
 import org.thymeleaf.context.IProcessingContext;
 import org.thymeleaf.exceptions.TemplateProcessingException;
+import org.thymeleaf.metrics.IEngineMetrics;
 import org.thymeleaf.util.Validate;
 
 
@@ -126,6 +127,11 @@ public Object execute(final IProcessingContext processingContext, final Standard
         final IStandardVariableExpressionEvaluator variableExpressionEvaluator =
                 StandardExpressions.getVariableExpressionEvaluator(processingContext.getConfiguration());
 
+        final IEngineMetrics metrics = processingContext.getConfiguration().getEngineMetrics();
+        if (metrics != null) {
+            metrics.recordExpressionEvaluation(getClass());
+        }
+
         final Object result = execute(processingContext, this, variableExpressionEvaluator, expContext);
         return LiteralValue.unwrap(result);
 
@@ -80,10 +80,15 @@ static Object executeLessThan(final IProcessingContext processingContext,
 
         Boolean result = null;
 
-        final BigDecimal leftNumberValue = EvaluationUtils.evaluateAsNumber(leftValue);
-        final BigDecimal rightNumberValue = EvaluationUtils.evaluateAsNumber(rightValue);
-        
-        if (leftNumberValue != null && rightNumberValue != null) {
+        final int fastComparison = NumberOperationUtils.compare(leftValue, rightValue);
+        final boolean fastCompared = (fastComparison != NumberOperationUtils.NOT_COMPARABLE);
+
+        final BigDecimal leftNumberValue = (fastCompared? null : EvaluationUtils.evaluateAsNumber(leftValue));
+        final BigDecimal rightNumberValue = (fastCompared? null : EvaluationUtils.evaluateAsNumber(rightValue));
+
+        if (fastCompared) {
+            result = Boolean.valueOf(fastComparison < 0);
+        } else if (leftNumberValue != null && rightNumberValue != null) {
             result = Boolean.valueOf(leftNumberValue.compareTo(rightNumberValue) == -1);
         } else {
             if (leftValue != null && rightValue != null &&
@@ -70,6 +70,9 @@ public final class LinkExpression extends SimpleExpression {
     
     private final IStandardExpression base;
     private final AssignationSequence parameters;
+
+    // Compiled link base, only used (and lazily computed) when the base is a literal
+    private transient volatile LinkBase literalLinkBase = null;
     
     
     
@@ -247,25 +250,15 @@ static Object executeLink(
             logger.trace("[THYMELEAF][{}] Evaluating link: \"{}\"", TemplateEngine.threadIndex(), expression.getStringRepresentation());
         }
 
-        final IStandardExpression baseExpression = expression.getBase();
-        Object base = baseExpression.execute(processingContext, expContext);
-
-        base = LiteralValue.unwrap(base);
-        if (base != null && !(base instanceof String)) {
-            base = base.toString();
-        }
-        if (base == null || StringUtils.isEmptyOrWhitespace((String) base)) {
-            base = "";
-        }
-
-        final boolean linkBaseAbsolute = isLinkBaseAbsolute((String)base);
-        final boolean linkBaseContextRelative = !linkBaseAbsolute && isLinkBaseContextRelative((String)base);
-        final boolean linkBaseServerRelative = !linkBaseAbsolute && !linkBaseContextRelative && isLinkBaseServerRelative((String) base);
-        final boolean linkBaseRelative = !linkBaseAbsolute && !linkBaseContextRelative && !linkBaseServerRelative;
+        /*
+         * Obtain the compiled form of the link base. If the base is a literal, this will have been computed only
+         * once and cached at the expression object itself (which is in turn cached at the expression cache).
+         */
+        final LinkBase linkBase = computeLinkBase(processingContext, expression, expContext);
 
-        if (!processingContext.isWeb() && linkBaseContextRelative) {
+        if (!processingContext.isWeb() && linkBase.contextRelative) {
             throw new TemplateProcessingException(
-                    "Link base \"" + base + "\" cannot be context relative (/...) unless the context " +
+                    "Link base \"" + linkBase.base + "\" cannot be context relative (/...) unless the context " +
                     "used for executing the engine implements the " + IWebContext.class.getName() + " interface");
         }
 
@@ -277,26 +270,12 @@ static Object executeLink(
         final LinkParameters parameters = resolveParameters(processingContext, expression, expContext);
 
 
-        /*
-         * Compute URL fragments (selectors after '#') so that they can be output at the end of
-         * the URL, after parameters.
-         */
-        final int hashPosition = findCharInSequence((String) base, '#');
-
-
-        /*
-         * Compute whether we might have variable templates (e.g. Spring Path Variables) inside this link base
-         * that we might need to resolve afterwards
-         */
-        final boolean mightHaveVariableTemplates = findCharInSequence((String)base, URL_TEMPLATE_DELIMITER_PREFIX) >= 0;
-
-
         /*
          * Precompute the context path, so that it can be afterwards used for determining if it has to be added to the
          * URL (in case it is context-relative) or not
          */
         final String contextPath;
-        if (linkBaseContextRelative) {
+        if (linkBase.contextRelative) {
             // If it is context-relative, it has to be a web context
             final IWebVariablesMap webVariablesMap = (IWebVariablesMap) processingContext.getVariables();
             final HttpServletRequest request = webVariablesMap.getRequest();
@@ -313,47 +292,56 @@ static Object executeLink(
          *            3. That there are no URL fragments -> then just return the base URL String without further
          *            processing (except HttpServletResponse-encoding, of course...)
          */
-        if (contextPathEmpty && !linkBaseServerRelative &&
-                (parameters == null || parameters.size() == 0) && hashPosition < 0 && !mightHaveVariableTemplates) {
+        if (contextPathEmpty && !linkBase.serverRelative &&
+                (parameters == null || parameters.size() == 0) &&
+                linkBase.urlFragment.length() == 0 && linkBase.placeholderNames.length == 0) {
 
             if (processingContext.isWeb()) {
                 final IWebVariablesMap webVariablesMap = (IWebVariablesMap) processingContext.getVariables();
                 final HttpServletResponse response = webVariablesMap.getResponse();
-                return (response != null? response.encodeURL((String) base) : base);
+                return (response != null? response.encodeURL(linkBase.base) : linkBase.base);
             }
             // Processing context is not web, no need to HttpServletResponse-encode
-            return base;
+            return linkBase.base;
 
         }
 
 
         /*
-         * Build the StringBuilder that will be used as a base for all URL-related operations from now on: variable
-         * templates, parameters, URL fragments...
+         * Resolve the values for those variable templates that might appear referenced in the path itself, as for
+         * example, Spring "Path Variables" (e.g. '/something/{variable}/othersomething'). Parameters used for this
+         * will be removed from the parameters object, so that they are not output as query parameters.
          */
-        StringBuilder linkBase = new StringBuilder((String) base);
+        final String[] templateReplacements = resolveTemplateReplacements(linkBase, parameters);
 
 
         /*
-         * Compute URL fragments (selectors after '#') so that they can be output at the end of
-         * the URL, after parameters.
+         * Build the link itself. Note all the hard work (computing the link type, separating the URL fragment and
+         * finding the variable templates in the base) has already been done when computing the link base.
          */
-        String urlFragment = "";
-        // If hash position == 0 we will not consider it as marking an
-        // URL fragment.
-        if (hashPosition > 0) {
-            // URL fragment String will include the # sign
-            urlFragment = linkBase.substring(hashPosition);
-            linkBase.delete(hashPosition, linkBase.length());
-        }
+        final StringBuilder linkBuilder =
+                new StringBuilder((contextPath == null? 0 : contextPath.length()) + linkBase.base.length() + 16);
 
+        if (linkBase.contextRelative && !contextPathEmpty) {
+            // Add the application's context path at the beginning
+            linkBuilder.append(contextPath);
+        }
 
-        /*
-         * Replace those variable templates that might appear referenced in the path itself, as for example, Spring
-         * "Path Variables" (e.g. '/something/{variable}/othersomething')
-         */
-        if (mightHaveVariableTemplates) {
-            linkBase = replaceTemplateParamsInBase(linkBase, parameters);
+        linkBuilder.append(linkBase.literals[0]);
+        for (int i = 0; i < linkBase.placeholderNames.length; i++) {
+            final String replacement = (templateReplacements == null? null : templateReplacements[i]);
+            if (replacement == null) {
+                // This variable template has no corresponding parameter, so it will be output as is
+                linkBuilder.append(URL_TEMPLATE_DELIMITER_PREFIX);
+                linkBuilder.append(linkBase.placeholderNames[i]);
+                linkBuilder.append(URL_TEMPLATE_DELIMITER_SUFFIX);
+            } else {
+                // Depending on whether the template appeared before or after the ?, we will apply different escaping
+                linkBuilder.append(
+                        (linkBase.placeholderInQuery[i]?
+                                UriEscape.escapeUriQueryParam(replacement) : UriEscape.escapeUriPath(replacement)));
+            }
+            linkBuilder.append(linkBase.literals[i + 1]);
         }
 
 
@@ -363,17 +351,15 @@ static Object executeLink(
          */
         if (parameters != null && parameters.size() > 0) {
 
-            final boolean linkBaseHasQuestionMark = findCharInSequence(linkBase,'?') >= 0;
-
             // If there is no '?' in linkBase, we have to replace with first '&' with '?'
-            if (linkBaseHasQuestionMark) {
-                linkBase.append('&');
+            if (linkBase.hasQuestionMark) {
+                linkBuilder.append('&');
             } else {
-                linkBase.append('?');
+                linkBuilder.append('?');
             }
 
             // Build the parameters query. The result will always start with '&'
-            parameters.processAllRemainingParametersAsQueryParams(linkBase);
+            parameters.processAllRemainingParametersAsQueryParams(linkBuilder);
 
         }
 
@@ -381,17 +367,7 @@ static Object executeLink(
         /*
          * Once parameters have been added (if there are parameters), we can add the URL fragment
          */
-        if (urlFragment.length() > 0) {
-            linkBase.append(urlFragment);
-        }
-
-
-        /*
-         * If link base is server relative, we will delete now the leading '~' character so that it starts with '/'
-         */
-        if (linkBaseServerRelative) {
-            linkBase.delete(0,1);
-        }
+        linkBuilder.append(linkBase.urlFragment);
 
 
         /*
@@ -399,7 +375,7 @@ static Object executeLink(
          * HttpServletRespons#encodeURL(...) because there is no response object, of course...
          */
         if (!processingContext.isWeb()) {
-            return linkBase.toString();
+            return linkBuilder.toString();
         }
         
 
@@ -410,15 +386,53 @@ static Object executeLink(
         final IWebVariablesMap webVariablesMap = (IWebVariablesMap) processingContext.getVariables();
         final HttpServletResponse response = webVariablesMap.getResponse();
 
-        if (linkBaseContextRelative && !contextPathEmpty) {
-            // Add the application's context path at the beginning
-            linkBase.insert(0, contextPath);
+        return (response != null? response.encodeURL(linkBuilder.toString()) : linkBuilder.toString());
+        
+    }
+
+
+
+
+    private static LinkBase computeLinkBase(
+            final IProcessingContext processingContext, final LinkExpression expression,
+            final StandardExpressionExecutionContext expContext) {
+
+        final IStandardExpression baseExpression = expression.getBase();
+
+        if (baseExpression instanceof TextLiteralExpression || baseExpression instanceof GenericTokenExpression) {
+            // The base is a constant, so it will always produce the same link base, which can be therefore cached
+            LinkBase linkBase = expression.literalLinkBase;
+            if (linkBase == null) {
+                // No need to synchronize: in the worst case, the same (immutable) link base will be computed twice
+                linkBase = LinkBase.compute(executeLinkBaseExpression(processingContext, baseExpression, expContext));
+                expression.literalLinkBase = linkBase;
+            }
+            return linkBase;
         }
 
-        return (response != null? response.encodeURL(linkBase.toString()) : linkBase.toString());
-        
+        return LinkBase.compute(executeLinkBaseExpression(processingContext, baseExpression, expContext));
+
     }
 
+
+    private static String executeLinkBaseExpression(
+            final IProcessingContext processingContext, final IStandardExpression baseExpression,
+            final StandardExpressionExecutionContext expContext) {
+
+        Object base = baseExpression.execute(processingContext, expContext);
+
+        base = LiteralValue.unwrap(base);
+        if (base != null && !(base instanceof String)) {
+            base = base.toString();
+        }
+        if (base == null || StringUtils.isEmptyOrWhitespace((String) base)) {
+            base = "";
+        }
+        return (String) base;
+
+    }
+
+
     
 
 
@@ -541,23 +555,21 @@ private static LinkParameters resolveParameters(
 
 
 
-    static StringBuilder replaceTemplateParamsInBase(final StringBuilder linkBase, final LinkParameters parameters) {
+    private static String[] resolveTemplateReplacements(final LinkBase linkBase, final LinkParameters parameters) {
 
         /*
-         * If parameters is null, there's nothing to do
+         * If there are no parameters or no variable templates in base, there's nothing to do
          */
-        if (parameters == null) {
-            return linkBase;
+        if (parameters == null || linkBase.placeholderNames.length == 0) {
+            return null;
         }
 
         /*
-         * Search {templateVar} in linkBase, and replace with value.
+         * Match parameters with {templateVar} placeholders in base, and compute their (unescaped) replacements.
          * Parameters can be multivalued, in which case they will be comma-separated.
-         * Parameter values will be URL-path-encoded. If there is a '?' char, only parameter values before this
-         * char will be URL-path-encoded, whereas parameters after it will be URL-query-encoded.
          */
 
-        final int questionMarkPosition = findCharInSequence(linkBase, '?');
+        String[] templateReplacements = null;
 
         int i = parameters.size();
         while (i-- != 0) {
@@ -567,43 +579,132 @@ static StringBuilder replaceTemplateParamsInBase(final StringBuilder linkBase, f
 
             final String paramName = parameters.getParameterName(i);
 
-            // We use the text repository in order to avoid the unnecessary creation of too many instances of the same string
-            final String template = URL_TEMPLATE_DELIMITER_PREFIX + paramName + URL_TEMPLATE_DELIMITER_SUFFIX;
+            String templateReplacement = null;
+            for (int j = 0; j < linkBase.placeholderNames.length; j++) {
+                if (linkBase.placeholderNames[j].equals(paramName)) {
+                    if (templateReplacement == null) {
+                        templateReplacement = parameters.popParameterValueAsUnescapedVariableTemplate(i);
+                    }
+                    if (templateReplacements == null) {
+                        templateReplacements = new String[linkBase.placeholderNames.length];
+                    }
+                    templateReplacements[j] = templateReplacement;
+                }
+            }
+
+        }
+
+        return templateReplacements;
+
+    }
+
+
+
+
+
+
+    /*
+     * Compiled form of a link base, containing all the information that can be computed from the base String alone:
+     * link type, URL fragment and the literal and placeholder ({templateVar}) segments that compose it. For
+     * literal bases (the vast majority) this is computed only once and cached at the LinkExpression object.
+     */
+    private static final class LinkBase {
 
-            final int templateIndex = linkBase.indexOf(template); // not great, because StringBuilder.indexOf ends up calling template.toCharArray(), but...
+        final String base;
 
-            if (templateIndex < 0) {
-                // This parameter is not one of those used in path variables
-                continue;
+        final boolean contextRelative;
+        final boolean serverRelative;
+
+        final String[] literals; // there will always be (placeholderNames.length + 1) literals (maybe empty)
+        final String[] placeholderNames;
+        final boolean[] placeholderInQuery;
+
+        final boolean hasQuestionMark;
+        final String urlFragment;
+
+
+        private LinkBase(
+                final String base,
+                final boolean contextRelative, final boolean serverRelative,
+                final String[] literals, final String[] placeholderNames, final boolean[] placeholderInQuery,
+                final boolean hasQuestionMark, final String urlFragment) {
+            super();
+            this.base = base;
+            this.contextRelative = contextRelative;
+            this.serverRelative = serverRelative;
+            this.literals = literals;
+            this.placeholderNames = placeholderNames;
+            this.placeholderInQuery = placeholderInQuery;
+            this.hasQuestionMark = hasQuestionMark;
+            this.urlFragment = urlFragment;
+        }
+
+
+        static LinkBase compute(final String base) {
+
+            final boolean absolute = isLinkBaseAbsolute(base);
+            final boolean contextRelative = !absolute && isLinkBaseContextRelative(base);
+            final boolean serverRelative = !absolute && !contextRelative && isLinkBaseServerRelative(base);
+
+            /*
+             * Separate the URL fragment (selectors after '#') so that it can be output at the end of
+             * the URL, after parameters. If hash position == 0 we will not consider it as marking an URL fragment.
+             */
+            final int hashPosition = findCharInSequence(base, '#');
+            String path = (hashPosition > 0? base.substring(0, hashPosition) : base);
+            final String urlFragment = (hashPosition > 0? base.substring(hashPosition) : "");
+
+            /*
+             * If link base is server relative, the leading '~' character will not be output so that it starts with '/'
+             */
+            if (serverRelative) {
+                path = path.substring(1);
+            }
+
+            final int questionMarkPosition = path.indexOf('?');
+
+            /*
+             * Split the path into literals and {templateVar} placeholders
+             */
+            if (path.indexOf(URL_TEMPLATE_DELIMITER_PREFIX) < 0) {
+                // Fail fast: most link bases will have no variable templates at all
+                return new LinkBase(
+                        base, contextRelative, serverRelative,
+                        new String[] { path }, new String[0], new boolean[0],
+                        questionMarkPosition >= 0, urlFragment);
             }
 
-            // Compute the replacement (unescaped!)
-            final String templateReplacement = parameters.popParameterValueAsUnescapedVariableTemplate(i);
-            final int templateReplacementLen = templateReplacement.length();
+            final List<String> literals = new ArrayList<String>(4);
+            final List<String> placeholderNames = new ArrayList<String>(4);
+            final List<Boolean> placeholderInQuery = new ArrayList<Boolean>(4);
 
-            // We will now use a the StringBuilder itself for replacing all appearances of the variable template in
-            // the link base. Note we do this instead of using String#replace() because String#replace internally uses
-            // pattern matching and is very slow :-(
-            final int templateLen = template.length();
-            int start = templateIndex;
-            while (start > -1) {
-                // Depending on whether the template appeared before or after the ?, we will apply different escaping
-                final String escapedReplacement =
-                        (start < questionMarkPosition?
-                                UriEscape.escapeUriPath(templateReplacement) : UriEscape.escapeUriQueryParam(templateReplacement));
-                linkBase.replace(start, start + templateLen, escapedReplacement);
-                if (findCharInSequence(linkBase, URL_TEMPLATE_DELIMITER_PREFIX) < 0) {
-                    // Just trying to save an additional StringBuilder#indexOf() -which provokes a
-                    // template.toCharArray()-- in the most common case: only one variable template for a
-                    // variable that is not multivalued.
-                    return linkBase;
+            int current = 0;
+            int placeholderStart;
+            while ((placeholderStart = path.indexOf(URL_TEMPLATE_DELIMITER_PREFIX, current)) >= 0) {
+                final int placeholderEnd = path.indexOf(URL_TEMPLATE_DELIMITER_SUFFIX, placeholderStart + 1);
+                if (placeholderEnd < 0) {
+                    break;
                 }
-                start = linkBase.indexOf(template, start + templateReplacementLen);
+                literals.add(path.substring(current, placeholderStart));
+                placeholderNames.add(path.substring(placeholderStart + 1, placeholderEnd));
+                placeholderInQuery.add(Boolean.valueOf(questionMarkPosition >= 0 && placeholderStart > questionMarkPosition));
+                current = placeholderEnd + 1;
             }
+            literals.add(path.substring(current));
 
-        }
+            final boolean[] placeholderInQueryArray = new boolean[placeholderInQuery.size()];
+            for (int i = 0; i < placeholderInQueryArray.length; i++) {
+                placeholderInQueryArray[i] = placeholderInQuery.get(i).booleanValue();
+            }
+
+            return new LinkBase(
+                    base, contextRelative, serverRelative,
+                    literals.toArray(new String[literals.size()]),
+                    placeholderNames.toArray(new String[placeholderNames.size()]),
+                    placeholderInQueryArray,
+                    questionMarkPosition >= 0, urlFragment);
 
-        return linkBase;
+        }
 
     }
 
@@ -138,6 +138,11 @@ static Object executeMinus(final IProcessingContext processingContext,
             operandValue = "null";
         }
 
+        final BigDecimal fastResult = NumberOperationUtils.negate(operandValue);
+        if (fastResult != null) {
+            return fastResult;
+        }
+
         final BigDecimal operandNumberValue = EvaluationUtils.evaluateAsNumber(operandValue);
         if (operandNumberValue != null) {
             // Addition will act as a mathematical 'plus'
@@ -79,6 +79,11 @@ static Object executeMultiplication(final IProcessingContext processingContext,
             rightValue = "null";
         }
 
+        final BigDecimal fastResult = NumberOperationUtils.multiply(leftValue, rightValue);
+        if (fastResult != null) {
+            return fastResult;
+        }
+
         final BigDecimal leftNumberValue = EvaluationUtils.evaluateAsNumber(leftValue);
         final BigDecimal rightNumberValue = EvaluationUtils.evaluateAsNumber(rightValue);
         if (leftNumberValue != null && rightNumberValue != null) {
@@ -0,0 +1,222 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.standard.expression;
+
+import java.math.BigDecimal;
+
+
+/**
+ * <p>
+ *   Fast paths for the arithmetic and comparison operators of Standard Expressions, applied when operands are
+ *   integral numbers (<tt>Integer</tt>, <tt>Long</tt>, <tt>Short</tt> or scale-0 <tt>BigDecimal</tt> values
+ *   like number literals) or, for comparisons, <tt>Double</tt>/<tt>Float</tt> numbers.
+ * </p>
+ * <p>
+ *   These avoid converting every operand into a new <tt>BigDecimal</tt> by computing with <tt>long</tt> (or
+ *   <tt>double</tt>) values, and always return exactly the same results as the <tt>BigDecimal</tt>-based
+ *   operations (arithmetic results are still returned as <tt>BigDecimal</tt>, with the same scale). When a fast
+ *   path cannot guarantee this (overflow, division by zero, non-exact division...), <tt>null</tt> (or
+ *   {@link #NOT_COMPARABLE}) is returned and the caller should fall back to <tt>BigDecimal</tt> arithmetic.
+ * </p>
+ * <p>
+ *   Note arithmetic on floating point operands is never fast-pathed, because <tt>BigDecimal</tt> arithmetic on
+ *   the exact values of <tt>double</tt> operands can yield different results than <tt>double</tt> arithmetic.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+final class NumberOperationUtils {
+
+    static final int NOT_COMPARABLE = Integer.MIN_VALUE;
+
+    // Scale-0 BigDecimals with up to this precision can always be represented as longs
+    private static final int MAX_LONG_PRECISION = 18;
+
+    // Longs up to this absolute value can be exactly represented as doubles
+    private static final long MAX_EXACT_DOUBLE_LONG = 1L << 53;
+
+
+
+
+    static BigDecimal add(final Object left, final Object right) {
+        if (!isIntegral(left) || !isIntegral(right)) {
+            return null;
+        }
+        final long l = ((Number) left).longValue();
+        final long r = ((Number) right).longValue();
+        final long result = l + r;
+        if (((l ^ result) & (r ^ result)) < 0L) {
+            // Overflow
+            return null;
+        }
+        return BigDecimal.valueOf(result);
+    }
+
+
+    static BigDecimal subtract(final Object left, final Object right) {
+        if (!isIntegral(left) || !isIntegral(right)) {
+            return null;
+        }
+        final long l = ((Number) left).longValue();
+        final long r = ((Number) right).longValue();
+        final long result = l - r;
+        if (((l ^ r) & (l ^ result)) < 0L) {
+            // Overflow
+            return null;
+        }
+        return BigDecimal.valueOf(result);
+    }
+
+
+    static BigDecimal multiply(final Object left, final Object right) {
+        if (!isIntegral(left) || !isIntegral(right)) {
+            return null;
+        }
+        final long l = ((Number) left).longValue();
+        final long r = ((Number) right).longValue();
+        final long result = l * r;
+        if (((Math.abs(l) | Math.abs(r)) >>> 31) != 0L) {
+            // At least one of the operands does not fit in an int, so the result might have overflowed
+            if ((r != 0L && result / r != l) || (l == Long.MIN_VALUE && r == -1L)) {
+                return null;
+            }
+        }
+        return BigDecimal.valueOf(result);
+    }
+
+
+    static BigDecimal divide(final Object left, final Object right) {
+        if (!isIntegral(left) || !isIntegral(right)) {
+            return null;
+        }
+        final long l = ((Number) left).longValue();
+        final long r = ((Number) right).longValue();
+        if (r == 0L || (l == Long.MIN_VALUE && r == -1L) || l % r != 0L) {
+            // Division by zero (BigDecimal will raise the exception), overflow or non-exact result (which would
+            // have a scale other than 0)
+            return null;
+        }
+        return BigDecimal.valueOf(l / r);
+    }
+
+
+    static BigDecimal remainder(final Object left, final Object right) {
+        if (!isIntegral(left) || !isIntegral(right)) {
+            return null;
+        }
+        final long r = ((Number) right).longValue();
+        if (r == 0L) {
+            // BigDecimal will raise the corresponding exception
+            return null;
+        }
+        // Same semantics as BigDecimal#remainder: the sign of the result is the sign of the dividend
+        return BigDecimal.valueOf(((Number) left).longValue() % r);
+    }
+
+
+    static BigDecimal negate(final Object operand) {
+        if (!isIntegral(operand)) {
+            return null;
+        }
+        final long value = ((Number) operand).longValue();
+        if (value == Long.MIN_VALUE) {
+            return null;
+        }
+        return BigDecimal.valueOf(-value);
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Compares two numbers, if both of them are integral or floating point numbers that can be exactly compared
+     *   without converting them into <tt>BigDecimal</tt>.
+     * </p>
+     *
+     * @param left the left operand.
+     * @param right the right operand.
+     * @return -1, 0 or 1 (same as <tt>BigDecimal#compareTo</tt>), or {@link #NOT_COMPARABLE} if a fast path
+     *         cannot be applied.
+     */
+    static int compare(final Object left, final Object right) {
+
+        if (isIntegral(left) && isIntegral(right)) {
+            final long l = ((Number) left).longValue();
+            final long r = ((Number) right).longValue();
+            return (l < r? -1 : (l == r? 0 : 1));
+        }
+
+        if (isExactDouble(left) && isExactDouble(right)) {
+            // Comparing the double values is the same as comparing their exact BigDecimal representations
+            // (also for -0.0 and 0.0, which are considered equal)
+            final double l = ((Number) left).doubleValue();
+            final double r = ((Number) right).doubleValue();
+            return (l < r? -1 : (l == r? 0 : 1));
+        }
+
+        return NOT_COMPARABLE;
+
+    }
+
+
+
+
+    private static boolean isIntegral(final Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+            return true;
+        }
+        if (value instanceof BigDecimal) {
+            final BigDecimal bigDecimalValue = (BigDecimal) value;
+            return bigDecimalValue.scale() == 0 && bigDecimalValue.precision() <= MAX_LONG_PRECISION;
+        }
+        return false;
+    }
+
+
+    private static boolean isExactDouble(final Object value) {
+        if (value instanceof Double) {
+            final double doubleValue = ((Double) value).doubleValue();
+            // NaN and infinites cannot be converted into BigDecimal, so they must keep on raising exceptions
+            return !Double.isNaN(doubleValue) && !Double.isInfinite(doubleValue);
+        }
+        if (value instanceof Float) {
+            final float floatValue = ((Float) value).floatValue();
+            return !Float.isNaN(floatValue) && !Float.isInfinite(floatValue);
+        }
+        if (isIntegral(value)) {
+            final long longValue = ((Number) value).longValue();
+            return longValue <= MAX_EXACT_DOUBLE_LONG && longValue >= -MAX_EXACT_DOUBLE_LONG;
+        }
+        return false;
+    }
+
+
+
+
+    private NumberOperationUtils() {
+        super();
+    }
+
+
+}
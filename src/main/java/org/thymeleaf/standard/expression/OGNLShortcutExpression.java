@@ -44,14 +44,28 @@
 import ognl.SetPropertyAccessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.thymeleaf.IEngineConfiguration;
 import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.cache.ICache;
-import org.thymeleaf.cache.ICacheManager;
 import org.thymeleaf.context.IProcessingContext;
 import org.thymeleaf.context.IVariablesMap;
 
 /**
+ * <p>
+ *   Shortcut for the evaluation of simple OGNL expressions consisting only of chains of properties
+ *   (e.g. <tt>user.address.city</tt>), which replicates the behaviour of OGNL's standard property accessors.
+ * </p>
+ * <p>
+ *   Each level of the expression keeps an inline cache with the property accessor resolved for the last target
+ *   class it has seen, including whether the shortcut is applicable at all to that class (it is not when OGNL
+ *   would use a custom property accessor). When not applicable, evaluation returns {@link #NOT_APPLICABLE}
+ *   and the expression should be evaluated by OGNL using {@link #getOgnlExpression()}, which is parsed only once
+ *   and then kept along with the shortcut. This way, expressions whose targets alternate between applicable
+ *   and non-applicable classes (e.g. a map in one template and a bean in another) do not need to be removed from
+ *   the cache, parsed again or signaled by means of exceptions.
+ * </p>
+ * <p>
+ *   Objects of this class are <b>thread-safe</b>: inline caches are immutable objects which are simply replaced
+ *   when a new target class is found.
+ * </p>
  *
  * @author Daniel Fern&aacute;ndez
  *
@@ -62,84 +76,118 @@ final class OGNLShortcutExpression {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OGNLShortcutExpression.class);
 
-    private static final String OGNL_SHORTCUT_EXPRESSION_PREFIX = "ognlsc|";
+    static final Object NOT_APPLICABLE = new Object();
+
     private static final Object[] NO_PARAMS = new Object[0];
 
+    private static final int KIND_NOT_APPLICABLE = 0;
+    private static final int KIND_VARIABLES_MAP = 1;
+    private static final int KIND_OBJECT = 2;
+    private static final int KIND_MAP = 3;
+    private static final int KIND_LIST = 4;
+    private static final int KIND_SET = 5;
+    private static final int KIND_ITERATOR = 6;
+    private static final int KIND_ENUMERATION = 7;
+    private static final int KIND_ARRAY = 8;
+
+    private final String expression;
     private final String[] expressionLevels;
 
+    // Inline caches, one per level. Elements are immutable (final fields only), so they can be safely
+    // read and replaced by several threads without further synchronization.
+    private final LevelAccessor[] levelAccessors;
+
+    // Parsed lazily, only if needed for an evaluation to which the shortcut is not applicable
+    private volatile Object ognlExpression = null;
 
-    OGNLShortcutExpression(final String[] expressionLevels) {
+
+    OGNLShortcutExpression(final String expression, final String[] expressionLevels) {
         super();
+        this.expression = expression;
         this.expressionLevels = expressionLevels;
+        this.levelAccessors = new LevelAccessor[expressionLevels.length];
+    }
+
+
+    Object getOgnlExpression() throws OgnlException {
+        Object ognlExpression = this.ognlExpression;
+        if (ognlExpression == null) {
+            ognlExpression = ognl.Ognl.parseExpression(this.expression);
+            OGNLVariableExpressionEvaluator.internPropertyNames((ognl.Node) ognlExpression);
+            this.ognlExpression = ognlExpression;
+        }
+        return ognlExpression;
     }
 
 
     Object evaluate(final IProcessingContext processingContext, final Map<String, Object> context, final Object root)
             throws Exception {
 
-        final IEngineConfiguration configuration = processingContext.getConfiguration();
-        final ICacheManager cacheManager = configuration.getCacheManager();
-        final ICache<String, Object> expressionCache = (cacheManager == null? null : cacheManager.getExpressionCache());
-
         Object target = root;
-        for (final String propertyName : this.expressionLevels) {
+        for (int i = 0; i < this.expressionLevels.length; i++) {
+
+            final String propertyName = this.expressionLevels[i];
 
             // If target is null, we will mimic what OGNL does in these cases...
             if (target == null) {
                 throw new OgnlException("source is null for getProperty(null, \"" + propertyName + "\")");
             }
 
-            // For the best integration possible, we will ask OGNL which property accessor it would use for
-            // this target object, and then depending on the result apply our equivalent or just default to
-            // OGNL evaluation if it is a custom property accessor we do not implement.
-            final Class<?> targetClass = OgnlRuntime.getTargetClass(target);
-            final PropertyAccessor ognlPropertyAccessor = OgnlRuntime.getPropertyAccessor(targetClass);
-
-            // Depending on the returned OGNL property accessor, we will try to apply ours
+            final LevelAccessor accessor;
             if (target instanceof Class<?>) {
 
                 // Because of the way OGNL works, the "OgnlRuntime.getTargetClass(...)" of a Class object is the class
                 // object itself, so we might be trying to apply a PropertyAccessor to a Class instead of a real object,
-                // something we avoid by means of this shortcut
-                target = getObjectProperty(expressionCache, propertyName, target);
-
-            } else if (OGNLVariablesMapPropertyAccessor.class.equals(ognlPropertyAccessor.getClass())) {
-
-                target = getVariablesMapProperty(propertyName, context, target);
-
-            } else if (ObjectPropertyAccessor.class.equals(ognlPropertyAccessor.getClass())) {
+                // something we avoid by means of this shortcut. These accessors are not cached, as their read
+                // methods depend on the specific Class object and not on the class of the target.
+                accessor = new LevelAccessor(Class.class, KIND_OBJECT, findReadMethod((Class<?>) target, propertyName));
 
-                target = getObjectProperty(expressionCache, propertyName, target);
-
-            } else if (MapPropertyAccessor.class.equals(ognlPropertyAccessor.getClass())) {
-
-                target = getMapProperty(propertyName, (Map<?, ?>) target);
-
-            } else if (ListPropertyAccessor.class.equals(ognlPropertyAccessor.getClass())) {
-
-                target = getListProperty(expressionCache, propertyName, (List<?>) target);
-
-            } else if (SetPropertyAccessor.class.equals(ognlPropertyAccessor.getClass())) {
-
-                target = getSetProperty(expressionCache, propertyName, (Set<?>) target);
-
-            } else if (IteratorPropertyAccessor.class.equals(ognlPropertyAccessor.getClass())) {
-
-                target = getIteratorProperty(expressionCache, propertyName, (Iterator<?>) target);
-
-            } else if (EnumerationPropertyAccessor.class.equals(ognlPropertyAccessor.getClass())) {
+            } else {
 
-                target = getEnumerationProperty(expressionCache, propertyName, (Enumeration<?>) target);
+                final LevelAccessor cachedAccessor = this.levelAccessors[i];
+                if (cachedAccessor != null && cachedAccessor.targetClass == target.getClass()) {
+                    accessor = cachedAccessor;
+                } else {
+                    accessor = LevelAccessor.resolve(target.getClass(), propertyName);
+                    this.levelAccessors[i] = accessor;
+                }
 
-            } else if (ArrayPropertyAccessor.class.equals(ognlPropertyAccessor.getClass())) {
+            }
 
-                target = getArrayProperty(expressionCache, propertyName, (Object[]) target);
+            switch (accessor.kind) {
+                case KIND_VARIABLES_MAP:
+                    target = getVariablesMapProperty(propertyName, context, target);
+                    break;
+                case KIND_OBJECT:
+                    target = getObjectProperty(accessor.readMethod, target);
+                    break;
+                case KIND_MAP:
+                    target = getMapProperty(propertyName, (Map<?,?>) target);
+                    break;
+                case KIND_LIST:
+                    target = getListProperty(accessor.readMethod, propertyName, (List<?>) target);
+                    break;
+                case KIND_SET:
+                    target = getSetProperty(accessor.readMethod, propertyName, (Set<?>) target);
+                    break;
+                case KIND_ITERATOR:
+                    target = getIteratorProperty(accessor.readMethod, propertyName, (Iterator<?>) target);
+                    break;
+                case KIND_ENUMERATION:
+                    target = getEnumerationProperty(accessor.readMethod, propertyName, (Enumeration<?>) target);
+                    break;
+                case KIND_ARRAY:
+                    target = getArrayProperty(accessor.readMethod, propertyName, target);
+                    break;
+                default:
+                    // OGNL would like to apply a different property accessor (probably a custom one we do not know).
+                    // In these cases, we must signal the problem so that the expression evaluator defaults to
+                    // normal OGNL evaluation.
+                    return NOT_APPLICABLE;
+            }
 
-            } else {
-                // OGNL would like to apply a different property accessor (probably a custom one we do not know). In
-                // these cases, we must signal the problem with this exception and let the expression evaluator
-                // default to normal OGNL evaluation.
-                throw new OGNLShortcutExpressionNotApplicableException();
+            if (target == NOT_APPLICABLE) {
+                return NOT_APPLICABLE;
             }
 
         }
@@ -208,56 +256,45 @@ private static Object checkExecInfo(final String propertyName, final Map<String,
 
 
 
-    private static Object getObjectProperty(
-            final ICache<String,Object> expressionCache, final String propertyName, final Object target) {
+    private static Method findReadMethod(final Class<?> targetClass, final String propertyName) {
 
-        final Class<?> currClass = OgnlRuntime.getTargetClass(target);
-        final String cacheKey = computeMethodCacheKey(currClass, propertyName);
-
-        Method readMethod = null;
+        final BeanInfo beanInfo;
+        try {
+            beanInfo = Introspector.getBeanInfo(targetClass);
+        } catch (final IntrospectionException e) {
+            // Something went wrong during introspection - wash hands, just let OGNL decide what to do
+            return null;
+        }
 
-        if (expressionCache != null) {
-            readMethod = (Method) expressionCache.get(cacheKey);
+        final PropertyDescriptor[] propertyDescriptors = beanInfo.getPropertyDescriptors();
+        if (propertyDescriptors != null) {
+            for (final PropertyDescriptor propertyDescriptor : propertyDescriptors) {
+                if (propertyDescriptor.getName().equals(propertyName)) {
+                    return propertyDescriptor.getReadMethod();
+                }
+            }
         }
+        return null;
 
-        if (readMethod == null) {
+    }
 
-            final BeanInfo beanInfo;
-            try {
-                beanInfo = Introspector.getBeanInfo(currClass);
-            } catch (final IntrospectionException e) {
-                // Something went wrong during introspection - wash hands, just let OGNL decide what to do
-                throw new OGNLShortcutExpressionNotApplicableException();
-            }
 
-            final PropertyDescriptor[] propertyDescriptors = beanInfo.getPropertyDescriptors();
-            if (propertyDescriptors != null) {
-                for (final PropertyDescriptor propertyDescriptor : propertyDescriptors) {
-                    if (propertyDescriptor.getName().equals(propertyName)) {
-                        readMethod = propertyDescriptor.getReadMethod();
-                        if (readMethod != null && expressionCache != null) {
-                            expressionCache.put(cacheKey, readMethod);
-                        }
-                        break;
-                    }
-                }
-            }
 
-        }
+    private static Object getObjectProperty(final Method readMethod, final Object target) {
 
         if (readMethod == null) {
             // The property name does not match any getter methods - better let OGNL decide what to do
-            throw new OGNLShortcutExpressionNotApplicableException();
+            return NOT_APPLICABLE;
         }
 
         try {
             return readMethod.invoke(target, NO_PARAMS);
         } catch (final IllegalAccessException e) {
             // Oops! we better let OGNL take care of this its own way...
-            throw new OGNLShortcutExpressionNotApplicableException();
+            return NOT_APPLICABLE;
         } catch (final InvocationTargetException e) {
             // Oops! we better let OGNL take care of this its own way...
-            throw new OGNLShortcutExpressionNotApplicableException();
+            return NOT_APPLICABLE;
         }
 
     }
@@ -297,8 +334,8 @@ private static Object getMapProperty(final String propertyName, final Map<?,?> m
 
 
 
-    public static Object getListProperty(
-            final ICache<String,Object> expressionCache, final String propertyName, final List<?> list) {
+    private static Object getListProperty(
+            final Method readMethod, final String propertyName, final List<?> list) {
 
         /*
          * This method will try to mimic the behaviour of the ognl.ListPropertyAccessor class, with the exception
@@ -321,14 +358,14 @@ public static Object getListProperty(
         }
 
         // Default to treating the list object as any other object
-        return getObjectProperty(expressionCache, propertyName, list);
+        return getObjectProperty(readMethod, list);
 
     }
 
 
 
-    public static Object getArrayProperty(
-            final ICache<String,Object> expressionCache, final String propertyName, final Object[] array) {
+    private static Object getArrayProperty(
+            final Method readMethod, final String propertyName, final Object array) {
 
         /*
          * This method will try to mimic the behaviour of the ognl.ArrayPropertyAccessor class, with the exception
@@ -345,14 +382,14 @@ public static Object getArrayProperty(
         }
 
         // Default to treating the array object as any other object
-        return getObjectProperty(expressionCache, propertyName, array);
+        return getObjectProperty(readMethod, array);
 
     }
 
 
 
-    public static Object getEnumerationProperty(
-            final ICache<String,Object> expressionCache, final String propertyName, final Enumeration enumeration) {
+    private static Object getEnumerationProperty(
+            final Method readMethod, final String propertyName, final Enumeration<?> enumeration) {
 
         /*
          * This method will try to mimic the behaviour of the ognl.EnumerationPropertyAccessor class, with the exception
@@ -368,14 +405,14 @@ public static Object getEnumerationProperty(
         }
 
         // Default to treating the enumeration object as any other object
-        return getObjectProperty(expressionCache, propertyName, enumeration);
+        return getObjectProperty(readMethod, enumeration);
 
     }
 
 
 
-    public static Object getIteratorProperty(
-            final ICache<String,Object> expressionCache, final String propertyName, final Iterator<?> iterator) {
+    private static Object getIteratorProperty(
+            final Method readMethod, final String propertyName, final Iterator<?> iterator) {
 
         /*
          * This method will try to mimic the behaviour of the ognl.IteratorPropertyAccessor class, with the exception
@@ -391,14 +428,14 @@ public static Object getIteratorProperty(
         }
 
         // Default to treating the iterator object as any other object
-        return getObjectProperty(expressionCache, propertyName, iterator);
+        return getObjectProperty(readMethod, iterator);
 
     }
 
 
 
-    public static Object getSetProperty(
-            final ICache<String,Object> expressionCache, final String propertyName, final Set<?> set) {
+    private static Object getSetProperty(
+            final Method readMethod, final String propertyName, final Set<?> set) {
 
         /*
          * This method will try to mimic the behaviour of the ognl.IteratorPropertyAccessor class, with the exception
@@ -417,7 +454,7 @@ public static Object getSetProperty(
         }
 
         // Default to treating the set object as any other object
-        return getObjectProperty(expressionCache, propertyName, set);
+        return getObjectProperty(readMethod, set);
 
     }
 
@@ -470,7 +507,8 @@ private static String[] doParseExpr(final String expression, final int level, fi
             result = new String[level + 1];
         }
 
-        result[level] = expression.substring(offset, i);
+        // Interned, so that variables maps can compare property names by identity (see VariablesMap)
+        result[level] = expression.substring(offset, i).intern();
 
         if ("true".equalsIgnoreCase(result[level]) || "false".equalsIgnoreCase(result[level]) || "null".equalsIgnoreCase(result[level])) {
             return null;
@@ -482,26 +520,63 @@ private static String[] doParseExpr(final String expression, final int level, fi
 
 
 
-    private static String computeMethodCacheKey(final Class<?> targetClass, final String propertyName) {
-        return OGNL_SHORTCUT_EXPRESSION_PREFIX + targetClass.getName() + propertyName;
-    }
+    /*
+     * Inline cache for a level of the expression: the kind of OGNL property accessor that would be applied to
+     * a specific target class (or the impossibility to replicate it), along with the read method for the property
+     * if there is one.
+     *
+     * Most common reason for the shortcut not being applicable is the existance of a custom property accessor
+     * registered in OGNL for accessing the properties of one of the objects involved in the expression, which
+     * behaviour (the custom property accessor's) cannot be replicated by OGNLShortcutExpressions.
+     */
+    private static final class LevelAccessor {
 
+        final Class<?> targetClass;
+        final int kind;
+        final Method readMethod;
 
 
+        static LevelAccessor resolve(final Class<?> targetClass, final String propertyName) throws OgnlException {
+
+            // For the best integration possible, we will ask OGNL which property accessor it would use for
+            // this target class, and then depending on the result apply our equivalent or just default to
+            // OGNL evaluation if it is a custom property accessor we do not implement.
+            final Class<?> ognlPropertyAccessorClass = OgnlRuntime.getPropertyAccessor(targetClass).getClass();
+
+            final int kind;
+            if (OGNLVariablesMapPropertyAccessor.class.equals(ognlPropertyAccessorClass)) {
+                kind = KIND_VARIABLES_MAP;
+            } else if (ObjectPropertyAccessor.class.equals(ognlPropertyAccessorClass)) {
+                kind = KIND_OBJECT;
+            } else if (MapPropertyAccessor.class.equals(ognlPropertyAccessorClass)) {
+                kind = KIND_MAP;
+            } else if (ListPropertyAccessor.class.equals(ognlPropertyAccessorClass)) {
+                kind = KIND_LIST;
+            } else if (SetPropertyAccessor.class.equals(ognlPropertyAccessorClass)) {
+                kind = KIND_SET;
+            } else if (IteratorPropertyAccessor.class.equals(ognlPropertyAccessorClass)) {
+                kind = KIND_ITERATOR;
+            } else if (EnumerationPropertyAccessor.class.equals(ognlPropertyAccessorClass)) {
+                kind = KIND_ENUMERATION;
+            } else if (ArrayPropertyAccessor.class.equals(ognlPropertyAccessorClass)) {
+                kind = KIND_ARRAY;
+            } else {
+                return new LevelAccessor(targetClass, KIND_NOT_APPLICABLE, null);
+            }
+
+            final Method readMethod =
+                    (kind == KIND_VARIABLES_MAP || kind == KIND_MAP? null : findReadMethod(targetClass, propertyName));
+
+            return new LevelAccessor(targetClass, kind, readMethod);
+
+        }
 
-    /*
-     * This exception signals that the OGNLShortcutExpression mechanism is not applicable for the current
-     * expression, and therefore the OGNLVariableExpressionEvaluator should default to standard pure-OGNL
-     * evaluation.
-     *
-     * Most common reason for this is the existance of a custom property accessor registered in OGNL for accessing
-     * the properties of one of the objects involved in the expression, which behaviour (the custom property accessor's)
-     * cannot be replicated by OGNLShortcutExpressions.
-     */
-    static class OGNLShortcutExpressionNotApplicableException extends RuntimeException {
 
-        OGNLShortcutExpressionNotApplicableException() {
+        LevelAccessor(final Class<?> targetClass, final int kind, final Method readMethod) {
             super();
+            this.targetClass = targetClass;
+            this.kind = kind;
+            this.readMethod = readMethod;
         }
 
     }
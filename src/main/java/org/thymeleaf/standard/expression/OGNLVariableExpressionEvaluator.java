@@ -22,6 +22,12 @@
 import java.util.Collections;
 import java.util.Map;
 
+import ognl.ASTConst;
+import ognl.ASTProperty;
+import ognl.ASTRootVarRef;
+import ognl.ASTThisVarRef;
+import ognl.ASTVarRef;
+import ognl.Node;
 import ognl.OgnlContext;
 import ognl.OgnlException;
 import ognl.OgnlRuntime;
@@ -33,6 +39,7 @@
 import org.thymeleaf.context.IVariablesMap;
 import org.thymeleaf.exceptions.TemplateProcessingException;
 import org.thymeleaf.expression.IExpressionObjects;
+import org.thymeleaf.metrics.IEngineMetrics;
 import org.thymeleaf.standard.util.StandardExpressionUtils;
 
 /**
@@ -87,17 +94,7 @@ public OGNLVariableExpressionEvaluator(final boolean applyOGNLShortcuts) {
     public final Object evaluate(
             final IProcessingContext processingContext, final String expression,
             final StandardExpressionExecutionContext expContext, final boolean useSelectionAsRoot) {
-        return evaluate(processingContext, expression, expContext, useSelectionAsRoot, this.applyOGNLShortcuts);
-    }
-
-
 
-
-    private static Object evaluate(
-        final IProcessingContext processingContext, final String expression,
-        final StandardExpressionExecutionContext expContext, final boolean useSelectionAsRoot,
-        final boolean applyOGNLShortcuts) {
-       
         try {
 
             if (logger.isTraceEnabled()) {
@@ -106,37 +103,21 @@ private static Object evaluate(
 
             final IEngineConfiguration configuration = processingContext.getConfiguration();
             
-            Object parsedExpression = ExpressionCache.getFromCache(configuration, expression, OGNL_CACHE_PREFIX);
+            ParsedExpression parsedExpression =
+                    (ParsedExpression) ExpressionCache.getFromCache(configuration, expression, OGNL_CACHE_PREFIX);
             if (parsedExpression == null) {
                 // The result of parsing might be an OGNL expression AST or a ShortcutOGNLExpression (for simple cases)
-                parsedExpression = parseExpression(expression, applyOGNLShortcuts);
+                parsedExpression = parseExpression(expression, this.applyOGNLShortcuts);
                 ExpressionCache.putIntoCache(configuration, expression, parsedExpression, OGNL_CACHE_PREFIX);
             }
 
             final Map<String,Object> contextVariablesMap;
-            if (StandardExpressionUtils.mightNeedExpressionObjects(expression)) {
-
-                // The IExpressionObjects implementation returned by processing contexts that include the Standard
-                // Dialects will be lazy in the creation of expression objects (i.e. they won't be created until really
-                // needed). And in order for this behaviour to be accepted by OGNL, we will be wrapping this object
-                // inside an implementation of Map<String,Object>, which will afterwards be fed to the constructor
-                // of an OgnlContext object.
+            if (parsedExpression.needsExpressionObjects) {
 
                 // Note this will never happen with shortcut expressions, as the '#' character with which all
                 // expression object names start is not allowed by the OGNLShortcutExpression parser.
-
-                final IExpressionObjects expressionObjects = processingContext.getExpressionObjects();
-                contextVariablesMap = new OGNLContextExpressionObjectsWrapper(expressionObjects);
-
-                // We might need to apply restrictions on the request parameters. In the case of OGNL, the only way we
-                // can actually communicate with the PropertyAccessor, (OGNLVariablesMapPropertyAccessor), which is the
-                // agent in charge of applying such restrictions, is by adding a context variable that the property accessor
-                // can later lookup during evaluation.
-                if (expContext.getRestrictVariableAccess()) {
-                    contextVariablesMap.put(OGNLVariablesMapPropertyAccessor.RESTRICT_REQUEST_PARAMETERS, OGNLVariablesMapPropertyAccessor.RESTRICT_REQUEST_PARAMETERS);
-                } else {
-                    contextVariablesMap.remove(OGNLVariablesMapPropertyAccessor.RESTRICT_REQUEST_PARAMETERS);
-                }
+                contextVariablesMap =
+                        createContextVariablesMap(processingContext, expContext.getRestrictVariableAccess());
 
             } else {
 
@@ -156,17 +137,8 @@ private static Object evaluate(
                     (useSelectionAsRoot && variablesMap.hasSelectionTarget()? variablesMap.getSelectionTarget() : variablesMap);
 
             // Execute the expression!
-            final Object result;
-            try {
-                result = executeExpression(processingContext, parsedExpression, contextVariablesMap, evaluationRoot);
-            } catch (final OGNLShortcutExpression.OGNLShortcutExpressionNotApplicableException notApplicable) {
-                // We tried to apply shortcuts, but it is not possible for this expression even if it parsed OK,
-                // so we need to empty the cache and try again disabling shortcuts. Once processed for the first time,
-                // an OGNL (non-shortcut) parsed expression will already be cached and this exception will not be
-                // thrown again
-                ExpressionCache.removeFromCache(configuration, expression, OGNL_CACHE_PREFIX);
-                return evaluate(processingContext, expression, expContext, useSelectionAsRoot, false);
-            }
+            final Object result =
+                    executeExpression(processingContext, parsedExpression.expression, contextVariablesMap, evaluationRoot);
 
             if (!expContext.getPerformTypeConversion()) {
                 return result;
@@ -205,18 +177,108 @@ public String toString() {
 
 
 
-    private static Object parseExpression(final String expression, final boolean applyOGNLShortcuts)
+    /*
+     * Also used by compiled expressions, when they need OGNL to perform some of the steps of an evaluation
+     * (see CompiledVariableExpression).
+     */
+    static Map<String,Object> createContextVariablesMap(
+            final IProcessingContext processingContext, final boolean restrictVariableAccess) {
+
+        // The IExpressionObjects implementation returned by processing contexts that include the Standard
+        // Dialects will be lazy in the creation of expression objects (i.e. they won't be created until really
+        // needed). And in order for this behaviour to be accepted by OGNL, we will be wrapping this object
+        // inside an implementation of Map<String,Object>, which will afterwards be fed to the constructor
+        // of an OgnlContext object.
+        final IExpressionObjects expressionObjects = processingContext.getExpressionObjects();
+        final Map<String,Object> contextVariablesMap = new OGNLContextExpressionObjectsWrapper(expressionObjects);
+
+        // We might need to apply restrictions on the request parameters. In the case of OGNL, the only way we
+        // can actually communicate with the PropertyAccessor, (OGNLVariablesMapPropertyAccessor), which is the
+        // agent in charge of applying such restrictions, is by adding a context variable that the property accessor
+        // can later lookup during evaluation.
+        if (restrictVariableAccess) {
+            contextVariablesMap.put(OGNLVariablesMapPropertyAccessor.RESTRICT_REQUEST_PARAMETERS, OGNLVariablesMapPropertyAccessor.RESTRICT_REQUEST_PARAMETERS);
+        } else {
+            contextVariablesMap.remove(OGNLVariablesMapPropertyAccessor.RESTRICT_REQUEST_PARAMETERS);
+        }
+
+        return contextVariablesMap;
+
+    }
+
+
+
+
+    private static ParsedExpression parseExpression(final String expression, final boolean applyOGNLShortcuts)
+            throws OgnlException {
+
+        final Object parsedExpression = parseOgnlOrShortcutExpression(expression, applyOGNLShortcuts);
+        if (parsedExpression instanceof Node) {
+            internPropertyNames((Node) parsedExpression);
+        }
+
+        if (!StandardExpressionUtils.mightNeedExpressionObjects(expression)) {
+            // Quick check: no '#' and no 'execInfo', so no need to examine the parsed expression
+            return new ParsedExpression(parsedExpression, false);
+        }
+
+        // Expressions might contain '#' characters for reasons other than referencing expression objects (e.g. in
+        // text literals), so we will examine the parsed expression looking for actual variable references. Note
+        // 'execInfo' might also need expression objects (see StandardExpressionUtils#mightNeedExpressionObjects)
+        final boolean needsExpressionObjects =
+                expression.contains("execInfo") ||
+                (parsedExpression instanceof Node && containsVariableReferences((Node) parsedExpression));
+
+        return new ParsedExpression(parsedExpression, needsExpressionObjects);
+
+    }
+
+
+    private static Object parseOgnlOrShortcutExpression(final String expression, final boolean applyOGNLShortcuts)
             throws OgnlException {
         if (applyOGNLShortcuts) {
             final String[] parsedExpression = OGNLShortcutExpression.parse(expression);
             if (parsedExpression != null) {
-                return new OGNLShortcutExpression(parsedExpression);
+                return new OGNLShortcutExpression(expression, parsedExpression);
             }
         }
         return ognl.Ognl.parseExpression(expression);
     }
 
 
+    /*
+     * Property names are interned, so that variables maps (which receive them from OGNLVariablesMapPropertyAccessor)
+     * can compare them by identity. See VariablesMap#getVariable(String).
+     */
+    static void internPropertyNames(final Node node) {
+        if (node instanceof ASTProperty && node.jjtGetNumChildren() > 0 && node.jjtGetChild(0) instanceof ASTConst) {
+            final ASTConst propertyName = (ASTConst) node.jjtGetChild(0);
+            if (propertyName.getValue() instanceof String) {
+                propertyName.setValue(((String) propertyName.getValue()).intern());
+            }
+        }
+        final int childrenCount = node.jjtGetNumChildren();
+        for (int i = 0; i < childrenCount; i++) {
+            internPropertyNames(node.jjtGetChild(i));
+        }
+    }
+
+
+    private static boolean containsVariableReferences(final Node node) {
+        // #this and #root are resolved by OGNL itself, without looking into the context variables
+        if (node instanceof ASTVarRef && !(node instanceof ASTThisVarRef) && !(node instanceof ASTRootVarRef)) {
+            return true;
+        }
+        final int childrenCount = node.jjtGetNumChildren();
+        for (int i = 0; i < childrenCount; i++) {
+            if (containsVariableReferences(node.jjtGetChild(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
 
     private static Object executeExpression(
             final IProcessingContext processingContext, final Object parsedExpression,
@@ -224,13 +286,57 @@ private static Object executeExpression(
             throws Exception {
 
         if (parsedExpression instanceof OGNLShortcutExpression) {
-            return ((OGNLShortcutExpression) parsedExpression).evaluate(processingContext, context, root);
+
+            final OGNLShortcutExpression shortcutExpression = (OGNLShortcutExpression) parsedExpression;
+
+            final Object result = shortcutExpression.evaluate(processingContext, context, root);
+            if (result != OGNLShortcutExpression.NOT_APPLICABLE) {
+                return result;
+            }
+
+            // We tried to apply shortcuts, but it is not possible for the objects involved in this evaluation, so we
+            // need to evaluate using OGNL. The shortcut expression is kept cached (it might be applicable to other
+            // objects in future evaluations), and it will also keep the OGNL parsed expression for future fallbacks.
+            final IEngineMetrics metrics = processingContext.getConfiguration().getEngineMetrics();
+            if (metrics != null) {
+                metrics.recordExpressionEvaluationFallback(OGNLVariableExpressionEvaluator.class);
+            }
+            return executeOgnlExpression(shortcutExpression.getOgnlExpression(), context, root);
+
         }
 
+        return executeOgnlExpression(parsedExpression, context, root);
+
+    }
+
+
+
+    private static Object executeOgnlExpression(
+            final Object parsedExpression, final Map<String,Object> context, final Object root)
+            throws Exception {
         // We create the OgnlContext here instead of just sending the Map as context because that prevents OGNL from
         // creating the OgnlContext empty and then setting the context Map variables one by one
         final OgnlContext ognlContext = new OgnlContext(context);
         return ognl.Ognl.getValue(parsedExpression, ognlContext, root);
+    }
+
+
+
+
+    /*
+     * Parsed expressions are cached along with the knowledge of whether they really reference any expression
+     * objects (which requires wrapping them for OGNL to use them) or not.
+     */
+    private static final class ParsedExpression {
+
+        final Object expression;
+        final boolean needsExpressionObjects;
+
+        ParsedExpression(final Object expression, final boolean needsExpressionObjects) {
+            super();
+            this.expression = expression;
+            this.needsExpressionObjects = needsExpressionObjects;
+        }
 
     }
 
@@ -80,6 +80,11 @@ static Object executeRemainder(final IProcessingContext processingContext,
             rightValue = "null";
         }
 
+        final BigDecimal fastResult = NumberOperationUtils.remainder(leftValue, rightValue);
+        if (fastResult != null) {
+            return fastResult;
+        }
+
         final BigDecimal leftNumberValue = EvaluationUtils.evaluateAsNumber(leftValue);
         final BigDecimal rightNumberValue = EvaluationUtils.evaluateAsNumber(rightValue);
         if (leftNumberValue != null && rightNumberValue != null) {
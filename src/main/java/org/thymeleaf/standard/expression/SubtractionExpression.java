@@ -80,6 +80,11 @@ static Object executeSubtraction(final IProcessingContext processingContext,
             rightValue = "null";
         }
 
+        final BigDecimal fastResult = NumberOperationUtils.subtract(leftValue, rightValue);
+        if (fastResult != null) {
+            return fastResult;
+        }
+
         final BigDecimal leftNumberValue = EvaluationUtils.evaluateAsNumber(leftValue);
         final BigDecimal rightNumberValue = EvaluationUtils.evaluateAsNumber(rightValue);
         if (leftNumberValue != null && rightNumberValue != null) {
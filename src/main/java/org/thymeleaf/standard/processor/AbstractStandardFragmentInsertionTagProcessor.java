@@ -21,6 +21,7 @@
 
 import java.util.Map;
 
+import org.thymeleaf.cache.NonCacheableCacheEntryValidity;
 import org.thymeleaf.context.ITemplateProcessingContext;
 import org.thymeleaf.dialect.IProcessorDialect;
 import org.thymeleaf.engine.AttributeName;
@@ -106,6 +107,16 @@ protected void doProcess(
         }
 
 
+        /*
+         * REGISTER THE DEPENDENCY of the host template on the template the fragment comes from, so that cached
+         * outputs containing this fragment can be invalidated if the latter changes
+         */
+        if (!templateName.equals(attributeTemplateName)) {
+            processingContext.getTemplateManager().registerTemplateDependency(
+                    attributeTemplateName, processingContext.getTemplateResolution().getValidity(), templateName);
+        }
+
+
         /*
          * OBTAIN THE FRAGMENT MODEL from the TemplateManager. This means the fragment will be parsed and maybe
          * cached, and we will be returned an immutable model object (specifically a ParsedFragmentModel)
@@ -160,6 +171,17 @@ protected void doProcess(
         }
 
 
+        /*
+         * MAKE THE VALIDITY OF THE FRAGMENT'S TEMPLATE AVAILABLE to th:cache processors inside the fragment, as
+         * outputs of its elements can only be cached if its template is cacheable
+         */
+        if (!templateName.equals(attributeTemplateName)) {
+            structureHandler.setLocalVariable(
+                    StandardCacheModelProcessor.FRAGMENT_VALIDITY_VARIABLE_NAME,
+                    (parsedFragment.getValidity() != null? parsedFragment.getValidity() : NonCacheableCacheEntryValidity.INSTANCE));
+        }
+
+
         /*
          * APPLY THE FRAGMENT PARAMETERS AS LOCAL VARIABLES, perhaps after reshaping it according to the fragment signature
          */
@@ -0,0 +1,185 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.standard.processor;
+
+import java.util.List;
+
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.cache.AlwaysValidCacheEntryValidity;
+import org.thymeleaf.cache.CachedOutput;
+import org.thymeleaf.cache.ICache;
+import org.thymeleaf.cache.ICacheEntryValidity;
+import org.thymeleaf.cache.ICacheManager;
+import org.thymeleaf.cache.IOutputCacheManager;
+import org.thymeleaf.cache.OutputCacheKey;
+import org.thymeleaf.cache.TTLCacheEntryValidity;
+import org.thymeleaf.context.ITemplateProcessingContext;
+import org.thymeleaf.dialect.IProcessorDialect;
+import org.thymeleaf.engine.AttributeName;
+import org.thymeleaf.exceptions.TemplateProcessingException;
+import org.thymeleaf.inline.NoOpInliner;
+import org.thymeleaf.model.IModel;
+import org.thymeleaf.model.IProcessableElementTag;
+import org.thymeleaf.model.IText;
+import org.thymeleaf.processor.element.AbstractAttributeModelProcessor;
+import org.thymeleaf.processor.element.IElementModelStructureHandler;
+import org.thymeleaf.standard.expression.ExpressionSequence;
+import org.thymeleaf.standard.expression.ExpressionSequenceUtils;
+import org.thymeleaf.standard.expression.IStandardExpression;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.util.FastStringWriter;
+
+/**
+ * <p>
+ *   Processor for the <tt>th:cache</tt> attribute, which caches the output of the element it is set on
+ *   (including its body) in the Output Cache (see {@link IOutputCacheManager#getOutputCache()}).
+ * </p>
+ * <p>
+ *   The value of the attribute is a <em>key expression</em>, optionally followed by a <em>TTL</em> in
+ *   milliseconds (e.g. <tt>th:cache="${user.country}, 60000"</tt>). Outputs are cached for each element,
+ *   template mode, locale and result of the key expression, so that the key expression must evaluate
+ *   differently for every combination of context variables that could produce a different output.
+ * </p>
+ * <p>
+ *   This processor executes before any other processors on the same element, so that their results
+ *   are cached too. No output caching will be performed if template caching is disabled for the template
+ *   the element belongs to (which might be a template fragments are inserted from, not the one being processed),
+ *   or if the cache manager does not provide an Output Cache.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public final class StandardCacheModelProcessor extends AbstractAttributeModelProcessor {
+
+    public static final int PRECEDENCE = 50;
+    public static final String ATTR_NAME = "cache";
+    public static final String FRAGMENT_VALIDITY_VARIABLE_NAME = "%%FRAGMENT_VALIDITY%%";
+
+
+    public StandardCacheModelProcessor(final IProcessorDialect dialect, final TemplateMode templateMode, final String dialectPrefix) {
+        super(dialect, templateMode, dialectPrefix, null, false, ATTR_NAME, true, PRECEDENCE, true);
+    }
+
+
+
+    @Override
+    protected void doProcess(
+            final ITemplateProcessingContext processingContext,
+            final IModel model,
+            final AttributeName attributeName, final String attributeValue,
+            final String attributeTemplateName, final int attributeLine, final int attributeCol,
+            final IElementModelStructureHandler structureHandler) {
+
+        final IEngineConfiguration configuration = processingContext.getConfiguration();
+        final ICacheManager cacheManager = configuration.getCacheManager();
+        final ICache<OutputCacheKey,CachedOutput> outputCache =
+                (cacheManager instanceof IOutputCacheManager? ((IOutputCacheManager) cacheManager).getOutputCache() : null);
+
+        // The cached output will belong to the template the element comes from, which will be the one being
+        // processed unless the element has been inserted from a fragment of a different template
+        final IProcessableElementTag firstEvent = (IProcessableElementTag) model.get(0);
+        final ICacheEntryValidity ownerTemplateValidity =
+                (ICacheEntryValidity) processingContext.getVariables().getVariable(FRAGMENT_VALIDITY_VARIABLE_NAME);
+
+        if (outputCache == null ||
+                !(ownerTemplateValidity != null?
+                        ownerTemplateValidity : processingContext.getTemplateResolution().getValidity()).isCacheable()) {
+            // No output caching: the element will just be processed normally (without the th:cache attribute)
+            return;
+        }
+
+        final ExpressionSequence expressionSequence =
+                ExpressionSequenceUtils.parseExpressionSequence(processingContext, attributeValue);
+        final List<IStandardExpression> expressions = expressionSequence.getExpressions();
+        if (expressions.isEmpty() || expressions.size() > 2) {
+            throw new TemplateProcessingException(
+                    "Could not parse value as cache key expression and (optional) TTL: \"" + attributeValue + "\"");
+        }
+
+        final Object keyValue = expressions.get(0).execute(processingContext);
+        final ICacheEntryValidity validity =
+                (expressions.size() == 1?
+                        AlwaysValidCacheEntryValidity.INSTANCE :
+                        new TTLCacheEntryValidity(computeTTL(processingContext, expressions.get(1), attributeValue)));
+
+        final OutputCacheKey cacheKey =
+                new OutputCacheKey(
+                        firstEvent.getTemplateName(), firstEvent.getLine(), firstEvent.getCol(),
+                        processingContext.getTemplateMode(), processingContext.getLocale(),
+                        (keyValue == null? null : keyValue.toString()));
+
+        CachedOutput cachedOutput = processingContext.getTemplateManager().getCachedOutput(cacheKey);
+
+        if (cachedOutput == null) {
+
+            /*
+             * The element has to be processed. It will be processed normally (using the current processing context,
+             * so local variables and inlining configuration apply), but its output will be captured so that it can be
+             * cached and then inserted into the template in the same way a cached output would.
+             */
+            final FastStringWriter output = new FastStringWriter(256);
+            processingContext.getTemplateManager().processModel(processingContext, model, output);
+
+            cachedOutput = new CachedOutput(output.toString().toCharArray(), validity);
+            processingContext.getTemplateManager().putCachedOutput(cacheKey, cachedOutput);
+
+        }
+
+        /*
+         * The element is replaced by a text event that will write the cached output directly. Inlining is disabled
+         * for it because this output has already been processed (and inlined, if needed).
+         */
+        final IText text = processingContext.getModelFactory().createText("");
+        text.setText(cachedOutput);
+
+        model.reset();
+        model.add(text);
+
+        structureHandler.setInliner(NoOpInliner.INSTANCE);
+
+    }
+
+
+
+    private static long computeTTL(
+            final ITemplateProcessingContext processingContext, final IStandardExpression ttlExpression,
+            final String attributeValue) {
+
+        final Object ttlValue = ttlExpression.execute(processingContext);
+        if (ttlValue instanceof Number) {
+            return ((Number) ttlValue).longValue();
+        }
+        if (ttlValue != null) {
+            try {
+                return Long.parseLong(ttlValue.toString().trim());
+            } catch (final NumberFormatException ignored) {
+                // Will be reported below
+            }
+        }
+        throw new TemplateProcessingException(
+                "Cache TTL must evaluate to a number of milliseconds: \"" + attributeValue + "\"");
+
+    }
+
+
+}
@@ -55,7 +55,8 @@ protected void doProcess(
             final Object expressionResult,
             final IElementTagStructureHandler structureHandler) {
 
-        final String text = StandardEscapedOutputUtils.produceEscapedOutput(getTemplateMode(), expressionResult);
+        // Escaping will be lazily performed directly on the output writer, and only if really needed
+        final CharSequence text = StandardEscapedOutputUtils.produceLazyEscapedOutput(getTemplateMode(), expressionResult);
 
         structureHandler.setBody(text, false);
 
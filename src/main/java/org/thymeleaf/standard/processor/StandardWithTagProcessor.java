@@ -95,11 +95,13 @@ protected void doProcess(
             final IStandardExpression rightExpr = assignation.getRight();
             final Object rightValue = rightExpr.execute(processingContext);
 
-            final String newVariableName = (leftValue == null? null : leftValue.toString());
-            if (StringUtils.isEmptyOrWhitespace(newVariableName)) {
+            final String leftName = (leftValue == null? null : leftValue.toString());
+            if (StringUtils.isEmptyOrWhitespace(leftName)) {
                 throw new TemplateProcessingException(
                         "Variable name expression evaluated as null or empty: \"" + leftExpr + "\"");
             }
+            // Interned so that lookups from (also interned) expression variable names compare by identity
+            final String newVariableName = leftName.intern();
 
             if (localVariableAwareVariablesMap != null) {
                 localVariableAwareVariablesMap.put(newVariableName, rightValue);
@@ -0,0 +1,104 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.standard.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.util.IWritableCharSequence;
+
+/**
+ * <p>
+ *   Character sequence that represents the escaped output of a text for a specific template mode, but
+ *   only performs such escaping when it is actually needed.
+ * </p>
+ * <p>
+ *   The unescaped text is an immutable {@link String}, so the contents of this sequence never change.
+ * </p>
+ * <p>
+ *   When written to a {@link Writer}, escaping will be performed directly on the writer. The {@link String}
+ *   form of the escaped output will only be computed (and then cached) if any of the {@link CharSequence}
+ *   methods are called.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+final class LazyEscapedOutputSequence implements IWritableCharSequence {
+
+    private final TemplateMode templateMode;
+    private final String text;
+
+    private String escapedOutput = null;
+
+
+
+    LazyEscapedOutputSequence(final TemplateMode templateMode, final String text) {
+        super();
+        this.templateMode = templateMode;
+        this.text = text;
+    }
+
+
+
+
+    public int length() {
+        return getEscapedOutput().length();
+    }
+
+
+    public char charAt(final int index) {
+        return getEscapedOutput().charAt(index);
+    }
+
+
+    public CharSequence subSequence(final int start, final int end) {
+        return getEscapedOutput().subSequence(start, end);
+    }
+
+
+    public void write(final Writer writer) throws IOException {
+        if (this.escapedOutput != null) {
+            // Already computed, so no need to escape again
+            writer.write(this.escapedOutput);
+        } else {
+            StandardEscapedOutputUtils.writeEscapedOutput(writer, this.templateMode, this.text);
+        }
+    }
+
+
+    private String getEscapedOutput() {
+        if (this.escapedOutput == null) {
+            this.escapedOutput = StandardEscapedOutputUtils.produceEscapedOutput(this.templateMode, this.text);
+        }
+        return this.escapedOutput;
+    }
+
+
+    @Override
+    public String toString() {
+        return getEscapedOutput();
+    }
+
+
+}
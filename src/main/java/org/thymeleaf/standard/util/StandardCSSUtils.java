@@ -19,6 +19,11 @@
  */
 package org.thymeleaf.standard.util;
 
+import java.io.IOException;
+import java.io.Writer;
+
+import org.thymeleaf.exceptions.TemplateProcessingException;
+import org.thymeleaf.util.FastStringWriter;
 import org.unbescape.css.CssEscape;
 
 
@@ -43,90 +48,92 @@ public static String escapeString(final String str) {
 
 
     public static String print(final Object object) {
-        final StringBuilder output = new StringBuilder();
-        print(output, object);
+        if (object == null) {
+            return ""; // There isn't really a 'null' token in CSS
+        }
+        if (object instanceof Number || object instanceof Boolean) {
+            // No need to go through a writer for these, as they will never need escaping
+            return object.toString();
+        }
+        final FastStringWriter output = new FastStringWriter();
+        try {
+            print(output, object);
+        } catch (final IOException e) {
+            // Should never happen, as we are writing to a String-based writer
+            throw new TemplateProcessingException("Exception while printing object as CSS", e);
+        }
         return output.toString();
     }
 
 
     public static String printString(final String str) {
-        final StringBuilder output = new StringBuilder();
-        if (str == null) {
-            printNull(output);
-        } else {
-            printString(output, str);
-        }
-        return output.toString();
+        return print(str);
     }
 
     public static String printNumber(final Number number) {
-        final StringBuilder output = new StringBuilder();
-        if (number == null) {
-            printNull(output);
-        } else {
-            printNumber(output, number);
-        }
-        return output.toString();
+        return print(number);
     }
 
     public static String printBoolean(final Boolean bool) {
-        final StringBuilder output = new StringBuilder();
-        if (bool == null) {
-            printNull(output);
-        } else {
-            printBoolean(output, bool);
-        }
-        return output.toString();
+        return print(bool);
     }
 
 
 
 
-
-
-
-    private static void print(final StringBuilder output, final Object object) {
+    /**
+     * <p>
+     *   Prints the specified object as CSS directly into the specified {@link Writer}, without
+     *   creating any intermediate {@link String} objects for the complete output.
+     * </p>
+     *
+     * @param writer the writer the output will be written to.
+     * @param object the object to be printed.
+     * @throws IOException if an exception happens when writing to the writer.
+     */
+    public static void print(final Writer writer, final Object object) throws IOException {
         if (object == null) {
-            printNull(output);
+            printNull(writer);
             return;
         }
         if (object instanceof CharSequence) {
-            printString(output, object.toString());
+            printString(writer, object.toString());
             return;
         }
         if (object instanceof Character) {
-            printString(output, object.toString());
+            printString(writer, object.toString());
             return;
         }
         if (object instanceof Number) {
-            printNumber(output, (Number) object);
+            printNumber(writer, (Number) object);
             return;
         }
         if (object instanceof Boolean) {
-            printBoolean(output, (Boolean) object);
+            printBoolean(writer, (Boolean) object);
             return;
         }
-        printString(output, object.toString());
+        printString(writer, object.toString());
     }
 
 
-    private static void printNull(final StringBuilder output) {
-        output.append(""); // There isn't really a 'null' token in CSS
+    private static void printNull(final Writer writer) throws IOException {
+        // There isn't really a 'null' token in CSS, so nothing is written
     }
 
 
-    private static void printString(final StringBuilder output, final String str) {
-        output.append(CssEscape.escapeCssIdentifier(str));
+    private static void printString(final Writer writer, final String str) throws IOException {
+        // unbescape returns the same String instance if there is nothing to escape, so no copy is done here
+        writer.write(CssEscape.escapeCssIdentifier(str));
     }
 
 
-    private static void printNumber(final StringBuilder output, final Number number) {
-        output.append(number.toString());
+    private static void printNumber(final Writer writer, final Number number) throws IOException {
+        writer.write(number.toString());
     }
 
 
-    private static void printBoolean(final StringBuilder output, final Boolean bool) {
-        output.append(bool.toString());
+    private static void printBoolean(final Writer writer, final Boolean bool) throws IOException {
+        writer.write(bool.booleanValue()? "true" : "false");
     }
 
 
@@ -19,6 +19,9 @@
  */
 package org.thymeleaf.standard.util;
 
+import java.io.IOException;
+import java.io.Writer;
+
 import org.thymeleaf.exceptions.TemplateProcessingException;
 import org.thymeleaf.templatemode.TemplateMode;
 import org.thymeleaf.util.Validate;
@@ -79,6 +82,179 @@ public static String produceEscapedOutput(final TemplateMode templateMode, final
 
 
 
+    /**
+     * <p>
+     *   Produces the escaped output for the specified input, but in a <em>lazy</em> way: escaping will be
+     *   performed directly on the output {@link Writer} at the moment the resulting sequence is written
+     *   (see {@link org.thymeleaf.util.IWritableCharSequence}), without creating any intermediate
+     *   {@link String} objects.
+     * </p>
+     * <p>
+     *   Only escaping is deferred: the input is converted into its (immutable) {@link String} form when this
+     *   method is called, so that the contents of the resulting sequence do not depend on any later
+     *   modifications of the input object, and so that any errors during such conversion are raised during
+     *   processing. In JavaScript and CSS modes, objects other than {@link String} are therefore printed
+     *   eagerly.
+     * </p>
+     * <p>
+     *   If the input is a {@link String} that does not require any escaping for the specified template mode,
+     *   the input itself will be returned.
+     * </p>
+     *
+     * @param templateMode the template mode.
+     * @param input the input to be escaped.
+     * @return the (lazily) escaped output.
+     * @since 3.0.0
+     */
+    public static CharSequence produceLazyEscapedOutput(final TemplateMode templateMode, final Object input) {
+
+        Validate.notNull(templateMode, "Template mode cannot be null");
+
+        switch (templateMode) {
+
+            case TEXT:
+                // fall-through
+            case HTML:
+                if (input == null) {
+                    return "";
+                }
+                final String htmlText = input.toString();
+                if (!needsHtmlEscaping(htmlText)) {
+                    return htmlText;
+                }
+                return new LazyEscapedOutputSequence(templateMode, htmlText);
+            case XML:
+                if (input == null) {
+                    return "";
+                }
+                final String xmlText = input.toString();
+                if (!needsXmlEscaping(xmlText)) {
+                    return xmlText;
+                }
+                return new LazyEscapedOutputSequence(templateMode, xmlText);
+            case JAVASCRIPT:
+                // fall-through
+            case CSS:
+                if (input instanceof String) {
+                    return new LazyEscapedOutputSequence(templateMode, (String) input);
+                }
+                return produceEscapedOutput(templateMode, input);
+            default:
+                throw new TemplateProcessingException(
+                        "Unrecognized template mode " + templateMode + ". Cannot produce escaped output for " +
+                        "this template mode.");
+        }
+
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Writes the escaped output for the specified input directly to the specified {@link Writer}.
+     * </p>
+     * <p>
+     *   Output produced by this method is exactly equivalent to the one produced by
+     *   {@link #produceEscapedOutput(TemplateMode, Object)}.
+     * </p>
+     *
+     * @param writer the writer the escaped output will be written to.
+     * @param templateMode the template mode.
+     * @param input the input to be escaped.
+     * @throws IOException if an exception happens when writing to the writer.
+     * @since 3.0.0
+     */
+    public static void writeEscapedOutput(final Writer writer, final TemplateMode templateMode, final Object input)
+            throws IOException {
+
+        Validate.notNull(writer, "Writer cannot be null");
+        Validate.notNull(templateMode, "Template mode cannot be null");
+
+        switch (templateMode) {
+
+            case TEXT:
+                // fall-through
+            case HTML:
+                if (input != null) {
+                    final String text = input.toString();
+                    if (!needsHtmlEscaping(text)) {
+                        writer.write(text);
+                    } else {
+                        final char[] chars = text.toCharArray();
+                        HtmlEscape.escapeHtml4Xml(chars, 0, chars.length, writer);
+                    }
+                }
+                return;
+            case XML:
+                if (input != null) {
+                    final String text = input.toString();
+                    if (!needsXmlEscaping(text)) {
+                        writer.write(text);
+                    } else {
+                        final char[] chars = text.toCharArray();
+                        XmlEscape.escapeXml10(chars, 0, chars.length, writer);
+                    }
+                }
+                return;
+            case JAVASCRIPT:
+                StandardJavaScriptUtils.print(writer, input);
+                return;
+            case CSS:
+                StandardCSSUtils.print(writer, input);
+                return;
+            default:
+                throw new TemplateProcessingException(
+                        "Unrecognized template mode " + templateMode + ". Cannot produce escaped output for " +
+                        "this template mode.");
+        }
+
+    }
+
+
+
+
+    /*
+     * These quick scans allow us to avoid any escaping operations (and any copies of the text) when the text does
+     * not contain any of the chars that the corresponding unbescape escape operations would modify:
+     *
+     *     HtmlEscape.escapeHtml4Xml -> level 1 (only markup-significant chars: <, >, &, ", ')
+     *     XmlEscape.escapeXml10     -> level 2 (markup-significant, non-ASCII and XML 1.0 restricted chars)
+     */
+
+    private static boolean needsHtmlEscaping(final String text) {
+        int n = text.length();
+        char c;
+        while (n-- != 0) {
+            c = text.charAt(n);
+            if (c == '<' || c == '>' || c == '&' || c == '"' || c == '\'') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private static boolean needsXmlEscaping(final String text) {
+        int n = text.length();
+        char c;
+        while (n-- != 0) {
+            c = text.charAt(n);
+            if (c >= 0x7F || c == '<' || c == '>' || c == '&' || c == '"' || c == '\'') {
+                return true;
+            }
+            if (c < 0x20 && c != '\t' && c != '\n' && c != '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+
+
+
+
     private StandardEscapedOutputUtils() {
         super();
     }
@@ -22,15 +22,24 @@
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.ref.SoftReference;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
-import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.thymeleaf.exceptions.TemplateProcessingException;
 import org.thymeleaf.util.DateUtils;
+import org.thymeleaf.util.FastStringWriter;
 import org.unbescape.javascript.JavaScriptEscape;
 
 
@@ -44,6 +53,22 @@
 public final class StandardJavaScriptUtils {
 
 
+    /*
+     * Serialization plans for beans are computed only once per class (introspection is expensive) and then
+     * reused for every object of that class that needs to be printed.
+     *
+     * Plans hold Method objects (and therefore their classes), so only plans for classes loaded by the
+     * class loader of Thymeleaf itself (or any of its ancestors) are strongly kept: these cannot outlive this map.
+     * Plans for classes from any other class loaders (e.g. webapp classes when Thymeleaf is installed at a
+     * shared location) are weakly keyed by their class and softly referenced, so that they never prevent such
+     * class loaders from being garbage collected on redeploy.
+     */
+    private static final ConcurrentHashMap<Class<?>,BeanPrintPlan> BEAN_PRINT_PLANS =
+            new ConcurrentHashMap<Class<?>, BeanPrintPlan>(20, 0.75f);
+    private static final Map<Class<?>,SoftReference<BeanPrintPlan>> FOREIGN_BEAN_PRINT_PLANS =
+            Collections.synchronizedMap(new WeakHashMap<Class<?>, SoftReference<BeanPrintPlan>>(20, 0.75f));
+    private static final ClassLoader THYMELEAF_CLASS_LOADER = StandardJavaScriptUtils.class.getClassLoader();
+
 
 
 
@@ -55,80 +80,58 @@ public static String escapeString(final String str) {
 
 
     public static String print(final Object object) {
-        final StringBuilder output = new StringBuilder();
-        print(output, object);
+        final FastStringWriter output = new FastStringWriter();
+        try {
+            print(output, object);
+        } catch (final IOException e) {
+            // Should never happen, as we are writing to a String-based writer
+            throw new TemplateProcessingException("Exception while printing object as JavaScript", e);
+        }
         return output.toString();
     }
 
 
     public static String printString(final String str) {
-        final StringBuilder output = new StringBuilder();
-        if (str == null) {
-            printNull(output);
-        } else {
-            printString(output, str);
-        }
-        return output.toString();
+        return print(str);
     }
 
     public static String printNumber(final Number number) {
-        final StringBuilder output = new StringBuilder();
-        if (number == null) {
-            printNull(output);
-        } else {
-            printNumber(output, number);
-        }
-        return output.toString();
+        return print(number);
     }
 
     public static String printBoolean(final Boolean bool) {
-        final StringBuilder output = new StringBuilder();
-        if (bool == null) {
-            printNull(output);
-        } else {
-            printBoolean(output, bool);
-        }
-        return output.toString();
+        return print(bool);
     }
 
     public static String printCollection(final Collection<?> collection) {
-        final StringBuilder output = new StringBuilder();
-        if (collection == null) {
-            printNull(output);
-        } else {
-            printCollection(output, collection);
-        }
-        return output.toString();
+        return print(collection);
     }
 
     public static String printArray(final Object array) {
-        final StringBuilder output = new StringBuilder();
-        if (array == null) {
-            printNull(output);
-        } else {
-            printArray(output, array);
+        if (array != null && !array.getClass().isArray()) {
+            throw new IllegalArgumentException(
+                    "Cannot print \"" + array + "\" of class " + array.getClass().getName() + " as an array");
         }
-        return output.toString();
+        return print(array);
     }
 
 
     public static String printMap(final Map<?,?> map) {
-        final StringBuilder output = new StringBuilder();
-        if (map == null) {
-            printNull(output);
-        } else {
-            printMap(output, map);
-        }
-        return output.toString();
+        return print(map);
     }
 
 
     public static String printObject(final Object object) {
-        final StringBuilder output = new StringBuilder();
-        if (object == null) {
-            printNull(output);
-        } else {
-            printObject(output, object);
+        final FastStringWriter output = new FastStringWriter();
+        try {
+            if (object == null) {
+                printNull(output);
+            } else {
+                printObject(output, object);
+            }
+        } catch (final IOException e) {
+            // Should never happen, as we are writing to a String-based writer
+            throw new TemplateProcessingException("Exception while printing object as JavaScript", e);
         }
         return output.toString();
     }
@@ -136,259 +139,359 @@ public static String printObject(final Object object) {
 
 
 
-
-
-
-    private static void print(final StringBuilder output, final Object object) {
+    /**
+     * <p>
+     *   Prints the specified object as JavaScript directly into the specified {@link Writer}, without
+     *   creating any intermediate {@link String} objects for the complete output.
+     * </p>
+     *
+     * @param writer the writer the output will be written to.
+     * @param object the object to be printed.
+     * @throws IOException if an exception happens when writing to the writer.
+     * @since 3.0.0
+     */
+    public static void print(final Writer writer, final Object object) throws IOException {
         if (object == null) {
-            printNull(output);
+            printNull(writer);
             return;
         }
         if (object instanceof CharSequence) {
-            printString(output, object.toString());
+            printString(writer, object.toString());
             return;
         }
         if (object instanceof Character) {
-            printString(output, object.toString());
+            printString(writer, object.toString());
             return;
         }
         if (object instanceof Number) {
-            printNumber(output, (Number) object);
+            printNumber(writer, (Number) object);
             return;
         }
         if (object instanceof Boolean) {
-            printBoolean(output, (Boolean) object);
+            printBoolean(writer, (Boolean) object);
             return;
         }
         if (object instanceof Date) {
-            printDate(output, (Date) object);
+            printDate(writer, (Date) object);
             return;
         }
         if (object instanceof Calendar) {
-            printDate(output, ((Calendar) object).getTime());
+            printDate(writer, ((Calendar) object).getTime());
             return;
         }
         if (object.getClass().isArray()) {
-            printArray(output, object);
+            printArray(writer, object);
             return;
         }
         if (object instanceof Collection<?>) {
-            printCollection(output, (Collection<?>) object);
+            printCollection(writer, (Collection<?>) object);
             return;
         }
         if (object instanceof Map<?,?>) {
-            printMap(output, (Map<?, ?>) object);
+            printMap(writer, (Map<?, ?>) object);
             return;
         }
         if (object.getClass().isEnum()) {
-            printEnum(output, object);
+            printEnum(writer, object);
             return;
         }
-        printObject(output, object);
+        printObject(writer, object);
     }
 
 
-    private static void printNull(final StringBuilder output) {
-        output.append("null");
+    private static void printNull(final Writer writer) throws IOException {
+        writer.write("null");
     }
 
 
-    private static void printString(final StringBuilder output, final String str) {
-        output.append('\'');
-        output.append(JavaScriptEscape.escapeJavaScript(str));
-        output.append('\'');
+    private static void printString(final Writer writer, final String str) throws IOException {
+        writer.write('\'');
+        // unbescape returns the same String instance if there is nothing to escape, so no copy is done here
+        writer.write(JavaScriptEscape.escapeJavaScript(str));
+        writer.write('\'');
     }
 
 
-    private static void printNumber(final StringBuilder output, final Number number) {
-        output.append(number.toString());
+    private static void printNumber(final Writer writer, final Number number) throws IOException {
+        writer.write(number.toString());
     }
 
 
-    private static void printBoolean(final StringBuilder output, final Boolean bool) {
-        output.append(bool.toString());
+    private static void printBoolean(final Writer writer, final Boolean bool) throws IOException {
+        writer.write(bool.booleanValue()? "true" : "false");
     }
 
 
-    private static void printDate(final StringBuilder output, final Date date) {
-        output.append('\'');
-        output.append(DateUtils.formatISO(date));
-        output.append('\'');
+    private static void printDate(final Writer writer, final Date date) throws IOException {
+        writer.write('\'');
+        writer.write(DateUtils.formatISO(date));
+        writer.write('\'');
     }
 
 
-    private static void printArray(final StringBuilder output, final Object arrayObj) {
-        output.append('[');
+    private static void printArray(final Writer writer, final Object arrayObj) throws IOException {
+        writer.write('[');
         if (arrayObj instanceof Object[]) {
             final Object[] array = (Object[]) arrayObj;
-            boolean first = true;
-            for (final Object element: array) {
-                if (first) {
-                    first = false;
-                } else {
-                    output.append(',');
+            for (int i = 0; i < array.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
                 }
-                print(output, element);
+                print(writer, array[i]);
             }
         } else if (arrayObj instanceof boolean[]) {
             final boolean[] array = (boolean[]) arrayObj;
-            boolean first = true;
-            for (final boolean element: array) {
-                if (first) {
-                    first = false;
-                } else {
-                    output.append(',');
+            for (int i = 0; i < array.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
                 }
-                print(output, Boolean.valueOf(element));
+                writer.write(array[i]? "true" : "false");
             }
         } else if (arrayObj instanceof byte[]) {
             final byte[] array = (byte[]) arrayObj;
-            boolean first = true;
-            for (final byte element: array) {
-                if (first) {
-                    first = false;
-                } else {
-                    output.append(',');
+            for (int i = 0; i < array.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
                 }
-                print(output, Byte.valueOf(element));
+                writer.write(Byte.toString(array[i]));
             }
         } else if (arrayObj instanceof short[]) {
             final short[] array = (short[]) arrayObj;
-            boolean first = true;
-            for (final short element: array) {
-                if (first) {
-                    first = false;
-                } else {
-                    output.append(',');
+            for (int i = 0; i < array.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
                 }
-                print(output, Short.valueOf(element));
+                writer.write(Short.toString(array[i]));
             }
         } else if (arrayObj instanceof int[]) {
             final int[] array = (int[]) arrayObj;
-            boolean first = true;
-            for (final int element: array) {
-                if (first) {
-                    first = false;
-                } else {
-                    output.append(',');
+            for (int i = 0; i < array.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
                 }
-                print(output, Integer.valueOf(element));
+                writer.write(Integer.toString(array[i]));
             }
         } else if (arrayObj instanceof long[]) {
             final long[] array = (long[]) arrayObj;
-            boolean first = true;
-            for (final long element: array) {
-                if (first) {
-                    first = false;
-                } else {
-                    output.append(',');
+            for (int i = 0; i < array.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
                 }
-                print(output, Long.valueOf(element));
+                writer.write(Long.toString(array[i]));
             }
         } else if (arrayObj instanceof float[]) {
             final float[] array = (float[]) arrayObj;
-            boolean first = true;
-            for (final float element: array) {
-                if (first) {
-                    first = false;
-                } else {
-                    output.append(',');
+            for (int i = 0; i < array.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
                 }
-                print(output, Float.valueOf(element));
+                writer.write(Float.toString(array[i]));
             }
         } else if (arrayObj instanceof double[]) {
             final double[] array = (double[]) arrayObj;
-            boolean first = true;
-            for (final double element: array) {
-                if (first) {
-                    first = false;
-                } else {
-                    output.append(',');
+            for (int i = 0; i < array.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
                 }
-                print(output, Double.valueOf(element));
+                writer.write(Double.toString(array[i]));
             }
         } else {
+            // char[] is the only remaining type here
             throw new IllegalArgumentException("Cannot print \"" + arrayObj + "\" of class " + arrayObj.getClass().getName() + " as an array");
         }
-        output.append(']');
+        writer.write(']');
     }
 
 
-    private static void printCollection(final StringBuilder output, final Collection<?> collection) {
-        output.append('[');
+    private static void printCollection(final Writer writer, final Collection<?> collection) throws IOException {
+        writer.write('[');
         boolean first = true;
         for (final Object element: collection) {
             if (first) {
                 first = false;
             } else {
-                output.append(',');
+                writer.write(',');
             }
-            print(output, element);
+            print(writer, element);
         }
-        output.append(']');
+        writer.write(']');
     }
 
 
-    private static void printMap(final StringBuilder output, final Map<?,?> map) {
-        output.append('{');
+    private static void printMap(final Writer writer, final Map<?,?> map) throws IOException {
+        writer.write('{');
         boolean first = true;
         for (final Map.Entry<?,?> entry: map.entrySet()) {
             if (first) {
                 first = false;
             } else {
-                output.append(',');
+                writer.write(',');
             }
-            printKeyValue(output, entry.getKey(), entry.getValue());
+            printKeyValue(writer, entry.getKey(), entry.getValue());
         }
-        output.append('}');
+        writer.write('}');
     }
 
 
-    private static void printKeyValue(final StringBuilder output, final Object key, final Object value) {
-        print(output, key);
-        output.append(':');
-        print(output, value);
+    private static void printKeyValue(final Writer writer, final Object key, final Object value) throws IOException {
+        print(writer, key);
+        writer.write(':');
+        print(writer, value);
     }
 
 
-    private static void printObject(final StringBuilder output, final Object object) {
-        try {
-            final PropertyDescriptor[] descriptors =
-                    Introspector.getBeanInfo(object.getClass()).getPropertyDescriptors();
-            final Map<String,Object> properties = new LinkedHashMap<String, Object>(descriptors.length + 1, 1.0f);
-            for (final PropertyDescriptor descriptor : descriptors) {
-                final Method readMethod =  descriptor.getReadMethod();
-                if (readMethod != null) {
-                    final String name = descriptor.getName();
-                    if (!"class".equals(name.toLowerCase())) {
-                        final Object value = readMethod.invoke(object);
-                        properties.put(name, value);
-                    }
-                }
+    private static void printObject(final Writer writer, final Object object) throws IOException {
+        final BeanPrintPlan plan = getBeanPrintPlan(object.getClass());
+        writer.write('{');
+        for (int i = 0; i < plan.readMethods.length; i++) {
+            if (i > 0) {
+                writer.write(',');
             }
-            printMap(output, properties);
-        } catch (final IllegalAccessException e) {
-            throw new IllegalArgumentException("Could not perform introspection on object of class " + object.getClass().getName(), e);
-        } catch (final InvocationTargetException e) {
-            throw new IllegalArgumentException("Could not perform introspection on object of class " + object.getClass().getName(), e);
-        } catch (final IntrospectionException e) {
-            throw new IllegalArgumentException("Could not perform introspection on object of class " + object.getClass().getName(), e);
+            writer.write(plan.printedKeys[i]);
+            final Object value;
+            try {
+                value = plan.readMethods[i].invoke(object);
+            } catch (final IllegalAccessException e) {
+                throw new IllegalArgumentException("Could not perform introspection on object of class " + object.getClass().getName(), e);
+            } catch (final InvocationTargetException e) {
+                throw new IllegalArgumentException("Could not perform introspection on object of class " + object.getClass().getName(), e);
+            }
+            print(writer, value);
         }
+        writer.write('}');
     }
 
 
     
-    private static void printEnum(final StringBuilder output, final Object object) {
+    private static void printEnum(final Writer writer, final Object object) throws IOException {
         
         final Enum<?> enumObject = (Enum<?>) object;
         final Class<?> enumClass = object.getClass();
-        
-        final Map<String,Object> properties = new LinkedHashMap<String, Object>(3, 1.0f);
-        properties.put("$type", enumClass.getSimpleName());
-        properties.put("$name", enumObject.name());
 
-        printMap(output, properties);
-        
+        writer.write("{'$type':");
+        printString(writer, enumClass.getSimpleName());
+        writer.write(",'$name':");
+        printString(writer, enumObject.name());
+        writer.write('}');
+
+    }
+
+
+
+
+    private static BeanPrintPlan getBeanPrintPlan(final Class<?> beanClass) {
+
+        BeanPrintPlan plan = BEAN_PRINT_PLANS.get(beanClass);
+        if (plan != null) {
+            return plan;
+        }
+
+        if (isCacheSafe(beanClass)) {
+            // Not worth synchronizing: in the worst case, two identical plans will be computed for the same class
+            plan = computeBeanPrintPlan(beanClass);
+            final BeanPrintPlan existing = BEAN_PRINT_PLANS.putIfAbsent(beanClass, plan);
+            return (existing != null? existing : plan);
+        }
+
+        final SoftReference<BeanPrintPlan> planReference = FOREIGN_BEAN_PRINT_PLANS.get(beanClass);
+        plan = (planReference != null? planReference.get() : null);
+        if (plan == null) {
+            plan = computeBeanPrintPlan(beanClass);
+            FOREIGN_BEAN_PRINT_PLANS.put(beanClass, new SoftReference<BeanPrintPlan>(plan));
+        }
+        return plan;
+
+    }
+
+
+    /**
+     * <p>
+     *   Determines whether the print plan for a class can be strongly kept, i.e. whether the class has been
+     *   loaded by the class loader of Thymeleaf itself or any of its ancestors (including the bootstrap class
+     *   loader), so that it cannot outlive the plan cache.
+     * </p>
+     * <p>
+     *   Note this means classes loaded by child class loaders (e.g. application classes when Thymeleaf is
+     *   installed at a shared location of an application server) are not considered cache-safe even if they
+     *   will never be unloaded. Their plans are cached through soft references instead, so they might have to be
+     *   computed again (e.g. under memory pressure), and accessing them requires synchronization.
+     * </p>
+     *
+     * @param beanClass the class of the bean to be printed.
+     * @return <tt>true</tt> if the plan for the class can be strongly kept, <tt>false</tt> if not.
+     */
+    private static boolean isCacheSafe(final Class<?> beanClass) {
+        final ClassLoader beanClassLoader = beanClass.getClassLoader();
+        if (beanClassLoader == null) {
+            // Bootstrap class loader
+            return true;
+        }
+        ClassLoader classLoader = THYMELEAF_CLASS_LOADER;
+        while (classLoader != null) {
+            if (classLoader == beanClassLoader) {
+                return true;
+            }
+            classLoader = classLoader.getParent();
+        }
+        return false;
+    }
+
+
+    private static BeanPrintPlan computeBeanPrintPlan(final Class<?> beanClass) {
+
+        final PropertyDescriptor[] descriptors;
+        try {
+            descriptors = Introspector.getBeanInfo(beanClass).getPropertyDescriptors();
+        } catch (final IntrospectionException e) {
+            throw new IllegalArgumentException("Could not perform introspection on object of class " + beanClass.getName(), e);
+        }
+
+        final List<String> printedKeys = new ArrayList<String>(descriptors.length);
+        final List<Method> readMethods = new ArrayList<Method>(descriptors.length);
+
+        for (final PropertyDescriptor descriptor : descriptors) {
+            final Method readMethod =  descriptor.getReadMethod();
+            if (readMethod != null) {
+                final String name = descriptor.getName();
+                if (!"class".equals(name.toLowerCase())) {
+                    final FastStringWriter keyWriter = new FastStringWriter(name.length() + 3);
+                    try {
+                        printString(keyWriter, name);
+                    } catch (final IOException e) {
+                        // Should never happen, as we are writing to a String-based writer
+                        throw new TemplateProcessingException("Exception while printing object as JavaScript", e);
+                    }
+                    keyWriter.write(':');
+                    printedKeys.add(keyWriter.toString());
+                    readMethods.add(readMethod);
+                }
+            }
+        }
+
+        return new BeanPrintPlan(
+                printedKeys.toArray(new String[printedKeys.size()]),
+                readMethods.toArray(new Method[readMethods.size()]));
+
+    }
+
+
+
+
+    /*
+     * Contains the (ordered) read methods for all the printable properties of a bean class, along with
+     * the already-escaped and quoted versions of their names, ready to be written as keys.
+     */
+    private static final class BeanPrintPlan {
+
+        final String[] printedKeys;
+        final Method[] readMethods;
+
+        BeanPrintPlan(final String[] printedKeys, final Method[] readMethods) {
+            super();
+            this.printedKeys = printedKeys;
+            this.readMethods = readMethods;
+        }
+
     }
 
 
@@ -0,0 +1,237 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.templateparser;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.thymeleaf.util.Validate;
+
+
+/**
+ * <p>
+ *   Pool of <tt>char[]</tt> buffers to be used by template parsers, so that the amount of large buffer objects
+ *   created during parsing is kept to a minimum.
+ * </p>
+ * <p>
+ *   Buffers are organized in <em>size classes</em>: the smallest class contains buffers of the configured
+ *   buffer size, and each of the following classes contains buffers twice as big as the previous one (which is
+ *   the way parsers grow their buffers when a structure does not fit). Larger classes pool less buffers, so that
+ *   the memory retained by the pool is kept under control.
+ * </p>
+ * <p>
+ *   This pool never blocks: if a buffer is requested and none is available, a new one is created, and if a buffer
+ *   is released and its size class is already full, it is simply discarded. Buffers of sizes not belonging to
+ *   any size class are never pooled.
+ * </p>
+ * <p>
+ *   Objects of this class are <b>thread-safe</b>, and lock-free.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public final class ParserBufferPool {
+
+    private static final int SIZE_CLASSES = 5;
+
+    private final int poolSize;
+    private final int bufferSize;
+
+    private final SizeClass[] sizeClasses;
+
+    private final AtomicLong hitCount = new AtomicLong(0L);
+    private final AtomicLong missCount = new AtomicLong(0L);
+
+
+
+    /**
+     * <p>
+     *   Creates a new pool.
+     * </p>
+     *
+     * @param poolSize the maximum amount of buffers of the smallest size class to be kept in the pool.
+     * @param bufferSize the size of the buffers in the smallest size class.
+     */
+    public ParserBufferPool(final int poolSize, final int bufferSize) {
+
+        super();
+
+        Validate.isTrue(poolSize >= 0, "Pool size must be >= 0");
+        Validate.isTrue(bufferSize > 0, "Buffer size must be > 0");
+
+        this.poolSize = poolSize;
+        this.bufferSize = bufferSize;
+
+        this.sizeClasses = new SizeClass[SIZE_CLASSES];
+        for (int i = 0; i < SIZE_CLASSES; i++) {
+            // Each size class doubles the buffer size, so it will pool half the buffers (but at least one)
+            this.sizeClasses[i] = new SizeClass(poolSize == 0? 0 : Math.max(1, poolSize >> i));
+        }
+
+    }
+
+
+
+    /**
+     * <p>
+     *   Returns the maximum amount of buffers of the smallest size class kept in the pool.
+     * </p>
+     *
+     * @return the pool size.
+     */
+    public int getPoolSize() {
+        return this.poolSize;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the size of the buffers in the smallest size class, which should be the
+     *   size of the buffers initially requested by parsers.
+     * </p>
+     *
+     * @return the buffer size.
+     */
+    public int getBufferSize() {
+        return this.bufferSize;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of buffer requests that have been served with a pooled buffer.
+     * </p>
+     *
+     * @return the hit count.
+     */
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of buffer requests that required the creation of a new buffer.
+     * </p>
+     *
+     * @return the miss count.
+     */
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+
+
+    /**
+     * <p>
+     *   Obtains a buffer of the specified size, either from the pool or newly created.
+     * </p>
+     *
+     * @param size the size of the required buffer.
+     * @return the buffer.
+     */
+    public char[] allocateBuffer(final int size) {
+
+        final int sizeClass = computeSizeClass(size);
+        if (sizeClass >= 0) {
+            final char[] buffer = this.sizeClasses[sizeClass].availableBuffers.poll();
+            if (buffer != null) {
+                this.sizeClasses[sizeClass].availableBufferCount.decrementAndGet();
+                this.hitCount.incrementAndGet();
+                return buffer;
+            }
+        }
+
+        this.missCount.incrementAndGet();
+        return new char[size];
+
+    }
+
+
+    /**
+     * <p>
+     *   Returns a buffer to the pool. The buffer must not be used after calling this method.
+     * </p>
+     *
+     * @param buffer the buffer to be released (can be null).
+     */
+    public void releaseBuffer(final char[] buffer) {
+
+        if (buffer == null) {
+            return;
+        }
+
+        final int sizeClass = computeSizeClass(buffer.length);
+        if (sizeClass < 0) {
+            // This buffer cannot be part of the pool
+            return;
+        }
+
+        final SizeClass bufferSizeClass = this.sizeClasses[sizeClass];
+        if (bufferSizeClass.availableBufferCount.incrementAndGet() > bufferSizeClass.maxAvailableBuffers) {
+            // This size class is full, just let the buffer be garbage collected
+            bufferSizeClass.availableBufferCount.decrementAndGet();
+            return;
+        }
+
+        bufferSizeClass.availableBuffers.offer(buffer);
+
+    }
+
+
+
+    private int computeSizeClass(final int size) {
+        int classBufferSize = this.bufferSize;
+        for (int i = 0; i < SIZE_CLASSES; i++) {
+            if (size == classBufferSize) {
+                return i;
+            }
+            if (size < classBufferSize) {
+                return -1;
+            }
+            classBufferSize <<= 1;
+        }
+        return -1;
+    }
+
+
+
+
+    private static final class SizeClass {
+
+        final ConcurrentLinkedQueue<char[]> availableBuffers;
+        final AtomicInteger availableBufferCount;
+        final int maxAvailableBuffers;
+
+        SizeClass(final int maxAvailableBuffers) {
+            super();
+            this.availableBuffers = new ConcurrentLinkedQueue<char[]>();
+            this.availableBufferCount = new AtomicInteger(0);
+            this.maxAvailableBuffers = maxAvailableBuffers;
+        }
+
+    }
+
+
+}
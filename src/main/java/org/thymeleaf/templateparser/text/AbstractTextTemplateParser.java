@@ -35,6 +35,7 @@
 import org.thymeleaf.templatemode.TemplateMode;
 import org.thymeleaf.templateparser.ITemplateParser;
 import org.thymeleaf.templateparser.ParsableArtifactType;
+import org.thymeleaf.templateparser.ParserBufferPool;
 import org.thymeleaf.templateparser.reader.ParserLevelCommentTextReader;
 import org.thymeleaf.templateparser.reader.PrototypeOnlyCommentTextReader;
 import org.thymeleaf.util.Validate;
@@ -55,8 +56,16 @@ public abstract class AbstractTextTemplateParser implements ITemplateParser {
     protected AbstractTextTemplateParser(
             final int bufferPoolSize, final int bufferSize, final boolean processComments,
             final boolean standardDialectPresent, final String standardDialectPrefix) {
+        this(new ParserBufferPool(bufferPoolSize, bufferSize), processComments, standardDialectPresent, standardDialectPrefix);
+    }
+
+
+    protected AbstractTextTemplateParser(
+            final ParserBufferPool bufferPool, final boolean processComments,
+            final boolean standardDialectPresent, final String standardDialectPrefix) {
         super();
-        this.parser = new TextParser(bufferPoolSize, bufferSize, processComments, standardDialectPresent, standardDialectPrefix);
+        Validate.notNull(bufferPool, "Buffer pool cannot be null");
+        this.parser = new TextParser(bufferPool, processComments, standardDialectPresent, standardDialectPrefix);
     }
 
 
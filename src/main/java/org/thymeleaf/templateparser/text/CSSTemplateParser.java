@@ -19,6 +19,8 @@
  */
 package org.thymeleaf.templateparser.text;
 
+import org.thymeleaf.templateparser.ParserBufferPool;
+
 /**
  *
  * @author Daniel Fern&aacute;ndez
@@ -33,5 +35,11 @@ public CSSTemplateParser(final int bufferPoolSize, final int bufferSize,
         super(bufferPoolSize, bufferSize, true, standardDialectPresent, standardDialectPrefix);
     }
 
+
+    public CSSTemplateParser(final ParserBufferPool bufferPool,
+                             final boolean standardDialectPresent, final String standardDialectPrefix) {
+        super(bufferPool, true, standardDialectPresent, standardDialectPrefix);
+    }
+
     
 }
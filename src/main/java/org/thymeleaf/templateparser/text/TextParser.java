@@ -21,7 +21,8 @@
 
 import java.io.Reader;
 import java.io.StringReader;
-import java.util.Arrays;
+
+import org.thymeleaf.templateparser.ParserBufferPool;
 
 
 /*
@@ -38,7 +39,7 @@ final class TextParser {
 
 
 
-    private final BufferPool pool;
+    private final ParserBufferPool pool;
     private final boolean processComments;
     private final boolean standardDialectPresent;
     private final String standardDialectPrefix;
@@ -49,11 +50,11 @@ final class TextParser {
 
 
 
-    TextParser(final int poolSize, final int bufferSize,
+    TextParser(final ParserBufferPool pool,
                final boolean processComments,
                final boolean standardDialectPresent, final String standardDialectPrefix) {
         super();
-        this.pool = new BufferPool(poolSize, bufferSize);
+        this.pool = pool;
         this.processComments = processComments;
         this.standardDialectPresent = standardDialectPresent;
         this.standardDialectPrefix = standardDialectPrefix;
@@ -99,7 +100,7 @@ public void parse(
             handlerChain = new CommentProcessorTextHandler(this.standardDialectPresent, handlerChain);
         }
 
-        parseDocument(reader, this.pool.poolBufferSize, handlerChain);
+        parseDocument(reader, this.pool.getBufferSize(), handlerChain);
 
     }
 
@@ -412,76 +413,4 @@ private void parseBuffer(
     }
 
 
-
-    
-
-
-
-
-    /*
-     * This class models a pool of buffers, used to keep the amount of
-     * large char[] buffer objects required to operate to a minimum.
-     *
-     * Note this pool never blocks, so if a new buffer is needed and all
-     * are currently allocated, a new char[] object is created and returned.
-     *
-     */
-    private static final class BufferPool {
-
-        private final char[][] pool;
-        private final boolean[] allocated;
-        private final int poolBufferSize;
-
-        private BufferPool(final int poolSize, final int poolBufferSize) {
-
-            super();
-
-            this.pool = new char[poolSize][];
-            this.allocated = new boolean[poolSize];
-            this.poolBufferSize = poolBufferSize;
-
-            for (int i = 0; i < this.pool.length; i++) {
-                this.pool[i] = new char[this.poolBufferSize];
-            }
-            Arrays.fill(this.allocated, false);
-
-        }
-
-        private synchronized char[] allocateBuffer(final int bufferSize) {
-            if (bufferSize != this.poolBufferSize) {
-                // We will only pool buffers of the default size. If a different size is required, we just
-                // create it without pooling.
-                return new char[bufferSize];
-            }
-            for (int i = 0; i < this.pool.length; i++) {
-                if (!this.allocated[i]) {
-                    this.allocated[i] = true;
-                    return this.pool[i];
-                }
-            }
-            return new char[bufferSize];
-        }
-
-        private synchronized void releaseBuffer(final char[] buffer) {
-            if (buffer == null) {
-                return;
-            }
-            if (buffer.length != this.poolBufferSize) {
-                // This buffer cannot be part of the pool - only buffers with a specific size are contained
-                return;
-            }
-            for (int i = 0; i < this.pool.length; i++) {
-                if (this.pool[i] == buffer) {
-                    // Found it. Mark it as non-allocated
-                    this.allocated[i] = false;
-                    return;
-                }
-            }
-            // The buffer wasn't part of our pool. Just return.
-        }
-
-
-    }
-
-
 }
@@ -19,14 +19,26 @@
  */
 package org.thymeleaf.templateresolver;
 
+import java.io.File;
+
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.cache.FileModificationCacheEntryValidity;
+import org.thymeleaf.cache.ICacheEntryValidity;
+import org.thymeleaf.context.IContext;
 import org.thymeleaf.exceptions.ConfigurationException;
-import org.thymeleaf.resourceresolver.FileResourceResolver;
 import org.thymeleaf.resourceresolver.IResourceResolver;
+import org.thymeleaf.resourceresolver.NIOFileResourceResolver;
+import org.thymeleaf.util.Validate;
 
 /**
  * <p>
  *   Implementation of {@link ITemplateResolver} that extends {@link TemplateResolver}
- *   and uses a {@link FileResourceResolver} for resource resolution.
+ *   and uses a {@link NIOFileResourceResolver} for resource resolution.
+ * </p>
+ * <p>
+ *   If a <i>modification check interval</i> is set (see {@link #setModificationCheckIntervalMs(Long)}),
+ *   cacheable templates will be given a {@link FileModificationCacheEntryValidity} instead of the one
+ *   computed by {@link TemplateResolver}, so that they are kept in cache until their files are modified.
  * </p>
  * 
  * @author Daniel Fern&aacute;ndez
@@ -37,14 +49,86 @@
 public class FileTemplateResolver
         extends TemplateResolver {
 
+    /**
+     * <p>
+     *   Default value for the modification check interval: <tt>null</tt> (files are not checked
+     *   for modifications).
+     * </p>
+     */
+    public static final Long DEFAULT_MODIFICATION_CHECK_INTERVAL_MS = null;
+
+    private Long modificationCheckIntervalMs = DEFAULT_MODIFICATION_CHECK_INTERVAL_MS;
+
     
     
     
     public FileTemplateResolver() {
         super();
-        super.setResourceResolver(new FileResourceResolver());
+        super.setResourceResolver(new NIOFileResourceResolver());
     }
     
+
+
+
+    /**
+     * <p>
+     *   Returns the minimum amount of milliseconds between two checks on the files of cached templates
+     *   for modifications.
+     * </p>
+     * <p>
+     *   If null (default), files will not be checked for modifications and the validity of cached templates
+     *   will be computed in the same way as in {@link TemplateResolver} (i.e. using the cache TTL, if set).
+     * </p>
+     *
+     * @return the modification check interval, or null if files are not checked for modifications.
+     */
+    public final Long getModificationCheckIntervalMs() {
+        return this.modificationCheckIntervalMs;
+    }
+
+
+    /**
+     * <p>
+     *   Sets the minimum amount of milliseconds between two checks on the files of cached templates
+     *   for modifications.
+     * </p>
+     * <p>
+     *   If set, cacheable templates will be kept in cache until their files are modified (or they are
+     *   evicted by LRU), and the cache TTL will be ignored. Note files are only checked when their cache
+     *   entries (or the cached outputs of the templates inserting fragments from them) are accessed, so
+     *   unmodified templates will never be parsed again. Once a modification is detected, all the cache
+     *   entries related to the template are cleared (see
+     *   {@link org.thymeleaf.engine.TemplateManager#clearCachesFor(String)}).
+     * </p>
+     *
+     * @param modificationCheckIntervalMs the new modification check interval (must be &gt;= 0), or null for not
+     *                                    checking files for modifications.
+     */
+    public void setModificationCheckIntervalMs(final Long modificationCheckIntervalMs) {
+        Validate.isTrue(
+                modificationCheckIntervalMs == null || modificationCheckIntervalMs.longValue() >= 0L,
+                "Modification check interval must be either null or >= 0");
+        this.modificationCheckIntervalMs = modificationCheckIntervalMs;
+    }
+
+
+
+
+    @Override
+    protected ICacheEntryValidity computeValidity(
+            final IEngineConfiguration configuration, final IContext context, final String template) {
+
+        final ICacheEntryValidity validity = super.computeValidity(configuration, context, template);
+        if (this.modificationCheckIntervalMs == null || !validity.isCacheable()) {
+            return validity;
+        }
+
+        final String resourceName = computeResourceName(configuration, context, template);
+        return new FileModificationCacheEntryValidity(
+                new File(resourceName), this.modificationCheckIntervalMs.longValue());
+
+    }
+
     
     
 
@@ -52,7 +136,7 @@ public FileTemplateResolver() {
     /**
      * <p>
      *   This method <b>should not be called</b>, because the resource resolver is
-     *   fixed to be {@link FileResourceResolver}. Every execution of this method
+     *   fixed to be {@link NIOFileResourceResolver}. Every execution of this method
      *   will result in an exception.
      * </p>
      * <p>
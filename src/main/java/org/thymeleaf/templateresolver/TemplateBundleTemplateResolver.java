@@ -0,0 +1,109 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.templateresolver;
+
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.exceptions.ConfigurationException;
+import org.thymeleaf.resourceresolver.IResourceResolver;
+import org.thymeleaf.resourceresolver.TemplateBundle;
+import org.thymeleaf.resourceresolver.TemplateBundleResourceResolver;
+
+/**
+ * <p>
+ *   Implementation of {@link ITemplateResolver} that extends {@link TemplateResolver}
+ *   and uses a {@link TemplateBundleResourceResolver} for resource resolution.
+ * </p>
+ * <p>
+ *   Templates will only be considered resolvable by this resolver if (besides matching the
+ *   <i>resolvable patterns</i>, if any) their resource names exist in the bundle, so that
+ *   templates not contained in the bundle can be resolved by the next template resolvers
+ *   in the chain.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public class TemplateBundleTemplateResolver
+        extends TemplateResolver {
+
+    private final TemplateBundle bundle;
+
+
+
+    public TemplateBundleTemplateResolver(final TemplateBundle bundle) {
+        super();
+        super.setResourceResolver(new TemplateBundleResourceResolver(bundle));
+        this.bundle = bundle;
+    }
+
+
+
+    /**
+     * <p>
+     *   Returns the template bundle templates are resolved from.
+     * </p>
+     *
+     * @return the template bundle.
+     */
+    public final TemplateBundle getBundle() {
+        return this.bundle;
+    }
+
+
+
+    /**
+     * <p>
+     *   This method <b>should not be called</b>, because the resource resolver is
+     *   fixed to be {@link TemplateBundleResourceResolver}. Every execution of this method
+     *   will result in an exception.
+     * </p>
+     * <p>
+     *   If you need to select a different resource resolver, use the {@link TemplateResolver}
+     *   class instead.
+     * </p>
+     *
+     * @param resourceResolver the new resource resolver
+     */
+    @Override
+    public void setResourceResolver(final IResourceResolver resourceResolver) {
+        throw new ConfigurationException(
+                "Cannot set a resource resolver on " + this.getClass().getName() + ". If " +
+                "you want to set your own resource resolver, use " + TemplateResolver.class.getName() +
+                "instead");
+    }
+
+
+
+
+    @Override
+    protected boolean computeResolvable(
+            final IEngineConfiguration configuration, final IContext context, final String template) {
+        if (!super.computeResolvable(configuration, context, template)) {
+            return false;
+        }
+        return this.bundle.containsEntry(computeResourceName(configuration, context, template));
+    }
+
+
+
+}
@@ -79,7 +79,10 @@ public final class LimitedSizeCacheTextRepository implements ITextRepository {
     private final int[][] textMap;
 
 
-    private final ReadWriteLock lock = new ReentrantReadWriteLock(true);
+    // Non-fair: fairness would force readers to queue behind any waiting writer, serializing the (very frequent)
+    // read operations whenever a new text is being stored. Note these locks do not pin virtual threads, as
+    // monitors would.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private final Lock readLock = this.lock.readLock();
     private final Lock writeLock = this.lock.writeLock();
 
@@ -52,7 +52,7 @@
  * @since 3.0.0
  *
  */
-public final class AggregateCharSequence implements Serializable, CharSequence {
+public final class AggregateCharSequence implements Serializable, IWritableCharSequence {
 
 
     protected static final long serialVersionUID = 823987612L;
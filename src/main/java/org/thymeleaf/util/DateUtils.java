@@ -27,6 +27,8 @@
 import java.util.Map;
 import java.util.TimeZone;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -39,7 +41,10 @@
 public final class DateUtils {
     
     
-    private static final Map<DateFormatKey,DateFormat> dateFormats = new ConcurrentHashMap<DateFormatKey, DateFormat>();
+    // Formats (pattern, locale and time zone combinations) can come from user input, so the amount of them being
+    // pooled is limited. Formats exceeding this limit are created for each use.
+    private static final int MAX_DATE_FORMAT_POOLS = 200;
+    private static final Map<DateFormatKey,DateFormatPool> dateFormats = new ConcurrentHashMap<DateFormatKey, DateFormatPool>();
 
     /*
      * This SimpleDateFormat defines an almost-ISO8601 formatter.
@@ -48,9 +53,11 @@ public final class DateUtils {
      * timezone as "+02:00" or "Z" instead of "+0200") was not added until Java SE 7. So the use of this
      * SimpleDateFormat object requires additional post-processing.
      *
-     * Note SimpleDateFormat objects are NOT thread-safe, so use of this object must be synchronized.
+     * Note SimpleDateFormat objects are NOT thread-safe, so this object is never used directly for formatting,
+     * but through a pool of copies, each of them used by only one thread at a time.
      */
-    private static final SimpleDateFormat ISO8601_DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZZZ");
+    private static final DateFormatPool ISO8601_DATE_FORMAT =
+            new DateFormatPool(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZZZ"));
 
     
     
@@ -474,8 +481,9 @@ private static String formatDate(final Object target, final String pattern, fina
 
         final DateFormatKey key = new DateFormatKey(target, pattern, locale);
         
-        DateFormat dateFormat = dateFormats.get(key);
-        if (dateFormat == null) {
+        DateFormatPool dateFormatPool = dateFormats.get(key);
+        if (dateFormatPool == null) {
+            final DateFormat dateFormat;
             if (StringUtils.isEmptyOrWhitespace(pattern)) {
                 dateFormat = DateFormat.getDateTimeInstance(DateFormat.LONG, DateFormat.LONG, locale);
             } else {
@@ -484,17 +492,16 @@ private static String formatDate(final Object target, final String pattern, fina
             if (key.timeZone != null) {
                 dateFormat.setTimeZone(key.timeZone);
             }
-            dateFormats.put(key, dateFormat);
+            dateFormatPool = new DateFormatPool(dateFormat);
+            if (dateFormats.size() < MAX_DATE_FORMAT_POOLS) {
+                dateFormats.put(key, dateFormatPool);
+            }
         }
         
         if (target instanceof Calendar) {
-            synchronized (dateFormat) {
-                return dateFormat.format(((Calendar) target).getTime());
-            }
+            return dateFormatPool.format(((Calendar) target).getTime());
         } else if (target instanceof java.util.Date) {
-            synchronized (dateFormat) {
-                return dateFormat.format((java.util.Date)target);
-            }
+            return dateFormatPool.format((java.util.Date)target);
         } else {
             throw new IllegalArgumentException(
                     "Cannot format object of class \"" + target.getClass().getName() + "\" as a date");
@@ -526,10 +533,7 @@ public static String formatISO(final Object target) {
                     "Cannot format object of class \"" + target.getClass().getName() + "\" as a date");
         }
 
-        final String formatted;
-        synchronized (ISO8601_DATE_FORMAT) {
-            formatted = ISO8601_DATE_FORMAT.format(targetDate);
-        }
+        final String formatted = ISO8601_DATE_FORMAT.format(targetDate);
 
         final StringBuilder strBuilder = new StringBuilder();
         strBuilder.append(formatted, 0, 23);
@@ -561,6 +565,51 @@ private DateUtils() {
     
     
     
+    /*
+     * DateFormat objects are not thread-safe, so instead of synchronizing on a shared instance (which would
+     * serialize all formatting operations on the same format), each thread takes an instance from this lock-free
+     * pool (cloning the prototype if none is available) and returns it afterwards. Only a limited amount of
+     * instances are kept: those returned when the pool is already full are simply discarded.
+     */
+    private static final class DateFormatPool {
+
+        private static final int MAX_AVAILABLE_FORMATS = 8;
+
+        private final DateFormat prototype;
+        private final ConcurrentLinkedQueue<DateFormat> available;
+        private final AtomicInteger availableCount;
+
+        DateFormatPool(final DateFormat prototype) {
+            super();
+            this.prototype = prototype;
+            this.available = new ConcurrentLinkedQueue<DateFormat>();
+            this.availableCount = new AtomicInteger(0);
+        }
+
+        String format(final java.util.Date date) {
+            DateFormat dateFormat = this.available.poll();
+            if (dateFormat != null) {
+                this.availableCount.decrementAndGet();
+            } else {
+                dateFormat = (DateFormat) this.prototype.clone();
+            }
+            try {
+                return dateFormat.format(date);
+            } finally {
+                if (this.availableCount.incrementAndGet() > MAX_AVAILABLE_FORMATS) {
+                    // Pool is full, just let this instance be garbage collected
+                    this.availableCount.decrementAndGet();
+                } else {
+                    this.available.offer(dateFormat);
+                }
+            }
+        }
+
+    }
+
+
+
+
     private static final class DateFormatKey {
         
         final String format;
@@ -44,6 +44,16 @@ public static BigDecimal evaluateAsNumber(final Object object) {
         return EvaluationUtils.evaluateAsNumber(object);
     }
 
+    /**
+     * <p>
+     *   Note that, for lists and arrays, the returned list is an unmodifiable <em>live view</em> of the
+     *   specified object, not a copy (see {@link EvaluationUtils#evaluateAsList(Object)}).
+     * </p>
+     *
+     * @param value the object to be evaluated.
+     * @return the (unmodifiable) list of elements.
+     * @deprecated use {@link EvaluationUtils#evaluateAsList(Object)} instead.
+     */
     @Deprecated
     public static List<Object> evaluateAsList(final Object value) {
         return EvaluationUtils.evaluateAsList(value);
@@ -19,12 +19,17 @@
  */
 package org.thymeleaf.util;
 
+import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 
 import org.thymeleaf.standard.expression.LiteralValue;
 
@@ -59,11 +64,9 @@ public static boolean evaluateAsBoolean(final Object condition) {
             } else if (condition instanceof Character) {
                 result = ((Character) condition).charValue() != 0;
             } else if (condition instanceof String) {
-                final String condStr = ((String)condition).trim().toLowerCase();
-                result = !("false".equals(condStr) || "off".equals(condStr) || "no".equals(condStr));
+                result = !isFalseLiteral((String)condition);
             } else if (condition instanceof LiteralValue) {
-                final String condStr = ((LiteralValue)condition).getValue().trim().toLowerCase();
-                result = !("false".equals(condStr) || "off".equals(condStr) || "no".equals(condStr));
+                result = !isFalseLiteral(((LiteralValue)condition).getValue());
             } else {
                 result = true;
             }
@@ -75,6 +78,48 @@ public static boolean evaluateAsBoolean(final Object condition) {
 
 
 
+    /*
+     * Equivalent to checking whether str.trim().toLowerCase() is "false", "off" or "no", but without creating
+     * any new String objects. Note no non-ASCII character can be lower-cased into any of the letters in
+     * these literals, so comparing ASCII letters is enough.
+     */
+    private static boolean isFalseLiteral(final String str) {
+
+        int start = 0;
+        int end = str.length();
+        while (start < end && str.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && str.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        switch (end - start) {
+            case 5: return regionEqualsIgnoreCase(str, start, "false");
+            case 3: return regionEqualsIgnoreCase(str, start, "off");
+            case 2: return regionEqualsIgnoreCase(str, start, "no");
+            default: return false;
+        }
+
+    }
+
+
+    // The literal is expected to be composed of lower-case ASCII letters only
+    private static boolean regionEqualsIgnoreCase(final String str, final int offset, final String literal) {
+        final int literalLen = literal.length();
+        for (int i = 0; i < literalLen; i++) {
+            final char c = str.charAt(offset + i);
+            final char l = literal.charAt(i);
+            if (c != l && c != (char)(l - ('a' - 'A'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+
+
     public static BigDecimal evaluateAsNumber(final Object object) {
 
         if (object == null) {
@@ -113,67 +158,56 @@ public static BigDecimal evaluateAsNumber(final Object object) {
 
 
 
+    /**
+     * <p>
+     *   Evaluates the specified object as a list of elements.
+     * </p>
+     * <p>
+     *   Note that, for lists and arrays, the returned list is an unmodifiable <em>live view</em> of the
+     *   specified object, not a copy: any later modifications made to that object will be visible through it.
+     * </p>
+     *
+     * @param value the object to be evaluated.
+     * @return the (unmodifiable) list of elements.
+     */
     public static List<Object> evaluateAsList(final Object value) {
         // Iterating on null should be the same as iterating an empty list
         // (for example, <c:forEach>)
         if (value == null) {
             return Collections.emptyList();
         }
-        final List<Object> result = new ArrayList<Object>();
+        // Lists and arrays are returned as unmodifiable views (not copies), so that no new structures need to be
+        // created and no primitive values need to be boxed until they are actually accessed
+        if (value instanceof List<?>) {
+            return Collections.<Object>unmodifiableList((List<?>) value);
+        }
+        if (value instanceof Collection<?>) {
+            return Collections.unmodifiableList(new ArrayList<Object>((Collection<?>) value));
+        }
         if (value instanceof Iterable<?>) {
+            final List<Object> result = new ArrayList<Object>();
             for (final Object obj : (Iterable<?>) value) {
                 result.add(obj);
             }
-        } else if (value instanceof Map<?,?>) {
-            for (final Map.Entry<Object,Object> obj : ((Map<Object,Object>) value).entrySet()) {
-                // We should not directly use the Map.Entry<Object,Object> object used as an iteration
+            return Collections.unmodifiableList(result);
+        }
+        if (value instanceof Map<?,?>) {
+            final List<Object> result = new ArrayList<Object>(((Map<?,?>) value).size());
+            for (final Map.Entry<?,?> obj : ((Map<?,?>) value).entrySet()) {
+                // We should not directly use the Map.Entry<?,?> object used as an iteration
                 // variable because some Map implementations like EnumMap reuse the same Map.Entry in their
                 // iterator()'s, so we would be adding the same object to the list several times.
                 result.add(new MapEntry<Object,Object>(obj.getKey(), obj.getValue()));
             }
-        } else if (value.getClass().isArray()){
-            if (value instanceof byte[]) {
-                for (final byte obj : (byte[]) value) {
-                    result.add(Byte.valueOf(obj));
-                }
-            } else if (value instanceof short[]) {
-                for (final short obj : (short[]) value) {
-                    result.add(Short.valueOf(obj));
-                }
-            } else if (value instanceof int[]) {
-                for (final int obj : (int[]) value) {
-                    result.add(Integer.valueOf(obj));
-                }
-            } else if (value instanceof long[]) {
-                for (final long obj : (long[]) value) {
-                    result.add(Long.valueOf(obj));
-                }
-            } else if (value instanceof float[]) {
-                for (final float obj : (float[]) value) {
-                    result.add(Float.valueOf(obj));
-                }
-            } else if (value instanceof double[]) {
-                for (final double obj : (double[]) value) {
-                    result.add(Double.valueOf(obj));
-                }
-            } else if (value instanceof boolean[]) {
-                for (final boolean obj : (boolean[]) value) {
-                    result.add(Boolean.valueOf(obj));
-                }
-            } else if (value instanceof char[]) {
-                for (final char obj : (char[]) value) {
-                    result.add(Character.valueOf(obj));
-                }
-            } else {
-                final Object[] objValue = (Object[]) value;
-                Collections.addAll(result, objValue);
-            }
-        } else{
-            result.add(value);
+            return Collections.unmodifiableList(result);
         }
-
-        return Collections.unmodifiableList(result);
-
+        if (value instanceof Object[]) {
+            return Collections.unmodifiableList(Arrays.asList((Object[]) value));
+        }
+        if (value.getClass().isArray()) {
+            return new PrimitiveArrayList(value);
+        }
+        return Collections.singletonList(value);
     }
 
 
@@ -181,10 +215,13 @@ public static List<Object> evaluateAsList(final Object value) {
 
     public static Object[] evaluateAsArray(final Object value) {
 
-        final List<Object> result = new ArrayList<Object>();
         if (value == null) {
             return new Object[] { null };
         }
+        if (value instanceof Collection<?>) {
+            return ((Collection<?>) value).toArray();
+        }
+        final List<Object> result = new ArrayList<Object>();
         if (value instanceof Iterable<?>) {
             for (final Object obj : (Iterable<?>) value) {
                 result.add(obj);
@@ -212,6 +249,53 @@ private EvaluationUtils() {
     
     
     
+    /*
+     * Unmodifiable, random-access view of an array of primitives, boxing its elements only when they are accessed
+     */
+    static final class PrimitiveArrayList extends AbstractList<Object> implements RandomAccess {
+
+        private final Object array;
+        private final int size;
+
+        PrimitiveArrayList(final Object array) {
+            super();
+            this.array = array;
+            this.size = Array.getLength(array);
+        }
+
+        @Override
+        public Object get(final int index) {
+            if (index < 0 || index >= this.size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+            }
+            if (this.array instanceof int[]) {
+                return Integer.valueOf(((int[]) this.array)[index]);
+            } else if (this.array instanceof long[]) {
+                return Long.valueOf(((long[]) this.array)[index]);
+            } else if (this.array instanceof double[]) {
+                return Double.valueOf(((double[]) this.array)[index]);
+            } else if (this.array instanceof boolean[]) {
+                return Boolean.valueOf(((boolean[]) this.array)[index]);
+            } else if (this.array instanceof char[]) {
+                return Character.valueOf(((char[]) this.array)[index]);
+            } else if (this.array instanceof byte[]) {
+                return Byte.valueOf(((byte[]) this.array)[index]);
+            } else if (this.array instanceof short[]) {
+                return Short.valueOf(((short[]) this.array)[index]);
+            } else {
+                return Float.valueOf(((float[]) this.array)[index]);
+            }
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+
+    }
+
+
+
     static final class MapEntry<K,V> implements Map.Entry<K,V> {
 
         private final K entryKey;
@@ -245,10 +329,10 @@ public boolean equals(final Object o) {
             if (this == o) {
                 return true;
             }
-            if (!(o instanceof Map.Entry)) {
+            if (!(o instanceof Map.Entry<?,?>)) {
                 return false;
             }
-            final Map.Entry mapEntry = (Map.Entry) o;
+            final Map.Entry<?,?> mapEntry = (Map.Entry<?,?>) o;
             if (this.entryKey != null ? !this.entryKey.equals(mapEntry.getKey()) : mapEntry.getKey() != null) {
                 return false;
             }
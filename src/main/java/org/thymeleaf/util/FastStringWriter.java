@@ -0,0 +1,111 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.util;
+
+import java.io.Writer;
+
+
+/**
+ * <p>
+ *   Unsynchronized {@link Writer} implementation backed by a {@link StringBuilder}, meant to be used
+ *   as a replacement for {@link java.io.StringWriter} (which is backed by a synchronized
+ *   {@link StringBuffer}) in scenarios in which the writer is confined to a single thread.
+ * </p>
+ * <p>
+ *   Objects of this class are <b>not thread-safe</b>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public final class FastStringWriter extends Writer {
+
+    private final StringBuilder builder;
+
+
+
+    public FastStringWriter() {
+        super();
+        this.builder = new StringBuilder();
+    }
+
+
+    public FastStringWriter(final int initialSize) {
+        super();
+        if (initialSize < 0) {
+            throw new IllegalArgumentException("Negative buffer size");
+        }
+        this.builder = new StringBuilder(initialSize);
+    }
+
+
+
+
+    @Override
+    public void write(final int c) {
+        this.builder.append((char) c);
+    }
+
+
+    @Override
+    public void write(final String str) {
+        this.builder.append(str);
+    }
+
+
+    @Override
+    public void write(final String str, final int off, final int len) {
+        this.builder.append(str, off, off + len);
+    }
+
+
+    @Override
+    public void write(final char[] cbuf, final int off, final int len) {
+        if ((off < 0) || (off > cbuf.length) || (len < 0) ||
+                ((off + len) > cbuf.length) || ((off + len) < 0)) {
+            throw new IndexOutOfBoundsException();
+        } else if (len == 0) {
+            return;
+        }
+        this.builder.append(cbuf, off, len);
+    }
+
+
+    @Override
+    public void flush() {
+        // Nothing to be flushed
+    }
+
+
+    @Override
+    public void close() {
+        // Nothing to be closed
+    }
+
+
+    @Override
+    public String toString() {
+        return this.builder.toString();
+    }
+
+
+}
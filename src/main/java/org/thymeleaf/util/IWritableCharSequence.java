@@ -0,0 +1,56 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.thymeleaf.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * <p>
+ *     Common interface for {@link CharSequence} implementations that are able to write their contents
+ *     directly to a {@link Writer}, without the need to create a {@link String} object for them first.
+ * </p>
+ * <p>
+ *     The engine will use the {@link #write(Writer)} method of these sequences whenever they are
+ *     output as a part of a template.
+ * </p>
+ * <p>
+ *     The contents of implementations of this interface should never change once created, as the
+ *     engine might share them among several template events.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public interface IWritableCharSequence extends CharSequence {
+
+    /**
+     * <p>
+     *     Write the contents of this sequence to the specified writer.
+     * </p>
+     *
+     * @param writer the writer the contents will be written to.
+     * @throws IOException if an exception happens when writing.
+     */
+    public void write(final Writer writer) throws IOException;
+
+}
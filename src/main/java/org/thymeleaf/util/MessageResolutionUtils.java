@@ -41,6 +41,7 @@
 import org.thymeleaf.exceptions.TemplateProcessingException;
 import org.thymeleaf.messageresolver.IMessageResolver;
 import org.thymeleaf.messageresolver.MessageResolution;
+import org.thymeleaf.metrics.IEngineMetrics;
 import org.thymeleaf.resource.IResource;
 import org.thymeleaf.resourceresolver.ClassLoaderResourceResolver;
 import org.thymeleaf.resourceresolver.IResourceResolver;
@@ -90,6 +91,11 @@ public static String resolveMessageForTemplate(
             }
         }
         
+        final IEngineMetrics metrics = processingContext.getConfiguration().getEngineMetrics();
+        if (metrics != null) {
+            metrics.recordMessageResolution(messageResolution != null);
+        }
+
         if (messageResolution == null) {
             
             if (!returnStringAlways) {
@@ -75,7 +75,11 @@ public static BigDecimal evaluateAsNumber(final Object object) {
 
 
     /**
-     * 
+     * <p>
+     *   Note that, for lists and arrays, the returned list is an unmodifiable <em>live view</em> of the
+     *   specified object, not a copy (see {@link EvaluationUtils#evaluateAsList(Object)}).
+     * </p>
+     *
      * @param value value
      * @return the result
      * @deprecated since 2.1, you should use the
@@ -92,7 +96,11 @@ public static List<Object> convertToIterable(final Object value) {
 
 
     /**
-     * 
+     * <p>
+     *   Note that, for lists and arrays, the returned list is an unmodifiable <em>live view</em> of the
+     *   specified object, not a copy (see {@link EvaluationUtils#evaluateAsList(Object)}).
+     * </p>
+     *
      * @param value value
      * @return the result
      * @deprecated since 2.1, you should use the
@@ -735,10 +735,9 @@ public static String unescapeJava(final Object target) {
     public static String randomAlphanumeric(final int count) {
         final StringBuilder strBuilder = new StringBuilder(count);
         final int anLen = ALPHA_NUMERIC.length();
-        synchronized (RANDOM) {
-            for (int i = 0; i < count; i++) {
-                strBuilder.append(ALPHA_NUMERIC.charAt(RANDOM.nextInt(anLen)));
-            }
+        // Random is thread-safe, so no synchronization is needed
+        for (int i = 0; i < count; i++) {
+            strBuilder.append(ALPHA_NUMERIC.charAt(RANDOM.nextInt(anLen)));
         }
         return strBuilder.toString();
     }